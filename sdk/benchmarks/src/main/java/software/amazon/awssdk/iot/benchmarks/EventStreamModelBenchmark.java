@@ -0,0 +1,82 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import software.amazon.awssdk.aws.greengrass.GreengrassCoreIPCServiceModel;
+import software.amazon.awssdk.aws.greengrass.model.PublishToTopicRequest;
+import software.amazon.awssdk.aws.greengrass.model.SubscriptionResponseMessage;
+import software.amazon.awssdk.eventstreamrpc.EventStreamRPCServiceModel;
+import software.amazon.awssdk.eventstreamrpc.model.EventStreamJsonMessage;
+
+/**
+ * Measures the Greengrass IPC service model's JSON path: encoding a request with toJson and decoding a message
+ * with fromJson, either by class (as operation responses and stream events are decoded) or by application model
+ * type name (which first looks up the class in the service model).  The size parameter is the number of properties
+ * in the message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventStreamModelBenchmark {
+
+    @Param({"4", "64", "1024"})
+    public int size;
+
+    private EventStreamRPCServiceModel serviceModel;
+    private byte[] publishRequestPayload;
+    private byte[] subscriptionMessagePayload;
+    private PublishToTopicRequest publishRequest;
+
+    @Setup
+    public void setup() {
+        serviceModel = GreengrassCoreIPCServiceModel.getInstance();
+        publishRequestPayload = PayloadCorpus.publishToTopicRequest(size);
+        subscriptionMessagePayload = PayloadCorpus.subscriptionResponseMessage(size);
+        publishRequest = serviceModel.fromJson(PublishToTopicRequest.class, publishRequestPayload);
+    }
+
+    @Benchmark
+    public byte[] publishRequestToJson() {
+        return serviceModel.toJson(publishRequest);
+    }
+
+    @Benchmark
+    public PublishToTopicRequest publishRequestFromJson() {
+        return serviceModel.fromJson(PublishToTopicRequest.class, publishRequestPayload);
+    }
+
+    @Benchmark
+    public SubscriptionResponseMessage subscriptionMessageFromJson() {
+        return serviceModel.fromJson(SubscriptionResponseMessage.class, subscriptionMessagePayload);
+    }
+
+    @Benchmark
+    public EventStreamJsonMessage subscriptionMessageFromJsonByModelType() {
+        return serviceModel.fromJson(SubscriptionResponseMessage.APPLICATION_MODEL_TYPE, subscriptionMessagePayload);
+    }
+
+    @Benchmark
+    public byte[] subscriptionMessageRoundTrip() {
+        return serviceModel.toJson(serviceModel.fromJson(SubscriptionResponseMessage.class, subscriptionMessagePayload));
+    }
+}
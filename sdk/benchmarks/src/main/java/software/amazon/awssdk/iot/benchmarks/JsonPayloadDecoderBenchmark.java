@@ -0,0 +1,103 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import software.amazon.awssdk.iot.JsonPayloadDecoder;
+import software.amazon.awssdk.iot.ShadowStateFactory;
+import software.amazon.awssdk.iot.Timestamp;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowResponse;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+
+/**
+ * Compares decoding shadow payloads through an intermediate String (the original service client path) with
+ * decoding straight from the payload bytes through JsonPayloadDecoder.
+ *
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonPayloadDecoderBenchmark {
+
+    @Param({"4", "64", "1024"})
+    public int properties;
+
+    private Gson gson;
+    private byte[] deltaPayload;
+    private byte[] getShadowPayload;
+
+    @Setup
+    public void setup() {
+        GsonBuilder builder = new GsonBuilder();
+        builder.disableHtmlEscaping();
+        builder.registerTypeAdapter(Timestamp.class, new Timestamp.Serializer());
+        builder.registerTypeAdapter(Timestamp.class, new Timestamp.Deserializer());
+        builder.registerTypeAdapterFactory(new ShadowStateFactory());
+        gson = builder.create();
+
+        StringBuilder state = new StringBuilder("{");
+        StringBuilder metadata = new StringBuilder("{");
+        for (int i = 0; i < properties; i++) {
+            if (i > 0) {
+                state.append(',');
+                metadata.append(',');
+            }
+            state.append("\"property").append(i).append("\":{\"value\":").append(i * 1.5)
+                .append(",\"unit\":\"celsius\",\"enabled\":").append(i % 2 == 0).append('}');
+            metadata.append("\"property").append(i).append("\":{\"value\":{\"timestamp\":1700000000}}");
+        }
+        state.append('}');
+        metadata.append('}');
+
+        deltaPayload = ("{\"state\":" + state + ",\"metadata\":" + metadata + ",\"timestamp\":1700000000,\"version\":17}")
+            .getBytes(StandardCharsets.UTF_8);
+        getShadowPayload = ("{\"state\":{\"desired\":" + state + ",\"reported\":" + state + "},\"metadata\":{\"desired\":"
+            + metadata + ",\"reported\":" + metadata + "},\"timestamp\":1700000000,\"version\":17,\"clientToken\":\"abc\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ShadowDeltaUpdatedEvent deltaViaString() {
+        String payload = new String(deltaPayload, StandardCharsets.UTF_8);
+        return gson.fromJson(payload, ShadowDeltaUpdatedEvent.class);
+    }
+
+    @Benchmark
+    public ShadowDeltaUpdatedEvent deltaViaBytes() {
+        return JsonPayloadDecoder.fromJson(gson, deltaPayload, ShadowDeltaUpdatedEvent.class);
+    }
+
+    @Benchmark
+    public GetShadowResponse getShadowViaString() {
+        String payload = new String(getShadowPayload, StandardCharsets.UTF_8);
+        return gson.fromJson(payload, GetShadowResponse.class);
+    }
+
+    @Benchmark
+    public GetShadowResponse getShadowViaBytes() {
+        return JsonPayloadDecoder.fromJson(gson, getShadowPayload, GetShadowResponse.class);
+    }
+}
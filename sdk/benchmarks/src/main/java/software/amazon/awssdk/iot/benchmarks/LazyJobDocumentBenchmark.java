@@ -0,0 +1,84 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import software.amazon.awssdk.iot.EnumSerializer;
+import software.amazon.awssdk.iot.JsonPayloadDecoder;
+import software.amazon.awssdk.iot.Timestamp;
+import software.amazon.awssdk.iot.iotjobs.IotJobsV2Client;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.RejectedErrorCode;
+
+/**
+ * Compares decoding a DescribeJobExecutionResponse the way IotJobsV2Client does, with the job document sliced out
+ * of the payload and parsed lazily, against the eager decode that builds the document's maps and lists up front.
+ * {@code decodeLazy} is the cost a runner pays to look at an execution's status and version; the {@code AndRead}
+ * variants add the first access to the document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LazyJobDocumentBenchmark {
+
+    @Param({"4", "64", "1024"})
+    public int steps;
+
+    private Gson clientGson;
+    private Gson eagerGson;
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        clientGson = IotJobsV2Client.createGson();
+        eagerGson = new GsonBuilder()
+            .disableHtmlEscaping()
+            .registerTypeAdapter(Timestamp.class, new Timestamp.Deserializer())
+            .registerTypeAdapter(JobStatus.class, new EnumSerializer<JobStatus>())
+            .registerTypeAdapter(RejectedErrorCode.class, new EnumSerializer<RejectedErrorCode>())
+            .create();
+        payload = PayloadCorpus.describeJobExecutionResponse(steps);
+    }
+
+    @Benchmark
+    public DescribeJobExecutionResponse decodeEager() {
+        return JsonPayloadDecoder.fromJson(eagerGson, payload, DescribeJobExecutionResponse.class);
+    }
+
+    @Benchmark
+    public DescribeJobExecutionResponse decodeLazy() {
+        return IotJobsV2Client.decodePayload(clientGson, payload, DescribeJobExecutionResponse.class);
+    }
+
+    @Benchmark
+    public Object decodeEagerAndRead() {
+        return decodeEager().execution.jobDocument.get("operation");
+    }
+
+    @Benchmark
+    public Object decodeLazyAndRead() {
+        return decodeLazy().execution.jobDocument.get("operation");
+    }
+}
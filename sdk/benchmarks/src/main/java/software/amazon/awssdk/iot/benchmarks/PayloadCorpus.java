@@ -0,0 +1,273 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates payloads shaped like those the services send and receive.  Each generator takes a size: the number of
+ * shadow properties, job document steps, queued jobs, command parameters or results, or template parameters, so one
+ * benchmark parameter scales every corpus from a few hundred bytes to a few hundred kilobytes.
+ */
+public final class PayloadCorpus {
+
+    static final String THING_NAME = "factory-7-line-3-sensor-0042";
+    static final String SHADOW_NAME = "telemetry";
+    static final String JOB_ID = "firmware-update-2024-11-rollout-3";
+    static final String EXECUTION_ID = "6f1c3a1e-58b2-4d7a-9a53-0c2f8e7b9d14";
+    static final String TEMPLATE_NAME = "FleetProvisioningTemplate";
+    static final String CLIENT_TOKEN = "4b9d2c1e-7a3f-4e8b-b6d5-2f1a9c8e7d60";
+    static final long TIMESTAMP = 1700000000L;
+
+    private PayloadCorpus() {}
+
+    /**
+     * @param properties the number of properties
+     * @return a shadow state object whose properties mix numbers, strings, booleans and nested objects
+     */
+    static String shadowState(int properties) {
+        StringBuilder state = new StringBuilder("{");
+        for (int i = 0; i < properties; i++) {
+            if (i > 0) {
+                state.append(',');
+            }
+            state.append("\"property").append(i).append("\":");
+            switch (i % 4) {
+                case 0:
+                    state.append(i * 1.5);
+                    break;
+                case 1:
+                    state.append("\"mode-").append(i).append('"');
+                    break;
+                case 2:
+                    state.append(i % 3 == 0);
+                    break;
+                default:
+                    state.append("{\"value\":").append(i).append(",\"unit\":\"celsius\",\"enabled\":true}");
+            }
+        }
+        return state.append('}').toString();
+    }
+
+    /**
+     * @param properties the number of shadow properties
+     * @return an UpdateShadowRequest
+     */
+    static byte[] updateShadowRequest(int properties) {
+        String state = shadowState(properties);
+        return utf8("{\"clientToken\":\"" + CLIENT_TOKEN + "\",\"state\":{\"desired\":" + state + ",\"reported\":"
+            + state + "},\"version\":17}");
+    }
+
+    /**
+     * @param properties the number of shadow properties
+     * @return the accepted response to an UpdateShadowRequest, with per-property metadata
+     */
+    static byte[] updateShadowResponse(int properties) {
+        String state = shadowState(properties);
+        String metadata = shadowMetadata(properties);
+        return utf8("{\"clientToken\":\"" + CLIENT_TOKEN + "\",\"state\":{\"desired\":" + state + ",\"reported\":"
+            + state + "},\"metadata\":{\"desired\":" + metadata + ",\"reported\":" + metadata + "},\"timestamp\":"
+            + TIMESTAMP + ",\"version\":18}");
+    }
+
+    /**
+     * @param properties the number of properties that differ between the desired and reported state
+     * @return a ShadowDeltaUpdatedEvent, as published to a shadow's update/delta topic
+     */
+    static byte[] shadowDeltaUpdatedEvent(int properties) {
+        return utf8("{\"state\":" + shadowState(properties) + ",\"metadata\":" + shadowMetadata(properties) + ",\"timestamp\":"
+            + TIMESTAMP + ",\"version\":18,\"clientToken\":\"" + CLIENT_TOKEN + "\"}");
+    }
+
+    private static String shadowMetadata(int properties) {
+        StringBuilder metadata = new StringBuilder("{");
+        for (int i = 0; i < properties; i++) {
+            if (i > 0) {
+                metadata.append(',');
+            }
+            metadata.append("\"property").append(i).append("\":{\"timestamp\":").append(TIMESTAMP + i).append('}');
+        }
+        return metadata.append('}').toString();
+    }
+
+    /**
+     * @param steps the number of steps in the job document
+     * @return a DescribeJobExecutionResponse whose job document is a multi-step firmware rollout
+     */
+    static byte[] describeJobExecutionResponse(int steps) {
+        return utf8("{\"clientToken\":\"" + CLIENT_TOKEN + "\",\"execution\":" + jobExecution(steps) + ",\"timestamp\":"
+            + (TIMESTAMP + 61) + "}");
+    }
+
+    /**
+     * @param steps the number of steps in the job document
+     * @return a NextJobExecutionChangedEvent, as published to a thing's jobs/notify-next topic, carrying the same
+     * execution as {@link #describeJobExecutionResponse(int)}
+     */
+    static byte[] nextJobExecutionChangedEvent(int steps) {
+        return utf8("{\"execution\":" + jobExecution(steps) + ",\"timestamp\":" + (TIMESTAMP + 61) + "}");
+    }
+
+    private static String jobExecution(int steps) {
+        StringBuilder document = new StringBuilder("{\"operation\":\"firmware-update\",\"version\":\"3.2.1\",\"steps\":[");
+        for (int i = 0; i < steps; i++) {
+            if (i > 0) {
+                document.append(',');
+            }
+            document.append("{\"action\":{\"name\":\"step-").append(i)
+                .append("\",\"type\":\"runHandler\",\"input\":{\"handler\":\"install.sh\",\"args\":[\"--part\",\"")
+                .append(i).append("\"],\"path\":\"/opt/firmware/parts/").append(i)
+                .append("\"},\"runAsUser\":\"root\"},\"ignoreStepFailure\":").append(i % 5 == 0).append('}');
+        }
+        document.append("]}");
+        return "{\"jobId\":\"" + JOB_ID + "\",\"thingName\":\"" + THING_NAME + "\",\"jobDocument\":" + document
+            + ",\"status\":\"IN_PROGRESS\",\"statusDetails\":{\"step\":\"1\",\"progress\":\"downloading\"},\"queuedAt\":"
+            + TIMESTAMP + ",\"startedAt\":" + (TIMESTAMP + 30) + ",\"lastUpdatedAt\":" + (TIMESTAMP + 60)
+            + ",\"versionNumber\":3,\"executionNumber\":1}";
+    }
+
+    /**
+     * @param jobs the number of queued jobs
+     * @return a GetPendingJobExecutionsResponse with one job in progress and the given number queued
+     */
+    static byte[] getPendingJobExecutionsResponse(int jobs) {
+        StringBuilder queued = new StringBuilder("[");
+        for (int i = 0; i < jobs; i++) {
+            if (i > 0) {
+                queued.append(',');
+            }
+            queued.append(jobSummary("queued-job-" + i, i));
+        }
+        queued.append(']');
+        return utf8("{\"inProgressJobs\":[" + jobSummary(JOB_ID, 0) + "],\"queuedJobs\":" + queued + ",\"timestamp\":"
+            + TIMESTAMP + ",\"clientToken\":\"" + CLIENT_TOKEN + "\"}");
+    }
+
+    private static String jobSummary(String jobId, int index) {
+        return "{\"jobId\":\"" + jobId + "\",\"executionNumber\":" + (index + 1) + ",\"versionNumber\":1,\"lastUpdatedAt\":"
+            + (TIMESTAMP + index) + ",\"queuedAt\":" + (TIMESTAMP + index) + "}";
+    }
+
+    /**
+     * @param parameters the number of command parameters
+     * @return the payload of a command execution, as published to a device's executions/{executionId}/request/json
+     * topic: the command's JSON document with the given number of parameters
+     */
+    static byte[] commandExecutionRequest(int parameters) {
+        StringBuilder values = new StringBuilder("{");
+        for (int i = 0; i < parameters; i++) {
+            if (i > 0) {
+                values.append(',');
+            }
+            values.append("\"parameter").append(i).append("\":");
+            if (i % 2 == 0) {
+                values.append("{\"S\":\"setting-").append(i).append("\"}");
+            } else {
+                values.append("{\"N\":\"").append(i * 10).append("\"}");
+            }
+        }
+        values.append('}');
+        return utf8("{\"commandId\":\"reboot-with-config\",\"executionId\":\"" + EXECUTION_ID + "\",\"action\":\"apply-config\","
+            + "\"parameters\":" + values + "}");
+    }
+
+    /**
+     * @param results the number of command results
+     * @return an UpdateCommandExecutionRequest reporting success with the given number of results
+     */
+    static byte[] updateCommandExecutionRequest(int results) {
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 0; i < results; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("\"result").append(i).append("\":");
+            if (i % 2 == 0) {
+                result.append("{\"s\":\"completed step ").append(i).append(" in ").append(i * 7).append(" ms\"}");
+            } else {
+                result.append("{\"b\":").append(i % 3 != 0).append('}');
+            }
+        }
+        result.append('}');
+        return utf8("{\"deviceType\":\"things\",\"deviceId\":\"" + THING_NAME + "\",\"executionId\":\"" + EXECUTION_ID
+            + "\",\"status\":\"SUCCEEDED\",\"statusReason\":{\"reasonCode\":\"OK\",\"reasonDescription\":"
+            + "\"Command completed\"},\"result\":" + result + "}");
+    }
+
+    /**
+     * @param parameters the number of template parameters
+     * @return a RegisterThingRequest
+     */
+    static byte[] registerThingRequest(int parameters) {
+        StringBuilder values = new StringBuilder("{\"SerialNumber\":\"SN-0042\"");
+        for (int i = 1; i < parameters; i++) {
+            values.append(",\"Parameter").append(i).append("\":\"value-").append(i).append('"');
+        }
+        values.append('}');
+        return utf8("{\"templateName\":\"" + TEMPLATE_NAME + "\",\"certificateOwnershipToken\":\"" + ownershipToken()
+            + "\",\"parameters\":" + values + "}");
+    }
+
+    /**
+     * @return a CreateKeysAndCertificateResponse carrying a PEM certificate and key of realistic length
+     */
+    static byte[] createKeysAndCertificateResponse() {
+        return utf8("{\"certificateId\":\"" + hex(64) + "\",\"certificatePem\":\"" + pem("CERTIFICATE", 1224)
+            + "\",\"privateKey\":\"" + pem("RSA PRIVATE KEY", 1624) + "\",\"certificateOwnershipToken\":\""
+            + ownershipToken() + "\"}");
+    }
+
+    /**
+     * @param properties the number of properties in the message
+     * @return a Greengrass PublishToTopicRequest with a JSON message
+     */
+    static byte[] publishToTopicRequest(int properties) {
+        return utf8("{\"topic\":\"factory/line3/telemetry\",\"publishMessage\":{\"jsonMessage\":{\"message\":"
+            + shadowState(properties) + ",\"context\":{\"topic\":\"factory/line3/telemetry\"}}}}");
+    }
+
+    /**
+     * @param properties the number of properties in the message
+     * @return a Greengrass SubscriptionResponseMessage with a JSON message, as delivered to SubscribeToTopic streams
+     */
+    static byte[] subscriptionResponseMessage(int properties) {
+        return utf8("{\"jsonMessage\":{\"message\":" + shadowState(properties)
+            + ",\"context\":{\"topic\":\"factory/line3/telemetry\"}}}");
+    }
+
+    private static String ownershipToken() {
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            token.append(hex(60)).append("/+=");
+        }
+        return token.toString();
+    }
+
+    private static String pem(String type, int base64Length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder pem = new StringBuilder("-----BEGIN ").append(type).append("-----\\n");
+        for (int i = 0; i < base64Length; i++) {
+            pem.append(alphabet.charAt((i * 31 + 7) % alphabet.length()));
+            if (i % 64 == 63) {
+                pem.append("\\n");
+            }
+        }
+        return pem.append("\\n-----END ").append(type).append("-----\\n").toString();
+    }
+
+    private static String hex(int length) {
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            hex.append("0123456789abcdef".charAt((i * 7 + 3) % 16));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import software.amazon.awssdk.iot.JsonPayloadDecoder;
+import software.amazon.awssdk.iot.iotcommands.IotCommandsV2Client;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionRequest;
+import software.amazon.awssdk.iot.iotidentity.IotIdentityV2Client;
+import software.amazon.awssdk.iot.iotidentity.model.CreateKeysAndCertificateResponse;
+import software.amazon.awssdk.iot.iotidentity.model.RegisterThingRequest;
+import software.amazon.awssdk.iot.iotjobs.IotJobsV2Client;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.GetPendingJobExecutionsResponse;
+import software.amazon.awssdk.iot.iotshadow.IotShadowV2Client;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowResponse;
+
+/**
+ * Measures the Gson work of each service client: encoding a request the way the client publishes it and decoding
+ * a response the way the client completes an operation, using the Gson instance the client itself builds.  The
+ * round-trip benchmarks decode and re-encode, which exercises every type adapter in both directions.
+ *
+ * The size parameter is the number of shadow properties, job document steps, queued jobs, command results or
+ * template parameters in the payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceModelBenchmark {
+
+    @Param({"4", "64", "1024"})
+    public int size;
+
+    private Gson shadowGson;
+    private Gson jobsGson;
+    private Gson commandsGson;
+    private Gson identityGson;
+
+    private byte[] updateShadowRequest;
+    private byte[] updateShadowResponse;
+    private byte[] describeJobExecutionResponse;
+    private byte[] getPendingJobExecutionsResponse;
+    private byte[] updateCommandExecutionRequest;
+    private byte[] registerThingRequest;
+    private byte[] createKeysAndCertificateResponse;
+
+    private UpdateShadowRequest shadowRequest;
+    private UpdateCommandExecutionRequest commandRequest;
+    private RegisterThingRequest registerRequest;
+
+    @Setup
+    public void setup() {
+        shadowGson = IotShadowV2Client.createGson();
+        jobsGson = IotJobsV2Client.createGson();
+        commandsGson = IotCommandsV2Client.createGson();
+        identityGson = IotIdentityV2Client.createGson();
+
+        updateShadowRequest = PayloadCorpus.updateShadowRequest(size);
+        updateShadowResponse = PayloadCorpus.updateShadowResponse(size);
+        describeJobExecutionResponse = PayloadCorpus.describeJobExecutionResponse(size);
+        getPendingJobExecutionsResponse = PayloadCorpus.getPendingJobExecutionsResponse(size);
+        updateCommandExecutionRequest = PayloadCorpus.updateCommandExecutionRequest(size);
+        registerThingRequest = PayloadCorpus.registerThingRequest(size);
+        createKeysAndCertificateResponse = PayloadCorpus.createKeysAndCertificateResponse();
+
+        shadowRequest = JsonPayloadDecoder.fromJson(shadowGson, updateShadowRequest, UpdateShadowRequest.class);
+        commandRequest = JsonPayloadDecoder.fromJson(commandsGson, updateCommandExecutionRequest, UpdateCommandExecutionRequest.class);
+        registerRequest = JsonPayloadDecoder.fromJson(identityGson, registerThingRequest, RegisterThingRequest.class);
+    }
+
+    private static byte[] encode(Gson gson, Object request) {
+        return gson.toJson(request).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] shadowEncodeUpdateRequest() {
+        return encode(shadowGson, shadowRequest);
+    }
+
+    @Benchmark
+    public UpdateShadowResponse shadowDecodeUpdateResponse() {
+        return JsonPayloadDecoder.fromJson(shadowGson, updateShadowResponse, UpdateShadowResponse.class);
+    }
+
+    @Benchmark
+    public byte[] shadowRoundTripUpdateResponse() {
+        return encode(shadowGson, JsonPayloadDecoder.fromJson(shadowGson, updateShadowResponse, UpdateShadowResponse.class));
+    }
+
+    @Benchmark
+    public DescribeJobExecutionResponse jobsDecodeDescribeResponse() {
+        return IotJobsV2Client.decodePayload(jobsGson, describeJobExecutionResponse, DescribeJobExecutionResponse.class);
+    }
+
+    @Benchmark
+    public byte[] jobsRoundTripDescribeResponse() {
+        return encode(jobsGson, IotJobsV2Client.decodePayload(jobsGson, describeJobExecutionResponse, DescribeJobExecutionResponse.class));
+    }
+
+    @Benchmark
+    public GetPendingJobExecutionsResponse jobsDecodePendingResponse() {
+        return IotJobsV2Client.decodePayload(jobsGson, getPendingJobExecutionsResponse, GetPendingJobExecutionsResponse.class);
+    }
+
+    @Benchmark
+    public byte[] commandsEncodeUpdateRequest() {
+        return encode(commandsGson, commandRequest);
+    }
+
+    @Benchmark
+    public byte[] commandsRoundTripUpdateRequest() {
+        return encode(commandsGson, JsonPayloadDecoder.fromJson(commandsGson, updateCommandExecutionRequest, UpdateCommandExecutionRequest.class));
+    }
+
+    @Benchmark
+    public byte[] identityEncodeRegisterThingRequest() {
+        return encode(identityGson, registerRequest);
+    }
+
+    @Benchmark
+    public CreateKeysAndCertificateResponse identityDecodeCreateKeysResponse() {
+        return JsonPayloadDecoder.fromJson(identityGson, createKeysAndCertificateResponse, CreateKeysAndCertificateResponse.class);
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import software.amazon.awssdk.aws.greengrass.GreengrassCoreIPCServiceModel;
+import software.amazon.awssdk.aws.greengrass.SubscribeToTopicOperationContext;
+import software.amazon.awssdk.aws.greengrass.model.SubscriptionResponseMessage;
+import software.amazon.awssdk.crt.eventstream.Header;
+import software.amazon.awssdk.crt.eventstream.HeaderType;
+import software.amazon.awssdk.eventstreamrpc.EventStreamRPCServiceModel;
+import software.amazon.awssdk.eventstreamrpc.StreamResponseHandler;
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotcommands.IotCommandsV2Client;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionEvent;
+import software.amazon.awssdk.iot.iotjobs.IotJobsV2Client;
+import software.amazon.awssdk.iot.iotjobs.model.NextJobExecutionChangedEvent;
+import software.amazon.awssdk.iot.iotshadow.IotShadowV2Client;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+
+/**
+ * Measures delivering one incoming stream message to the application's handler, from the point the transport hands
+ * it over.  Streams cannot be opened without a broker or a Greengrass nucleus, so each benchmark calls the code the
+ * stream runs for each message, fed the event the service publishes on that stream:
+ * <ul>
+ *     <li>shadow: the V2 client's stream event delivery of a ShadowDeltaUpdatedEvent, decoding with the client's
+ *     Gson</li>
+ *     <li>jobs: the client's NextJobExecutionChangedEvent factory</li>
+ *     <li>commands: the client's command execution event factory, for a JSON command document</li>
+ *     <li>greengrass: the steps EventStreamRPCClient takes for a streaming application message, through its
+ *     operation's public model context: the service model type header lookup, the model type check, the decode
+ *     and onStreamEvent.  The client's own message handling is private to its continuation, so this part is
+ *     rebuilt from those public pieces.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamDispatchBenchmark {
+
+    @Param({"4", "64", "1024"})
+    public int size;
+
+    private Gson shadowGson;
+    private V2ClientStreamOptions<ShadowDeltaUpdatedEvent> shadowOptions;
+    private String shadowDeltaTopic;
+    private byte[] shadowDelta;
+
+    private Gson jobsGson;
+    private byte[] nextJobExecutionChanged;
+
+    private String commandExecutionTopic;
+    private byte[] commandExecution;
+
+    private SubscribeToTopicOperationContext subscribeContext;
+    private StreamResponseHandler<SubscriptionResponseMessage> subscriptionHandler;
+    private List<Header> subscriptionHeaders;
+    private byte[] subscriptionPayload;
+
+    private Object delivered;
+
+    @Setup
+    public void setup() {
+        shadowGson = IotShadowV2Client.createGson();
+        shadowOptions = V2ClientStreamOptions.<ShadowDeltaUpdatedEvent>builder()
+            .withStreamEventHandler(event -> delivered = event)
+            .withDeserializationFailureHandler(failure -> {
+                throw new IllegalStateException(failure.getCause());
+            })
+            .build();
+        shadowDeltaTopic = "$aws/things/" + PayloadCorpus.THING_NAME + "/shadow/update/delta";
+        shadowDelta = PayloadCorpus.shadowDeltaUpdatedEvent(size);
+
+        jobsGson = IotJobsV2Client.createGson();
+        nextJobExecutionChanged = PayloadCorpus.nextJobExecutionChangedEvent(size);
+
+        commandExecutionTopic = "$aws/commands/things/" + PayloadCorpus.THING_NAME + "/executions/" + PayloadCorpus.EXECUTION_ID
+            + "/request/json";
+        commandExecution = PayloadCorpus.commandExecutionRequest(size);
+
+        subscribeContext = GreengrassCoreIPCServiceModel.getSubscribeToTopicModelContext();
+        subscriptionHandler = new StreamResponseHandler<SubscriptionResponseMessage>() {
+            @Override
+            public void onStreamEvent(SubscriptionResponseMessage streamEvent) {
+                delivered = streamEvent;
+            }
+
+            @Override
+            public boolean onStreamError(Throwable error) {
+                throw new IllegalStateException(error);
+            }
+
+            @Override
+            public void onStreamClosed() {}
+        };
+        subscriptionHeaders = Arrays.asList(
+            Header.createHeader(":message-type", 0),
+            Header.createHeader(":message-flags", 0),
+            Header.createHeader(":stream-id", 1),
+            Header.createHeader(EventStreamRPCServiceModel.CONTENT_TYPE_HEADER, EventStreamRPCServiceModel.CONTENT_TYPE_APPLICATION_JSON),
+            Header.createHeader(EventStreamRPCServiceModel.SERVICE_MODEL_TYPE_HEADER, SubscriptionResponseMessage.APPLICATION_MODEL_TYPE));
+        subscriptionPayload = PayloadCorpus.subscriptionResponseMessage(size);
+    }
+
+    @Benchmark
+    public Object shadowDeltaStream() {
+        IotShadowV2Client.deliverStreamEvent(shadowGson, ShadowDeltaUpdatedEvent.class, shadowOptions, shadowDeltaTopic, shadowDelta);
+        return delivered;
+    }
+
+    @Benchmark
+    public NextJobExecutionChangedEvent jobsNextExecutionChangedStream() {
+        return IotJobsV2Client.createNextJobExecutionChangedEvent(jobsGson, nextJobExecutionChanged);
+    }
+
+    @Benchmark
+    public CommandExecutionEvent commandExecutionStream() {
+        return IotCommandsV2Client.createCommandExecutionEvent(commandExecutionTopic, commandExecution, null, null);
+    }
+
+    @Benchmark
+    public Object greengrassSubscriptionStream() {
+        Optional<String> applicationModelType = subscriptionHeaders.stream()
+            .filter(header -> header.getName().equals(EventStreamRPCServiceModel.SERVICE_MODEL_TYPE_HEADER)
+                && header.getHeaderType().equals(HeaderType.String))
+            .map(header -> header.getValueAsString())
+            .findFirst();
+        if (!applicationModelType.get().equals(subscribeContext.getStreamingResponseApplicationModelType().get())) {
+            throw new IllegalStateException("Unexpected application model type " + applicationModelType.get());
+        }
+        SubscriptionResponseMessage message = subscribeContext.getServiceModel().fromJson(
+            subscribeContext.getStreamingResponseTypeClass().get(), subscriptionPayload);
+        subscriptionHandler.onStreamEvent(message);
+        return delivered;
+    }
+}
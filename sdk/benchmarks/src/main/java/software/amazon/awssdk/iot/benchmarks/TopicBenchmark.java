@@ -0,0 +1,79 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import software.amazon.awssdk.iot.TopicSegments;
+import software.amazon.awssdk.iot.TopicTemplate;
+
+/**
+ * Measures building request topics from templates and reading fields back out of incoming topics.  Each pair
+ * compares the SDK's helper with the string concatenation or splitting it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopicBenchmark {
+
+    private static final TopicTemplate UPDATE_NAMED_SHADOW = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/update");
+    private static final TopicTemplate UPDATE_JOB_EXECUTION = TopicTemplate.compile("$aws/things/{thingName}/jobs/{jobId}/update");
+    private static final TopicTemplate REGISTER_THING = TopicTemplate.compile("$aws/provisioning-templates/{templateName}/provision/json");
+
+    private final String thingName = PayloadCorpus.THING_NAME;
+    private final String shadowName = PayloadCorpus.SHADOW_NAME;
+    private final String jobId = PayloadCorpus.JOB_ID;
+    private final String commandTopic = "$aws/commands/things/" + PayloadCorpus.THING_NAME + "/executions/"
+        + PayloadCorpus.EXECUTION_ID + "/request/json";
+
+    @Benchmark
+    public String renderNamedShadowTopic() {
+        return UPDATE_NAMED_SHADOW.render(thingName, shadowName);
+    }
+
+    @Benchmark
+    public String concatenateNamedShadowTopic() {
+        return "$aws/things/" + thingName + "/shadow/name/" + shadowName + "/update";
+    }
+
+    @Benchmark
+    public String renderJobExecutionTopic() {
+        return UPDATE_JOB_EXECUTION.render(thingName, jobId);
+    }
+
+    @Benchmark
+    public String renderRegisterThingTopic() {
+        return REGISTER_THING.render(PayloadCorpus.TEMPLATE_NAME);
+    }
+
+    @Benchmark
+    public String readSegmentFromCommandTopic() {
+        return TopicSegments.segment(commandTopic, 5);
+    }
+
+    @Benchmark
+    public String splitCommandTopic() {
+        return commandTopic.split("/")[5];
+    }
+
+    @Benchmark
+    public boolean matchSegmentOfCommandTopic() {
+        return TopicSegments.segmentEquals(commandTopic, 2, "things");
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import software.amazon.awssdk.iot.EnumSerializer;
+import software.amazon.awssdk.iot.JsonPayloadDecoder;
+import software.amazon.awssdk.iot.Timestamp;
+import software.amazon.awssdk.iot.iotjobs.IotJobsV2Client;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionSummary;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.RejectedErrorCode;
+
+/**
+ * Measures the custom type adapters every service client registers: EnumSerializer, which maps enum wire values
+ * through the enum's fromString, and the Timestamp adapters, which convert epoch seconds.  The adapter benchmarks
+ * call the adapters directly; the array benchmarks decode and encode {@code size} values through the Jobs client's
+ * Gson, which is how they run in practice.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TypeAdapterBenchmark {
+
+    @Param({"4", "64", "1024"})
+    public int size;
+
+    private final EnumSerializer<JobStatus> statusSerializer = new EnumSerializer<>();
+    private final EnumSerializer<RejectedErrorCode> errorCodeSerializer = new EnumSerializer<>();
+    private final Timestamp.Serializer timestampSerializer = new Timestamp.Serializer();
+    private final Timestamp.Deserializer timestampDeserializer = new Timestamp.Deserializer();
+
+    private final JsonElement statusElement = new JsonPrimitive("IN_PROGRESS");
+    private final JsonElement errorCodeElement = new JsonPrimitive("VersionMismatch");
+    private final JsonElement timestampElement = new JsonPrimitive(PayloadCorpus.TIMESTAMP);
+    private final Timestamp timestamp = new Timestamp(new Date(PayloadCorpus.TIMESTAMP * 1000));
+
+    private Gson gson;
+    private byte[] statuses;
+    private byte[] summaries;
+    private JobStatus[] statusValues;
+    private JobExecutionSummary[] summaryValues;
+
+    @Setup
+    public void setup() {
+        gson = IotJobsV2Client.createGson();
+
+        JobStatus[] values = JobStatus.values();
+        StringBuilder statusJson = new StringBuilder("[");
+        StringBuilder summaryJson = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                statusJson.append(',');
+                summaryJson.append(',');
+            }
+            statusJson.append('"').append(values[1 + i % (values.length - 1)]).append('"');
+            summaryJson.append("{\"jobId\":\"job-").append(i).append("\",\"lastUpdatedAt\":").append(PayloadCorpus.TIMESTAMP + i)
+                .append(",\"queuedAt\":").append(PayloadCorpus.TIMESTAMP).append(",\"startedAt\":")
+                .append(PayloadCorpus.TIMESTAMP + 1).append('}');
+        }
+        statuses = statusJson.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        summaries = summaryJson.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        statusValues = JsonPayloadDecoder.fromJson(gson, statuses, JobStatus[].class);
+        summaryValues = JsonPayloadDecoder.fromJson(gson, summaries, JobExecutionSummary[].class);
+    }
+
+    @Benchmark
+    public JsonElement enumSerialize() {
+        return statusSerializer.serialize(JobStatus.IN_PROGRESS, JobStatus.class, null);
+    }
+
+    @Benchmark
+    public JobStatus enumDeserialize() {
+        return statusSerializer.deserialize(statusElement, JobStatus.class, null);
+    }
+
+    @Benchmark
+    public RejectedErrorCode enumDeserializeMappedName() {
+        return errorCodeSerializer.deserialize(errorCodeElement, RejectedErrorCode.class, null);
+    }
+
+    @Benchmark
+    public JsonElement timestampSerialize() {
+        return timestampSerializer.serialize(timestamp, Timestamp.class, null);
+    }
+
+    @Benchmark
+    public Timestamp timestampDeserialize() {
+        return timestampDeserializer.deserialize(timestampElement, Timestamp.class, null);
+    }
+
+    @Benchmark
+    public JobStatus[] decodeEnumArray() {
+        return JsonPayloadDecoder.fromJson(gson, statuses, JobStatus[].class);
+    }
+
+    @Benchmark
+    public String encodeEnumArray() {
+        return gson.toJson(statusValues);
+    }
+
+    @Benchmark
+    public JobExecutionSummary[] decodeTimestampedSummaries() {
+        return JsonPayloadDecoder.fromJson(gson, summaries, JobExecutionSummary[].class);
+    }
+
+    @Benchmark
+    public String encodeTimestampedSummaries() {
+        return gson.toJson(summaryValues);
+    }
+}
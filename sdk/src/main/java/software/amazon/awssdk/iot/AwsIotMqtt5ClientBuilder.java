@@ -49,6 +49,11 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
     private ConnectPacketBuilder configConnect;
     private TlsContextOptions configTls;
     private MqttConnectCustomAuthConfig configCustomAuth;
+    private Mqtt5ClientOptions.LifecycleEvents configLifecycleEvents;
+    private Mqtt5ClientOptions.PublishEvents configPublishEvents;
+    private Mqtt5ClientMetrics configMetrics;
+    private TlsContext configTlsContext;
+    private boolean configTlsContextShared;
 
     private AwsIotMqtt5ClientBuilder(String hostName, Long port, TlsContextOptions tlsContext) {
         config = new Mqtt5ClientOptionsBuilder(hostName, port);
@@ -420,6 +425,7 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
      */
     public AwsIotMqtt5ClientBuilder withCertificateAuthorityFromPath(String caDirPath, String caFilePath) {
         this.configTls.overrideDefaultTrustStoreFromPath(caDirPath, caFilePath);
+        releaseBuiltTlsContext();
         return this;
     }
 
@@ -431,6 +437,7 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
      */
     public AwsIotMqtt5ClientBuilder withCertificateAuthority(String caRoot) {
         this.configTls.overrideDefaultTrustStore(caRoot);
+        releaseBuiltTlsContext();
         return this;
     }
 
@@ -615,6 +622,7 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
      */
     public AwsIotMqtt5ClientBuilder withLifeCycleEvents(Mqtt5ClientOptions.LifecycleEvents lifecycleEvents) {
         this.config.withLifecycleEvents(lifecycleEvents);
+        this.configLifecycleEvents = lifecycleEvents;
         return this;
     }
 
@@ -626,6 +634,21 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
      */
     public AwsIotMqtt5ClientBuilder withPublishEvents(Mqtt5ClientOptions.PublishEvents publishEvents) {
         this.config.withPublishEvents(publishEvents);
+        this.configPublishEvents = publishEvents;
+        return this;
+    }
+
+    /**
+     * Sets the metrics the client should record its publishes, connection events and operation queue depth in.
+     * The lifecycle and publish events set on this builder are wrapped so that events are counted before they
+     * are delivered.  Each client needs its own Mqtt5ClientMetrics, and build() fails if the metrics set are
+     * already in use; not set by default.
+     *
+     * @param metrics - The metrics to record in
+     * @return - The AwsIotMqtt5ClientBuilder
+     */
+    public AwsIotMqtt5ClientBuilder withMetrics(Mqtt5ClientMetrics metrics) {
+        this.configMetrics = metrics;
         return this;
     }
 
@@ -648,6 +671,7 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
      */
     public AwsIotMqtt5ClientBuilder withMinimumTlsVersion(TlsContextOptions.TlsVersions minimumTlsVersion) {
         this.configTls.minTlsVersion = minimumTlsVersion;
+        releaseBuiltTlsContext();
         return this;
     }
 
@@ -662,6 +686,38 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
      */
     public AwsIotMqtt5ClientBuilder withTlsCipherPreference(TlsCipherPreference tlsCipherPreference) {
         this.configTls.tlsCipherPreference = tlsCipherPreference;
+        releaseBuiltTlsContext();
+        return this;
+    }
+
+    /**
+     * Sets the TLS context clients use instead of one made from this builder's TLS options, so that many builders
+     * can share a single context.  While a context is set, the TLS option setters on this builder have no effect.
+     * Without it, each builder makes one context on its first build() and shares it with every client it builds.
+     *
+     * @param tlsContext - The TLS context to use, or null to make one from this builder's TLS options
+     * @return - The AwsIotMqtt5ClientBuilder
+     */
+    public AwsIotMqtt5ClientBuilder withTlsContext(TlsContext tlsContext) {
+        releaseTlsContext();
+        if (tlsContext != null) {
+            this.configTlsContext = tlsContext;
+            this.configTlsContextShared = true;
+            addReferenceTo(tlsContext);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the client bootstrap, and with it the event loop group and host resolver, that clients use.  Sharing one
+     * bootstrap across many clients keeps their I/O on one set of event loop threads.  Defaults to the static
+     * default bootstrap.
+     *
+     * @param bootstrap - The client bootstrap to use
+     * @return - The AwsIotMqtt5ClientBuilder
+     */
+    public AwsIotMqtt5ClientBuilder withBootstrap(ClientBootstrap bootstrap) {
+        this.config.withBootstrap(bootstrap);
         return this;
     }
 
@@ -840,15 +896,21 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
      * @return A MQTT5ClientOptions
      */
     public Mqtt5Client build() {
+        if (this.configMetrics != null && this.configMetrics.isAttached()) {
+            throw new IllegalStateException("Mqtt5ClientMetrics can only be used by one client; set new metrics before building another client");
+        }
         if (this.configTls == null) {
             this.configTls = TlsContextOptions.createDefaultClient();
             addReferenceTo(this.configTls);
             this.configTls.close();
         }
-        TlsContext tlsContext = new TlsContext(this.configTls);
-        this.config.withTlsContext(tlsContext);
-        addReferenceTo(tlsContext);
-        tlsContext.close();
+        if (this.configTlsContext == null) {
+            // Made once and shared by every client this builder makes, until a TLS option changes
+            this.configTlsContext = new TlsContext(this.configTls);
+            addReferenceTo(this.configTlsContext);
+            this.configTlsContext.close();
+        }
+        this.config.withTlsContext(this.configTlsContext);
 
         try {
             this.configConnect.withUsername(buildMqtt5FinalUsername(this.configCustomAuth));
@@ -865,8 +927,23 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
 
         this.config.withConnectOptions(this.configConnect.build());
         this.config.withMetrics(IoTSdkMetrics.buildSdkMetrics());
-        
-        Mqtt5Client returnClient = new Mqtt5Client(this.config.build());
+
+        Mqtt5Client returnClient;
+        if (this.configMetrics != null) {
+            Mqtt5ClientOptions options;
+            try {
+                this.config.withLifecycleEvents(this.configMetrics.wrap(this.configLifecycleEvents));
+                this.config.withPublishEvents(this.configMetrics.wrap(this.configPublishEvents));
+                options = this.config.build();
+            } finally {
+                // The wrappers belong to this client only; later builds start from the callbacks the user set
+                this.config.withLifecycleEvents(this.configLifecycleEvents);
+                this.config.withPublishEvents(this.configPublishEvents);
+            }
+            returnClient = new InstrumentedMqtt5Client(options, this.configMetrics);
+        } else {
+            returnClient = new Mqtt5Client(this.config.build());
+        }
 
         // Keep a reference to the TLS configuration so any possible Websockets-related CrtResources are kept alive
         returnClient.addReferenceTo(this.configTls);
@@ -875,6 +952,23 @@ public class AwsIotMqtt5ClientBuilder extends software.amazon.awssdk.crt.CrtReso
 
     /* Helper functions and structs */
 
+    /**
+     * Drops the TLS context made by build() so the next build() makes one with the current TLS options
+     */
+    private void releaseBuiltTlsContext() {
+        if (!this.configTlsContextShared) {
+            releaseTlsContext();
+        }
+    }
+
+    private void releaseTlsContext() {
+        if (this.configTlsContext != null) {
+            removeReferenceTo(this.configTlsContext);
+            this.configTlsContext = null;
+        }
+        this.configTlsContextShared = false;
+    }
+
     /**
      * Websocket-specific MQTT5 connection AWS IoT configuration options
      */
@@ -0,0 +1,20 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+/**
+ * Source of the correlation tokens the V2 service clients attach to request-response operations.
+ *
+ * Tokens only need to be unique among the operations that can be in flight on the same response topics at
+ * the same time; they are not security-sensitive.  Implementations must be thread-safe.
+ */
+public interface CorrelationTokenGenerator {
+
+    /**
+     * @return a new correlation token
+     */
+    String nextToken();
+}
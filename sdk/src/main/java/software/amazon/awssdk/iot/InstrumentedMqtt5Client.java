@@ -0,0 +1,63 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.concurrent.CompletableFuture;
+
+import software.amazon.awssdk.crt.CrtRuntimeException;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5Client;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5ClientOptions;
+import software.amazon.awssdk.crt.mqtt5.PublishResult;
+import software.amazon.awssdk.crt.mqtt5.QOS;
+import software.amazon.awssdk.crt.mqtt5.packets.PubAckPacket;
+import software.amazon.awssdk.crt.mqtt5.packets.PublishPacket;
+
+/**
+ * An MQTT5 client that times its publishes and stops its {@link Mqtt5ClientMetrics} from sampling it once it
+ * is closed.  Created by {@link AwsIotMqtt5ClientBuilder} when metrics are configured.
+ */
+class InstrumentedMqtt5Client extends Mqtt5Client {
+
+    // PUBACK reason codes of 0x80 and above report an error
+    private static final int PUBACK_ERROR_THRESHOLD = 0x80;
+
+    private final Mqtt5ClientMetrics metrics;
+
+    InstrumentedMqtt5Client(Mqtt5ClientOptions options, Mqtt5ClientMetrics metrics) throws CrtRuntimeException {
+        super(options);
+        this.metrics = metrics;
+        try {
+            metrics.attach(this);
+        } catch (RuntimeException e) {
+            // The metrics belong to another client; release the native client without detaching them
+            super.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<PublishResult> publish(PublishPacket publishPacket) {
+        long startNanos = metrics.publishStarted(publishPacket);
+        boolean acknowledged = publishPacket.getQOS() == QOS.AT_LEAST_ONCE;
+
+        CompletableFuture<PublishResult> future = super.publish(publishPacket);
+        future.whenComplete((result, error) -> {
+            boolean successful = error == null;
+            if (successful && acknowledged) {
+                PubAckPacket puback = result.getResultPubAck();
+                successful = puback == null || puback.getReasonCode().getValue() < PUBACK_ERROR_THRESHOLD;
+            }
+            metrics.publishCompleted(startNanos, acknowledged, successful);
+        });
+        return future;
+    }
+
+    @Override
+    public void close() {
+        metrics.detach();
+        super.close();
+    }
+}
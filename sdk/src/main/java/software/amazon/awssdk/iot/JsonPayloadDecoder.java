@@ -0,0 +1,159 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+
+/**
+ * Deserializes UTF-8 JSON packet payloads directly from their bytes.
+ *
+ * The service clients previously copied every payload into a String before handing it to Gson.  The decoder
+ * instead feeds Gson's JsonReader from a Reader that decodes the payload bytes in place, so no intermediate
+ * String (or InputStreamReader byte buffer) is allocated per message.  Readers are cached per thread and
+ * reused across messages.
+ */
+public final class JsonPayloadDecoder {
+
+    private static final ThreadLocal<PayloadReader> READERS = new ThreadLocal<PayloadReader>() {
+        @Override
+        protected PayloadReader initialValue() {
+            return new PayloadReader();
+        }
+    };
+
+    private JsonPayloadDecoder() {}
+
+    /**
+     * Deserializes a UTF-8 JSON payload into an object of the given class
+     *
+     * @param gson the Gson instance to deserialize with
+     * @param payload the UTF-8 encoded JSON payload
+     * @param type the class to deserialize into
+     * @param <T> the type to deserialize into
+     * @return the deserialized object, or null if the payload is empty
+     */
+    public static <T> T fromJson(Gson gson, byte[] payload, Class<T> type) {
+        return type.cast(fromJson(gson, payload, (Type) type));
+    }
+
+    /**
+     * Deserializes a UTF-8 JSON payload into an object of the given (possibly generic) type
+     *
+     * @param gson the Gson instance to deserialize with
+     * @param payload the UTF-8 encoded JSON payload
+     * @param type the type to deserialize into
+     * @param <T> the type to deserialize into
+     * @return the deserialized object, or null if the payload is empty
+     */
+    public static <T> T fromJson(Gson gson, byte[] payload, Type type) {
+        return fromJson(gson, payload, 0, payload.length, type);
+    }
+
+    /**
+     * Deserializes a UTF-8 JSON value held in part of a byte array into an object of the given (possibly generic)
+     * type
+     *
+     * @param gson the Gson instance to deserialize with
+     * @param payload the array holding the UTF-8 encoded JSON
+     * @param offset the offset of the JSON in the array
+     * @param length the length of the JSON in bytes
+     * @param type the type to deserialize into
+     * @param <T> the type to deserialize into
+     * @return the deserialized object, or null if the JSON is empty
+     */
+    public static <T> T fromJson(Gson gson, byte[] payload, int offset, int length, Type type) {
+        PayloadReader reader = READERS.get();
+        if (reader.inUse) {
+            // A custom adapter is decoding a nested payload on this thread; don't clobber the outer reader
+            reader = new PayloadReader();
+        }
+
+        reader.reset(payload, offset, length);
+        try {
+            return gson.fromJson(reader, type);
+        } finally {
+            reader.release();
+        }
+    }
+
+    /**
+     * A resettable Reader that decodes UTF-8 straight from a byte array into the caller's char buffer.
+     *
+     * Malformed input is replaced the same way {@code new String(payload, StandardCharsets.UTF_8)} replaces it.
+     */
+    private static class PayloadReader extends Reader {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer pairBuffer = CharBuffer.allocate(2);
+        private ByteBuffer input;
+        private boolean flushed;
+        private boolean inUse;
+        private int pendingLowSurrogate = -1;
+
+        void reset(byte[] payload, int offset, int length) {
+            this.decoder.reset();
+            this.input = ByteBuffer.wrap(payload, offset, length);
+            this.flushed = false;
+            this.inUse = true;
+            this.pendingLowSurrogate = -1;
+        }
+
+        void release() {
+            this.input = null;
+            this.inUse = false;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (pendingLowSurrogate >= 0) {
+                buffer[offset] = (char) pendingLowSurrogate;
+                pendingLowSurrogate = -1;
+                return 1;
+            }
+
+            if (flushed) {
+                return -1;
+            }
+
+            CharBuffer output = CharBuffer.wrap(buffer, offset, length);
+            CoderResult result = decoder.decode(input, output, true);
+            if (result.isUnderflow()) {
+                result = decoder.flush(output);
+                flushed = result.isUnderflow();
+            }
+
+            int count = output.position() - offset;
+            if (count == 0 && result.isOverflow()) {
+                // Only room for one char but the next code point is a surrogate pair; hand it out a half at a time
+                pairBuffer.clear();
+                decoder.decode(input, pairBuffer, true);
+                buffer[offset] = pairBuffer.get(0);
+                pendingLowSurrogate = pairBuffer.get(1);
+                return 1;
+            }
+
+            return (count == 0 && flushed) ? -1 : count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
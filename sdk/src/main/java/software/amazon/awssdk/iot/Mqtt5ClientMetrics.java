@@ -0,0 +1,582 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import software.amazon.awssdk.crt.Log;
+import software.amazon.awssdk.crt.Log.LogLevel;
+import software.amazon.awssdk.crt.Log.LogSubject;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5Client;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5ClientOperationStatistics;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5ClientOptions;
+import software.amazon.awssdk.crt.mqtt5.OnAttemptingConnectReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionFailureReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionSuccessReturn;
+import software.amazon.awssdk.crt.mqtt5.OnDisconnectionReturn;
+import software.amazon.awssdk.crt.mqtt5.OnStoppedReturn;
+import software.amazon.awssdk.crt.mqtt5.packets.PublishPacket;
+
+/**
+ * Runtime metrics for one MQTT5 client built by {@link AwsIotMqtt5ClientBuilder}: publishes and bytes in each
+ * direction, connection events, QoS 1 publish acknowledgement latency, and the depth of the client's operation
+ * queue.
+ *
+ * Configure an instance with {@link AwsIotMqtt5ClientBuilder#withMetrics}; each client needs its own.  Event
+ * counts are kept with atomic increments on the threads that produce them.  The operation queue is sampled on
+ * a background scheduler, which also forwards counter increments to an optional
+ * {@link TaggedMetricsAdapter.MeterSink}, so that registry updates for thousands of clients are batched onto one
+ * thread rather than made on the CRT event loops.
+ *
+ * Only publishes made through the client's own publish method are timed and counted as sent; traffic from
+ * request-response and service clients that share the connection is counted when it is received.  Byte counts
+ * are payload bytes.
+ */
+public class Mqtt5ClientMetrics {
+
+    /**
+     * The name of the counter of publishes sent
+     */
+    public static final String PUBLISHES_SENT_METER = "aws.iot.mqtt5.publish.sent";
+
+    /**
+     * The name of the counter of publishes that failed or were rejected by the broker
+     */
+    public static final String PUBLISHES_FAILED_METER = "aws.iot.mqtt5.publish.failed";
+
+    /**
+     * The name of the counter of payload bytes sent
+     */
+    public static final String BYTES_SENT_METER = "aws.iot.mqtt5.bytes.sent";
+
+    /**
+     * The name of the counter of publishes received
+     */
+    public static final String PUBLISHES_RECEIVED_METER = "aws.iot.mqtt5.publish.received";
+
+    /**
+     * The name of the counter of payload bytes received
+     */
+    public static final String BYTES_RECEIVED_METER = "aws.iot.mqtt5.bytes.received";
+
+    /**
+     * The name of the counter of successful connection attempts
+     */
+    public static final String CONNECTIONS_METER = "aws.iot.mqtt5.connection.success";
+
+    /**
+     * The name of the counter of failed connection attempts
+     */
+    public static final String CONNECTION_FAILURES_METER = "aws.iot.mqtt5.connection.failure";
+
+    /**
+     * The name of the counter of disconnections
+     */
+    public static final String DISCONNECTIONS_METER = "aws.iot.mqtt5.disconnection";
+
+    /**
+     * The name of the timer of QoS 1 publish acknowledgement latency
+     */
+    public static final String PUBLISH_ACK_LATENCY_METER = "aws.iot.mqtt5.publish.ack.latency";
+
+    /**
+     * The name of the gauge that is 1 while the client is connected and 0 otherwise
+     */
+    public static final String CONNECTED_METER = "aws.iot.mqtt5.connected";
+
+    /**
+     * The name of the gauge of operations not yet completed, including the offline queue
+     */
+    public static final String INCOMPLETE_OPERATIONS_METER = "aws.iot.mqtt5.operations.incomplete";
+
+    /**
+     * The name of the gauge of the size in bytes of operations not yet completed
+     */
+    public static final String INCOMPLETE_OPERATION_BYTES_METER = "aws.iot.mqtt5.operations.incomplete.bytes";
+
+    /**
+     * The name of the gauge of operations sent and awaiting acknowledgement
+     */
+    public static final String UNACKED_OPERATIONS_METER = "aws.iot.mqtt5.operations.unacked";
+
+    /**
+     * The name of the gauge of the size in bytes of operations sent and awaiting acknowledgement
+     */
+    public static final String UNACKED_OPERATION_BYTES_METER = "aws.iot.mqtt5.operations.unacked.bytes";
+
+    private static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 10000;
+
+    private final long sampleIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final TaggedMetricsAdapter.MeterSink sink;
+    private final Map<String, String> tags;
+
+    private final AtomicLong publishesSent = new AtomicLong();
+    private final AtomicLong publishesFailed = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong publishesReceived = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong connectionFailures = new AtomicLong();
+    private final AtomicLong disconnections = new AtomicLong();
+    private final LatencyHistogram publishAckLatency = new LatencyHistogram();
+
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicLong incompleteOperations = new AtomicLong();
+    private final AtomicLong incompleteOperationBytes = new AtomicLong();
+    private final AtomicLong unackedOperations = new AtomicLong();
+    private final AtomicLong unackedOperationBytes = new AtomicLong();
+    private final AtomicLong peakIncompleteOperations = new AtomicLong();
+
+    private final Object lock = new Object();
+    private final long[] reported = new long[8];
+    private long lastSampleNanos;
+    private volatile double publishSendRate;
+    private volatile double publishReceiveRate;
+    private Mqtt5Client client;
+    private ScheduledFuture<?> sampler;
+    private boolean attached;
+
+    private static class DefaultScheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Mqtt5ClientMetrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Builder type for Mqtt5ClientMetrics instances
+     */
+    public static class Mqtt5ClientMetricsBuilder {
+        private long sampleIntervalMillis = DEFAULT_SAMPLE_INTERVAL_MILLIS;
+        private ScheduledExecutorService scheduler;
+        private TaggedMetricsAdapter.MeterSink sink;
+        private final Map<String, String> tags = new HashMap<>();
+
+        private Mqtt5ClientMetricsBuilder() {}
+
+        /**
+         * Sets how often the client's operation queue is sampled and counters are forwarded to the sink.
+         * Defaults to 10 seconds.
+         *
+         * @param sampleIntervalMillis the sampling interval in milliseconds
+         * @return this builder object
+         */
+        public Mqtt5ClientMetricsBuilder withSampleIntervalMillis(long sampleIntervalMillis) {
+            this.sampleIntervalMillis = sampleIntervalMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets the executor to sample on.  If not set, one daemon thread is shared by every instance that does
+         * not set a scheduler.  A supplied executor is not shut down.
+         *
+         * @param scheduler the executor to sample on
+         * @return this builder object
+         */
+        public Mqtt5ClientMetricsBuilder withScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+
+            return this;
+        }
+
+        /**
+         * Sets the sink to report meters to.  If not set, metrics are only kept in memory.
+         *
+         * @param sink the sink to report meters to
+         * @return this builder object
+         */
+        public Mqtt5ClientMetricsBuilder withMeterSink(TaggedMetricsAdapter.MeterSink sink) {
+            this.sink = sink;
+
+            return this;
+        }
+
+        /**
+         * Adds a tag to every meter reported to the sink, such as the client ID or thing name, to tell clients
+         * apart in a shared registry
+         *
+         * @param key the tag's name
+         * @param value the tag's value
+         * @return this builder object
+         */
+        public Mqtt5ClientMetricsBuilder withTag(String key, String value) {
+            this.tags.put(key, value);
+
+            return this;
+        }
+
+        /**
+         * Creates a new Mqtt5ClientMetrics from the existing configuration.
+         *
+         * @return a new Mqtt5ClientMetrics
+         */
+        public Mqtt5ClientMetrics build() {
+            if (sampleIntervalMillis <= 0) {
+                throw new IllegalArgumentException("Mqtt5ClientMetrics sample interval must be positive");
+            }
+
+            return new Mqtt5ClientMetrics(this);
+        }
+    }
+
+    private Mqtt5ClientMetrics(Mqtt5ClientMetricsBuilder builder) {
+        this.sampleIntervalMillis = builder.sampleIntervalMillis;
+        this.scheduler = builder.scheduler != null ? builder.scheduler : DefaultScheduler.INSTANCE;
+        this.sink = builder.sink;
+        this.tags = Collections.unmodifiableMap(new HashMap<>(builder.tags));
+
+        if (sink != null) {
+            sink.registerGauge(CONNECTED_METER, tags, connected);
+            sink.registerGauge(INCOMPLETE_OPERATIONS_METER, tags, incompleteOperations);
+            sink.registerGauge(INCOMPLETE_OPERATION_BYTES_METER, tags, incompleteOperationBytes);
+            sink.registerGauge(UNACKED_OPERATIONS_METER, tags, unackedOperations);
+            sink.registerGauge(UNACKED_OPERATION_BYTES_METER, tags, unackedOperationBytes);
+        }
+    }
+
+    /**
+     * @return a new builder object for Mqtt5ClientMetrics instances
+     */
+    public static Mqtt5ClientMetricsBuilder builder() {
+        return new Mqtt5ClientMetricsBuilder();
+    }
+
+    /**
+     * @return the number of publishes sent
+     */
+    public long getPublishesSent() {
+        return publishesSent.get();
+    }
+
+    /**
+     * @return the number of publishes that failed or that the broker acknowledged with an error reason code
+     */
+    public long getPublishesFailed() {
+        return publishesFailed.get();
+    }
+
+    /**
+     * @return the number of payload bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * @return the number of publishes received
+     */
+    public long getPublishesReceived() {
+        return publishesReceived.get();
+    }
+
+    /**
+     * @return the number of payload bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * @return the number of successful connection attempts
+     */
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @return the number of failed connection attempts
+     */
+    public long getConnectionFailures() {
+        return connectionFailures.get();
+    }
+
+    /**
+     * @return the number of times an established connection was lost or closed
+     */
+    public long getDisconnections() {
+        return disconnections.get();
+    }
+
+    /**
+     * @return whether the client is connected
+     */
+    public boolean isConnected() {
+        return connected.get() != 0;
+    }
+
+    /**
+     * @return the histogram of the time from publishing at QoS 1 to receiving the PUBACK
+     */
+    public LatencyHistogram getPublishAckLatency() {
+        return publishAckLatency;
+    }
+
+    /**
+     * @return the number of operations not yet completed at the last sample, including the offline queue
+     */
+    public long getIncompleteOperationCount() {
+        return incompleteOperations.get();
+    }
+
+    /**
+     * @return the size in bytes of the operations not yet completed at the last sample
+     */
+    public long getIncompleteOperationSize() {
+        return incompleteOperationBytes.get();
+    }
+
+    /**
+     * @return the number of operations sent and awaiting acknowledgement at the last sample
+     */
+    public long getUnackedOperationCount() {
+        return unackedOperations.get();
+    }
+
+    /**
+     * @return the size in bytes of the operations sent and awaiting acknowledgement at the last sample
+     */
+    public long getUnackedOperationSize() {
+        return unackedOperationBytes.get();
+    }
+
+    /**
+     * @return the largest number of incomplete operations seen in any sample
+     */
+    public long getPeakIncompleteOperationCount() {
+        return peakIncompleteOperations.get();
+    }
+
+    /**
+     * @return the publishes sent per second between the last two samples
+     */
+    public double getPublishSendRate() {
+        return publishSendRate;
+    }
+
+    /**
+     * @return the publishes received per second between the last two samples
+     */
+    public double getPublishReceiveRate() {
+        return publishReceiveRate;
+    }
+
+    /**
+     * @return true if a client has used these metrics, even if it has since been closed
+     */
+    boolean isAttached() {
+        synchronized (lock) {
+            return attached;
+        }
+    }
+
+    /**
+     * Starts sampling a client.  Called once the client has been created.
+     */
+    void attach(Mqtt5Client client) {
+        synchronized (lock) {
+            if (attached) {
+                throw new IllegalStateException("Mqtt5ClientMetrics can only be used by one client");
+            }
+
+            attached = true;
+            this.client = client;
+            this.lastSampleNanos = System.nanoTime();
+            this.sampler = scheduler.scheduleAtFixedRate(this::sample, sampleIntervalMillis, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops sampling, forwarding the final counts.  Called before the client is closed; once it returns, the
+     * client is never touched again.
+     */
+    void detach() {
+        synchronized (lock) {
+            if (sampler != null) {
+                sampler.cancel(false);
+                sampler = null;
+            }
+            client = null;
+            connected.set(0);
+            report();
+        }
+    }
+
+    /**
+     * Called before a publish is handed to the client
+     *
+     * @return the time the publish started, to pass to {@link #publishCompleted}
+     */
+    long publishStarted(PublishPacket packet) {
+        publishesSent.incrementAndGet();
+        byte[] payload = packet.getPayload();
+        if (payload != null) {
+            bytesSent.addAndGet(payload.length);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Called when a publish's future completes
+     *
+     * @param startNanos the value returned by {@link #publishStarted}
+     * @param acknowledged whether the publish was QoS 1 and acknowledged, in which case its latency is recorded
+     * @param successful whether the publish was sent and, if acknowledged, accepted
+     */
+    void publishCompleted(long startNanos, boolean acknowledged, boolean successful) {
+        if (!successful) {
+            publishesFailed.incrementAndGet();
+        } else if (acknowledged) {
+            long latency = System.nanoTime() - startNanos;
+            publishAckLatency.record(latency);
+            if (sink != null) {
+                sink.recordTimer(PUBLISH_ACK_LATENCY_METER, tags, latency);
+            }
+        }
+    }
+
+    /**
+     * Called when a publish is received
+     */
+    void publishReceived(PublishPacket packet) {
+        publishesReceived.incrementAndGet();
+        byte[] payload = packet != null ? packet.getPayload() : null;
+        if (payload != null) {
+            bytesReceived.addAndGet(payload.length);
+        }
+    }
+
+    /**
+     * Records one sample of the client's operation statistics
+     */
+    void recordStatistics(long incompleteCount, long incompleteSize, long unackedCount, long unackedSize) {
+        incompleteOperations.set(incompleteCount);
+        incompleteOperationBytes.set(incompleteSize);
+        unackedOperations.set(unackedCount);
+        unackedOperationBytes.set(unackedSize);
+        peakIncompleteOperations.accumulateAndGet(incompleteCount, Math::max);
+    }
+
+    /**
+     * Wraps the user's lifecycle callbacks so that connection events are counted before they are delivered
+     */
+    Mqtt5ClientOptions.LifecycleEvents wrap(Mqtt5ClientOptions.LifecycleEvents events) {
+        return new Mqtt5ClientOptions.LifecycleEvents() {
+            @Override
+            public void onAttemptingConnect(Mqtt5Client client, OnAttemptingConnectReturn onAttemptingConnectReturn) {
+                if (events != null) {
+                    events.onAttemptingConnect(client, onAttemptingConnectReturn);
+                }
+            }
+
+            @Override
+            public void onConnectionSuccess(Mqtt5Client client, OnConnectionSuccessReturn onConnectionSuccessReturn) {
+                connections.incrementAndGet();
+                connected.set(1);
+                if (events != null) {
+                    events.onConnectionSuccess(client, onConnectionSuccessReturn);
+                }
+            }
+
+            @Override
+            public void onConnectionFailure(Mqtt5Client client, OnConnectionFailureReturn onConnectionFailureReturn) {
+                connectionFailures.incrementAndGet();
+                if (events != null) {
+                    events.onConnectionFailure(client, onConnectionFailureReturn);
+                }
+            }
+
+            @Override
+            public void onDisconnection(Mqtt5Client client, OnDisconnectionReturn onDisconnectionReturn) {
+                disconnections.incrementAndGet();
+                connected.set(0);
+                if (events != null) {
+                    events.onDisconnection(client, onDisconnectionReturn);
+                }
+            }
+
+            @Override
+            public void onStopped(Mqtt5Client client, OnStoppedReturn onStoppedReturn) {
+                if (events != null) {
+                    events.onStopped(client, onStoppedReturn);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps the user's publish callback so that received publishes are counted before they are delivered
+     */
+    Mqtt5ClientOptions.PublishEvents wrap(Mqtt5ClientOptions.PublishEvents events) {
+        return (client, publishReturn) -> {
+            publishReceived(publishReturn.getPublishPacket());
+            if (events != null) {
+                events.onMessageReceived(client, publishReturn);
+            }
+        };
+    }
+
+    /**
+     * Samples the client's operation statistics and forwards counter increments to the sink
+     */
+    void sample() {
+        synchronized (lock) {
+            if (client == null) {
+                return;
+            }
+
+            // An exception escaping a periodic task would cancel it, so failures are logged instead
+            try {
+                Mqtt5ClientOperationStatistics statistics = client.getOperationStatistics();
+                recordStatistics(statistics.getIncompleteOperationCount(), statistics.getIncompleteOperationSize(),
+                    statistics.getUnackedOperationCount(), statistics.getUnackedOperationSize());
+                report();
+            } catch (RuntimeException e) {
+                Log.log(LogLevel.Warn, LogSubject.JavaCrtGeneral, "Mqtt5ClientMetrics sample failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleNanos) / 1e9;
+        lastSampleNanos = now;
+
+        long sent = publishesSent.get();
+        long received = publishesReceived.get();
+        if (seconds > 0) {
+            publishSendRate = (sent - reported[0]) / seconds;
+            publishReceiveRate = (received - reported[3]) / seconds;
+        }
+
+        report(0, PUBLISHES_SENT_METER, sent);
+        report(1, PUBLISHES_FAILED_METER, publishesFailed.get());
+        report(2, BYTES_SENT_METER, bytesSent.get());
+        report(3, PUBLISHES_RECEIVED_METER, received);
+        report(4, BYTES_RECEIVED_METER, bytesReceived.get());
+        report(5, CONNECTIONS_METER, connections.get());
+        report(6, CONNECTION_FAILURES_METER, connectionFailures.get());
+        report(7, DISCONNECTIONS_METER, disconnections.get());
+    }
+
+    private void report(int index, String name, long total) {
+        long delta = total - reported[index];
+        reported[index] = total;
+        if (sink != null && delta > 0) {
+            sink.incrementCounter(name, tags, delta);
+        }
+    }
+}
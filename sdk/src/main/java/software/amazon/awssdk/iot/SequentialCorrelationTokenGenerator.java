@@ -0,0 +1,65 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default correlation token generator for the V2 service clients.
+ *
+ * Each generator picks a random 64-bit prefix when it is created and appends an atomic counter to it, so
+ * producing a token is a single atomic increment plus a small string build.  Unlike UUID.randomUUID(), it
+ * never touches the shared SecureRandom instance, which can contend under load and block on low-entropy
+ * devices.
+ */
+public class SequentialCorrelationTokenGenerator implements CorrelationTokenGenerator {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int PREFIX_LENGTH = 16;
+
+    private final char[] prefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Creates a new generator with a random prefix
+     */
+    public SequentialCorrelationTokenGenerator() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates a new generator with a fixed prefix
+     *
+     * @param prefix value that distinguishes this generator's tokens from those of other generators
+     */
+    public SequentialCorrelationTokenGenerator(long prefix) {
+        this.prefix = new char[PREFIX_LENGTH];
+        for (int i = PREFIX_LENGTH - 1; i >= 0; i--) {
+            this.prefix[i] = HEX_DIGITS[(int) (prefix & 0xF)];
+            prefix >>>= 4;
+        }
+    }
+
+    /**
+     * @return a new correlation token of the form {@code <16 hex digit prefix>-<hex sequence number>}
+     */
+    @Override
+    public String nextToken() {
+        long sequence = counter.getAndIncrement();
+
+        int digits = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(sequence) + 3) / 4);
+        char[] token = new char[PREFIX_LENGTH + 1 + digits];
+        System.arraycopy(prefix, 0, token, 0, PREFIX_LENGTH);
+        token[PREFIX_LENGTH] = '-';
+        for (int i = token.length - 1; i > PREFIX_LENGTH; i--) {
+            token[i] = HEX_DIGITS[(int) (sequence & 0xF)];
+            sequence >>>= 4;
+        }
+
+        return new String(token);
+    }
+}
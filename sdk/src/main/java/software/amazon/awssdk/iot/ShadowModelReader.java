@@ -0,0 +1,377 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowResponse;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowMetadata;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowStateWithDelta;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedSnapshot;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowResponse;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Hand-written, field-by-field readers for the shadow service models that are deserialized on every
+ * shadow response and stream event.
+ *
+ * The readers produce exactly the same objects as Gson's reflective adapters would: state and metadata
+ * maps are HashMaps whose values come from the Gson instance's Object adapter, unknown properties are
+ * skipped, and JSON nulls leave the corresponding field null.
+ */
+class ShadowModelReader {
+
+    private final TypeAdapter<Object> valueAdapter;
+    private final TypeAdapter<Timestamp> timestampAdapter;
+
+    /**
+     * @param valueAdapter adapter used to read the values of state and metadata maps
+     * @param timestampAdapter adapter used to read timestamp properties
+     */
+    ShadowModelReader(TypeAdapter<Object> valueAdapter, TypeAdapter<Timestamp> timestampAdapter) {
+        this.valueAdapter = valueAdapter;
+        this.timestampAdapter = timestampAdapter;
+    }
+
+    /**
+     * @param type model type to check
+     * @return true if this reader has a streaming implementation for the given model type
+     */
+    static boolean isSupported(Class<?> type) {
+        return type == GetShadowResponse.class
+            || type == UpdateShadowResponse.class
+            || type == ShadowDeltaUpdatedEvent.class
+            || type == ShadowUpdatedEvent.class
+            || type == ShadowUpdatedSnapshot.class
+            || type == ShadowStateWithDelta.class
+            || type == ShadowState.class
+            || type == ShadowMetadata.class;
+    }
+
+    /**
+     * Reads an instance of a supported model type
+     * @param type model type to read
+     * @param in The JsonReader containing the packet payload data
+     * @return The model object, or null if the payload value is null
+     */
+    Object read(Class<?> type, JsonReader in) throws IOException {
+        if (type == GetShadowResponse.class) {
+            return readGetShadowResponse(in);
+        } else if (type == UpdateShadowResponse.class) {
+            return readUpdateShadowResponse(in);
+        } else if (type == ShadowDeltaUpdatedEvent.class) {
+            return readShadowDeltaUpdatedEvent(in);
+        } else if (type == ShadowUpdatedEvent.class) {
+            return readShadowUpdatedEvent(in);
+        } else if (type == ShadowUpdatedSnapshot.class) {
+            return readShadowUpdatedSnapshot(in);
+        } else if (type == ShadowStateWithDelta.class) {
+            return readShadowStateWithDelta(in);
+        } else if (type == ShadowState.class) {
+            return readShadowState(in);
+        } else if (type == ShadowMetadata.class) {
+            return readShadowMetadata(in);
+        }
+
+        throw new IllegalArgumentException("Unsupported shadow model type: " + type.getName());
+    }
+
+    GetShadowResponse readGetShadowResponse(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        GetShadowResponse response = new GetShadowResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "clientToken":
+                    response.clientToken = readString(in);
+                    break;
+                case "state":
+                    response.state = readShadowStateWithDelta(in);
+                    break;
+                case "metadata":
+                    response.metadata = readShadowMetadata(in);
+                    break;
+                case "timestamp":
+                    response.timestamp = timestampAdapter.read(in);
+                    break;
+                case "version":
+                    response.version = readInteger(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return response;
+    }
+
+    UpdateShadowResponse readUpdateShadowResponse(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        UpdateShadowResponse response = new UpdateShadowResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "clientToken":
+                    response.clientToken = readString(in);
+                    break;
+                case "state":
+                    response.state = readShadowState(in);
+                    break;
+                case "metadata":
+                    response.metadata = readShadowMetadata(in);
+                    break;
+                case "timestamp":
+                    response.timestamp = timestampAdapter.read(in);
+                    break;
+                case "version":
+                    response.version = readInteger(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return response;
+    }
+
+    ShadowDeltaUpdatedEvent readShadowDeltaUpdatedEvent(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        ShadowDeltaUpdatedEvent event = new ShadowDeltaUpdatedEvent();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "state":
+                    event.state = readMap(in);
+                    break;
+                case "metadata":
+                    event.metadata = readMap(in);
+                    break;
+                case "timestamp":
+                    event.timestamp = timestampAdapter.read(in);
+                    break;
+                case "version":
+                    event.version = readInteger(in);
+                    break;
+                case "clientToken":
+                    event.clientToken = readString(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return event;
+    }
+
+    ShadowUpdatedEvent readShadowUpdatedEvent(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        ShadowUpdatedEvent event = new ShadowUpdatedEvent();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "previous":
+                    event.previous = readShadowUpdatedSnapshot(in);
+                    break;
+                case "current":
+                    event.current = readShadowUpdatedSnapshot(in);
+                    break;
+                case "timestamp":
+                    event.timestamp = timestampAdapter.read(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return event;
+    }
+
+    ShadowUpdatedSnapshot readShadowUpdatedSnapshot(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        ShadowUpdatedSnapshot snapshot = new ShadowUpdatedSnapshot();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "state":
+                    snapshot.state = readShadowState(in);
+                    break;
+                case "metadata":
+                    snapshot.metadata = readShadowMetadata(in);
+                    break;
+                case "version":
+                    snapshot.version = readInteger(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return snapshot;
+    }
+
+    ShadowStateWithDelta readShadowStateWithDelta(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        ShadowStateWithDelta state = new ShadowStateWithDelta();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "desired":
+                    state.desired = readMap(in);
+                    break;
+                case "reported":
+                    state.reported = readMap(in);
+                    break;
+                case "delta":
+                    state.delta = readMap(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return state;
+    }
+
+    ShadowState readShadowState(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        ShadowState state = new ShadowState();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "desired":
+                    state.desired = readMap(in);
+                    break;
+                case "reported":
+                    state.reported = readMap(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return state;
+    }
+
+    ShadowMetadata readShadowMetadata(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        ShadowMetadata metadata = new ShadowMetadata();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "desired":
+                    metadata.desired = readMap(in);
+                    break;
+                case "reported":
+                    metadata.reported = readMap(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return metadata;
+    }
+
+    private HashMap<String, Object> readMap(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        HashMap<String, Object> map = new HashMap<String, Object>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            Object value = valueAdapter.read(in);
+            if (map.put(key, value) != null) {
+                throw new JsonSyntaxException("duplicate key: " + key);
+            }
+        }
+        in.endObject();
+
+        return map;
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        } else if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+
+        return in.nextString();
+    }
+
+    private static Integer readInteger(JsonReader in) throws IOException {
+        if (consumeNull(in)) {
+            return null;
+        }
+
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static boolean consumeNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+
+        return false;
+    }
+}
@@ -18,7 +18,10 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
 /**
- * Factory class for converting ShadowStates to and from packet payloads
+ * Factory class for converting ShadowStates, and the shadow models that contain them, to and from packet payloads
+ *
+ * Shadow responses and events are read with streaming, field-by-field readers rather than Gson's reflective
+ * adapters.  Serialization still goes through the reflective adapters.
  */
 public class ShadowStateFactory implements TypeAdapterFactory {
 
@@ -28,11 +31,35 @@ public class ShadowStateFactory implements TypeAdapterFactory {
     public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
 
         Class<T> rawType = (Class<T>)type.getRawType();
-        if (rawType != ShadowState.class) {
+        if (!ShadowModelReader.isSupported(rawType)) {
             return null;
         }
 
         final TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        final ShadowModelReader reader = new ShadowModelReader(gson.getAdapter(Object.class), gson.getAdapter(Timestamp.class));
+
+        if (rawType != ShadowState.class) {
+            return new TypeAdapter<T>() {
+
+                /**
+                 * Writes the type to the packet payload (JsonWriter)
+                 * @param out The JsonWriter to output the type data to
+                 * @param value The model value containing the data to convert
+                 */
+                public void write(JsonWriter out, T value) throws IOException {
+                    delegate.write(out, value);
+                }
+
+                /**
+                 * Reads the type from the packet payload (JsonReader)
+                 * @param in The JsonReader containing the packet payload data
+                 * @return The type created from the packet payload data
+                 */
+                public T read(JsonReader in) throws IOException {
+                    return rawType.cast(reader.read(rawType, in));
+                }
+            };
+        }
 
         return new TypeAdapter<T>() {
 
@@ -70,7 +97,7 @@ public class ShadowStateFactory implements TypeAdapterFactory {
              * @return The type created from the packet payload data
              */
             public T read(JsonReader in) throws IOException {
-                T returnType = delegate.read(in);
+                T returnType = rawType.cast(reader.readShadowState(in));
                 return returnType;
             }
         };
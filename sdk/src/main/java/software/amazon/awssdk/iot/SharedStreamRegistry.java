@@ -0,0 +1,312 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import software.amazon.awssdk.crt.Log;
+import software.amazon.awssdk.crt.Log.LogLevel;
+import software.amazon.awssdk.crt.Log.LogSubject;
+import software.amazon.awssdk.crt.iot.StreamingOperation;
+import software.amazon.awssdk.crt.iot.SubscriptionStatusEvent;
+
+/**
+ * A reference-counted registry that lets many in-process consumers share one streaming operation per topic.
+ *
+ * The first subscription to a topic creates and opens a streaming operation through the supplied factory
+ * (typically a V2 service client stream method).  Later subscriptions to the same topic attach to that
+ * operation instead of creating another MQTT subscription.  Each incoming message is deserialized once and
+ * handed to every subscriber, so subscribers must treat events as read-only.  The operation is closed when the
+ * last subscription to it is closed.
+ *
+ * Subscribers that attach after the subscription status has been reported receive the most recent status
+ * event immediately.  An exception thrown by one subscriber's handler is logged and does not prevent delivery to
+ * the others.  A subscription to a topic whose operation is still being opened waits for the opening to finish,
+ * and fails with the same exception if it does.
+ *
+ * Every subscription names the event type its stream produces.  A topic must always be subscribed with the same
+ * event type; a subscription with a different type is rejected rather than handed events it cannot accept.
+ *
+ * <pre>{@code
+ * SharedStreamRegistry.Subscription subscription = registry.subscribe(
+ *     "$aws/things/" + thingName + "/shadow/update/delta",
+ *     ShadowDeltaUpdatedEvent.class,
+ *     streamOptions,
+ *     options -> shadowClient.createShadowDeltaUpdatedStream(request, options));
+ * }</pre>
+ */
+public class SharedStreamRegistry implements AutoCloseable {
+
+    private final Object lock = new Object();
+    private final Map<String, SharedStream<?>> streams = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * A consumer's attachment to a shared stream.  Closing it detaches the consumer's handlers, and closes the
+     * underlying streaming operation if it was the last attachment.
+     */
+    public interface Subscription extends AutoCloseable {
+
+        /**
+         * Detaches this subscription.  Closing a subscription more than once has no further effect.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Subscribes to a topic, creating the underlying streaming operation if no other consumer is subscribed to it
+     *
+     * @param topic the MQTT topic the stream factory subscribes to
+     * @param eventType the type the stream deserializes messages into
+     * @param options the callbacks to invoke for this subscriber
+     * @param streamFactory creates an unopened streaming operation for the topic from the supplied options
+     * @param <T> Type that the stream deserializes MQTT messages into
+     * @return a subscription to close when the consumer no longer needs the stream
+     * @throws IllegalArgumentException if the topic is already shared with a different event type
+     * @throws IllegalStateException if the registry is closed
+     * @throws RuntimeException whatever the stream factory threw, if opening the shared operation failed
+     */
+    public <T> Subscription subscribe(String topic, Class<T> eventType, V2ClientStreamOptions<T> options, Function<V2ClientStreamOptions<T>, StreamingOperation> streamFactory) {
+        return subscribeStream(topic, eventType, options, fanOutOptions -> {
+            StreamingOperation operation = streamFactory.apply(fanOutOptions);
+            operation.open();
+            return operation;
+        });
+    }
+
+    <T> Subscription subscribeStream(String topic, Class<T> eventType, V2ClientStreamOptions<T> options, Function<V2ClientStreamOptions<T>, AutoCloseable> streamOpener) {
+        if (eventType == null) {
+            throw new IllegalArgumentException("SharedStreamRegistry eventType cannot be null");
+        }
+
+        SharedStream<T> stream;
+        boolean created = false;
+
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("SharedStreamRegistry is closed");
+            }
+
+            SharedStream<?> shared = streams.get(topic);
+            if (shared == null) {
+                shared = new SharedStream<>(topic, eventType);
+                streams.put(topic, shared);
+                created = true;
+            } else if (shared.eventType != eventType) {
+                throw new IllegalArgumentException("Topic " + topic + " is shared with event type " + shared.eventType.getName()
+                        + ", not " + eventType.getName());
+            }
+            @SuppressWarnings("unchecked")
+            SharedStream<T> existing = (SharedStream<T>) shared;
+            stream = existing;
+            stream.subscribers.add(options);
+        }
+
+        if (created) {
+            try {
+                AutoCloseable operation = streamOpener.apply(stream.fanOutOptions());
+                stream.attach(operation);
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    if (streams.get(topic) == stream) {
+                        streams.remove(topic);
+                    }
+                    stream.subscribers.clear();
+                }
+                // Subscribers that attached while the operation was being opened fail along with this one
+                stream.opened.completeExceptionally(e);
+                throw e;
+            }
+            stream.opened.complete(null);
+        } else {
+            try {
+                stream.opened.join();
+            } catch (CompletionException e) {
+                synchronized (lock) {
+                    stream.subscribers.remove(options);
+                }
+                throw (RuntimeException) e.getCause();
+            }
+            stream.replayStatus(options);
+        }
+
+        return new SharedSubscription<>(stream, options);
+    }
+
+    /**
+     * @param topic an MQTT topic
+     * @return the number of subscriptions currently attached to the topic's shared stream
+     */
+    public int subscriberCount(String topic) {
+        synchronized (lock) {
+            SharedStream<?> stream = streams.get(topic);
+            return stream != null ? stream.subscribers.size() : 0;
+        }
+    }
+
+    /**
+     * Closes every shared streaming operation.  Handlers of existing subscriptions are no longer invoked, and
+     * later subscriptions are rejected.
+     */
+    @Override
+    public void close() {
+        List<SharedStream<?>> closing;
+        synchronized (lock) {
+            closed = true;
+            closing = new ArrayList<>(streams.values());
+            streams.clear();
+        }
+
+        for (SharedStream<?> stream : closing) {
+            stream.subscribers.clear();
+            stream.closeOperation();
+        }
+    }
+
+    private void unsubscribe(SharedStream<?> stream, V2ClientStreamOptions<?> options) {
+        boolean last;
+        synchronized (lock) {
+            if (!stream.subscribers.remove(options)) {
+                return;
+            }
+            last = stream.subscribers.isEmpty() && streams.get(stream.topic) == stream;
+            if (last) {
+                streams.remove(stream.topic);
+            }
+        }
+
+        if (last) {
+            stream.closeOperation();
+        }
+    }
+
+    private class SharedSubscription<T> implements Subscription {
+        private final SharedStream<T> stream;
+        private final V2ClientStreamOptions<T> options;
+
+        private SharedSubscription(SharedStream<T> stream, V2ClientStreamOptions<T> options) {
+            this.stream = stream;
+            this.options = options;
+        }
+
+        @Override
+        public void close() {
+            unsubscribe(stream, options);
+        }
+    }
+
+    /**
+     * One streaming operation and the subscribers it fans out to
+     */
+    private static class SharedStream<T> {
+        private final String topic;
+        private final Class<T> eventType;
+        private final CopyOnWriteArrayList<V2ClientStreamOptions<T>> subscribers = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Void> opened = new CompletableFuture<>();
+        private volatile SubscriptionStatusEvent lastStatus;
+        private AutoCloseable operation;
+        private boolean closed;
+
+        private SharedStream(String topic, Class<T> eventType) {
+            this.topic = topic;
+            this.eventType = eventType;
+        }
+
+        private V2ClientStreamOptions<T> fanOutOptions() {
+            return V2ClientStreamOptions.<T>builder()
+                .withStreamEventHandler(event -> {
+                    for (V2ClientStreamOptions<T> subscriber : subscribers) {
+                        try {
+                            subscriber.streamEventHandler().accept(event);
+                        } catch (RuntimeException e) {
+                            // One consumer's failure must not stop delivery to the others
+                            logSubscriberFailure(e);
+                        }
+                    }
+                })
+                .withSubscriptionEventHandler(event -> {
+                    lastStatus = event;
+                    for (V2ClientStreamOptions<T> subscriber : subscribers) {
+                        try {
+                            subscriber.subscriptionEventHandler().accept(event);
+                        } catch (RuntimeException e) {
+                            // One consumer's failure must not stop delivery to the others
+                            logSubscriberFailure(e);
+                        }
+                    }
+                })
+                .withDeserializationFailureHandler(event -> {
+                    for (V2ClientStreamOptions<T> subscriber : subscribers) {
+                        try {
+                            subscriber.deserializationFailureHandler().accept(event);
+                        } catch (RuntimeException e) {
+                            // One consumer's failure must not stop delivery to the others
+                            logSubscriberFailure(e);
+                        }
+                    }
+                })
+                .build();
+        }
+
+        private void logSubscriberFailure(RuntimeException e) {
+            Log.log(LogLevel.Error, LogSubject.JavaCrtGeneral, "SharedStreamRegistry subscriber to " + topic + " threw: " + e);
+        }
+
+        private void replayStatus(V2ClientStreamOptions<T> subscriber) {
+            SubscriptionStatusEvent status = lastStatus;
+            if (status != null) {
+                try {
+                    subscriber.subscriptionEventHandler().accept(status);
+                } catch (RuntimeException e) {
+                    // Treated like a failure during fan-out; the subscription itself is in place
+                    logSubscriberFailure(e);
+                }
+            }
+        }
+
+        private void attach(AutoCloseable operation) {
+            boolean closeNow;
+            synchronized (this) {
+                this.operation = operation;
+                closeNow = closed;
+            }
+
+            // Every subscriber left while the operation was being opened
+            if (closeNow) {
+                closeQuietly(operation);
+            }
+        }
+
+        private void closeOperation() {
+            AutoCloseable toClose;
+            synchronized (this) {
+                closed = true;
+                toClose = operation;
+                operation = null;
+            }
+
+            if (toClose != null) {
+                closeQuietly(toClose);
+            }
+        }
+
+        private static void closeQuietly(AutoCloseable operation) {
+            try {
+                operation.close();
+            } catch (Exception e) {
+                // the operation is no longer needed; there is nothing further to do with it
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link V2ClientMetricsListener} that forwards operation metrics to a dimensional metrics library as named,
+ * tagged timers, counters and gauges.  The SDK does not depend on any metrics library; a {@link MeterSink}
+ * connects the adapter to one.  With Micrometer, for example:
+ *
+ * <pre>{@code
+ * MeterRegistry registry = ...;
+ * TaggedMetricsAdapter adapter = new TaggedMetricsAdapter(new TaggedMetricsAdapter.MeterSink() {
+ *     public void recordTimer(String name, Map<String, String> tags, long nanos) {
+ *         registry.timer(name, toTags(tags)).record(nanos, TimeUnit.NANOSECONDS);
+ *     }
+ *
+ *     public void incrementCounter(String name, Map<String, String> tags, long amount) {
+ *         registry.counter(name, toTags(tags)).increment(amount);
+ *     }
+ *
+ *     public void registerGauge(String name, Map<String, String> tags, Number value) {
+ *         registry.gauge(name, toTags(tags), value);
+ *     }
+ * });
+ * }</pre>
+ *
+ * The adapter reports these meters:
+ * <ul>
+ *     <li>{@value #DURATION_METER}, a timer tagged with operation, phase and outcome</li>
+ *     <li>{@value #COMPLETED_METER}, a counter tagged with operation and outcome</li>
+ *     <li>{@value #IN_FLIGHT_METER}, a gauge tagged with operation, registered when the operation is first invoked</li>
+ * </ul>
+ * Tag maps are created once per combination and reused, so sinks may use them as cache keys.  The same sink
+ * interface is used by {@link Mqtt5ClientMetrics} for connection-level meters.
+ */
+public class TaggedMetricsAdapter implements V2ClientMetricsListener {
+
+    /**
+     * The name of the timer of operation phase durations
+     */
+    public static final String DURATION_METER = "aws.iot.v2client.operation.duration";
+
+    /**
+     * The name of the counter of completed operations
+     */
+    public static final String COMPLETED_METER = "aws.iot.v2client.operation.completed";
+
+    /**
+     * The name of the gauge of operations in flight
+     */
+    public static final String IN_FLIGHT_METER = "aws.iot.v2client.operation.inflight";
+
+    /**
+     * The name of the tag holding the operation name
+     */
+    public static final String OPERATION_TAG = "operation";
+
+    /**
+     * The name of the tag holding the phase
+     */
+    public static final String PHASE_TAG = "phase";
+
+    /**
+     * The name of the tag holding the outcome
+     */
+    public static final String OUTCOME_TAG = "outcome";
+
+    private static final V2OperationPhase[] PHASES = V2OperationPhase.values();
+    private static final V2OperationOutcome[] OUTCOMES = V2OperationOutcome.values();
+
+    /**
+     * Records meters in a metrics library.  Implementations must be thread-safe and must not block.
+     */
+    public interface MeterSink {
+
+        /**
+         * Records one duration in a timer
+         *
+         * @param name the timer's name
+         * @param tags the timer's tags
+         * @param nanos the duration in nanoseconds
+         */
+        void recordTimer(String name, Map<String, String> tags, long nanos);
+
+        /**
+         * Increments a counter
+         *
+         * @param name the counter's name
+         * @param tags the counter's tags
+         * @param amount the amount to add
+         */
+        void incrementCounter(String name, Map<String, String> tags, long amount);
+
+        /**
+         * Registers a gauge that reads its value from the given holder.  Called once per gauge.
+         *
+         * @param name the gauge's name
+         * @param tags the gauge's tags
+         * @param value the holder the caller keeps up to date, such as an AtomicInteger or AtomicLong
+         */
+        void registerGauge(String name, Map<String, String> tags, Number value);
+    }
+
+    private final MeterSink sink;
+    private final ConcurrentHashMap<String, OperationMeters> operations = new ConcurrentHashMap<>();
+
+    private class OperationMeters {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Map<String, String>[] completedTags;
+        private final Map<String, String>[][] durationTags;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private OperationMeters(String operationName) {
+            completedTags = new Map[OUTCOMES.length];
+            durationTags = new Map[OUTCOMES.length][PHASES.length];
+            for (V2OperationOutcome outcome : OUTCOMES) {
+                completedTags[outcome.ordinal()] = tags(operationName, null, outcome);
+                for (V2OperationPhase phase : PHASES) {
+                    durationTags[outcome.ordinal()][phase.ordinal()] = tags(operationName, phase, outcome);
+                }
+            }
+
+            sink.registerGauge(IN_FLIGHT_METER, tags(operationName, null, null), inFlight);
+        }
+    }
+
+    /**
+     * Creates a new adapter
+     *
+     * @param sink the sink to record meters in
+     */
+    public TaggedMetricsAdapter(MeterSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("TaggedMetricsAdapter sink cannot be null");
+        }
+
+        this.sink = sink;
+    }
+
+    @Override
+    public void onOperationStarted(String operationName) {
+        meters(operationName).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onOperationCompleted(V2OperationTimer timer) {
+        OperationMeters meters = meters(timer.getOperationName());
+        meters.inFlight.decrementAndGet();
+
+        int outcome = timer.getOutcome().ordinal();
+        sink.incrementCounter(COMPLETED_METER, meters.completedTags[outcome], 1);
+        for (V2OperationPhase phase : PHASES) {
+            long nanos = timer.getPhaseNanos(phase);
+            if (nanos >= 0) {
+                sink.recordTimer(DURATION_METER, meters.durationTags[outcome][phase.ordinal()], nanos);
+            }
+        }
+    }
+
+    private OperationMeters meters(String operationName) {
+        OperationMeters meters = operations.get(operationName);
+        if (meters == null) {
+            meters = operations.computeIfAbsent(operationName, OperationMeters::new);
+        }
+        return meters;
+    }
+
+    private static Map<String, String> tags(String operationName, V2OperationPhase phase, V2OperationOutcome outcome) {
+        Map<String, String> tags = new HashMap<>();
+        tags.put(OPERATION_TAG, operationName);
+        if (phase != null) {
+            tags.put(PHASE_TAG, phase.name());
+        }
+        if (outcome != null) {
+            tags.put(OUTCOME_TAG, outcome.name());
+        }
+        return Collections.unmodifiableMap(tags);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+/**
+ * Reads individual '/'-separated segments of an MQTT topic without splitting it.
+ *
+ * Streaming operations that subscribe with wildcards recover values such as an execution id from the topic of
+ * each incoming message.  {@code topic.split("/")} allocates an array and a String for every segment just to
+ * read one or two of them; these methods scan the topic once per lookup and allocate at most the String
+ * returned.
+ */
+public final class TopicSegments {
+
+    private static final char SEPARATOR = '/';
+
+    private TopicSegments() {}
+
+    /**
+     * Finds where a segment starts
+     *
+     * @param topic an MQTT topic
+     * @param index the zero-based index of the segment
+     * @return the offset of the segment's first character, or -1 if the topic has fewer segments
+     */
+    public static int segmentStart(String topic, int index) {
+        if (index < 0) {
+            return -1;
+        }
+
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            int separator = topic.indexOf(SEPARATOR, start);
+            if (separator < 0) {
+                return -1;
+            }
+            start = separator + 1;
+        }
+        return start;
+    }
+
+    /**
+     * Finds where the segment after a given segment starts
+     *
+     * @param topic an MQTT topic
+     * @param start the offset of a segment's first character, or -1
+     * @return the offset of the next segment's first character, or -1 if there is no next segment
+     */
+    public static int nextSegmentStart(String topic, int start) {
+        if (start < 0) {
+            return -1;
+        }
+        int separator = topic.indexOf(SEPARATOR, start);
+        return separator < 0 ? -1 : separator + 1;
+    }
+
+    /**
+     * Finds where a segment ends
+     *
+     * @param topic an MQTT topic
+     * @param start the offset of the segment's first character
+     * @return the offset just past the segment's last character
+     */
+    public static int segmentEnd(String topic, int start) {
+        int separator = topic.indexOf(SEPARATOR, start);
+        return separator < 0 ? topic.length() : separator;
+    }
+
+    /**
+     * Extracts one segment of a topic
+     *
+     * @param topic an MQTT topic
+     * @param index the zero-based index of the segment
+     * @return the segment, or null if the topic has fewer segments
+     */
+    public static String segment(String topic, int index) {
+        int start = segmentStart(topic, index);
+        if (start < 0) {
+            return null;
+        }
+        return topic.substring(start, segmentEnd(topic, start));
+    }
+
+    /**
+     * Compares one segment of a topic with a value, without extracting the segment
+     *
+     * @param topic an MQTT topic
+     * @param index the zero-based index of the segment
+     * @param value the value to compare with
+     * @return true if the topic has the segment and it equals the value
+     */
+    public static boolean segmentEquals(String topic, int index, String value) {
+        int start = segmentStart(topic, index);
+        if (start < 0) {
+            return false;
+        }
+        int end = segmentEnd(topic, start);
+        return end - start == value.length() && topic.regionMatches(start, value, 0, value.length());
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A precompiled MQTT topic template such as {@code $aws/things/{thingName}/shadow/name/{shadowName}/get}.
+ *
+ * The template is split into its fixed segments and parameter slots once, when it is compiled.  Rendering
+ * then appends the segments and the parameter values into a single, exactly sized StringBuilder instead of
+ * running one String.replace pass (and allocating one intermediate String) per parameter.
+ */
+public final class TopicTemplate {
+
+    private final String template;
+    private final String[] segments;
+    private final List<String> parameterNames;
+    private final int fixedLength;
+
+    private TopicTemplate(String template, String[] segments, List<String> parameterNames) {
+        this.template = template;
+        this.segments = segments;
+        this.parameterNames = Collections.unmodifiableList(parameterNames);
+
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.fixedLength = length;
+    }
+
+    /**
+     * Compiles a topic template.  Parameters are written as {@code {name}}.
+     *
+     * @param template the topic template to compile
+     * @return the compiled template
+     * @throws IllegalArgumentException if a parameter is unterminated or has an empty name
+     */
+    public static TopicTemplate compile(String template) {
+        List<String> segments = new ArrayList<>();
+        List<String> parameterNames = new ArrayList<>();
+
+        int segmentStart = 0;
+        int open = template.indexOf('{');
+        while (open >= 0) {
+            int close = template.indexOf('}', open + 1);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unterminated parameter in topic template: " + template);
+            }
+            if (close == open + 1) {
+                throw new IllegalArgumentException("Empty parameter name in topic template: " + template);
+            }
+
+            segments.add(template.substring(segmentStart, open));
+            parameterNames.add(template.substring(open + 1, close));
+            segmentStart = close + 1;
+            open = template.indexOf('{', segmentStart);
+        }
+        segments.add(template.substring(segmentStart));
+
+        return new TopicTemplate(template, segments.toArray(new String[0]), parameterNames);
+    }
+
+    /**
+     * Renders the template
+     *
+     * @param values parameter values, in the order the parameters appear in the template
+     * @return the rendered topic
+     * @throws IllegalArgumentException if the number of values does not match the number of parameters
+     */
+    public String render(String... values) {
+        if (values.length != parameterNames.size()) {
+            throw new IllegalArgumentException("Topic template " + template + " expects " + parameterNames.size()
+                + " parameter(s) but " + values.length + " were supplied");
+        }
+
+        if (values.length == 0) {
+            return segments[0];
+        }
+
+        int length = fixedLength;
+        for (String value : values) {
+            length += value.length();
+        }
+
+        StringBuilder topic = new StringBuilder(length);
+        topic.append(segments[0]);
+        for (int i = 0; i < values.length; i++) {
+            topic.append(values[i]);
+            topic.append(segments[i + 1]);
+        }
+
+        return topic.toString();
+    }
+
+    /**
+     * @return the names of the template's parameters, in the order they appear in the template
+     */
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * @return the original, uncompiled template
+     */
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.UUID;
+
+/**
+ * Correlation token generator that uses a random (version 4) UUID for every token.  This was the only
+ * behavior available before token generators became configurable.
+ */
+public class UuidCorrelationTokenGenerator implements CorrelationTokenGenerator {
+
+    /**
+     * Creates a new UUID-based generator
+     */
+    public UuidCorrelationTokenGenerator() {}
+
+    /**
+     * @return a new random UUID, as a string
+     */
+    @Override
+    public String nextToken() {
+        return UUID.randomUUID().toString();
+    }
+}
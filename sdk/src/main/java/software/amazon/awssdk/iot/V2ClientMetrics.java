@@ -0,0 +1,129 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link V2ClientMetricsListener} that aggregates operation metrics in memory, per operation name: a latency
+ * histogram for each phase, the number of operations in flight and its peak, and a count of each outcome.
+ *
+ * One instance can be shared by several clients to aggregate across them.  Histograms record every operation
+ * that reaches the phase, whatever its outcome, so a TOTAL histogram includes timeouts; use the outcome counts
+ * to tell them apart.
+ *
+ * <pre>{@code
+ * V2ClientMetrics metrics = new V2ClientMetrics();
+ * IotShadowV2Client client = IotShadowV2Client.newFromMqtt5(protocolClient, rrOptions,
+ *     V2ClientOptions.builder().withMetricsListener(metrics).build());
+ * ...
+ * long p99 = metrics.getHistogram("UpdateNamedShadow", V2OperationPhase.TOTAL).getValueAtPercentile(99);
+ * }</pre>
+ */
+public class V2ClientMetrics implements V2ClientMetricsListener {
+
+    private static final V2OperationPhase[] PHASES = V2OperationPhase.values();
+    private static final V2OperationOutcome[] OUTCOMES = V2OperationOutcome.values();
+
+    private final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private static class OperationMetrics {
+        private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+        private final AtomicLongArray outcomes = new AtomicLongArray(OUTCOMES.length);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+
+        private OperationMetrics() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * Creates a new, empty set of metrics
+     */
+    public V2ClientMetrics() {}
+
+    @Override
+    public void onOperationStarted(String operationName) {
+        OperationMetrics metrics = operations.computeIfAbsent(operationName, name -> new OperationMetrics());
+        metrics.peakInFlight.accumulateAndGet(metrics.inFlight.incrementAndGet(), Math::max);
+    }
+
+    @Override
+    public void onOperationCompleted(V2OperationTimer timer) {
+        OperationMetrics metrics = operations.computeIfAbsent(timer.getOperationName(), name -> new OperationMetrics());
+        metrics.inFlight.decrementAndGet();
+        metrics.outcomes.incrementAndGet(timer.getOutcome().ordinal());
+        for (V2OperationPhase phase : PHASES) {
+            long nanos = timer.getPhaseNanos(phase);
+            if (nanos >= 0) {
+                metrics.histograms[phase.ordinal()].record(nanos);
+            }
+        }
+    }
+
+    /**
+     * @return the names of every operation that has been invoked
+     */
+    public Set<String> getOperationNames() {
+        return Collections.unmodifiableSet(operations.keySet());
+    }
+
+    /**
+     * @param operationName the name of the operation
+     * @return the number of operations of this name currently in flight
+     */
+    public int getInFlight(String operationName) {
+        OperationMetrics metrics = operations.get(operationName);
+        return metrics != null ? metrics.inFlight.get() : 0;
+    }
+
+    /**
+     * @return the number of operations of every name currently in flight
+     */
+    public int getTotalInFlight() {
+        int total = 0;
+        for (OperationMetrics metrics : operations.values()) {
+            total += metrics.inFlight.get();
+        }
+        return total;
+    }
+
+    /**
+     * @param operationName the name of the operation
+     * @return the largest number of operations of this name that have been in flight at once
+     */
+    public int getPeakInFlight(String operationName) {
+        OperationMetrics metrics = operations.get(operationName);
+        return metrics != null ? metrics.peakInFlight.get() : 0;
+    }
+
+    /**
+     * @param operationName the name of the operation
+     * @param phase the phase
+     * @return the histogram of the phase's durations, or null if the operation has never been invoked
+     */
+    public LatencyHistogram getHistogram(String operationName, V2OperationPhase phase) {
+        OperationMetrics metrics = operations.get(operationName);
+        return metrics != null ? metrics.histograms[phase.ordinal()] : null;
+    }
+
+    /**
+     * @param operationName the name of the operation
+     * @param outcome the outcome
+     * @return the number of operations of this name that ended with the outcome
+     */
+    public long getOutcomeCount(String operationName, V2OperationOutcome outcome) {
+        OperationMetrics metrics = operations.get(operationName);
+        return metrics != null ? metrics.outcomes.get(outcome.ordinal()) : 0;
+    }
+}
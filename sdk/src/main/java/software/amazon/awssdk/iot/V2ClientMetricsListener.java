@@ -0,0 +1,36 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+/**
+ * Receives timing and outcome information for the request-response operations of a V2 service client.
+ *
+ * Configure a listener with {@link V2ClientOptions.V2ClientOptionsBuilder#withMetricsListener}.  Callbacks are
+ * made on the thread that invokes the operation and on the CRT event loop thread that completes it, so
+ * implementations must be thread-safe and must not block.  {@link V2ClientMetrics} aggregates the callbacks into
+ * histograms and counters; {@link TaggedMetricsAdapter} forwards them to a metrics library such as Micrometer.
+ */
+public interface V2ClientMetricsListener {
+
+    /**
+     * A listener that ignores all callbacks.  Clients skip timing entirely when it is configured.
+     */
+    V2ClientMetricsListener NONE = new V2ClientMetricsListener() {};
+
+    /**
+     * Called when an operation is invoked
+     *
+     * @param operationName the name of the operation, such as GetNamedShadow
+     */
+    default void onOperationStarted(String operationName) {}
+
+    /**
+     * Called when an operation's future is completed, successfully or not
+     *
+     * @param timer the operation's timings and outcome
+     */
+    default void onOperationCompleted(V2OperationTimer timer) {}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+/**
+ * SDK-side configuration options for the V2 service clients.  These complement the
+ * MqttRequestResponseClientOptions that configure the underlying CRT request-response client.
+ */
+public class V2ClientOptions {
+
+    private CorrelationTokenGenerator correlationTokenGenerator;
+    private V2ClientMetricsListener metricsListener;
+
+    /**
+     * Builder type for V2ClientOptions instances
+     */
+    public static class V2ClientOptionsBuilder {
+        private V2ClientOptions options = new V2ClientOptions();
+
+        private V2ClientOptionsBuilder() {}
+
+        /**
+         * Sets the generator the client should use to create correlation tokens for request-response operations.
+         * Defaults to a new {@link SequentialCorrelationTokenGenerator} per client.
+         *
+         * @param correlationTokenGenerator the generator to create correlation tokens with
+         * @return this builder object
+         */
+        public V2ClientOptionsBuilder withCorrelationTokenGenerator(CorrelationTokenGenerator correlationTokenGenerator) {
+            options.correlationTokenGenerator = correlationTokenGenerator;
+
+            return this;
+        }
+
+        /**
+         * Sets the listener the client should report operation timings and outcomes to.  Defaults to
+         * {@link V2ClientMetricsListener#NONE}, which disables timing.
+         *
+         * @param metricsListener the listener to report operation metrics to
+         * @return this builder object
+         */
+        public V2ClientOptionsBuilder withMetricsListener(V2ClientMetricsListener metricsListener) {
+            options.metricsListener = metricsListener;
+
+            return this;
+        }
+
+        /**
+         * Creates a new V2ClientOptions instance from the existing configuration.
+         *
+         * @return a new V2ClientOptions instance
+         */
+        public V2ClientOptions build() {
+            return new V2ClientOptions(options);
+        }
+    }
+
+    private V2ClientOptions() {
+    }
+
+    private V2ClientOptions(V2ClientOptions options) {
+        if (options.correlationTokenGenerator != null) {
+            this.correlationTokenGenerator = options.correlationTokenGenerator;
+        } else {
+            this.correlationTokenGenerator = new SequentialCorrelationTokenGenerator();
+        }
+
+        if (options.metricsListener != null) {
+            this.metricsListener = options.metricsListener;
+        } else {
+            this.metricsListener = V2ClientMetricsListener.NONE;
+        }
+    }
+
+    /**
+     * Creates a new builder object for V2ClientOptions instances
+     *
+     * @return a new builder object for V2ClientOptions instances
+     */
+    public static V2ClientOptionsBuilder builder() {
+        return new V2ClientOptionsBuilder();
+    }
+
+    /**
+     * @return the generator the client should use to create correlation tokens for request-response operations
+     */
+    public CorrelationTokenGenerator correlationTokenGenerator() {
+        return this.correlationTokenGenerator;
+    }
+
+    /**
+     * @return the listener the client should report operation timings and outcomes to
+     */
+    public V2ClientMetricsListener metricsListener() {
+        return this.metricsListener;
+    }
+}
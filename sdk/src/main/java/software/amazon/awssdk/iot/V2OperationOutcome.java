@@ -0,0 +1,37 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+/**
+ * How a V2 service client request-response operation ended
+ */
+public enum V2OperationOutcome {
+
+    /**
+     * The service accepted the request and the response was decoded
+     */
+    SUCCEEDED,
+
+    /**
+     * The service rejected the request
+     */
+    REJECTED,
+
+    /**
+     * No response arrived within the request-response client's operation timeout
+     */
+    TIMED_OUT,
+
+    /**
+     * The request could not be sent or the request-response client failed it
+     */
+    FAILED,
+
+    /**
+     * A response arrived but could not be decoded
+     */
+    DESERIALIZATION_FAILED
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+/**
+ * A stage of a V2 service client request-response operation that is timed separately
+ */
+public enum V2OperationPhase {
+
+    /**
+     * From the operation being invoked until the request has been handed to the request-response client.
+     * Covers validation, topic rendering and payload serialization.
+     */
+    SUBMIT,
+
+    /**
+     * From the request being handed to the request-response client until a response or failure arrives.
+     * Covers subscribing, publishing, the service round trip, and any wait for a free request slot.
+     */
+    RESPONSE,
+
+    /**
+     * From the response arriving until it has been decoded
+     */
+    DECODE,
+
+    /**
+     * From the operation being invoked until its future is completed
+     */
+    TOTAL
+}
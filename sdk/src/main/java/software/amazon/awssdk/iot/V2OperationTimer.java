@@ -0,0 +1,153 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import software.amazon.awssdk.crt.CrtRuntimeException;
+import software.amazon.awssdk.crt.Log;
+import software.amazon.awssdk.crt.Log.LogLevel;
+import software.amazon.awssdk.crt.Log.LogSubject;
+
+/**
+ * Times the phases of one request-response operation and reports them to a {@link V2ClientMetricsListener}.
+ *
+ * V2 service clients create a timer per operation and mark each phase boundary.  Listeners receive the timer
+ * once the operation has completed and can read its phase durations and outcome; it does not change after that.
+ * The request-response client does not report when the request's PUBLISH is acknowledged, so the time waiting
+ * for the acknowledgement is part of the RESPONSE phase.  Exceptions thrown by the listener are logged and never
+ * change or delay the operation's result.
+ */
+public final class V2OperationTimer {
+
+    private static final String TIMEOUT_ERROR_NAME = "AWS_ERROR_MQTT_REQUEST_RESPONSE_TIMEOUT";
+
+    private static final V2OperationTimer DISABLED = new V2OperationTimer(V2ClientMetricsListener.NONE, null, 0);
+
+    private final V2ClientMetricsListener listener;
+    private final String operationName;
+    private final long startNanos;
+    private long submittedNanos;
+    private long receivedNanos;
+    private long completedNanos;
+    private V2OperationOutcome outcome;
+
+    private V2OperationTimer(V2ClientMetricsListener listener, String operationName, long startNanos) {
+        this.listener = listener;
+        this.operationName = operationName;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Starts timing an operation
+     *
+     * @param listener the listener to report to
+     * @param operationName the name of the operation
+     * @return a new timer, or a shared inert timer if the listener is {@link V2ClientMetricsListener#NONE}
+     */
+    public static V2OperationTimer start(V2ClientMetricsListener listener, String operationName) {
+        if (listener == null || listener == V2ClientMetricsListener.NONE) {
+            return DISABLED;
+        }
+
+        V2OperationTimer timer = new V2OperationTimer(listener, operationName, System.nanoTime());
+        try {
+            listener.onOperationStarted(operationName);
+        } catch (Exception e) {
+            Log.log(LogLevel.Error, LogSubject.JavaCrtGeneral, "V2OperationTimer listener threw starting " + operationName + ": " + e);
+        }
+        return timer;
+    }
+
+    /**
+     * Marks the request as complete and about to be handed to the request-response client
+     */
+    public void submitted() {
+        if (this != DISABLED) {
+            submittedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks a response or failure as received from the request-response client
+     */
+    public void received() {
+        if (this != DISABLED) {
+            receivedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the operation as completed and reports it to the listener
+     *
+     * @param outcome how the operation ended
+     */
+    public void complete(V2OperationOutcome outcome) {
+        if (this == DISABLED || this.outcome != null) {
+            return;
+        }
+
+        completedNanos = System.nanoTime();
+        this.outcome = outcome;
+        try {
+            listener.onOperationCompleted(this);
+        } catch (Exception e) {
+            Log.log(LogLevel.Error, LogSubject.JavaCrtGeneral, "V2OperationTimer listener threw completing " + operationName + ": " + e);
+        }
+    }
+
+    /**
+     * Marks the operation as failed by the request-response client and reports it to the listener
+     *
+     * @param error the failure
+     */
+    public void fail(Throwable error) {
+        complete(isTimeout(error) ? V2OperationOutcome.TIMED_OUT : V2OperationOutcome.FAILED);
+    }
+
+    /**
+     * @return the name of the operation
+     */
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * @return how the operation ended, or null if it has not completed
+     */
+    public V2OperationOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Gets the duration of one phase.  Phases the operation did not reach have no duration, and neither does
+     * DECODE for operations that failed without a response.
+     *
+     * @param phase the phase
+     * @return the phase's duration in nanoseconds, or -1 if the operation did not reach it
+     */
+    public long getPhaseNanos(V2OperationPhase phase) {
+        switch (phase) {
+            case SUBMIT:
+                return submittedNanos != 0 ? submittedNanos - startNanos : -1;
+            case RESPONSE:
+                return submittedNanos != 0 && receivedNanos != 0 ? receivedNanos - submittedNanos : -1;
+            case DECODE:
+                return receivedNanos != 0 && outcome != null && outcome != V2OperationOutcome.TIMED_OUT && outcome != V2OperationOutcome.FAILED
+                    ? completedNanos - receivedNanos : -1;
+            default:
+                return outcome != null ? completedNanos - startNanos : -1;
+        }
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof CrtRuntimeException && TIMEOUT_ERROR_NAME.equals(((CrtRuntimeException) error).errorName);
+    }
+}
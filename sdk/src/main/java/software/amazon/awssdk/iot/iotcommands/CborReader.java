@@ -0,0 +1,582 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotcommands;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pull-based reader for CBOR (RFC 8949) encoded data, such as the payload of a command execution received on
+ * a CBOR payload stream.
+ *
+ * The reader walks the encoded bytes in place: headers and scalars are decoded without allocating, and strings
+ * are only materialized when asked for.  Map keys can be compared with {@link #readTextStringIfEquals} without
+ * creating a String, and byte strings can be viewed with {@link #readByteStringAsBuffer} without being copied.
+ * Items the caller is not interested in are passed over with {@link #skip}.
+ *
+ * <pre>{@code
+ * CborReader reader = new CborReader(event.payload);
+ * int entries = reader.readMapHeader();
+ * for (int i = 0; i < entries; i++) {
+ *     if (reader.readTextStringIfEquals("duration")) {
+ *         duration = reader.readLong();
+ *     } else {
+ *         reader.skip();  // key
+ *         reader.skip();  // value
+ *     }
+ * }
+ * }</pre>
+ *
+ * Malformed or truncated input, and reading an item as the wrong type, raise an IllegalArgumentException.
+ * Instances are not thread-safe.
+ */
+public final class CborReader {
+
+    /**
+     * The kind of the next data item
+     */
+    public enum Type {
+        UNSIGNED_INTEGER,
+        NEGATIVE_INTEGER,
+        BYTE_STRING,
+        TEXT_STRING,
+        ARRAY,
+        MAP,
+        TAG,
+        BOOLEAN,
+        NULL,
+        UNDEFINED,
+        FLOAT,
+        SIMPLE_VALUE,
+        BREAK
+    }
+
+    /**
+     * Length returned by {@link #readArrayHeader} and {@link #readMapHeader} for indefinite-length containers,
+     * which end with a break marker instead
+     */
+    public static final int INDEFINITE_LENGTH = -1;
+
+    static final int MAJOR_UNSIGNED = 0;
+    static final int MAJOR_NEGATIVE = 1;
+    static final int MAJOR_BYTES = 2;
+    static final int MAJOR_TEXT = 3;
+    static final int MAJOR_ARRAY = 4;
+    static final int MAJOR_MAP = 5;
+    static final int MAJOR_TAG = 6;
+    static final int MAJOR_SIMPLE = 7;
+
+    static final int SIMPLE_FALSE = 20;
+    static final int SIMPLE_TRUE = 21;
+    static final int SIMPLE_NULL = 22;
+    static final int SIMPLE_UNDEFINED = 23;
+    static final int INFO_ONE_BYTE = 24;
+    static final int INFO_TWO_BYTES = 25;
+    static final int INFO_FOUR_BYTES = 26;
+    static final int INFO_EIGHT_BYTES = 27;
+    static final int INFO_INDEFINITE = 31;
+    static final int BREAK = 0xff;
+
+    private static final int MAX_NESTING_DEPTH = 64;
+
+    private final byte[] data;
+    private final int limit;
+    private int position;
+
+    /**
+     * Creates a reader over an entire array
+     *
+     * @param data the CBOR encoded bytes; the array is read in place and must not change while in use
+     */
+    public CborReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    /**
+     * Creates a reader over part of an array
+     *
+     * @param data the array holding the CBOR encoded bytes; it is read in place and must not change while in use
+     * @param offset the offset of the first encoded byte
+     * @param length the number of encoded bytes
+     */
+    public CborReader(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("CborReader range is outside the array");
+        }
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * @return true if there is at least one more byte to read
+     */
+    public boolean hasNext() {
+        return position < limit;
+    }
+
+    /**
+     * @return the offset in the array of the next byte to read
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Determines the kind of the next data item without consuming it
+     *
+     * @return the kind of the next data item
+     */
+    public Type peekType() {
+        int initial = peekInitialByte();
+        switch (initial >>> 5) {
+            case MAJOR_UNSIGNED:
+                return Type.UNSIGNED_INTEGER;
+            case MAJOR_NEGATIVE:
+                return Type.NEGATIVE_INTEGER;
+            case MAJOR_BYTES:
+                return Type.BYTE_STRING;
+            case MAJOR_TEXT:
+                return Type.TEXT_STRING;
+            case MAJOR_ARRAY:
+                return Type.ARRAY;
+            case MAJOR_MAP:
+                return Type.MAP;
+            case MAJOR_TAG:
+                return Type.TAG;
+            default:
+                switch (initial & 0x1f) {
+                    case SIMPLE_FALSE:
+                    case SIMPLE_TRUE:
+                        return Type.BOOLEAN;
+                    case SIMPLE_NULL:
+                        return Type.NULL;
+                    case SIMPLE_UNDEFINED:
+                        return Type.UNDEFINED;
+                    case INFO_TWO_BYTES:
+                    case INFO_FOUR_BYTES:
+                    case INFO_EIGHT_BYTES:
+                        return Type.FLOAT;
+                    case INFO_INDEFINITE:
+                        return Type.BREAK;
+                    default:
+                        return Type.SIMPLE_VALUE;
+                }
+        }
+    }
+
+    /**
+     * Reads an integer that must fit in a long
+     *
+     * @return the integer
+     */
+    public long readLong() {
+        int initial = readInitialByte();
+        int major = initial >>> 5;
+        if (major != MAJOR_UNSIGNED && major != MAJOR_NEGATIVE) {
+            throw unexpected("integer", initial);
+        }
+
+        long value = readArgument(initial);
+        if (value < 0) {
+            throw new IllegalArgumentException("CBOR integer does not fit in a long");
+        }
+        return major == MAJOR_UNSIGNED ? value : -1 - value;
+    }
+
+    /**
+     * Reads an integer that must fit in an int
+     *
+     * @return the integer
+     */
+    public int readInt() {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("CBOR integer does not fit in an int");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a half, single or double precision floating point number
+     *
+     * @return the number
+     */
+    public double readDouble() {
+        int initial = readInitialByte();
+        if (initial >>> 5 != MAJOR_SIMPLE) {
+            throw unexpected("floating point number", initial);
+        }
+
+        switch (initial & 0x1f) {
+            case INFO_TWO_BYTES:
+                return halfToDouble((int) readBigEndian(2));
+            case INFO_FOUR_BYTES:
+                return Float.intBitsToFloat((int) readBigEndian(4));
+            case INFO_EIGHT_BYTES:
+                return Double.longBitsToDouble(readBigEndian(8));
+            default:
+                throw unexpected("floating point number", initial);
+        }
+    }
+
+    /**
+     * Reads true or false
+     *
+     * @return the boolean
+     */
+    public boolean readBoolean() {
+        int initial = readInitialByte();
+        if (initial == ((MAJOR_SIMPLE << 5) | SIMPLE_TRUE)) {
+            return true;
+        }
+        if (initial == ((MAJOR_SIMPLE << 5) | SIMPLE_FALSE)) {
+            return false;
+        }
+        throw unexpected("boolean", initial);
+    }
+
+    /**
+     * Consumes the next item if it is null or undefined
+     *
+     * @return true if a null or undefined item was consumed, false if the next item is something else
+     */
+    public boolean readNullIfPresent() {
+        int initial = peekInitialByte();
+        if (initial == ((MAJOR_SIMPLE << 5) | SIMPLE_NULL) || initial == ((MAJOR_SIMPLE << 5) | SIMPLE_UNDEFINED)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a text string, joining the chunks of an indefinite-length string
+     *
+     * @return the decoded string
+     */
+    public String readTextString() {
+        int initial = readInitialByte();
+        if (initial >>> 5 != MAJOR_TEXT) {
+            throw unexpected("text string", initial);
+        }
+        if ((initial & 0x1f) == INFO_INDEFINITE) {
+            return new String(readChunks(MAJOR_TEXT), StandardCharsets.UTF_8);
+        }
+
+        int length = readLength(initial);
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Consumes the next item only if it is a definite-length text string equal to a value.  Intended for matching
+     * map keys; nothing is allocated when the value is ASCII.
+     *
+     * @param value the string to compare with
+     * @return true if the string matched and was consumed, false if the reader did not move
+     */
+    public boolean readTextStringIfEquals(String value) {
+        int start = position;
+        int initial = peekInitialByte();
+        if (initial >>> 5 != MAJOR_TEXT || (initial & 0x1f) == INFO_INDEFINITE) {
+            return false;
+        }
+
+        position++;
+        int length = readLength(initial);
+        if (utf8Equals(position, length, value)) {
+            position += length;
+            return true;
+        }
+
+        position = start;
+        return false;
+    }
+
+    /**
+     * Reads a byte string into a new array, joining the chunks of an indefinite-length string
+     *
+     * @return a copy of the string's bytes
+     */
+    public byte[] readByteString() {
+        int initial = readInitialByte();
+        if (initial >>> 5 != MAJOR_BYTES) {
+            throw unexpected("byte string", initial);
+        }
+        if ((initial & 0x1f) == INFO_INDEFINITE) {
+            return readChunks(MAJOR_BYTES);
+        }
+
+        int length = readLength(initial);
+        byte[] value = new byte[length];
+        System.arraycopy(data, position, value, 0, length);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Reads a definite-length byte string without copying it
+     *
+     * @return a read-only buffer over the string's bytes in the reader's array
+     */
+    public ByteBuffer readByteStringAsBuffer() {
+        int initial = readInitialByte();
+        if (initial >>> 5 != MAJOR_BYTES || (initial & 0x1f) == INFO_INDEFINITE) {
+            throw unexpected("definite-length byte string", initial);
+        }
+
+        int length = readLength(initial);
+        ByteBuffer value = ByteBuffer.wrap(data, position, length).slice().asReadOnlyBuffer();
+        position += length;
+        return value;
+    }
+
+    /**
+     * Reads the header of an array.  The array's elements follow as the next items.
+     *
+     * @return the number of elements, or {@link #INDEFINITE_LENGTH} if the array ends with a break
+     */
+    public int readArrayHeader() {
+        return readContainerHeader(MAJOR_ARRAY, "array");
+    }
+
+    /**
+     * Reads the header of a map.  The map's keys and values follow as alternating items.
+     *
+     * @return the number of key/value pairs, or {@link #INDEFINITE_LENGTH} if the map ends with a break
+     */
+    public int readMapHeader() {
+        return readContainerHeader(MAJOR_MAP, "map");
+    }
+
+    /**
+     * Consumes the break that ends an indefinite-length container, if it is next
+     *
+     * @return true if a break was consumed
+     */
+    public boolean readBreakIfPresent() {
+        if (peekInitialByte() == BREAK) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a tag.  The tagged item follows as the next item.
+     *
+     * @return the tag number
+     */
+    public long readTag() {
+        int initial = readInitialByte();
+        if (initial >>> 5 != MAJOR_TAG) {
+            throw unexpected("tag", initial);
+        }
+        return readArgument(initial);
+    }
+
+    /**
+     * Passes over the next data item, including all items nested in it
+     */
+    public void skip() {
+        skip(0);
+    }
+
+    private void skip(int depth) {
+        if (depth > MAX_NESTING_DEPTH) {
+            throw new IllegalArgumentException("CBOR data is nested too deeply");
+        }
+
+        int initial = readInitialByte();
+        int major = initial >>> 5;
+        boolean indefinite = (initial & 0x1f) == INFO_INDEFINITE;
+        switch (major) {
+            case MAJOR_UNSIGNED:
+            case MAJOR_NEGATIVE:
+                readArgument(initial);
+                break;
+            case MAJOR_BYTES:
+            case MAJOR_TEXT:
+                if (indefinite) {
+                    while (!readBreakIfPresent()) {
+                        skip(depth + 1);
+                    }
+                } else {
+                    position += readLength(initial);
+                }
+                break;
+            case MAJOR_ARRAY:
+            case MAJOR_MAP:
+                if (indefinite) {
+                    while (!readBreakIfPresent()) {
+                        skip(depth + 1);
+                    }
+                } else {
+                    long items = readArgument(initial) * (major == MAJOR_MAP ? 2 : 1);
+                    for (long i = 0; i < items; i++) {
+                        skip(depth + 1);
+                    }
+                }
+                break;
+            case MAJOR_TAG:
+                readArgument(initial);
+                skip(depth + 1);
+                break;
+            default:
+                if (indefinite) {
+                    throw new IllegalArgumentException("Unexpected CBOR break");
+                }
+                readArgument(initial);
+                break;
+        }
+    }
+
+    private int readContainerHeader(int major, String description) {
+        int initial = readInitialByte();
+        if (initial >>> 5 != major) {
+            throw unexpected(description, initial);
+        }
+        if ((initial & 0x1f) == INFO_INDEFINITE) {
+            return INDEFINITE_LENGTH;
+        }
+
+        long length = readArgument(initial);
+        // Every element takes at least one byte, so a larger count cannot be genuine
+        if (length < 0 || length > limit - position) {
+            throw new IllegalArgumentException("CBOR " + description + " length exceeds the available data");
+        }
+        return (int) length;
+    }
+
+    private byte[] readChunks(int major) {
+        int start = position;
+        int total = 0;
+        while (peekInitialByte() != BREAK) {
+            int initial = readInitialByte();
+            if (initial >>> 5 != major || (initial & 0x1f) == INFO_INDEFINITE) {
+                throw new IllegalArgumentException("Malformed indefinite-length CBOR string chunk");
+            }
+            int length = readLength(initial);
+            position += length;
+            total += length;
+        }
+        position++;
+
+        byte[] value = new byte[total];
+        int end = position - 1;
+        int copied = 0;
+        position = start;
+        while (position < end) {
+            int length = readLength(readInitialByte());
+            System.arraycopy(data, position, value, copied, length);
+            position += length;
+            copied += length;
+        }
+        position = end + 1;
+        return value;
+    }
+
+    private boolean utf8Equals(int offset, int length, String value) {
+        int count = value.length();
+        if (length == count) {
+            boolean ascii = true;
+            for (int i = 0; i < count; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+                if (data[offset + i] != (byte) c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        } else if (length < count) {
+            // UTF-8 never needs fewer bytes than UTF-16 code units
+            return false;
+        }
+        return value.equals(new String(data, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a string length, checking that the string lies within the data
+     */
+    private int readLength(int initial) {
+        long length = readArgument(initial);
+        if (length < 0 || length > limit - position) {
+            throw new IllegalArgumentException("CBOR string length exceeds the available data");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Reads the argument that follows an initial byte.  Values above Long.MAX_VALUE come back negative.
+     */
+    private long readArgument(int initial) {
+        int info = initial & 0x1f;
+        if (info < INFO_ONE_BYTE) {
+            return info;
+        }
+        switch (info) {
+            case INFO_ONE_BYTE:
+                return readBigEndian(1);
+            case INFO_TWO_BYTES:
+                return readBigEndian(2);
+            case INFO_FOUR_BYTES:
+                return readBigEndian(4);
+            case INFO_EIGHT_BYTES:
+                return readBigEndian(8);
+            default:
+                throw new IllegalArgumentException("Malformed CBOR initial byte 0x" + Integer.toHexString(initial));
+        }
+    }
+
+    private long readBigEndian(int count) {
+        if (limit - position < count) {
+            throw new IllegalArgumentException("Truncated CBOR data");
+        }
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = (value << 8) | (data[position++] & 0xff);
+        }
+        return value;
+    }
+
+    private int peekInitialByte() {
+        if (position >= limit) {
+            throw new IllegalArgumentException("Truncated CBOR data");
+        }
+        return data[position] & 0xff;
+    }
+
+    private int readInitialByte() {
+        int initial = peekInitialByte();
+        position++;
+        return initial;
+    }
+
+    private static IllegalArgumentException unexpected(String expected, int initial) {
+        return new IllegalArgumentException("Expected CBOR " + expected + " but found initial byte 0x" + Integer.toHexString(initial));
+    }
+
+    private static double halfToDouble(int half) {
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        double value;
+        if (exponent == 0) {
+            value = mantissa * 0x1p-24;
+        } else if (exponent == 0x1f) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotcommands;
+
+import java.util.Arrays;
+
+/**
+ * Writes CBOR (RFC 8949) encoded data into a growable buffer.
+ *
+ * Integers and headers use the shortest encoding, and text strings are encoded to UTF-8 directly into the
+ * buffer.  A writer can be {@link #reset} and reused so that its buffer is allocated once.  Containers are
+ * written as a header followed by their items:
+ *
+ * <pre>{@code
+ * CborWriter writer = new CborWriter();
+ * writer.writeMapHeader(1).writeTextString("temperature").writeDouble(21.5);
+ * byte[] payload = writer.toByteArray();
+ * }</pre>
+ *
+ * Instances are not thread-safe.
+ */
+public final class CborWriter {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 128;
+
+    private byte[] buffer;
+    private int size;
+
+    /**
+     * Creates a writer with a default initial capacity
+     */
+    public CborWriter() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a writer
+     *
+     * @param initialCapacity the number of bytes to allocate up front
+     */
+    public CborWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    /**
+     * Writes an integer
+     *
+     * @param value the integer
+     * @return this writer
+     */
+    public CborWriter writeLong(long value) {
+        if (value >= 0) {
+            writeHeader(CborReader.MAJOR_UNSIGNED, value);
+        } else {
+            writeHeader(CborReader.MAJOR_NEGATIVE, -1 - value);
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes a floating point number, as single precision when that loses nothing
+     *
+     * @param value the number
+     * @return this writer
+     */
+    public CborWriter writeDouble(double value) {
+        float single = (float) value;
+        if (single == value || Double.isNaN(value)) {
+            ensureCapacity(5);
+            buffer[size++] = (byte) ((CborReader.MAJOR_SIMPLE << 5) | CborReader.INFO_FOUR_BYTES);
+            writeBigEndian(Float.floatToIntBits(single), 4);
+        } else {
+            ensureCapacity(9);
+            buffer[size++] = (byte) ((CborReader.MAJOR_SIMPLE << 5) | CborReader.INFO_EIGHT_BYTES);
+            writeBigEndian(Double.doubleToLongBits(value), 8);
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes true or false
+     *
+     * @param value the boolean
+     * @return this writer
+     */
+    public CborWriter writeBoolean(boolean value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) ((CborReader.MAJOR_SIMPLE << 5) | (value ? CborReader.SIMPLE_TRUE : CborReader.SIMPLE_FALSE));
+
+        return this;
+    }
+
+    /**
+     * Writes null
+     *
+     * @return this writer
+     */
+    public CborWriter writeNull() {
+        ensureCapacity(1);
+        buffer[size++] = (byte) ((CborReader.MAJOR_SIMPLE << 5) | CborReader.SIMPLE_NULL);
+
+        return this;
+    }
+
+    /**
+     * Writes a text string
+     *
+     * @param value the string
+     * @return this writer
+     */
+    public CborWriter writeTextString(String value) {
+        int count = value.length();
+        int length = utf8Length(value);
+        writeHeader(CborReader.MAJOR_TEXT, length);
+        ensureCapacity(length);
+
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[size++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[size++] = (byte) (0xc0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[size++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[size++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    // An unpaired surrogate cannot be encoded; substitute '?' as String.getBytes does
+                    buffer[size++] = (byte) '?';
+                    continue;
+                }
+                buffer[size++] = (byte) (0xe0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[size++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes a byte string
+     *
+     * @param value the bytes
+     * @return this writer
+     */
+    public CborWriter writeByteString(byte[] value) {
+        return writeByteString(value, 0, value.length);
+    }
+
+    /**
+     * Writes part of an array as a byte string
+     *
+     * @param value the array holding the bytes
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return this writer
+     */
+    public CborWriter writeByteString(byte[] value, int offset, int length) {
+        writeHeader(CborReader.MAJOR_BYTES, length);
+        ensureCapacity(length);
+        System.arraycopy(value, offset, buffer, size, length);
+        size += length;
+
+        return this;
+    }
+
+    /**
+     * Writes the header of an array.  Exactly that many items must be written next.
+     *
+     * @param length the number of elements
+     * @return this writer
+     */
+    public CborWriter writeArrayHeader(int length) {
+        writeHeader(CborReader.MAJOR_ARRAY, length);
+
+        return this;
+    }
+
+    /**
+     * Writes the header of a map.  Exactly that many keys and values must be written next, alternately.
+     *
+     * @param length the number of key/value pairs
+     * @return this writer
+     */
+    public CborWriter writeMapHeader(int length) {
+        writeHeader(CborReader.MAJOR_MAP, length);
+
+        return this;
+    }
+
+    /**
+     * Writes a tag.  The tagged item must be written next.
+     *
+     * @param tag the tag number
+     * @return this writer
+     */
+    public CborWriter writeTag(long tag) {
+        writeHeader(CborReader.MAJOR_TAG, tag);
+
+        return this;
+    }
+
+    /**
+     * @return the number of bytes written since the writer was created or last reset
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a copy of the bytes written
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Discards everything written while keeping the buffer for reuse
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    private void writeHeader(int major, long argument) {
+        if (argument < 0) {
+            throw new IllegalArgumentException("CBOR lengths cannot be negative");
+        }
+
+        ensureCapacity(9);
+        int type = major << 5;
+        if (argument < CborReader.INFO_ONE_BYTE) {
+            buffer[size++] = (byte) (type | argument);
+        } else if (argument <= 0xffL) {
+            buffer[size++] = (byte) (type | CborReader.INFO_ONE_BYTE);
+            writeBigEndian(argument, 1);
+        } else if (argument <= 0xffffL) {
+            buffer[size++] = (byte) (type | CborReader.INFO_TWO_BYTES);
+            writeBigEndian(argument, 2);
+        } else if (argument <= 0xffffffffL) {
+            buffer[size++] = (byte) (type | CborReader.INFO_FOUR_BYTES);
+            writeBigEndian(argument, 4);
+        } else {
+            buffer[size++] = (byte) (type | CborReader.INFO_EIGHT_BYTES);
+            writeBigEndian(argument, 8);
+        }
+    }
+
+    private void writeBigEndian(long value, int count) {
+        for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = size + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int count = value.length();
+        int length = count;
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // Four bytes for the pair's two chars
+                    length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            } else if (c >= 0x80) {
+                length += 1;
+            }
+        }
+        return length;
+    }
+}
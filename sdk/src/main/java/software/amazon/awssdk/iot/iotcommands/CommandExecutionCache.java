@@ -0,0 +1,481 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotcommands;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import software.amazon.awssdk.crt.Log;
+import software.amazon.awssdk.crt.Log.LogLevel;
+import software.amazon.awssdk.crt.Log.LogSubject;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionResult;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionStatus;
+import software.amazon.awssdk.iot.iotcommands.model.StatusReason;
+
+/**
+ * Remembers which command executions a device has already seen, so that redelivered executions are not run twice.
+ *
+ * With QoS 1 and session resumption the service may deliver the same execution id more than once.  The cache
+ * tracks each execution id from the first delivery: while the execution is being handled, later deliveries are
+ * duplicates to drop, and once it has finished, its terminal outcome is kept so the reply can be sent again
+ * without repeating the work.
+ *
+ * Entries are kept for the retention period or the execution's own timeout, whichever is longer, so that they
+ * outlive any redelivery of the request.  The cache holds at most a fixed number of entries; the oldest are
+ * dropped first when it is full.  If a persistence file is configured, finished executions are written to it
+ * and reloaded on the next start.  Executions that were still running when the process stopped are not
+ * persisted and will run again if they are redelivered.
+ *
+ * Saves run on a background thread, not on the thread that completes the execution.  Completions within the
+ * save delay of each other are written together, and each save is flushed to the device before it replaces the
+ * previous file.  Executions that finished less than the save delay before the process stopped may therefore
+ * not have been persisted; {@link #flush()} and {@link #close()} write them immediately.
+ *
+ * A cache is normally given to {@link CommandExecutionDispatcher.CommandExecutionDispatcherBuilder#withExecutionCache}.
+ * Instances are thread-safe.
+ */
+public class CommandExecutionCache implements AutoCloseable {
+
+    /**
+     * What the cache knows about an execution id
+     */
+    public enum State {
+
+        /**
+         * The execution id had not been seen; it is now recorded as in progress
+         */
+        NEW,
+
+        /**
+         * The execution is still being handled
+         */
+        IN_PROGRESS,
+
+        /**
+         * The execution has finished and its outcome is available from {@link #getOutcome}
+         */
+        COMPLETED
+    }
+
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+    private static final long DEFAULT_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long DEFAULT_SAVE_DELAY_MILLIS = 1000;
+
+    private final int maxEntries;
+    private final long retentionMillis;
+    private final Path persistenceFile;
+    private final long saveDelayMillis;
+    private final LongSupplier clock;
+    private final Gson gson;
+    private final ScheduledThreadPoolExecutor saver;
+
+    private final Object lock = new Object();
+    private final Object saveLock = new Object();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private boolean saveScheduled;
+    private long completions;
+    private long savedCompletions;
+    private boolean closed;
+
+    /**
+     * Builder type for CommandExecutionCache instances
+     */
+    public static class CommandExecutionCacheBuilder {
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+        private long retentionMillis = DEFAULT_RETENTION_MILLIS;
+        private Path persistenceFile;
+        private long saveDelayMillis = DEFAULT_SAVE_DELAY_MILLIS;
+        private LongSupplier clock = System::currentTimeMillis;
+
+        private CommandExecutionCacheBuilder() {}
+
+        /**
+         * Sets the maximum number of execution ids remembered.  Defaults to 1024.
+         *
+         * @param maxEntries the maximum number of entries
+         * @return this builder object
+         */
+        public CommandExecutionCacheBuilder withMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+
+            return this;
+        }
+
+        /**
+         * Sets the minimum time an execution id is remembered.  This should be at least the expiry of the
+         * request messages, so that a redelivery cannot outlive the entry.  Defaults to 10 minutes.
+         *
+         * @param retentionMillis the retention period in milliseconds
+         * @return this builder object
+         */
+        public CommandExecutionCacheBuilder withRetentionMillis(long retentionMillis) {
+            this.retentionMillis = retentionMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets a file that finished executions are saved to and loaded from, so that they survive a restart.
+         * By default nothing is persisted.
+         *
+         * @param persistenceFile the file to use
+         * @return this builder object
+         */
+        public CommandExecutionCacheBuilder withPersistenceFile(Path persistenceFile) {
+            this.persistenceFile = persistenceFile;
+
+            return this;
+        }
+
+        /**
+         * Sets how long after an execution finishes the persistence file is written.  Executions finishing within
+         * the delay are saved together.  Defaults to one second.
+         *
+         * @param saveDelayMillis the save delay in milliseconds
+         * @return this builder object
+         */
+        public CommandExecutionCacheBuilder withSaveDelayMillis(long saveDelayMillis) {
+            this.saveDelayMillis = saveDelayMillis;
+
+            return this;
+        }
+
+        CommandExecutionCacheBuilder withClock(LongSupplier clock) {
+            this.clock = clock;
+
+            return this;
+        }
+
+        /**
+         * Creates a new CommandExecutionCache from the existing configuration, loading the persistence file if
+         * one is set and exists
+         *
+         * @return a new CommandExecutionCache
+         */
+        public CommandExecutionCache build() {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("CommandExecutionCache must hold at least one entry");
+            }
+            if (retentionMillis < 0) {
+                throw new IllegalArgumentException("CommandExecutionCache retention cannot be negative");
+            }
+            if (saveDelayMillis < 0) {
+                throw new IllegalArgumentException("CommandExecutionCache save delay cannot be negative");
+            }
+
+            return new CommandExecutionCache(this);
+        }
+    }
+
+    private CommandExecutionCache(CommandExecutionCacheBuilder builder) {
+        this.maxEntries = builder.maxEntries;
+        this.retentionMillis = builder.retentionMillis;
+        this.persistenceFile = builder.persistenceFile;
+        this.saveDelayMillis = builder.saveDelayMillis;
+        this.clock = builder.clock;
+        this.gson = new GsonBuilder().disableHtmlEscaping().create();
+
+        if (persistenceFile != null) {
+            this.saver = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "CommandExecutionCache-save");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // A save still waiting out its delay when the cache closes is done by close() instead
+            this.saver.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            load();
+        } else {
+            this.saver = null;
+        }
+    }
+
+    /**
+     * @return a new builder object for CommandExecutionCache instances
+     */
+    public static CommandExecutionCacheBuilder builder() {
+        return new CommandExecutionCacheBuilder();
+    }
+
+    /**
+     * Looks up an execution id, recording it as in progress if it has not been seen
+     *
+     * @param executionId the id of the execution
+     * @param timeoutSeconds the execution's timeout, which extends how long it is remembered, or null
+     * @return what was known about the execution before the call
+     */
+    public State begin(String executionId, Integer timeoutSeconds) {
+        long now = clock.getAsLong();
+        synchronized (lock) {
+            Entry entry = entries.get(executionId);
+            if (entry != null && entry.expiresAt > now) {
+                return entry.status == null ? State.IN_PROGRESS : State.COMPLETED;
+            }
+
+            long retention = retentionMillis;
+            if (timeoutSeconds != null && timeoutSeconds > 0) {
+                retention = Math.max(retention, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+            }
+
+            Entry started = new Entry();
+            started.executionId = executionId;
+            started.expiresAt = now + retention;
+            // Re-inserting moves an expired entry to the back, keeping the map in rough expiry order
+            entries.remove(executionId);
+            entries.put(executionId, started);
+            evict(now);
+            return State.NEW;
+        }
+    }
+
+    /**
+     * Records the terminal outcome of an execution so that redeliveries can be answered with it
+     *
+     * @param executionId the id of the execution
+     * @param outcome the outcome that was reported
+     */
+    public void complete(String executionId, CommandExecutionOutcome outcome) {
+        long now = clock.getAsLong();
+        synchronized (lock) {
+            Entry entry = entries.get(executionId);
+            if (entry == null) {
+                entry = new Entry();
+                entry.executionId = executionId;
+                entry.expiresAt = now + retentionMillis;
+                entries.put(executionId, entry);
+                evict(now);
+            }
+            entry.status = outcome.getStatus();
+            entry.statusReason = outcome.getStatusReason();
+            entry.result = outcome.getResult();
+            completions++;
+        }
+
+        if (persistenceFile != null) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Forgets an execution that did not finish, so that a redelivery runs it again
+     *
+     * @param executionId the id of the execution
+     */
+    public void abandon(String executionId) {
+        synchronized (lock) {
+            Entry entry = entries.get(executionId);
+            if (entry != null && entry.status == null) {
+                entries.remove(executionId);
+            }
+        }
+    }
+
+    /**
+     * @param executionId the id of the execution
+     * @return the recorded outcome of a finished execution, or null if it is unknown, expired or still running
+     */
+    public CommandExecutionOutcome getOutcome(String executionId) {
+        long now = clock.getAsLong();
+        synchronized (lock) {
+            Entry entry = entries.get(executionId);
+            if (entry == null || entry.status == null || entry.expiresAt <= now) {
+                return null;
+            }
+            return CommandExecutionOutcome.of(entry.status, entry.statusReason, entry.result);
+        }
+    }
+
+    /**
+     * @return the number of execution ids currently remembered, including expired ones not yet dropped
+     */
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Writes finished executions to the persistence file now, rather than after the save delay
+     */
+    public void flush() {
+        if (persistenceFile != null) {
+            save();
+        }
+    }
+
+    /**
+     * Writes any finished executions not saved yet and stops the background save thread.  A save already in
+     * progress is allowed to finish first.  The cache can still be used afterwards, but nothing more is written to
+     * the persistence file.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        if (saver != null) {
+            // Interrupting a save in progress would close its file channel and lose the completions it had taken
+            saver.shutdown();
+            synchronized (saveLock) {
+                boolean unsaved;
+                synchronized (lock) {
+                    unsaved = completions != savedCompletions;
+                }
+                if (unsaved) {
+                    save();
+                }
+            }
+        }
+    }
+
+    private void evict(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        int remaining = entries.size();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (remaining <= maxEntries && entry.expiresAt > now) {
+                break;
+            }
+            iterator.remove();
+            remaining--;
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(persistenceFile)) {
+            return;
+        }
+
+        try (Reader reader = Files.newBufferedReader(persistenceFile, StandardCharsets.UTF_8)) {
+            List<Entry> saved = gson.fromJson(reader, new TypeToken<List<Entry>>() {}.getType());
+            if (saved == null) {
+                return;
+            }
+            long now = clock.getAsLong();
+            synchronized (lock) {
+                for (Entry entry : saved) {
+                    if (entry != null && entry.executionId != null && entry.status != null) {
+                        entries.put(entry.executionId, entry);
+                    }
+                }
+                evict(now);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A damaged file only costs the protection for executions finished before the restart
+            Log.log(LogLevel.Warn, LogSubject.JavaCrtGeneral, "CommandExecutionCache could not load " + persistenceFile + ": " + e.getMessage());
+        }
+    }
+
+    private void scheduleSave() {
+        synchronized (lock) {
+            if (saveScheduled || closed) {
+                return;
+            }
+            saveScheduled = true;
+        }
+
+        try {
+            saver.schedule(this::save, saveDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The cache was closed, which saved everything
+        }
+    }
+
+    private void save() {
+        // Write, sync and rename so that a crash mid-write leaves the previous file intact
+        Path temporary = persistenceFile.resolveSibling(persistenceFile.getFileName() + ".tmp");
+        synchronized (saveLock) {
+            List<Entry> finished = new ArrayList<>();
+            long snapshotCompletions;
+            synchronized (lock) {
+                // Completions after this snapshot schedule another save
+                saveScheduled = false;
+                snapshotCompletions = completions;
+                for (Entry entry : entries.values()) {
+                    if (entry.status != null) {
+                        finished.add(entry.copy());
+                    }
+                }
+            }
+
+            // Entries that have expired would only be dropped again on load
+            long now = clock.getAsLong();
+            finished.removeIf(entry -> entry.expiresAt <= now);
+
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                     Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1)) {
+                    gson.toJson(finished, writer);
+                    writer.flush();
+                    channel.force(true);
+                }
+                Files.move(temporary, persistenceFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+                synchronized (lock) {
+                    savedCompletions = snapshotCompletions;
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.log(LogLevel.Warn, LogSubject.JavaCrtGeneral, "CommandExecutionCache could not save " + persistenceFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void syncDirectory() {
+        Path directory = persistenceFile.toAbsolutePath().getParent();
+        if (directory == null) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory; the rename itself is still atomic
+        }
+    }
+
+    private static class Entry {
+        private String executionId;
+        private long expiresAt;
+        private CommandExecutionStatus status;
+        private StatusReason statusReason;
+        private HashMap<String, CommandExecutionResult> result;
+
+        private Entry copy() {
+            Entry copy = new Entry();
+            copy.executionId = executionId;
+            copy.expiresAt = expiresAt;
+            copy.status = status;
+            copy.statusReason = statusReason;
+            copy.result = result;
+            return copy;
+        }
+    }
+}
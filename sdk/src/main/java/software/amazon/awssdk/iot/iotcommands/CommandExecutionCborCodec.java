@@ -0,0 +1,140 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotcommands;
+
+import java.util.Map;
+
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionResult;
+import software.amazon.awssdk.iot.iotcommands.model.RejectedErrorCode;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionRequest;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionResponse;
+import software.amazon.awssdk.iot.iotcommands.model.V2ErrorResponse;
+
+/**
+ * CBOR encodings of the UpdateCommandExecution request and its responses.  Field names match the JSON
+ * encoding, and absent (null) fields are omitted as they are from JSON.
+ */
+final class CommandExecutionCborCodec {
+
+    private static final RejectedErrorCode[] ERROR_CODES = RejectedErrorCode.values();
+
+    private CommandExecutionCborCodec() {}
+
+    static byte[] encodeUpdateCommandExecutionRequest(UpdateCommandExecutionRequest request) {
+        CborWriter writer = new CborWriter();
+        writer.writeMapHeader(count(request.deviceType, request.deviceId, request.executionId, request.status, request.statusReason, request.result));
+        if (request.deviceType != null) {
+            writer.writeTextString("deviceType").writeTextString(request.deviceType.toString());
+        }
+        if (request.deviceId != null) {
+            writer.writeTextString("deviceId").writeTextString(request.deviceId);
+        }
+        if (request.executionId != null) {
+            writer.writeTextString("executionId").writeTextString(request.executionId);
+        }
+        if (request.status != null) {
+            writer.writeTextString("status").writeTextString(request.status.toString());
+        }
+        if (request.statusReason != null) {
+            String reasonCode = request.statusReason.reasonCode;
+            String reasonDescription = request.statusReason.reasonDescription;
+            writer.writeTextString("statusReason").writeMapHeader(count(reasonCode, reasonDescription));
+            if (reasonCode != null) {
+                writer.writeTextString("reasonCode").writeTextString(reasonCode);
+            }
+            if (reasonDescription != null) {
+                writer.writeTextString("reasonDescription").writeTextString(reasonDescription);
+            }
+        }
+        if (request.result != null) {
+            writer.writeTextString("result").writeMapHeader(request.result.size());
+            for (Map.Entry<String, CommandExecutionResult> entry : request.result.entrySet()) {
+                writer.writeTextString(entry.getKey());
+                writeResult(writer, entry.getValue());
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    static UpdateCommandExecutionResponse decodeUpdateCommandExecutionResponse(byte[] payload) {
+        UpdateCommandExecutionResponse response = new UpdateCommandExecutionResponse();
+        CborReader reader = new CborReader(payload);
+        int entries = reader.readMapHeader();
+        for (int i = 0; entries == CborReader.INDEFINITE_LENGTH ? !reader.readBreakIfPresent() : i < entries; i++) {
+            if (reader.readTextStringIfEquals("executionId")) {
+                response.executionId = readNullableText(reader);
+            } else {
+                reader.skip();
+                reader.skip();
+            }
+        }
+        return response;
+    }
+
+    static V2ErrorResponse decodeV2ErrorResponse(byte[] payload) {
+        V2ErrorResponse error = new V2ErrorResponse();
+        CborReader reader = new CborReader(payload);
+        int entries = reader.readMapHeader();
+        for (int i = 0; entries == CborReader.INDEFINITE_LENGTH ? !reader.readBreakIfPresent() : i < entries; i++) {
+            if (reader.readTextStringIfEquals("error")) {
+                error.error = readErrorCode(reader);
+            } else if (reader.readTextStringIfEquals("errorMessage")) {
+                error.errorMessage = readNullableText(reader);
+            } else if (reader.readTextStringIfEquals("executionId")) {
+                error.executionId = readNullableText(reader);
+            } else {
+                reader.skip();
+                reader.skip();
+            }
+        }
+        return error;
+    }
+
+    private static void writeResult(CborWriter writer, CommandExecutionResult result) {
+        if (result == null) {
+            writer.writeNull();
+            return;
+        }
+
+        writer.writeMapHeader(count(result.s, result.b, result.bin));
+        if (result.s != null) {
+            writer.writeTextString("s").writeTextString(result.s);
+        }
+        if (result.b != null) {
+            writer.writeTextString("b").writeBoolean(result.b);
+        }
+        if (result.bin != null) {
+            writer.writeTextString("bin").writeByteString(result.bin);
+        }
+    }
+
+    private static String readNullableText(CborReader reader) {
+        return reader.readNullIfPresent() ? null : reader.readTextString();
+    }
+
+    private static RejectedErrorCode readErrorCode(CborReader reader) {
+        if (reader.readNullIfPresent()) {
+            return null;
+        }
+        for (RejectedErrorCode code : ERROR_CODES) {
+            if (code != RejectedErrorCode.UNKNOWN_ENUM_VALUE && reader.readTextStringIfEquals(code.toString())) {
+                return code;
+            }
+        }
+        reader.skip();
+        return RejectedErrorCode.UNKNOWN_ENUM_VALUE;
+    }
+
+    private static int count(Object... fields) {
+        int present = 0;
+        for (Object field : fields) {
+            if (field != null) {
+                present++;
+            }
+        }
+        return present;
+    }
+}
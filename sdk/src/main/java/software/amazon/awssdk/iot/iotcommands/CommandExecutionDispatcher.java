@@ -0,0 +1,445 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotcommands;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionEvent;
+import software.amazon.awssdk.iot.iotcommands.model.DeviceType;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionRequest;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionResponse;
+
+/**
+ * Moves command executions off the MQTT client's event loop and runs their handlers on a worker pool.
+ *
+ * Command execution streams deliver events on the CRT event loop thread, so a slow handler invoked directly
+ * from the stream stalls all other traffic on the client, including keep-alives.  The dispatcher's stream
+ * handler only queues the event and returns.  Queued executions are run by a fixed pool of worker threads, and
+ * each handler's outcome is sent back with UpdateCommandExecution.
+ *
+ * Events for the same execution id (for example, redeliveries) are handled one at a time, in arrival order.
+ * Executions whose timeout elapses while they wait in the queue are not started; they are reported as
+ * TIMED_OUT instead.  If the queue is full, the execution is reported as FAILED without being queued.
+ * Given a {@link CommandExecutionCache}, the dispatcher drops redeliveries of executions that are still being
+ * handled and answers redeliveries of finished executions with the recorded outcome instead of running them again.
+ * Replies are sent as JSON unless the dispatcher is built with {@code withCborReplies(true)}, which suits devices
+ * that receive their commands on a CBOR payload stream.
+ *
+ * <pre>{@code
+ * CommandExecutionDispatcher dispatcher = CommandExecutionDispatcher.builder(client, DeviceType.THING, thingName, handler).build();
+ * StreamingOperation stream = client.createCommandExecutionsJsonPayloadStream(request, dispatcher.streamOptions());
+ * stream.open();
+ * }</pre>
+ */
+public class CommandExecutionDispatcher implements AutoCloseable {
+
+    /**
+     * Reason code reported for executions rejected because the queue is full
+     */
+    public static final String QUEUE_FULL_REASON = "QUEUE_FULL";
+
+    /**
+     * Reason code reported for executions that timed out before a worker started them
+     */
+    public static final String EXPIRED_REASON = "EXPIRED_BEFORE_START";
+
+    /**
+     * Reason code reported for executions whose handler threw
+     */
+    public static final String HANDLER_ERROR_REASON = "HANDLER_ERROR";
+
+    /**
+     * Processes one command execution
+     */
+    @FunctionalInterface
+    public interface CommandExecutionHandler {
+
+        /**
+         * Processes a command execution.  If the handler throws, the execution is reported as FAILED.
+         *
+         * @param event the command execution
+         * @return the terminal status to report for the execution
+         * @throws Exception if processing failed
+         */
+        CommandExecutionOutcome handle(CommandExecutionEvent event) throws Exception;
+    }
+
+    /**
+     * The commands service operation the dispatcher replies with.  Normally an IotCommandsV2Client.
+     */
+    interface UpdateTransport {
+        CompletableFuture<UpdateCommandExecutionResponse> updateCommandExecution(UpdateCommandExecutionRequest request);
+
+        CompletableFuture<UpdateCommandExecutionResponse> updateCommandExecutionCbor(UpdateCommandExecutionRequest request);
+    }
+
+    private static final int DEFAULT_WORKER_COUNT = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private final UpdateTransport transport;
+    private final DeviceType deviceType;
+    private final String deviceId;
+    private final CommandExecutionHandler handler;
+    private final int queueCapacity;
+    private final boolean cborReplies;
+    private final CommandExecutionCache executionCache;
+    private final LongSupplier clock;
+    private final ExecutorService workers;
+
+    private final Object lock = new Object();
+    private final Map<String, ArrayDeque<QueuedExecution>> executions = new HashMap<>();
+    private int queued;
+    private boolean closed;
+
+    /**
+     * Builder type for CommandExecutionDispatcher instances
+     */
+    public static class CommandExecutionDispatcherBuilder {
+        private final UpdateTransport transport;
+        private final DeviceType deviceType;
+        private final String deviceId;
+        private final CommandExecutionHandler handler;
+        private int workerCount = DEFAULT_WORKER_COUNT;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private boolean cborReplies;
+        private CommandExecutionCache executionCache;
+        private LongSupplier clock = System::nanoTime;
+
+        private CommandExecutionDispatcherBuilder(UpdateTransport transport, DeviceType deviceType, String deviceId, CommandExecutionHandler handler) {
+            this.transport = transport;
+            this.deviceType = deviceType;
+            this.deviceId = deviceId;
+            this.handler = handler;
+        }
+
+        /**
+         * Sets the number of worker threads handlers run on.  Defaults to 2.
+         *
+         * @param workerCount the number of worker threads
+         * @return this builder object
+         */
+        public CommandExecutionDispatcherBuilder withWorkerCount(int workerCount) {
+            this.workerCount = workerCount;
+
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of executions waiting for a worker.  Defaults to 64.
+         *
+         * @param queueCapacity the maximum number of queued executions
+         * @return this builder object
+         */
+        public CommandExecutionDispatcherBuilder withQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+
+            return this;
+        }
+
+        /**
+         * Sets whether execution updates are sent with UpdateCommandExecution's CBOR encoding instead of JSON.
+         * Defaults to false.
+         *
+         * @param cborReplies true to reply with CBOR
+         * @return this builder object
+         */
+        public CommandExecutionDispatcherBuilder withCborReplies(boolean cborReplies) {
+            this.cborReplies = cborReplies;
+
+            return this;
+        }
+
+        /**
+         * Sets a cache used to suppress duplicate deliveries of the same execution id.  By default every
+         * delivery is handled.
+         *
+         * @param executionCache the cache to record executions in
+         * @return this builder object
+         */
+        public CommandExecutionDispatcherBuilder withExecutionCache(CommandExecutionCache executionCache) {
+            this.executionCache = executionCache;
+
+            return this;
+        }
+
+        CommandExecutionDispatcherBuilder withClock(LongSupplier clock) {
+            this.clock = clock;
+
+            return this;
+        }
+
+        /**
+         * Creates a new CommandExecutionDispatcher from the existing configuration and starts its workers.
+         *
+         * @return a new CommandExecutionDispatcher
+         */
+        public CommandExecutionDispatcher build() {
+            if (deviceType == null || deviceId == null) {
+                throw new IllegalArgumentException("CommandExecutionDispatcher deviceType and deviceId cannot be null");
+            }
+            if (handler == null) {
+                throw new IllegalArgumentException("CommandExecutionDispatcher handler cannot be null");
+            }
+            if (workerCount < 1) {
+                throw new IllegalArgumentException("CommandExecutionDispatcher must have at least one worker");
+            }
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("CommandExecutionDispatcher queue capacity must be positive");
+            }
+
+            return new CommandExecutionDispatcher(this);
+        }
+    }
+
+    private CommandExecutionDispatcher(CommandExecutionDispatcherBuilder builder) {
+        this.transport = builder.transport;
+        this.deviceType = builder.deviceType;
+        this.deviceId = builder.deviceId;
+        this.handler = builder.handler;
+        this.queueCapacity = builder.queueCapacity;
+        this.cborReplies = builder.cborReplies;
+        this.executionCache = builder.executionCache;
+        this.clock = builder.clock;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(builder.workerCount, builder.workerCount, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "CommandExecutionDispatcher-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Creates a new builder for a dispatcher that replies through a commands client
+     *
+     * @param client the commands client to send execution updates with
+     * @param deviceType the type of device to reply for when an event does not name one
+     * @param deviceId the id of the device to reply for when an event does not name one
+     * @param handler the callback that processes each execution
+     * @return a new builder object for CommandExecutionDispatcher instances
+     */
+    public static CommandExecutionDispatcherBuilder builder(IotCommandsV2Client client, DeviceType deviceType, String deviceId, CommandExecutionHandler handler) {
+        return new CommandExecutionDispatcherBuilder(new UpdateTransport() {
+            @Override
+            public CompletableFuture<UpdateCommandExecutionResponse> updateCommandExecution(UpdateCommandExecutionRequest request) {
+                return client.updateCommandExecution(request);
+            }
+
+            @Override
+            public CompletableFuture<UpdateCommandExecutionResponse> updateCommandExecutionCbor(UpdateCommandExecutionRequest request) {
+                return client.updateCommandExecutionCbor(request);
+            }
+        }, deviceType, deviceId, handler);
+    }
+
+    static CommandExecutionDispatcherBuilder builder(UpdateTransport transport, DeviceType deviceType, String deviceId, CommandExecutionHandler handler) {
+        return new CommandExecutionDispatcherBuilder(transport, deviceType, deviceId, handler);
+    }
+
+    /**
+     * Returns stream options that queue every received execution with this dispatcher.  Use them with any of the
+     * client's createCommandExecutions*PayloadStream methods.
+     *
+     * @return stream options for a command executions stream
+     */
+    public V2ClientStreamOptions<CommandExecutionEvent> streamOptions() {
+        return V2ClientStreamOptions.<CommandExecutionEvent>builder()
+            .withStreamEventHandler(this::submit)
+            .build();
+    }
+
+    /**
+     * Queues a command execution.  Returns immediately; the execution is handled on a worker thread.
+     *
+     * @param event the command execution to handle
+     */
+    public void submit(CommandExecutionEvent event) {
+        if (event == null || event.executionId == null) {
+            return;
+        }
+
+        if (executionCache != null) {
+            switch (executionCache.begin(event.executionId, event.timeout)) {
+                case IN_PROGRESS:
+                    return;
+                case COMPLETED:
+                    CommandExecutionOutcome previous = executionCache.getOutcome(event.executionId);
+                    if (previous != null) {
+                        reply(event, previous);
+                    }
+                    return;
+                default:
+                    break;
+            }
+        }
+
+        QueuedExecution execution = new QueuedExecution(event, clock.getAsLong());
+        boolean startWorker = false;
+        boolean full = false;
+
+        synchronized (lock) {
+            if (closed) {
+                abandon(event.executionId);
+                return;
+            }
+            if (queued >= queueCapacity) {
+                full = true;
+            } else {
+                queued++;
+                ArrayDeque<QueuedExecution> pending = executions.get(event.executionId);
+                if (pending == null) {
+                    // No worker owns this execution id yet
+                    pending = new ArrayDeque<>();
+                    executions.put(event.executionId, pending);
+                    startWorker = true;
+                }
+                pending.add(execution);
+            }
+        }
+
+        if (full) {
+            finish(event, CommandExecutionOutcome.failed(QUEUE_FULL_REASON, "Device command queue is full"));
+            return;
+        }
+
+        if (startWorker) {
+            try {
+                workers.execute(() -> drain(event.executionId));
+            } catch (RejectedExecutionException e) {
+                // The dispatcher was closed while the execution was being queued
+                abandon(event.executionId);
+            }
+        }
+    }
+
+    /**
+     * @return the number of executions waiting for a worker
+     */
+    public int queuedCount() {
+        synchronized (lock) {
+            return queued;
+        }
+    }
+
+    /**
+     * Stops accepting executions and stops the workers.  Queued executions that have not started are discarded;
+     * handlers that are running are interrupted.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            // Executions that never ran should run if they are delivered again
+            for (String executionId : executions.keySet()) {
+                abandon(executionId);
+            }
+            executions.clear();
+            queued = 0;
+        }
+
+        workers.shutdownNow();
+    }
+
+    /**
+     * Handles every queued event for one execution id, in order, on the calling worker
+     */
+    private void drain(String executionId) {
+        while (true) {
+            QueuedExecution execution;
+            synchronized (lock) {
+                ArrayDeque<QueuedExecution> pending = executions.get(executionId);
+                if (closed || pending == null) {
+                    return;
+                }
+                execution = pending.poll();
+                if (execution == null) {
+                    executions.remove(executionId);
+                    return;
+                }
+                queued--;
+            }
+
+            run(execution);
+        }
+    }
+
+    private void run(QueuedExecution execution) {
+        CommandExecutionEvent event = execution.event;
+        if (event.timeout != null && event.timeout > 0
+                && clock.getAsLong() - execution.receivedAtNanos >= TimeUnit.SECONDS.toNanos(event.timeout)) {
+            finish(event, CommandExecutionOutcome.timedOut(EXPIRED_REASON, "Command timed out before it was started"));
+            return;
+        }
+
+        CommandExecutionOutcome outcome;
+        try {
+            outcome = handler.handle(event);
+            if (outcome == null) {
+                outcome = CommandExecutionOutcome.succeeded(null);
+            }
+        } catch (Exception e) {
+            outcome = CommandExecutionOutcome.failed(HANDLER_ERROR_REASON, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        }
+
+        finish(event, outcome);
+    }
+
+    private void finish(CommandExecutionEvent event, CommandExecutionOutcome outcome) {
+        if (executionCache != null) {
+            executionCache.complete(event.executionId, outcome);
+        }
+        reply(event, outcome);
+    }
+
+    private void abandon(String executionId) {
+        if (executionCache != null) {
+            executionCache.abandon(executionId);
+        }
+    }
+
+    private void reply(CommandExecutionEvent event, CommandExecutionOutcome outcome) {
+        UpdateCommandExecutionRequest request = new UpdateCommandExecutionRequest();
+        // A gateway may share one dispatcher between the streams of several devices; reply to the one addressed
+        request.deviceType = event.deviceType != null && event.deviceType != DeviceType.UNKNOWN_ENUM_VALUE ? event.deviceType : deviceType;
+        request.deviceId = event.deviceId != null ? event.deviceId : deviceId;
+        request.executionId = event.executionId;
+        request.status = outcome.getStatus();
+        request.statusReason = outcome.getStatusReason();
+        request.result = outcome.getResult();
+
+        try {
+            if (cborReplies) {
+                transport.updateCommandExecutionCbor(request);
+            } else {
+                transport.updateCommandExecution(request);
+            }
+        } catch (RuntimeException e) {
+            // The service times the execution out if the reply cannot be sent
+        }
+    }
+
+    private static class QueuedExecution {
+        private final CommandExecutionEvent event;
+        private final long receivedAtNanos;
+
+        private QueuedExecution(CommandExecutionEvent event, long receivedAtNanos) {
+            this.event = event;
+            this.receivedAtNanos = receivedAtNanos;
+        }
+    }
+}
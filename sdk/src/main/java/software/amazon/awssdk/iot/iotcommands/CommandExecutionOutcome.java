@@ -0,0 +1,92 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotcommands;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionResult;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionStatus;
+import software.amazon.awssdk.iot.iotcommands.model.StatusReason;
+
+/**
+ * The terminal status a {@link CommandExecutionDispatcher} handler reports for a command execution
+ */
+public final class CommandExecutionOutcome {
+    private final CommandExecutionStatus status;
+    private final StatusReason statusReason;
+    private final HashMap<String, CommandExecutionResult> result;
+
+    private CommandExecutionOutcome(CommandExecutionStatus status, String reasonCode, String reasonDescription, Map<String, CommandExecutionResult> result) {
+        this.status = status;
+        if (reasonCode != null) {
+            this.statusReason = new StatusReason();
+            this.statusReason.reasonCode = reasonCode;
+            this.statusReason.reasonDescription = reasonDescription;
+        } else {
+            this.statusReason = null;
+        }
+        this.result = result != null ? new HashMap<>(result) : null;
+    }
+
+    /**
+     * @param result optional named results to report with the status
+     * @return an outcome that marks the execution SUCCEEDED
+     */
+    public static CommandExecutionOutcome succeeded(Map<String, CommandExecutionResult> result) {
+        return new CommandExecutionOutcome(CommandExecutionStatus.SUCCEEDED, null, null, result);
+    }
+
+    /**
+     * @param reasonCode the reason code to report, or null
+     * @param reasonDescription the reason description to report, or null
+     * @return an outcome that marks the execution FAILED
+     */
+    public static CommandExecutionOutcome failed(String reasonCode, String reasonDescription) {
+        return new CommandExecutionOutcome(CommandExecutionStatus.FAILED, reasonCode, reasonDescription, null);
+    }
+
+    /**
+     * @param reasonCode the reason code to report, or null
+     * @param reasonDescription the reason description to report, or null
+     * @return an outcome that marks the execution REJECTED
+     */
+    public static CommandExecutionOutcome rejected(String reasonCode, String reasonDescription) {
+        return new CommandExecutionOutcome(CommandExecutionStatus.REJECTED, reasonCode, reasonDescription, null);
+    }
+
+    static CommandExecutionOutcome timedOut(String reasonCode, String reasonDescription) {
+        return new CommandExecutionOutcome(CommandExecutionStatus.TIMED_OUT, reasonCode, reasonDescription, null);
+    }
+
+    static CommandExecutionOutcome of(CommandExecutionStatus status, StatusReason statusReason, Map<String, CommandExecutionResult> result) {
+        if (statusReason == null) {
+            return new CommandExecutionOutcome(status, null, null, result);
+        }
+        return new CommandExecutionOutcome(status, statusReason.reasonCode, statusReason.reasonDescription, result);
+    }
+
+    /**
+     * @return the terminal status to report
+     */
+    public CommandExecutionStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the reason to report with the status, or null
+     */
+    public StatusReason getStatusReason() {
+        return statusReason;
+    }
+
+    /**
+     * @return the named results to report with the status, or null
+     */
+    public HashMap<String, CommandExecutionResult> getResult() {
+        return result;
+    }
+}
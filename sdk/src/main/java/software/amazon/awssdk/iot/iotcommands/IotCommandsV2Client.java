@@ -12,6 +12,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 import java.util.UUID;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -30,10 +31,29 @@ import software.amazon.awssdk.iot.iotcommands.model.*;
 */
 public class IotCommandsV2Client implements AutoCloseable {
 
+    private static final TopicTemplate UPDATE_COMMAND_EXECUTION_PUBLISH_TOPIC = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/json");
+    private static final TopicTemplate UPDATE_COMMAND_EXECUTION_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/accepted/json");
+    private static final TopicTemplate UPDATE_COMMAND_EXECUTION_SUBSCRIPTION_TOPIC1 = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/rejected/json");
+    private static final TopicTemplate UPDATE_COMMAND_EXECUTION_CBOR_PUBLISH_TOPIC = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/cbor");
+    private static final TopicTemplate UPDATE_COMMAND_EXECUTION_CBOR_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/accepted/cbor");
+    private static final TopicTemplate UPDATE_COMMAND_EXECUTION_CBOR_SUBSCRIPTION_TOPIC1 = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/rejected/cbor");
+    private static final TopicTemplate CREATE_COMMAND_EXECUTIONS_CBOR_PAYLOAD_STREAM_TOPIC = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/+/request/cbor");
+    private static final TopicTemplate CREATE_COMMAND_EXECUTIONS_GENERIC_PAYLOAD_STREAM_TOPIC = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/+/request");
+    private static final TopicTemplate CREATE_COMMAND_EXECUTIONS_JSON_PAYLOAD_STREAM_TOPIC = TopicTemplate.compile("$aws/commands/{deviceType}/{deviceId}/executions/+/request/json");
+
+    private static final DeviceType[] DEVICE_TYPES = DeviceType.values();
+
     private MqttRequestResponseClient rrClient;
     private final Gson gson;
+    private final V2ClientMetricsListener metricsListener;
 
-    private Gson createGson() {
+    /**
+     * Creates a Gson configured the way the client configures its own, for decoding and encoding commands payloads
+     * outside of a client
+     *
+     * @return a new Gson
+     */
+    public static Gson createGson() {
         GsonBuilder gson = new GsonBuilder();
         gson.disableHtmlEscaping();
         gson.registerTypeAdapter(Timestamp.class, new Timestamp.Serializer());
@@ -42,15 +62,16 @@ public class IotCommandsV2Client implements AutoCloseable {
         return gson.create();
     }
 
-    private void addTypeAdapters(GsonBuilder gson) {
+    private static void addTypeAdapters(GsonBuilder gson) {
         gson.registerTypeAdapter(CommandExecutionStatus.class, new EnumSerializer<CommandExecutionStatus>());
         gson.registerTypeAdapter(DeviceType.class, new EnumSerializer<DeviceType>());
         gson.registerTypeAdapter(RejectedErrorCode.class, new EnumSerializer<RejectedErrorCode>());
     }
 
-    private IotCommandsV2Client(MqttRequestResponseClient rrClient) {
+    private IotCommandsV2Client(MqttRequestResponseClient rrClient, V2ClientOptions clientOptions) {
         this.rrClient = rrClient;
         this.gson = createGson();
+        this.metricsListener = clientOptions.metricsListener();
     }
 
     /**
@@ -60,8 +81,19 @@ public class IotCommandsV2Client implements AutoCloseable {
      * @param options configuration options to use
      */
     static public IotCommandsV2Client newFromMqtt5(Mqtt5Client protocolClient, MqttRequestResponseClientOptions options) {
+        return newFromMqtt5(protocolClient, options, V2ClientOptions.builder().build());
+    }
+
+    /**
+     * Constructs a new IotCommandsV2Client, using an MQTT5 client as transport
+     *
+     * @param protocolClient the MQTT5 client to use
+     * @param options configuration options to use
+     * @param clientOptions SDK-side configuration options to use
+     */
+    static public IotCommandsV2Client newFromMqtt5(Mqtt5Client protocolClient, MqttRequestResponseClientOptions options, V2ClientOptions clientOptions) {
         MqttRequestResponseClient rrClient = new MqttRequestResponseClient(protocolClient, options);
-        return new IotCommandsV2Client(rrClient);
+        return new IotCommandsV2Client(rrClient, clientOptions);
     }
 
     /**
@@ -71,8 +103,19 @@ public class IotCommandsV2Client implements AutoCloseable {
      * @param options configuration options to use
      */
     static public IotCommandsV2Client newFromMqtt311(MqttClientConnection protocolClient, MqttRequestResponseClientOptions options) {
+        return newFromMqtt311(protocolClient, options, V2ClientOptions.builder().build());
+    }
+
+    /**
+     * Constructs a new IotCommandsV2Client, using an MQTT311 client as transport
+     *
+     * @param protocolClient the MQTT311 client to use
+     * @param options configuration options to use
+     * @param clientOptions SDK-side configuration options to use
+     */
+    static public IotCommandsV2Client newFromMqtt311(MqttClientConnection protocolClient, MqttRequestResponseClientOptions options, V2ClientOptions clientOptions) {
         MqttRequestResponseClient rrClient = new MqttRequestResponseClient(protocolClient, options);
-        return new IotCommandsV2Client(rrClient);
+        return new IotCommandsV2Client(rrClient, clientOptions);
     }
 
     /**
@@ -84,25 +127,46 @@ public class IotCommandsV2Client implements AutoCloseable {
         this.rrClient = null;
     }
 
-    private CommandExecutionEvent createCommandExecutionEvent(IncomingPublishEvent publishEvent) {
+    /**
+     * @param topic the topic the publish arrived on
+     * @param payload the publish payload
+     * @param contentType the publish's content type, or null
+     * @param messageExpiryIntervalSeconds the publish's message expiry interval, or null
+     * @return the event the client's command execution streams deliver for the publish
+     */
+    public static CommandExecutionEvent createCommandExecutionEvent(String topic, byte[] payload, String contentType, Long messageExpiryIntervalSeconds) {
         CommandExecutionEvent event = new CommandExecutionEvent();
-        String[] segments = publishEvent.getTopic().split("/");
-        if (segments.length <= 5) {
-            throw new CrtRuntimeException("Invalid topic: " + publishEvent.getTopic());
+        // $aws/commands/{deviceType}/{deviceId}/executions/{executionId}/request[/<format>]
+        int deviceTypeStart = TopicSegments.segmentStart(topic, 2);
+        int deviceIdStart = TopicSegments.nextSegmentStart(topic, deviceTypeStart);
+        int executionsStart = TopicSegments.nextSegmentStart(topic, deviceIdStart);
+        int executionIdStart = TopicSegments.nextSegmentStart(topic, executionsStart);
+        if (executionIdStart < 0) {
+            throw new CrtRuntimeException("Invalid topic: " + topic);
         }
-        event.executionId = segments[5];
-        event.payload = publishEvent.getPayload();
-        String contentType = publishEvent.getContentType();
+        event.deviceType = toDeviceType(topic, deviceTypeStart, deviceIdStart - 1);
+        event.deviceId = topic.substring(deviceIdStart, executionsStart - 1);
+        event.executionId = topic.substring(executionIdStart, TopicSegments.segmentEnd(topic, executionIdStart));
+        event.payload = payload;
         if (contentType != null) {
             event.contentType = contentType;
         }
-        Long messageExpiryIntervalSeconds = publishEvent.getMessageExpiryIntervalSeconds();
         if (messageExpiryIntervalSeconds != null) {
             event.timeout = Math.toIntExact(messageExpiryIntervalSeconds);
         }
         return event;
     }
 
+    private static DeviceType toDeviceType(String topic, int start, int end) {
+        for (DeviceType deviceType : DEVICE_TYPES) {
+            String value = deviceType.toString();
+            if (value.length() == end - start && topic.regionMatches(start, value, 0, value.length())) {
+                return deviceType;
+            }
+        }
+        return DeviceType.UNKNOWN_ENUM_VALUE;
+    }
+
     /**
      * Update the status of a command execution.
      *
@@ -113,6 +177,7 @@ public class IotCommandsV2Client implements AutoCloseable {
      */
     public CompletableFuture<UpdateCommandExecutionResponse> updateCommandExecution(UpdateCommandExecutionRequest request) {
         V2ClientFuture<UpdateCommandExecutionResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "UpdateCommandExecution");
 
         try {
             if (request.deviceType == null) {
@@ -131,10 +196,7 @@ public class IotCommandsV2Client implements AutoCloseable {
 
 
             // Publish Topic
-            String publishTopic = "$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/json";
-            publishTopic = publishTopic.replace("{deviceType}", request.deviceType.toString());
-            publishTopic = publishTopic.replace("{deviceId}", request.deviceId);
-            publishTopic = publishTopic.replace("{executionId}", request.executionId);
+            String publishTopic = UPDATE_COMMAND_EXECUTION_PUBLISH_TOPIC.render(request.deviceType.toString(), request.deviceId, request.executionId);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -142,37 +204,91 @@ public class IotCommandsV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/accepted/json";
-            subscription0 = subscription0.replace("{deviceType}", request.deviceType.toString());
-            subscription0 = subscription0.replace("{deviceId}", request.deviceId);
-            subscription0 = subscription0.replace("{executionId}", request.executionId);
+            String subscription0 = UPDATE_COMMAND_EXECUTION_SUBSCRIPTION_TOPIC0.render(request.deviceType.toString(), request.deviceId, request.executionId);
+            builder.withSubscription(subscription0);
+            String subscription1 = UPDATE_COMMAND_EXECUTION_SUBSCRIPTION_TOPIC1.render(request.deviceType.toString(), request.deviceId, request.executionId);
+            builder.withSubscription(subscription1);
+
+            // Response paths
+            ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
+            String responseTopic1 = subscription0;
+            pathBuilder1.withResponseTopic(responseTopic1);
+            builder.withResponsePath(pathBuilder1.build());
+
+            ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
+            String responseTopic2 = subscription1;
+            pathBuilder2.withResponseTopic(responseTopic2);
+            builder.withResponsePath(pathBuilder2.build());
+
+            // Submit
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, UpdateCommandExecutionResponse.class, responseTopic2, V2ErrorResponse.class, IotCommandsV2Client::createV2ErrorResponseException);
+        } catch (Exception e) {
+            timer.fail(e);
+            responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
+        }
+
+        return responseFuture;
+    }
+
+    /**
+     * Update the status of a command execution, encoding the update and its responses as CBOR.
+     *
+     * Behaves like {@link #updateCommandExecution} but publishes to the execution's response/cbor topic,
+     * which keeps the reply compact for devices that receive their commands as CBOR.  Binary results are
+     * sent as CBOR byte strings.
+     *
+     * @param request modeled request to perform
+     *
+     * @return a future that will complete with the corresponding response
+     */
+    public CompletableFuture<UpdateCommandExecutionResponse> updateCommandExecutionCbor(UpdateCommandExecutionRequest request) {
+        V2ClientFuture<UpdateCommandExecutionResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "UpdateCommandExecutionCbor");
+
+        try {
+            if (request.deviceType == null) {
+                throw new CrtRuntimeException("UpdateCommandExecutionRequest.deviceType cannot be null");
+            }
+
+            if (request.deviceId == null) {
+                throw new CrtRuntimeException("UpdateCommandExecutionRequest.deviceId cannot be null");
+            }
+
+            if (request.executionId == null) {
+                throw new CrtRuntimeException("UpdateCommandExecutionRequest.executionId cannot be null");
+            }
+
+            RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
+
+
+            // Publish Topic
+            String publishTopic = UPDATE_COMMAND_EXECUTION_CBOR_PUBLISH_TOPIC.render(request.deviceType.toString(), request.deviceId, request.executionId);
+            builder.withPublishTopic(publishTopic);
+
+            // Payload
+            builder.withPayload(CommandExecutionCborCodec.encodeUpdateCommandExecutionRequest(request));
+
+            // Subscriptions
+            String subscription0 = UPDATE_COMMAND_EXECUTION_CBOR_SUBSCRIPTION_TOPIC0.render(request.deviceType.toString(), request.deviceId, request.executionId);
             builder.withSubscription(subscription0);
-            String subscription1 = "$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/rejected/json";
-            subscription1 = subscription1.replace("{deviceType}", request.deviceType.toString());
-            subscription1 = subscription1.replace("{deviceId}", request.deviceId);
-            subscription1 = subscription1.replace("{executionId}", request.executionId);
+            String subscription1 = UPDATE_COMMAND_EXECUTION_CBOR_SUBSCRIPTION_TOPIC1.render(request.deviceType.toString(), request.deviceId, request.executionId);
             builder.withSubscription(subscription1);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
-            String responseTopic1 = "$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/accepted/json";
-            responseTopic1 = responseTopic1.replace("{deviceType}", request.deviceType.toString());
-            responseTopic1 = responseTopic1.replace("{deviceId}", request.deviceId);
-            responseTopic1 = responseTopic1.replace("{executionId}", request.executionId);
+            String responseTopic1 = subscription0;
             pathBuilder1.withResponseTopic(responseTopic1);
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
-            String responseTopic2 = "$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/rejected/json";
-            responseTopic2 = responseTopic2.replace("{deviceType}", request.deviceType.toString());
-            responseTopic2 = responseTopic2.replace("{deviceId}", request.deviceId);
-            responseTopic2 = responseTopic2.replace("{executionId}", request.executionId);
+            String responseTopic2 = subscription1;
             pathBuilder2.withResponseTopic(responseTopic2);
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, UpdateCommandExecutionResponse.class, responseTopic2, V2ErrorResponse.class, IotCommandsV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, CommandExecutionCborCodec::decodeUpdateCommandExecutionResponse, responseTopic2, CommandExecutionCborCodec::decodeV2ErrorResponse, IotCommandsV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -190,24 +306,22 @@ public class IotCommandsV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createCommandExecutionsCborPayloadStream(CommandExecutionsSubscriptionRequest request, V2ClientStreamOptions<CommandExecutionEvent> options) {
-        String topic = "$aws/commands/{deviceType}/{deviceId}/executions/+/request/cbor";
-
         if (request.deviceType == null) {
             throw new CrtRuntimeException("CommandExecutionsSubscriptionRequest.deviceType cannot be null");
         }
-        topic = topic.replace("{deviceType}", request.deviceType.toString());
 
         if (request.deviceId == null) {
             throw new CrtRuntimeException("CommandExecutionsSubscriptionRequest.deviceId cannot be null");
         }
-        topic = topic.replace("{deviceId}", request.deviceId);
+
+        String topic = CREATE_COMMAND_EXECUTIONS_CBOR_PAYLOAD_STREAM_TOPIC.render(request.deviceType.toString(), request.deviceId);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
             .withIncomingPublishEventCallback((event) -> {
                 try {
-                    CommandExecutionEvent response = createCommandExecutionEvent(event);
+                    CommandExecutionEvent response = createCommandExecutionEvent(event.getTopic(), event.getPayload(), event.getContentType(), event.getMessageExpiryIntervalSeconds());
                     options.streamEventHandler().accept(response);
                 } catch (Exception e) {
                     V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
@@ -234,24 +348,22 @@ public class IotCommandsV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createCommandExecutionsGenericPayloadStream(CommandExecutionsSubscriptionRequest request, V2ClientStreamOptions<CommandExecutionEvent> options) {
-        String topic = "$aws/commands/{deviceType}/{deviceId}/executions/+/request";
-
         if (request.deviceType == null) {
             throw new CrtRuntimeException("CommandExecutionsSubscriptionRequest.deviceType cannot be null");
         }
-        topic = topic.replace("{deviceType}", request.deviceType.toString());
 
         if (request.deviceId == null) {
             throw new CrtRuntimeException("CommandExecutionsSubscriptionRequest.deviceId cannot be null");
         }
-        topic = topic.replace("{deviceId}", request.deviceId);
+
+        String topic = CREATE_COMMAND_EXECUTIONS_GENERIC_PAYLOAD_STREAM_TOPIC.render(request.deviceType.toString(), request.deviceId);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
             .withIncomingPublishEventCallback((event) -> {
                 try {
-                    CommandExecutionEvent response = createCommandExecutionEvent(event);
+                    CommandExecutionEvent response = createCommandExecutionEvent(event.getTopic(), event.getPayload(), event.getContentType(), event.getMessageExpiryIntervalSeconds());
                     options.streamEventHandler().accept(response);
                 } catch (Exception e) {
                     V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
@@ -278,24 +390,22 @@ public class IotCommandsV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createCommandExecutionsJsonPayloadStream(CommandExecutionsSubscriptionRequest request, V2ClientStreamOptions<CommandExecutionEvent> options) {
-        String topic = "$aws/commands/{deviceType}/{deviceId}/executions/+/request/json";
-
         if (request.deviceType == null) {
             throw new CrtRuntimeException("CommandExecutionsSubscriptionRequest.deviceType cannot be null");
         }
-        topic = topic.replace("{deviceType}", request.deviceType.toString());
 
         if (request.deviceId == null) {
             throw new CrtRuntimeException("CommandExecutionsSubscriptionRequest.deviceId cannot be null");
         }
-        topic = topic.replace("{deviceId}", request.deviceId);
+
+        String topic = CREATE_COMMAND_EXECUTIONS_JSON_PAYLOAD_STREAM_TOPIC.render(request.deviceType.toString(), request.deviceId);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
             .withIncomingPublishEventCallback((event) -> {
                 try {
-                    CommandExecutionEvent response = createCommandExecutionEvent(event);
+                    CommandExecutionEvent response = createCommandExecutionEvent(event.getTopic(), event.getPayload(), event.getContentType(), event.getMessageExpiryIntervalSeconds());
                     options.streamEventHandler().accept(response);
                 } catch (Exception e) {
                     V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
@@ -315,34 +425,45 @@ public class IotCommandsV2Client implements AutoCloseable {
         return new V2ErrorResponseException(message, errorResponse);
     }
 
-    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, RequestResponseOperation operation, String responseTopic, Class<T> responseClass, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
+    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, V2OperationTimer timer, RequestResponseOperation operation, String responseTopic, Class<T> responseClass, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
+        submitOperation(finalFuture, timer, operation, responseTopic, payload -> JsonPayloadDecoder.fromJson(this.gson, payload, responseClass), errorTopic, payload -> JsonPayloadDecoder.fromJson(this.gson, payload, errorClass), exceptionFactory);
+    }
+
+    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, V2OperationTimer timer, RequestResponseOperation operation, String responseTopic, Function<byte[], T> responseDecoder, String errorTopic, Function<byte[], E> errorDecoder, BiFunction<String, E, Throwable> exceptionFactory) {
         try {
+            timer.submitted();
             CompletableFuture<MqttRequestResponse> responseFuture = this.rrClient.submitRequest(operation);
             CompletableFuture<MqttRequestResponse> compositeFuture = responseFuture.whenComplete((res, ex) -> {
+                timer.received();
                 if (ex != null) {
+                    timer.fail(ex);
                     finalFuture.completeExceptionally(exceptionFactory.apply(ex.getMessage(), null));
                 } else if (res.getTopic().equals(responseTopic)) {
                     try {
-                        String payload = new String(res.getPayload(), StandardCharsets.UTF_8);
-                        T response = this.gson.fromJson(payload, responseClass);
+                        T response = responseDecoder.apply(res.getPayload());
+                        timer.complete(V2OperationOutcome.SUCCEEDED);
                         finalFuture.complete(response);
                     } catch (Exception e) {
+                        timer.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
                         finalFuture.completeExceptionally(exceptionFactory.apply(e.getMessage(), null));
                     }
                 } else if (res.getTopic().equals(errorTopic)) {
                     try {
-                        String payload = new String(res.getPayload(), StandardCharsets.UTF_8);
-                        E error = this.gson.fromJson(payload, errorClass);
+                        E error = errorDecoder.apply(res.getPayload());
+                        timer.complete(V2OperationOutcome.REJECTED);
                         finalFuture.completeExceptionally(exceptionFactory.apply("Request-response operation failure", error));
                     } catch (Exception e) {
+                        timer.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
                         finalFuture.completeExceptionally(exceptionFactory.apply(e.getMessage(), null));
                     }
                 } else {
+                    timer.complete(V2OperationOutcome.FAILED);
                     finalFuture.completeExceptionally(exceptionFactory.apply("Request-response operation completed on unknown topic: " + res.getTopic(), null));
                 }
             });
             finalFuture.setTriggeringFuture(compositeFuture);
         } catch (Exception ex) {
+            timer.fail(ex);
             finalFuture.completeExceptionally(exceptionFactory.apply(ex.getMessage(), null));
         }
     }
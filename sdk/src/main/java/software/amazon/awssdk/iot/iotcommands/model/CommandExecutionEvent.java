@@ -28,6 +28,20 @@ public class CommandExecutionEvent {
     public String executionId;
 
 
+    /**
+     * Type of the device the command execution is addressed to, taken from the topic the execution was received on.
+     *
+     */
+    public DeviceType deviceType;
+
+
+    /**
+     * ID of the device (thing name or MQTT client ID) the command execution is addressed to, taken from the topic the execution was received on.
+     *
+     */
+    public String deviceId;
+
+
     /**
      * Data format of the payload. It is supposed to be a MIME type (IANA media type), but can be an arbitrary string.
      *
@@ -0,0 +1,581 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotidentity;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.iot.iotidentity.model.CreateCertificateFromCsrRequest;
+import software.amazon.awssdk.iot.iotidentity.model.CreateCertificateFromCsrResponse;
+import software.amazon.awssdk.iot.iotidentity.model.CreateKeysAndCertificateRequest;
+import software.amazon.awssdk.iot.iotidentity.model.CreateKeysAndCertificateResponse;
+import software.amazon.awssdk.iot.iotidentity.model.RegisterThingRequest;
+import software.amazon.awssdk.iot.iotidentity.model.RegisterThingResponse;
+import software.amazon.awssdk.iot.iotidentity.model.V2ErrorResponse;
+import software.amazon.awssdk.iot.iotidentity.model.V2ErrorResponseException;
+
+/**
+ * Provisions many devices through one identity client, keeping several provisioning flows in flight at once.
+ *
+ * Each device's flow obtains a certificate, either with CreateKeysAndCertificate or, if a
+ * {@link CsrGenerator} is configured, with CreateCertificateFromCsr, and then registers its thing with
+ * RegisterThing.  Running the flows one at a time leaves the connection idle for a round trip per request; the
+ * provisioner instead keeps up to a configurable number of flows in flight, and generates CSRs on a worker pool
+ * so that key generation overlaps with requests to the service.
+ *
+ * Requests that are throttled or fail with a server error are retried with jittered exponential backoff.
+ * Every device's result is passed to a {@link ProvisioningResultSink} as soon as its flow finishes, so
+ * credentials are written out as they are created rather than held until the batch ends.
+ *
+ * <pre>{@code
+ * try (Writer out = Files.newBufferedWriter(resultsFile);
+ *      BulkProvisioner provisioner = BulkProvisioner.builder(identityClient, "FactoryTemplate", ProvisioningResultSink.jsonLines(out))
+ *          .withMaxInFlight(16)
+ *          .build()) {
+ *     BulkProvisioner.Summary summary = provisioner.provision(devices);
+ * }
+ * }</pre>
+ */
+public class BulkProvisioner implements AutoCloseable {
+
+    /**
+     * Creates the certificate signing request for one device.  {@link CsrPool} hands out pre-generated requests.
+     */
+    @FunctionalInterface
+    public interface CsrGenerator {
+
+        /**
+         * Creates a certificate signing request.  Called on the provisioner's worker pool.
+         *
+         * @param parameters the template parameters of the device
+         * @return the signing request, and the private key to record with the certificate
+         * @throws Exception if the request could not be created; the device fails
+         */
+        GeneratedCsr generate(Map<String, String> parameters) throws Exception;
+    }
+
+    /**
+     * The identity service operations the provisioner uses.  Normally an IotIdentityV2Client.
+     */
+    interface ProvisioningTransport {
+        CompletableFuture<CreateKeysAndCertificateResponse> createKeysAndCertificate(CreateKeysAndCertificateRequest request);
+
+        CompletableFuture<CreateCertificateFromCsrResponse> createCertificateFromCsr(CreateCertificateFromCsrRequest request);
+
+        CompletableFuture<RegisterThingResponse> registerThing(RegisterThingRequest request);
+    }
+
+    /**
+     * Counts of the devices handled by one call to {@link #provision}
+     */
+    public static final class Summary {
+        private final int succeeded;
+        private final int failed;
+
+        private Summary(int succeeded, int failed) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+        }
+
+        /**
+         * @return the number of devices whose thing was registered
+         */
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        /**
+         * @return the number of devices that could not be provisioned
+         */
+        public int getFailed() {
+            return failed;
+        }
+    }
+
+    private static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long DEFAULT_RETRY_DELAY_MILLIS = 500;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+    private static final int THROTTLED_STATUS_CODE = 429;
+    private static final int SERVER_ERROR_STATUS_CODE = 500;
+
+    private final ProvisioningTransport transport;
+    private final String templateName;
+    private final ProvisioningResultSink sink;
+    private final int maxInFlight;
+    private final CsrGenerator csrGenerator;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final ExecutorService workerPool;
+    private final boolean ownsWorkerPool;
+    private final ScheduledExecutorService retryScheduler;
+
+    private final Object sinkLock = new Object();
+    private final Set<Runnable> pendingRetries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Builder type for BulkProvisioner instances
+     */
+    public static class BulkProvisionerBuilder {
+        private final ProvisioningTransport transport;
+        private final String templateName;
+        private final ProvisioningResultSink sink;
+        private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+        private CsrGenerator csrGenerator;
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+        private ExecutorService workerPool;
+
+        private BulkProvisionerBuilder(ProvisioningTransport transport, String templateName, ProvisioningResultSink sink) {
+            this.transport = transport;
+            this.templateName = templateName;
+            this.sink = sink;
+        }
+
+        /**
+         * Sets the maximum number of devices being provisioned at once.  Defaults to 8.
+         *
+         * @param maxInFlight the maximum number of concurrent provisioning flows
+         * @return this builder object
+         */
+        public BulkProvisionerBuilder withMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+
+            return this;
+        }
+
+        /**
+         * Sets a generator of certificate signing requests.  If set, certificates are created with
+         * CreateCertificateFromCsr; otherwise the service generates the keys with CreateKeysAndCertificate.
+         *
+         * @param csrGenerator the generator to use
+         * @return this builder object
+         */
+        public BulkProvisionerBuilder withCsrGenerator(CsrGenerator csrGenerator) {
+            this.csrGenerator = csrGenerator;
+
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of times each request is sent when it is throttled or fails with a server
+         * error.  Defaults to 5.
+         *
+         * @param maxAttempts the maximum number of attempts per request
+         * @return this builder object
+         */
+        public BulkProvisionerBuilder withMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+
+            return this;
+        }
+
+        /**
+         * Sets the delay before the first retry.  The delay doubles with each further retry, up to 30 seconds,
+         * and is randomized by up to half to spread out retries of concurrent flows.  Defaults to 500 milliseconds.
+         *
+         * @param retryDelayMillis the initial retry delay in milliseconds
+         * @return this builder object
+         */
+        public BulkProvisionerBuilder withRetryDelayMillis(long retryDelayMillis) {
+            this.retryDelayMillis = retryDelayMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets the executor that CSRs are generated and results recorded on.  The provisioner does not shut it
+         * down.  By default the provisioner creates a pool with one thread per processor.
+         *
+         * @param workerPool the executor to use
+         * @return this builder object
+         */
+        public BulkProvisionerBuilder withWorkerPool(ExecutorService workerPool) {
+            this.workerPool = workerPool;
+
+            return this;
+        }
+
+        /**
+         * Creates a new BulkProvisioner from the existing configuration
+         *
+         * @return a new BulkProvisioner
+         */
+        public BulkProvisioner build() {
+            if (templateName == null) {
+                throw new IllegalArgumentException("BulkProvisioner templateName cannot be null");
+            }
+            if (sink == null) {
+                throw new IllegalArgumentException("BulkProvisioner result sink cannot be null");
+            }
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("BulkProvisioner must allow at least one flow in flight");
+            }
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("BulkProvisioner must make at least one attempt");
+            }
+            if (retryDelayMillis < 0) {
+                throw new IllegalArgumentException("BulkProvisioner retry delay cannot be negative");
+            }
+
+            return new BulkProvisioner(this);
+        }
+    }
+
+    private BulkProvisioner(BulkProvisionerBuilder builder) {
+        this.transport = builder.transport;
+        this.templateName = builder.templateName;
+        this.sink = builder.sink;
+        this.maxInFlight = builder.maxInFlight;
+        this.csrGenerator = builder.csrGenerator;
+        this.maxAttempts = builder.maxAttempts;
+        this.retryDelayMillis = builder.retryDelayMillis;
+
+        if (builder.workerPool != null) {
+            this.workerPool = builder.workerPool;
+            this.ownsWorkerPool = false;
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.workerPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "BulkProvisioner-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.ownsWorkerPool = true;
+        }
+
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BulkProvisioner-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a new builder for a provisioner that uses an identity client
+     *
+     * @param client the identity client to send requests with
+     * @param templateName the name of the provisioning template to register things with
+     * @param sink where to record each device's result
+     * @return a new builder object for BulkProvisioner instances
+     */
+    public static BulkProvisionerBuilder builder(IotIdentityV2Client client, String templateName, ProvisioningResultSink sink) {
+        return new BulkProvisionerBuilder(new ProvisioningTransport() {
+            @Override
+            public CompletableFuture<CreateKeysAndCertificateResponse> createKeysAndCertificate(CreateKeysAndCertificateRequest request) {
+                return client.createKeysAndCertificate(request);
+            }
+
+            @Override
+            public CompletableFuture<CreateCertificateFromCsrResponse> createCertificateFromCsr(CreateCertificateFromCsrRequest request) {
+                return client.createCertificateFromCsr(request);
+            }
+
+            @Override
+            public CompletableFuture<RegisterThingResponse> registerThing(RegisterThingRequest request) {
+                return client.registerThing(request);
+            }
+        }, templateName, sink);
+    }
+
+    static BulkProvisionerBuilder builder(ProvisioningTransport transport, String templateName, ProvisioningResultSink sink) {
+        return new BulkProvisionerBuilder(transport, templateName, sink);
+    }
+
+    /**
+     * Provisions a batch of devices, blocking until every started device has been recorded with the sink.
+     *
+     * If the sink fails, no further devices are started; flows already in flight finish but their results are
+     * not recorded, and the sink's exception is thrown once they have.
+     *
+     * @param devices the template parameters of each device, in the order to provision them
+     * @return how many devices succeeded and failed
+     * @throws IOException if the sink failed to record a result
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public Summary provision(Iterable<Map<String, String>> devices) throws IOException, InterruptedException {
+        Batch batch = new Batch();
+        try {
+            for (Map<String, String> parameters : devices) {
+                batch.inFlight.acquire();
+                if (batch.sinkError != null) {
+                    batch.inFlight.release();
+                    break;
+                }
+                start(batch, parameters);
+            }
+        } finally {
+            // Wait for the flows in flight to be recorded
+            batch.inFlight.acquireUninterruptibly(maxInFlight);
+            batch.inFlight.release(maxInFlight);
+        }
+
+        if (batch.sinkError != null) {
+            throw batch.sinkError;
+        }
+        return new Summary(batch.succeeded.get(), batch.failed.get());
+    }
+
+    /**
+     * Stops the retry scheduler, and the worker pool if the provisioner created it.  Flows waiting for a retry or
+     * for a CSR fail, requests already sent complete normally, and every flow's result is still passed to the
+     * sink, so a {@link #provision} call in progress returns once its flows have been recorded.
+     */
+    @Override
+    public void close() {
+        retryScheduler.shutdownNow();
+        for (Runnable retry : pendingRetries) {
+            if (pendingRetries.remove(retry)) {
+                retry.run();
+            }
+        }
+
+        if (ownsWorkerPool) {
+            for (Runnable dropped : workerPool.shutdownNow()) {
+                if (dropped instanceof WorkerTask) {
+                    ((WorkerTask) dropped).drop();
+                }
+            }
+        }
+    }
+
+    private void start(Batch batch, Map<String, String> parameters) {
+        Flow flow = new Flow(batch, parameters);
+
+        CompletableFuture<String> ownershipToken;
+        try {
+            if (csrGenerator != null) {
+                CompletableFuture<GeneratedCsr> generated = new CompletableFuture<>();
+                workerPool.execute(new WorkerTask(() -> {
+                    try {
+                        generated.complete(generateCsr(flow));
+                    } catch (RuntimeException e) {
+                        generated.completeExceptionally(e);
+                    }
+                }, () -> generated.completeExceptionally(new IllegalStateException("BulkProvisioner was closed before the CSR was generated"))));
+                ownershipToken = generated
+                    .thenCompose(csr -> {
+                        CreateCertificateFromCsrRequest request = new CreateCertificateFromCsrRequest();
+                        request.certificateSigningRequest = csr.getCertificateSigningRequest();
+                        return withRetry(flow, () -> transport.createCertificateFromCsr(request));
+                    })
+                    .thenApply(response -> {
+                        flow.certificateId = response.certificateId;
+                        flow.certificatePem = response.certificatePem;
+                        return response.certificateOwnershipToken;
+                    });
+            } else {
+                ownershipToken = withRetry(flow, () -> transport.createKeysAndCertificate(new CreateKeysAndCertificateRequest()))
+                    .thenApply(response -> {
+                        flow.certificateId = response.certificateId;
+                        flow.certificatePem = response.certificatePem;
+                        flow.privateKey = response.privateKey;
+                        return response.certificateOwnershipToken;
+                    });
+            }
+        } catch (RejectedExecutionException e) {
+            finish(flow, null, e);
+            return;
+        }
+
+        ownershipToken
+            .thenCompose(token -> {
+                RegisterThingRequest request = new RegisterThingRequest();
+                request.templateName = templateName;
+                request.certificateOwnershipToken = token;
+                if (parameters != null) {
+                    request.parameters = new HashMap<>(parameters);
+                }
+                return withRetry(flow, () -> transport.registerThing(request));
+            })
+            .whenComplete((response, error) -> {
+                // Responses complete on the client's event loop; record results on the worker pool instead
+                try {
+                    // If the pool is shut down before the task runs, the result is recorded by the closing thread
+                    workerPool.execute(new WorkerTask(() -> finish(flow, response, error), () -> finish(flow, response, error)));
+                } catch (RejectedExecutionException e) {
+                    finish(flow, response, error);
+                }
+            });
+    }
+
+    private GeneratedCsr generateCsr(Flow flow) {
+        try {
+            GeneratedCsr csr = csrGenerator.generate(flow.parameters);
+            flow.privateKey = csr.getPrivateKey();
+            return csr;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> withRetry(Flow flow, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(flow, request, result, 1);
+        return result;
+    }
+
+    private <T> void attempt(Flow flow, Supplier<CompletableFuture<T>> request, CompletableFuture<T> result, int attempt) {
+        flow.attempts.incrementAndGet();
+        CompletableFuture<T> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        response.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = unwrap(error);
+            if (attempt >= maxAttempts || !isRetryable(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            long delay = Math.min(MAX_RETRY_DELAY_MILLIS, retryDelayMillis << Math.min(attempt - 1, 16));
+            delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+            // Whichever of the retry and close() claims the entry first decides how the request ends
+            Runnable abandon = () -> result.completeExceptionally(
+                new IllegalStateException("BulkProvisioner was closed before the request could be retried", cause));
+            pendingRetries.add(abandon);
+            try {
+                retryScheduler.schedule(() -> {
+                    if (pendingRetries.remove(abandon)) {
+                        attempt(flow, request, result, attempt + 1);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The provisioner was closed
+                if (pendingRetries.remove(abandon)) {
+                    abandon.run();
+                }
+            }
+        });
+    }
+
+    private void finish(Flow flow, RegisterThingResponse response, Throwable error) {
+        Batch batch = flow.batch;
+        try {
+            Throwable cause = error != null ? unwrap(error) : null;
+            ProvisioningResult result = new ProvisioningResult(flow.parameters,
+                response != null ? response.thingName : null, flow.certificateId, flow.certificatePem, flow.privateKey,
+                response != null ? response.deviceConfiguration : null, cause, flow.attempts.get());
+
+            if (cause == null) {
+                batch.succeeded.incrementAndGet();
+            } else {
+                batch.failed.incrementAndGet();
+            }
+
+            synchronized (sinkLock) {
+                if (batch.sinkError == null) {
+                    try {
+                        sink.accept(result);
+                    } catch (IOException e) {
+                        batch.sinkError = e;
+                    } catch (RuntimeException e) {
+                        batch.sinkError = new IOException("Provisioning result sink failed", e);
+                    }
+                }
+            }
+        } finally {
+            batch.inFlight.release();
+        }
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (!(error instanceof V2ErrorResponseException)) {
+            return false;
+        }
+
+        V2ErrorResponse modeledError = ((V2ErrorResponseException) error).getModeledError();
+        if (modeledError == null) {
+            return false;
+        }
+        if (modeledError.statusCode != null
+                && (modeledError.statusCode == THROTTLED_STATUS_CODE || modeledError.statusCode >= SERVER_ERROR_STATUS_CODE)) {
+            return true;
+        }
+        return modeledError.errorCode != null && modeledError.errorCode.startsWith("Throttl");
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * State shared by the flows of one call to provision
+     */
+    private class Batch {
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile IOException sinkError;
+    }
+
+    /**
+     * Work queued on the worker pool, with what to do instead if close() drops it before it runs
+     */
+    private static class WorkerTask implements Runnable {
+        private final Runnable work;
+        private final Runnable onDropped;
+
+        private WorkerTask(Runnable work, Runnable onDropped) {
+            this.work = work;
+            this.onDropped = onDropped;
+        }
+
+        @Override
+        public void run() {
+            work.run();
+        }
+
+        private void drop() {
+            onDropped.run();
+        }
+    }
+
+    /**
+     * One device's progress through the flow.  Stages run one after another, each completing before the next
+     * starts, so the fields need no further synchronization.
+     */
+    private static class Flow {
+        private final Batch batch;
+        private final Map<String, String> parameters;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private String certificateId;
+        private String certificatePem;
+        private String privateKey;
+
+        private Flow(Batch batch, Map<String, String> parameters) {
+            this.batch = batch;
+            this.parameters = parameters;
+        }
+    }
+}
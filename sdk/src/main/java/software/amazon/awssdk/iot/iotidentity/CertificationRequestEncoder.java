@@ -0,0 +1,149 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotidentity;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.Base64;
+
+/**
+ * Encodes PKCS#10 (RFC 2986) certificate signing requests.  The JDK can generate and sign with keys but has no
+ * public API for building a CSR, so the few DER structures a CSR needs are written here directly.
+ */
+final class CertificationRequestEncoder {
+
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_BIT_STRING = 0x03;
+    private static final int TAG_NULL = 0x05;
+    private static final int TAG_OBJECT_IDENTIFIER = 0x06;
+    private static final int TAG_UTF8_STRING = 0x0c;
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int TAG_SET = 0x31;
+    private static final int TAG_ATTRIBUTES = 0xa0;
+
+    private static final String COMMON_NAME_OID = "2.5.4.3";
+    private static final String SHA256_WITH_RSA_OID = "1.2.840.113549.1.1.11";
+    private static final String SHA256_WITH_ECDSA_OID = "1.2.840.10045.4.3.2";
+    private static final String SHA384_WITH_ECDSA_OID = "1.2.840.10045.4.3.3";
+
+    private static final Base64.Encoder PEM_ENCODER = Base64.getMimeEncoder(64, new byte[] { '\n' });
+
+    private CertificationRequestEncoder() {}
+
+    /**
+     * Creates a signed certificate signing request
+     *
+     * @param keyPair the key pair to certify; the request is signed with its private key
+     * @param signatureAlgorithm the JCA name of the signature algorithm: SHA256withRSA, SHA256withECDSA or SHA384withECDSA
+     * @param commonName the common name of the subject
+     * @return the DER encoded request
+     */
+    static byte[] encode(KeyPair keyPair, String signatureAlgorithm, String commonName) throws GeneralSecurityException {
+        byte[] subject = sequence(set(sequence(objectIdentifier(COMMON_NAME_OID), tagged(TAG_UTF8_STRING, commonName.getBytes(StandardCharsets.UTF_8)))));
+        byte[] requestInfo = sequence(
+            tagged(TAG_INTEGER, BigInteger.ZERO.toByteArray()),
+            subject,
+            keyPair.getPublic().getEncoded(),
+            tagged(TAG_ATTRIBUTES, new byte[0]));
+
+        Signature signer = Signature.getInstance(signatureAlgorithm);
+        signer.initSign(keyPair.getPrivate());
+        signer.update(requestInfo);
+        byte[] signature = signer.sign();
+
+        return sequence(requestInfo, algorithmIdentifier(signatureAlgorithm), bitString(signature));
+    }
+
+    /**
+     * Wraps DER encoded data in PEM armor
+     *
+     * @param label the PEM label, such as CERTIFICATE REQUEST
+     * @param der the DER encoded data
+     * @return the PEM text
+     */
+    static String toPem(String label, byte[] der) {
+        return "-----BEGIN " + label + "-----\n"
+            + PEM_ENCODER.encodeToString(der)
+            + "\n-----END " + label + "-----\n";
+    }
+
+    private static byte[] algorithmIdentifier(String signatureAlgorithm) {
+        switch (signatureAlgorithm) {
+            case "SHA256withRSA":
+                // RSA signature algorithms carry explicit NULL parameters
+                return sequence(objectIdentifier(SHA256_WITH_RSA_OID), tagged(TAG_NULL, new byte[0]));
+            case "SHA256withECDSA":
+                return sequence(objectIdentifier(SHA256_WITH_ECDSA_OID));
+            case "SHA384withECDSA":
+                return sequence(objectIdentifier(SHA384_WITH_ECDSA_OID));
+            default:
+                throw new IllegalArgumentException("Unsupported CSR signature algorithm " + signatureAlgorithm);
+        }
+    }
+
+    private static byte[] objectIdentifier(String oid) {
+        String[] arcs = oid.split("\\.");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeBase128(out, Long.parseLong(arcs[0]) * 40 + Long.parseLong(arcs[1]));
+        for (int i = 2; i < arcs.length; i++) {
+            writeBase128(out, Long.parseLong(arcs[i]));
+        }
+        return tagged(TAG_OBJECT_IDENTIFIER, out.toByteArray());
+    }
+
+    private static void writeBase128(ByteArrayOutputStream out, long value) {
+        int shift = 63 - Long.numberOfLeadingZeros(value | 1);
+        shift -= shift % 7;
+        for (; shift > 0; shift -= 7) {
+            out.write((int) (0x80 | ((value >>> shift) & 0x7f)));
+        }
+        out.write((int) (value & 0x7f));
+    }
+
+    private static byte[] bitString(byte[] bits) {
+        byte[] contents = new byte[bits.length + 1];
+        // No unused bits in the final byte
+        System.arraycopy(bits, 0, contents, 1, bits.length);
+        return tagged(TAG_BIT_STRING, contents);
+    }
+
+    private static byte[] sequence(byte[]... elements) {
+        return tagged(TAG_SEQUENCE, concat(elements));
+    }
+
+    private static byte[] set(byte[]... elements) {
+        return tagged(TAG_SET, concat(elements));
+    }
+
+    private static byte[] concat(byte[]... elements) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] element : elements) {
+            out.write(element, 0, element.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] tagged(int tag, byte[] contents) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(contents.length + 6);
+        out.write(tag);
+        int length = contents.length;
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int count = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            out.write(0x80 | count);
+            for (int i = count - 1; i >= 0; i--) {
+                out.write(length >>> (i * 8));
+            }
+        }
+        out.write(contents, 0, contents.length);
+        return out.toByteArray();
+    }
+}
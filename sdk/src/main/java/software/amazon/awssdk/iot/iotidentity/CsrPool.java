@@ -0,0 +1,380 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotidentity;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import software.amazon.awssdk.crt.Log;
+import software.amazon.awssdk.crt.Log.LogLevel;
+import software.amazon.awssdk.crt.Log.LogSubject;
+
+/**
+ * Keeps a stock of pre-generated key pairs and certificate signing requests, so that onboarding a device does not
+ * wait for key generation.
+ *
+ * Generating a key pair and signing a CSR takes from milliseconds (EC) to hundreds of milliseconds (RSA), and
+ * without a pool it happens in the critical path before CreateCertificateFromCsr can be sent.  The pool fills
+ * itself on a background thread running at minimum priority, and {@link #take} hands out a ready request
+ * immediately.  If the pool has run dry, take generates one on the calling thread instead of waiting.
+ *
+ * By default the private keys of pooled entries are kept encrypted with AES-GCM and decrypted when handed out.
+ * The default wrapping key is generated by the pool and held in the same process, so this only keeps idle keys
+ * out of casual view, such as a heap dump searched for key encodings; anyone able to read the process's memory
+ * can read the wrapping key too.  For protection against that, supply a wrapping key whose material never enters
+ * the Java heap, such as an AES key from a PKCS#11 token or a platform KeyStore, with
+ * {@link CsrPoolBuilder#withWrappingKey}.  Either way, each key pair exists in plain form while it is generated,
+ * and the key handed out by {@link #take} is a PEM String, which cannot be cleared from memory.
+ *
+ * The pool implements {@link BulkProvisioner.CsrGenerator} and can be given directly to a provisioner:
+ *
+ * <pre>{@code
+ * try (CsrPool pool = CsrPool.builder().withSize(32).build()) {
+ *     BulkProvisioner provisioner = BulkProvisioner.builder(client, templateName, sink).withCsrGenerator(pool).build();
+ *     ...
+ * }
+ * }</pre>
+ *
+ * Every request in a pool has the same subject, since it is generated before the device it is for is known.
+ */
+public class CsrPool implements BulkProvisioner.CsrGenerator, AutoCloseable {
+
+    /**
+     * The type of key pair to generate
+     */
+    public enum KeyType {
+
+        /**
+         * 2048-bit RSA keys, signed with SHA256withRSA
+         */
+        RSA_2048("RSA", "SHA256withRSA"),
+
+        /**
+         * NIST P-256 elliptic curve keys, signed with SHA256withECDSA
+         */
+        EC_P256("EC", "SHA256withECDSA"),
+
+        /**
+         * NIST P-384 elliptic curve keys, signed with SHA384withECDSA
+         */
+        EC_P384("EC", "SHA384withECDSA");
+
+        private final String algorithm;
+        private final String signatureAlgorithm;
+
+        KeyType(String algorithm, String signatureAlgorithm) {
+            this.algorithm = algorithm;
+            this.signatureAlgorithm = signatureAlgorithm;
+        }
+    }
+
+    /**
+     * How pooled private keys are held until they are handed out
+     */
+    public enum Protection {
+
+        /**
+         * Keys are held in plain form
+         */
+        NONE,
+
+        /**
+         * Keys are held encrypted, with the wrapping key given to the builder or else one generated by the pool
+         */
+        ENCRYPTED
+    }
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final String DEFAULT_COMMON_NAME = "AWS IoT Certificate";
+    private static final String WRAPPING_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private final KeyType keyType;
+    private final String commonName;
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKey wrappingKey;
+    private final LinkedBlockingQueue<PooledCsr> pool;
+    private final Thread refillThread;
+    private volatile boolean closed;
+
+    /**
+     * Builder type for CsrPool instances
+     */
+    public static class CsrPoolBuilder {
+        private int size = DEFAULT_SIZE;
+        private KeyType keyType = KeyType.EC_P256;
+        private String commonName = DEFAULT_COMMON_NAME;
+        private Protection protection = Protection.ENCRYPTED;
+        private SecretKey wrappingKey;
+
+        private CsrPoolBuilder() {}
+
+        /**
+         * Sets the number of requests kept ready.  Defaults to 16.
+         *
+         * @param size the number of pooled requests
+         * @return this builder object
+         */
+        public CsrPoolBuilder withSize(int size) {
+            this.size = size;
+
+            return this;
+        }
+
+        /**
+         * Sets the type of key pair to generate.  Defaults to EC_P256.
+         *
+         * @param keyType the key type
+         * @return this builder object
+         */
+        public CsrPoolBuilder withKeyType(KeyType keyType) {
+            this.keyType = keyType;
+
+            return this;
+        }
+
+        /**
+         * Sets the common name in the subject of every request.  Defaults to "AWS IoT Certificate".
+         *
+         * @param commonName the subject's common name
+         * @return this builder object
+         */
+        public CsrPoolBuilder withCommonName(String commonName) {
+            this.commonName = commonName;
+
+            return this;
+        }
+
+        /**
+         * Sets how pooled private keys are held.  Defaults to ENCRYPTED.
+         *
+         * @param protection the protection to use
+         * @return this builder object
+         */
+        public CsrPoolBuilder withProtection(Protection protection) {
+            this.protection = protection;
+
+            return this;
+        }
+
+        /**
+         * Sets the AES key that pooled private keys are encrypted with when protection is ENCRYPTED.  By default
+         * the pool generates one.  The key is used with AES/GCM/NoPadding through whichever provider it belongs
+         * to, so a key held by a hardware token keeps its material out of the process.
+         *
+         * @param wrappingKey the AES key to encrypt pooled private keys with
+         * @return this builder object
+         */
+        public CsrPoolBuilder withWrappingKey(SecretKey wrappingKey) {
+            this.wrappingKey = wrappingKey;
+
+            return this;
+        }
+
+        /**
+         * Creates a new CsrPool from the existing configuration and starts filling it
+         *
+         * @return a new CsrPool
+         */
+        public CsrPool build() {
+            if (size < 1) {
+                throw new IllegalArgumentException("CsrPool size must be positive");
+            }
+            if (keyType == null || commonName == null || protection == null) {
+                throw new IllegalArgumentException("CsrPool keyType, commonName and protection cannot be null");
+            }
+            if (wrappingKey != null && protection != Protection.ENCRYPTED) {
+                throw new IllegalArgumentException("CsrPool wrapping key requires ENCRYPTED protection");
+            }
+            if (wrappingKey != null && !"AES".equalsIgnoreCase(wrappingKey.getAlgorithm())) {
+                throw new IllegalArgumentException("CsrPool wrapping key must be an AES key");
+            }
+
+            try {
+                return new CsrPool(this);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("CsrPool could not be initialized", e);
+            }
+        }
+    }
+
+    private CsrPool(CsrPoolBuilder builder) throws GeneralSecurityException {
+        this.keyType = builder.keyType;
+        this.commonName = builder.commonName;
+        this.pool = new LinkedBlockingQueue<>(builder.size);
+
+        if (builder.wrappingKey != null) {
+            this.wrappingKey = builder.wrappingKey;
+        } else if (builder.protection == Protection.ENCRYPTED) {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(256, random);
+            this.wrappingKey = keyGenerator.generateKey();
+        } else {
+            this.wrappingKey = null;
+        }
+
+        // Fail here rather than on the refill thread if the key type is not available
+        newKeyPairGenerator();
+
+        this.refillThread = new Thread(this::refill, "CsrPool-refill");
+        this.refillThread.setDaemon(true);
+        this.refillThread.setPriority(Thread.MIN_PRIORITY);
+        this.refillThread.start();
+    }
+
+    /**
+     * @return a new builder object for CsrPool instances
+     */
+    public static CsrPoolBuilder builder() {
+        return new CsrPoolBuilder();
+    }
+
+    /**
+     * Hands out a pooled request, or generates one on the calling thread if the pool is empty.  Each request
+     * is handed out only once.
+     *
+     * @return a certificate signing request and its private key
+     */
+    public GeneratedCsr take() {
+        try {
+            PooledCsr pooled = pool.poll();
+            if (pooled == null) {
+                pooled = create(newKeyPairGenerator());
+            }
+            return pooled.open();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("CsrPool could not generate a certificate signing request", e);
+        }
+    }
+
+    /**
+     * Hands out a pooled request; the device's parameters are not used
+     *
+     * @param parameters the template parameters of the device
+     * @return a certificate signing request and its private key
+     */
+    @Override
+    public GeneratedCsr generate(Map<String, String> parameters) {
+        return take();
+    }
+
+    /**
+     * @return the number of requests ready to be handed out
+     */
+    public int available() {
+        return pool.size();
+    }
+
+    /**
+     * Stops refilling the pool and discards the pooled requests.  Waits for a key pair being generated to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        refillThread.interrupt();
+        try {
+            refillThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool.clear();
+    }
+
+    private void refill() {
+        KeyPairGenerator generator;
+        try {
+            generator = newKeyPairGenerator();
+        } catch (GeneralSecurityException e) {
+            return;
+        }
+
+        while (!closed) {
+            try {
+                // Blocks while the pool is full; take makes room
+                pool.put(create(generator));
+            } catch (InterruptedException e) {
+                return;
+            } catch (GeneralSecurityException e) {
+                Log.log(LogLevel.Error, LogSubject.JavaCrtGeneral, "CsrPool stopped refilling: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private KeyPairGenerator newKeyPairGenerator() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyType.algorithm);
+        switch (keyType) {
+            case RSA_2048:
+                generator.initialize(new RSAKeyGenParameterSpec(2048, RSAKeyGenParameterSpec.F4), random);
+                break;
+            case EC_P256:
+                generator.initialize(new ECGenParameterSpec("secp256r1"), random);
+                break;
+            case EC_P384:
+                generator.initialize(new ECGenParameterSpec("secp384r1"), random);
+                break;
+            default:
+                throw new IllegalStateException("Unknown key type " + keyType);
+        }
+        return generator;
+    }
+
+    private PooledCsr create(KeyPairGenerator generator) throws GeneralSecurityException {
+        KeyPair keyPair = generator.generateKeyPair();
+        byte[] request = CertificationRequestEncoder.encode(keyPair, keyType.signatureAlgorithm, commonName);
+        byte[] privateKey = keyPair.getPrivate().getEncoded();
+
+        if (wrappingKey == null) {
+            return new PooledCsr(request, privateKey, null);
+        }
+
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(WRAPPING_TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, wrappingKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        byte[] wrapped = cipher.doFinal(privateKey);
+        Arrays.fill(privateKey, (byte) 0);
+        return new PooledCsr(request, wrapped, iv);
+    }
+
+    private class PooledCsr {
+        private final byte[] request;
+        private final byte[] privateKey;
+        private final byte[] iv;
+
+        private PooledCsr(byte[] request, byte[] privateKey, byte[] iv) {
+            this.request = request;
+            this.privateKey = privateKey;
+            this.iv = iv;
+        }
+
+        private GeneratedCsr open() throws GeneralSecurityException {
+            byte[] key = privateKey;
+            if (iv != null) {
+                Cipher cipher = Cipher.getInstance(WRAPPING_TRANSFORMATION);
+                cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+                key = cipher.doFinal(privateKey);
+            }
+
+            String privateKeyPem = CertificationRequestEncoder.toPem("PRIVATE KEY", key);
+            Arrays.fill(key, (byte) 0);
+            return new GeneratedCsr(CertificationRequestEncoder.toPem("CERTIFICATE REQUEST", request), privateKeyPem);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotidentity;
+
+/**
+ * A certificate signing request produced for one device, together with the private key it was signed with
+ */
+public final class GeneratedCsr {
+    private final String certificateSigningRequest;
+    private final String privateKey;
+
+    /**
+     * @param certificateSigningRequest the PEM encoded PKCS#10 certificate signing request
+     * @param privateKey the PEM encoded private key to deliver with the certificate, or null if the key never
+     *                   leaves the device (for example, when it is held in a secure element)
+     */
+    public GeneratedCsr(String certificateSigningRequest, String privateKey) {
+        this.certificateSigningRequest = certificateSigningRequest;
+        this.privateKey = privateKey;
+    }
+
+    /**
+     * @return the PEM encoded PKCS#10 certificate signing request
+     */
+    public String getCertificateSigningRequest() {
+        return certificateSigningRequest;
+    }
+
+    /**
+     * @return the PEM encoded private key, or null
+     */
+    public String getPrivateKey() {
+        return privateKey;
+    }
+}
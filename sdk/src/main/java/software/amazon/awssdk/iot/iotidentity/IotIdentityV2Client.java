@@ -30,10 +30,21 @@ import software.amazon.awssdk.iot.iotidentity.model.*;
 */
 public class IotIdentityV2Client implements AutoCloseable {
 
+    private static final TopicTemplate REGISTER_THING_PUBLISH_TOPIC = TopicTemplate.compile("$aws/provisioning-templates/{templateName}/provision/json");
+    private static final TopicTemplate REGISTER_THING_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/provisioning-templates/{templateName}/provision/json/accepted");
+    private static final TopicTemplate REGISTER_THING_SUBSCRIPTION_TOPIC1 = TopicTemplate.compile("$aws/provisioning-templates/{templateName}/provision/json/rejected");
+
     private MqttRequestResponseClient rrClient;
     private final Gson gson;
+    private final V2ClientMetricsListener metricsListener;
 
-    private Gson createGson() {
+    /**
+     * Creates a Gson configured the way the client configures its own, for decoding and encoding identity payloads
+     * outside of a client
+     *
+     * @return a new Gson
+     */
+    public static Gson createGson() {
         GsonBuilder gson = new GsonBuilder();
         gson.disableHtmlEscaping();
         gson.registerTypeAdapter(Timestamp.class, new Timestamp.Serializer());
@@ -42,12 +53,13 @@ public class IotIdentityV2Client implements AutoCloseable {
         return gson.create();
     }
 
-    private void addTypeAdapters(GsonBuilder gson) {
+    private static void addTypeAdapters(GsonBuilder gson) {
     }
 
-    private IotIdentityV2Client(MqttRequestResponseClient rrClient) {
+    private IotIdentityV2Client(MqttRequestResponseClient rrClient, V2ClientOptions clientOptions) {
         this.rrClient = rrClient;
         this.gson = createGson();
+        this.metricsListener = clientOptions.metricsListener();
     }
 
     /**
@@ -57,8 +69,19 @@ public class IotIdentityV2Client implements AutoCloseable {
      * @param options configuration options to use
      */
     static public IotIdentityV2Client newFromMqtt5(Mqtt5Client protocolClient, MqttRequestResponseClientOptions options) {
+        return newFromMqtt5(protocolClient, options, V2ClientOptions.builder().build());
+    }
+
+    /**
+     * Constructs a new IotIdentityV2Client, using an MQTT5 client as transport
+     *
+     * @param protocolClient the MQTT5 client to use
+     * @param options configuration options to use
+     * @param clientOptions SDK-side configuration options to use
+     */
+    static public IotIdentityV2Client newFromMqtt5(Mqtt5Client protocolClient, MqttRequestResponseClientOptions options, V2ClientOptions clientOptions) {
         MqttRequestResponseClient rrClient = new MqttRequestResponseClient(protocolClient, options);
-        return new IotIdentityV2Client(rrClient);
+        return new IotIdentityV2Client(rrClient, clientOptions);
     }
 
     /**
@@ -68,8 +91,19 @@ public class IotIdentityV2Client implements AutoCloseable {
      * @param options configuration options to use
      */
     static public IotIdentityV2Client newFromMqtt311(MqttClientConnection protocolClient, MqttRequestResponseClientOptions options) {
+        return newFromMqtt311(protocolClient, options, V2ClientOptions.builder().build());
+    }
+
+    /**
+     * Constructs a new IotIdentityV2Client, using an MQTT311 client as transport
+     *
+     * @param protocolClient the MQTT311 client to use
+     * @param options configuration options to use
+     * @param clientOptions SDK-side configuration options to use
+     */
+    static public IotIdentityV2Client newFromMqtt311(MqttClientConnection protocolClient, MqttRequestResponseClientOptions options, V2ClientOptions clientOptions) {
         MqttRequestResponseClient rrClient = new MqttRequestResponseClient(protocolClient, options);
-        return new IotIdentityV2Client(rrClient);
+        return new IotIdentityV2Client(rrClient, clientOptions);
     }
 
     /**
@@ -93,6 +127,7 @@ public class IotIdentityV2Client implements AutoCloseable {
      */
     public CompletableFuture<CreateCertificateFromCsrResponse> createCertificateFromCsr(CreateCertificateFromCsrRequest request) {
         V2ClientFuture<CreateCertificateFromCsrResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "CreateCertificateFromCsr");
 
         try {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
@@ -114,18 +149,19 @@ public class IotIdentityV2Client implements AutoCloseable {
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
-            String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            String responseTopic1 = subscription0;
+            pathBuilder1.withResponseTopic(responseTopic1);
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
-            String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            String responseTopic2 = subscription1;
+            pathBuilder2.withResponseTopic(responseTopic2);
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, CreateCertificateFromCsrResponse.class, responseTopic2, V2ErrorResponse.class, IotIdentityV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, CreateCertificateFromCsrResponse.class, responseTopic2, V2ErrorResponse.class, IotIdentityV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -144,6 +180,7 @@ public class IotIdentityV2Client implements AutoCloseable {
      */
     public CompletableFuture<CreateKeysAndCertificateResponse> createKeysAndCertificate(CreateKeysAndCertificateRequest request) {
         V2ClientFuture<CreateKeysAndCertificateResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "CreateKeysAndCertificate");
 
         try {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
@@ -165,18 +202,19 @@ public class IotIdentityV2Client implements AutoCloseable {
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
-            String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            String responseTopic1 = subscription0;
+            pathBuilder1.withResponseTopic(responseTopic1);
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
-            String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            String responseTopic2 = subscription1;
+            pathBuilder2.withResponseTopic(responseTopic2);
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, CreateKeysAndCertificateResponse.class, responseTopic2, V2ErrorResponse.class, IotIdentityV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, CreateKeysAndCertificateResponse.class, responseTopic2, V2ErrorResponse.class, IotIdentityV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -195,6 +233,7 @@ public class IotIdentityV2Client implements AutoCloseable {
      */
     public CompletableFuture<RegisterThingResponse> registerThing(RegisterThingRequest request) {
         V2ClientFuture<RegisterThingResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "RegisterThing");
 
         try {
             if (request.templateName == null) {
@@ -205,8 +244,7 @@ public class IotIdentityV2Client implements AutoCloseable {
 
 
             // Publish Topic
-            String publishTopic = "$aws/provisioning-templates/{templateName}/provision/json";
-            publishTopic = publishTopic.replace("{templateName}", request.templateName);
+            String publishTopic = REGISTER_THING_PUBLISH_TOPIC.render(request.templateName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -214,27 +252,26 @@ public class IotIdentityV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/provisioning-templates/{templateName}/provision/json/accepted";
-            subscription0 = subscription0.replace("{templateName}", request.templateName);
+            String subscription0 = REGISTER_THING_SUBSCRIPTION_TOPIC0.render(request.templateName);
             builder.withSubscription(subscription0);
-            String subscription1 = "$aws/provisioning-templates/{templateName}/provision/json/rejected";
-            subscription1 = subscription1.replace("{templateName}", request.templateName);
+            String subscription1 = REGISTER_THING_SUBSCRIPTION_TOPIC1.render(request.templateName);
             builder.withSubscription(subscription1);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
-            String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            String responseTopic1 = subscription0;
+            pathBuilder1.withResponseTopic(responseTopic1);
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
-            String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            String responseTopic2 = subscription1;
+            pathBuilder2.withResponseTopic(responseTopic2);
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, RegisterThingResponse.class, responseTopic2, V2ErrorResponse.class, IotIdentityV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, RegisterThingResponse.class, responseTopic2, V2ErrorResponse.class, IotIdentityV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -245,34 +282,41 @@ public class IotIdentityV2Client implements AutoCloseable {
         return new V2ErrorResponseException(message, errorResponse);
     }
 
-    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, RequestResponseOperation operation, String responseTopic, Class<T> responseClass, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
+    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, V2OperationTimer timer, RequestResponseOperation operation, String responseTopic, Class<T> responseClass, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
         try {
+            timer.submitted();
             CompletableFuture<MqttRequestResponse> responseFuture = this.rrClient.submitRequest(operation);
             CompletableFuture<MqttRequestResponse> compositeFuture = responseFuture.whenComplete((res, ex) -> {
+                timer.received();
                 if (ex != null) {
+                    timer.fail(ex);
                     finalFuture.completeExceptionally(exceptionFactory.apply(ex.getMessage(), null));
                 } else if (res.getTopic().equals(responseTopic)) {
                     try {
-                        String payload = new String(res.getPayload(), StandardCharsets.UTF_8);
-                        T response = this.gson.fromJson(payload, responseClass);
+                        T response = JsonPayloadDecoder.fromJson(this.gson, res.getPayload(), responseClass);
+                        timer.complete(V2OperationOutcome.SUCCEEDED);
                         finalFuture.complete(response);
                     } catch (Exception e) {
+                        timer.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
                         finalFuture.completeExceptionally(exceptionFactory.apply(e.getMessage(), null));
                     }
                 } else if (res.getTopic().equals(errorTopic)) {
                     try {
-                        String payload = new String(res.getPayload(), StandardCharsets.UTF_8);
-                        E error = this.gson.fromJson(payload, errorClass);
+                        E error = JsonPayloadDecoder.fromJson(this.gson, res.getPayload(), errorClass);
+                        timer.complete(V2OperationOutcome.REJECTED);
                         finalFuture.completeExceptionally(exceptionFactory.apply("Request-response operation failure", error));
                     } catch (Exception e) {
+                        timer.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
                         finalFuture.completeExceptionally(exceptionFactory.apply(e.getMessage(), null));
                     }
                 } else {
+                    timer.complete(V2OperationOutcome.FAILED);
                     finalFuture.completeExceptionally(exceptionFactory.apply("Request-response operation completed on unknown topic: " + res.getTopic(), null));
                 }
             });
             finalFuture.setTriggeringFuture(compositeFuture);
         } catch (Exception ex) {
+            timer.fail(ex);
             finalFuture.completeExceptionally(exceptionFactory.apply(ex.getMessage(), null));
         }
     }
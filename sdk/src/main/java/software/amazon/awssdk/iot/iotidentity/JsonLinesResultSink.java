@@ -0,0 +1,62 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotidentity;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes provisioning results as JSON lines, streaming each one straight to the writer
+ */
+final class JsonLinesResultSink implements ProvisioningResultSink {
+    private final Writer writer;
+
+    JsonLinesResultSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void accept(ProvisioningResult result) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setHtmlSafe(false);
+        json.beginObject();
+        json.name("successful").value(result.isSuccessful());
+        writeMap(json, "parameters", result.getParameters());
+        writeString(json, "thingName", result.getThingName());
+        writeString(json, "certificateId", result.getCertificateId());
+        writeString(json, "certificatePem", result.getCertificatePem());
+        writeString(json, "privateKey", result.getPrivateKey());
+        writeMap(json, "deviceConfiguration", result.getDeviceConfiguration());
+        Throwable error = result.getError();
+        if (error != null) {
+            writeString(json, "error", error.getMessage() != null ? error.getMessage() : error.getClass().getName());
+        }
+        json.name("attempts").value(result.getAttempts());
+        json.endObject();
+        writer.write('\n');
+        writer.flush();
+    }
+
+    private static void writeString(JsonWriter json, String name, String value) throws IOException {
+        if (value != null) {
+            json.name(name).value(value);
+        }
+    }
+
+    private static void writeMap(JsonWriter json, String name, Map<String, String> map) throws IOException {
+        if (map == null) {
+            return;
+        }
+        json.name(name).beginObject();
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue());
+        }
+        json.endObject();
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotidentity;
+
+import java.util.Map;
+
+/**
+ * The outcome of provisioning one device with a {@link BulkProvisioner}
+ */
+public final class ProvisioningResult {
+    private final Map<String, String> parameters;
+    private final String thingName;
+    private final String certificateId;
+    private final String certificatePem;
+    private final String privateKey;
+    private final Map<String, String> deviceConfiguration;
+    private final Throwable error;
+    private final int attempts;
+
+    ProvisioningResult(Map<String, String> parameters, String thingName, String certificateId, String certificatePem,
+                       String privateKey, Map<String, String> deviceConfiguration, Throwable error, int attempts) {
+        this.parameters = parameters;
+        this.thingName = thingName;
+        this.certificateId = certificateId;
+        this.certificatePem = certificatePem;
+        this.privateKey = privateKey;
+        this.deviceConfiguration = deviceConfiguration;
+        this.error = error;
+        this.attempts = attempts;
+    }
+
+    /**
+     * @return true if the device's thing was registered
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    /**
+     * @return the template parameters the device was provisioned with
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the name of the registered thing, or null if provisioning failed
+     */
+    public String getThingName() {
+        return thingName;
+    }
+
+    /**
+     * @return the id of the device's certificate, or null if no certificate was created
+     */
+    public String getCertificateId() {
+        return certificateId;
+    }
+
+    /**
+     * @return the device's PEM encoded certificate, or null if no certificate was created
+     */
+    public String getCertificatePem() {
+        return certificatePem;
+    }
+
+    /**
+     * @return the device's PEM encoded private key, or null if it was not generated by the service or a CSR generator
+     */
+    public String getPrivateKey() {
+        return privateKey;
+    }
+
+    /**
+     * @return the device configuration returned by RegisterThing, or null
+     */
+    public Map<String, String> getDeviceConfiguration() {
+        return deviceConfiguration;
+    }
+
+    /**
+     * @return why provisioning failed, or null if it succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return the number of service requests made for the device, including retries
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotidentity;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Receives the result of each device as soon as a {@link BulkProvisioner} finishes with it.  Calls are made one
+ * at a time, so implementations need not be thread-safe.
+ */
+@FunctionalInterface
+public interface ProvisioningResultSink {
+
+    /**
+     * Records the result of provisioning one device
+     *
+     * @param result the device's result
+     * @throws IOException if the result could not be recorded; provisioning stops
+     */
+    void accept(ProvisioningResult result) throws IOException;
+
+    /**
+     * Creates a sink that writes each result as one line of JSON and flushes it, so that the output is complete
+     * up to the last finished device even if the process stops.  The writer is not closed.
+     *
+     * @param writer the writer to write results to
+     * @return a new sink
+     */
+    static ProvisioningResultSink jsonLines(Writer writer) {
+        return new JsonLinesResultSink(writer);
+    }
+}
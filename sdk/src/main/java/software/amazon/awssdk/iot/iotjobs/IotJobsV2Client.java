@@ -10,7 +10,6 @@ package software.amazon.awssdk.iot.iotjobs;
 import java.lang.AutoCloseable;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
-import java.util.UUID;
 import java.util.function.BiFunction;
 
 import com.google.gson.Gson;
@@ -30,10 +29,29 @@ import software.amazon.awssdk.iot.iotjobs.model.*;
 */
 public class IotJobsV2Client implements AutoCloseable {
 
+    private static final TopicTemplate DESCRIBE_JOB_EXECUTION_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/jobs/{jobId}/get");
+    private static final TopicTemplate DESCRIBE_JOB_EXECUTION_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/jobs/{jobId}/get/+");
+    private static final TopicTemplate GET_PENDING_JOB_EXECUTIONS_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/jobs/get");
+    private static final TopicTemplate GET_PENDING_JOB_EXECUTIONS_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/jobs/get/+");
+    private static final TopicTemplate START_NEXT_PENDING_JOB_EXECUTION_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/jobs/start-next");
+    private static final TopicTemplate START_NEXT_PENDING_JOB_EXECUTION_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/jobs/start-next/+");
+    private static final TopicTemplate UPDATE_JOB_EXECUTION_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/jobs/{jobId}/update");
+    private static final TopicTemplate UPDATE_JOB_EXECUTION_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/jobs/{jobId}/update/+");
+    private static final TopicTemplate CREATE_JOB_EXECUTIONS_CHANGED_STREAM_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/jobs/notify");
+    private static final TopicTemplate CREATE_NEXT_JOB_EXECUTION_CHANGED_STREAM_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/jobs/notify-next");
+
     private MqttRequestResponseClient rrClient;
     private final Gson gson;
+    private final CorrelationTokenGenerator correlationTokenGenerator;
+    private final V2ClientMetricsListener metricsListener;
 
-    private Gson createGson() {
+    /**
+     * Creates a Gson configured the way the client configures its own, for decoding and encoding jobs payloads
+     * outside of a client
+     *
+     * @return a new Gson
+     */
+    public static Gson createGson() {
         GsonBuilder gson = new GsonBuilder();
         gson.disableHtmlEscaping();
         gson.registerTypeAdapter(Timestamp.class, new Timestamp.Serializer());
@@ -42,14 +60,17 @@ public class IotJobsV2Client implements AutoCloseable {
         return gson.create();
     }
 
-    private void addTypeAdapters(GsonBuilder gson) {
+    private static void addTypeAdapters(GsonBuilder gson) {
         gson.registerTypeAdapter(JobStatus.class, new EnumSerializer<JobStatus>());
         gson.registerTypeAdapter(RejectedErrorCode.class, new EnumSerializer<RejectedErrorCode>());
+        gson.registerTypeAdapterFactory(new LazyJobDocumentFactory());
     }
 
-    private IotJobsV2Client(MqttRequestResponseClient rrClient) {
+    private IotJobsV2Client(MqttRequestResponseClient rrClient, V2ClientOptions clientOptions) {
         this.rrClient = rrClient;
         this.gson = createGson();
+        this.correlationTokenGenerator = clientOptions.correlationTokenGenerator();
+        this.metricsListener = clientOptions.metricsListener();
     }
 
     /**
@@ -59,8 +80,19 @@ public class IotJobsV2Client implements AutoCloseable {
      * @param options configuration options to use
      */
     static public IotJobsV2Client newFromMqtt5(Mqtt5Client protocolClient, MqttRequestResponseClientOptions options) {
+        return newFromMqtt5(protocolClient, options, V2ClientOptions.builder().build());
+    }
+
+    /**
+     * Constructs a new IotJobsV2Client, using an MQTT5 client as transport
+     *
+     * @param protocolClient the MQTT5 client to use
+     * @param options configuration options to use
+     * @param clientOptions SDK-side configuration options to use
+     */
+    static public IotJobsV2Client newFromMqtt5(Mqtt5Client protocolClient, MqttRequestResponseClientOptions options, V2ClientOptions clientOptions) {
         MqttRequestResponseClient rrClient = new MqttRequestResponseClient(protocolClient, options);
-        return new IotJobsV2Client(rrClient);
+        return new IotJobsV2Client(rrClient, clientOptions);
     }
 
     /**
@@ -70,8 +102,19 @@ public class IotJobsV2Client implements AutoCloseable {
      * @param options configuration options to use
      */
     static public IotJobsV2Client newFromMqtt311(MqttClientConnection protocolClient, MqttRequestResponseClientOptions options) {
+        return newFromMqtt311(protocolClient, options, V2ClientOptions.builder().build());
+    }
+
+    /**
+     * Constructs a new IotJobsV2Client, using an MQTT311 client as transport
+     *
+     * @param protocolClient the MQTT311 client to use
+     * @param options configuration options to use
+     * @param clientOptions SDK-side configuration options to use
+     */
+    static public IotJobsV2Client newFromMqtt311(MqttClientConnection protocolClient, MqttRequestResponseClientOptions options, V2ClientOptions clientOptions) {
         MqttRequestResponseClient rrClient = new MqttRequestResponseClient(protocolClient, options);
-        return new IotJobsV2Client(rrClient);
+        return new IotJobsV2Client(rrClient, clientOptions);
     }
 
     /**
@@ -83,14 +126,36 @@ public class IotJobsV2Client implements AutoCloseable {
         this.rrClient = null;
     }
 
-    private NextJobExecutionChangedEvent createNextJobExecutionChangedEvent(IncomingPublishEvent publishEvent) {
-        String payload = new String(publishEvent.getPayload(), StandardCharsets.UTF_8);
-        return this.gson.fromJson(payload, NextJobExecutionChangedEvent.class);
+    /**
+     * Decodes a jobs payload the way the client decodes operation responses and stream events, reading any job
+     * documents in it lazily
+     *
+     * @param gson a Gson from {@link #createGson()}
+     * @param payload the UTF-8 encoded JSON payload
+     * @param type the class to deserialize into
+     * @param <T> the type to deserialize into
+     * @return the deserialized object, or null if the payload is empty
+     */
+    public static <T> T decodePayload(Gson gson, byte[] payload, Class<T> type) {
+        return LazyJobDocumentFactory.fromJson(gson, payload, type);
+    }
+
+    /**
+     * @param gson a Gson from {@link #createGson()}
+     * @param payload the publish payload
+     * @return the event the client's NextJobExecutionChanged streams deliver for the publish
+     */
+    public static NextJobExecutionChangedEvent createNextJobExecutionChangedEvent(Gson gson, byte[] payload) {
+        return LazyJobDocumentFactory.fromJson(gson, payload, NextJobExecutionChangedEvent.class);
     }
 
-    private JobExecutionsChangedEvent createJobExecutionsChangedEvent(IncomingPublishEvent publishEvent) {
-        String payload = new String(publishEvent.getPayload(), StandardCharsets.UTF_8);
-        return this.gson.fromJson(payload, JobExecutionsChangedEvent.class);
+    /**
+     * @param gson a Gson from {@link #createGson()}
+     * @param payload the publish payload
+     * @return the event the client's JobExecutionsChanged streams deliver for the publish
+     */
+    public static JobExecutionsChangedEvent createJobExecutionsChangedEvent(Gson gson, byte[] payload) {
+        return LazyJobDocumentFactory.fromJson(gson, payload, JobExecutionsChangedEvent.class);
     }
 
     /**
@@ -105,6 +170,7 @@ public class IotJobsV2Client implements AutoCloseable {
      */
     public CompletableFuture<DescribeJobExecutionResponse> describeJobExecution(DescribeJobExecutionRequest request) {
         V2ClientFuture<DescribeJobExecutionResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "DescribeJobExecution");
 
         try {
             if (request.thingName == null) {
@@ -118,14 +184,12 @@ public class IotJobsV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/jobs/{jobId}/get";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
-            publishTopic = publishTopic.replace("{jobId}", request.jobId);
+            String publishTopic = DESCRIBE_JOB_EXECUTION_PUBLISH_TOPIC.render(request.thingName, request.jobId);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -133,27 +197,26 @@ public class IotJobsV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/jobs/{jobId}/get/+";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
-            subscription0 = subscription0.replace("{jobId}", request.jobId);
+            String subscription0 = DESCRIBE_JOB_EXECUTION_SUBSCRIPTION_TOPIC0.render(request.thingName, request.jobId);
             builder.withSubscription(subscription0);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
             String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
             String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, DescribeJobExecutionResponse.class, responseTopic2, V2ErrorResponse.class, IotJobsV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, DescribeJobExecutionResponse.class, responseTopic2, V2ErrorResponse.class, IotJobsV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -172,6 +235,7 @@ public class IotJobsV2Client implements AutoCloseable {
      */
     public CompletableFuture<GetPendingJobExecutionsResponse> getPendingJobExecutions(GetPendingJobExecutionsRequest request) {
         V2ClientFuture<GetPendingJobExecutionsResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "GetPendingJobExecutions");
 
         try {
             if (request.thingName == null) {
@@ -181,13 +245,12 @@ public class IotJobsV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/jobs/get";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
+            String publishTopic = GET_PENDING_JOB_EXECUTIONS_PUBLISH_TOPIC.render(request.thingName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -195,26 +258,26 @@ public class IotJobsV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/jobs/get/+";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
+            String subscription0 = GET_PENDING_JOB_EXECUTIONS_SUBSCRIPTION_TOPIC0.render(request.thingName);
             builder.withSubscription(subscription0);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
             String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
             String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, GetPendingJobExecutionsResponse.class, responseTopic2, V2ErrorResponse.class, IotJobsV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, GetPendingJobExecutionsResponse.class, responseTopic2, V2ErrorResponse.class, IotJobsV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -233,6 +296,7 @@ public class IotJobsV2Client implements AutoCloseable {
      */
     public CompletableFuture<StartNextJobExecutionResponse> startNextPendingJobExecution(StartNextPendingJobExecutionRequest request) {
         V2ClientFuture<StartNextJobExecutionResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "StartNextPendingJobExecution");
 
         try {
             if (request.thingName == null) {
@@ -242,13 +306,12 @@ public class IotJobsV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/jobs/start-next";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
+            String publishTopic = START_NEXT_PENDING_JOB_EXECUTION_PUBLISH_TOPIC.render(request.thingName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -256,26 +319,26 @@ public class IotJobsV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/jobs/start-next/+";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
+            String subscription0 = START_NEXT_PENDING_JOB_EXECUTION_SUBSCRIPTION_TOPIC0.render(request.thingName);
             builder.withSubscription(subscription0);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
             String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
             String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, StartNextJobExecutionResponse.class, responseTopic2, V2ErrorResponse.class, IotJobsV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, StartNextJobExecutionResponse.class, responseTopic2, V2ErrorResponse.class, IotJobsV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -294,6 +357,7 @@ public class IotJobsV2Client implements AutoCloseable {
      */
     public CompletableFuture<UpdateJobExecutionResponse> updateJobExecution(UpdateJobExecutionRequest request) {
         V2ClientFuture<UpdateJobExecutionResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "UpdateJobExecution");
 
         try {
             if (request.thingName == null) {
@@ -307,14 +371,12 @@ public class IotJobsV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/jobs/{jobId}/update";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
-            publishTopic = publishTopic.replace("{jobId}", request.jobId);
+            String publishTopic = UPDATE_JOB_EXECUTION_PUBLISH_TOPIC.render(request.thingName, request.jobId);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -322,27 +384,26 @@ public class IotJobsV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/jobs/{jobId}/update/+";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
-            subscription0 = subscription0.replace("{jobId}", request.jobId);
+            String subscription0 = UPDATE_JOB_EXECUTION_SUBSCRIPTION_TOPIC0.render(request.thingName, request.jobId);
             builder.withSubscription(subscription0);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
             String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
             String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, UpdateJobExecutionResponse.class, responseTopic2, V2ErrorResponse.class, IotJobsV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, UpdateJobExecutionResponse.class, responseTopic2, V2ErrorResponse.class, IotJobsV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -362,19 +423,18 @@ public class IotJobsV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createJobExecutionsChangedStream(JobExecutionsChangedSubscriptionRequest request, V2ClientStreamOptions<JobExecutionsChangedEvent> options) {
-        String topic = "$aws/things/{thingName}/jobs/notify";
-
         if (request.thingName == null) {
             throw new CrtRuntimeException("JobExecutionsChangedSubscriptionRequest.thingName cannot be null");
         }
-        topic = topic.replace("{thingName}", request.thingName);
+
+        String topic = CREATE_JOB_EXECUTIONS_CHANGED_STREAM_TOPIC.render(request.thingName);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
             .withIncomingPublishEventCallback((event) -> {
                 try {
-                    JobExecutionsChangedEvent response = createJobExecutionsChangedEvent(event);
+                    JobExecutionsChangedEvent response = createJobExecutionsChangedEvent(this.gson, event.getPayload());
                     options.streamEventHandler().accept(response);
                 } catch (Exception e) {
                     V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
@@ -403,19 +463,18 @@ public class IotJobsV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createNextJobExecutionChangedStream(NextJobExecutionChangedSubscriptionRequest request, V2ClientStreamOptions<NextJobExecutionChangedEvent> options) {
-        String topic = "$aws/things/{thingName}/jobs/notify-next";
-
         if (request.thingName == null) {
             throw new CrtRuntimeException("NextJobExecutionChangedSubscriptionRequest.thingName cannot be null");
         }
-        topic = topic.replace("{thingName}", request.thingName);
+
+        String topic = CREATE_NEXT_JOB_EXECUTION_CHANGED_STREAM_TOPIC.render(request.thingName);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
             .withIncomingPublishEventCallback((event) -> {
                 try {
-                    NextJobExecutionChangedEvent response = createNextJobExecutionChangedEvent(event);
+                    NextJobExecutionChangedEvent response = createNextJobExecutionChangedEvent(this.gson, event.getPayload());
                     options.streamEventHandler().accept(response);
                 } catch (Exception e) {
                     V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
@@ -435,34 +494,41 @@ public class IotJobsV2Client implements AutoCloseable {
         return new V2ErrorResponseException(message, errorResponse);
     }
 
-    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, RequestResponseOperation operation, String responseTopic, Class<T> responseClass, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
+    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, V2OperationTimer timer, RequestResponseOperation operation, String responseTopic, Class<T> responseClass, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
         try {
+            timer.submitted();
             CompletableFuture<MqttRequestResponse> responseFuture = this.rrClient.submitRequest(operation);
             CompletableFuture<MqttRequestResponse> compositeFuture = responseFuture.whenComplete((res, ex) -> {
+                timer.received();
                 if (ex != null) {
+                    timer.fail(ex);
                     finalFuture.completeExceptionally(exceptionFactory.apply(ex.getMessage(), null));
                 } else if (res.getTopic().equals(responseTopic)) {
                     try {
-                        String payload = new String(res.getPayload(), StandardCharsets.UTF_8);
-                        T response = this.gson.fromJson(payload, responseClass);
+                        T response = LazyJobDocumentFactory.fromJson(this.gson, res.getPayload(), responseClass);
+                        timer.complete(V2OperationOutcome.SUCCEEDED);
                         finalFuture.complete(response);
                     } catch (Exception e) {
+                        timer.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
                         finalFuture.completeExceptionally(exceptionFactory.apply(e.getMessage(), null));
                     }
                 } else if (res.getTopic().equals(errorTopic)) {
                     try {
-                        String payload = new String(res.getPayload(), StandardCharsets.UTF_8);
-                        E error = this.gson.fromJson(payload, errorClass);
+                        E error = LazyJobDocumentFactory.fromJson(this.gson, res.getPayload(), errorClass);
+                        timer.complete(V2OperationOutcome.REJECTED);
                         finalFuture.completeExceptionally(exceptionFactory.apply("Request-response operation failure", error));
                     } catch (Exception e) {
+                        timer.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
                         finalFuture.completeExceptionally(exceptionFactory.apply(e.getMessage(), null));
                     }
                 } else {
+                    timer.complete(V2OperationOutcome.FAILED);
                     finalFuture.completeExceptionally(exceptionFactory.apply("Request-response operation completed on unknown topic: " + res.getTopic(), null));
                 }
             });
             finalFuture.setTriggeringFuture(compositeFuture);
         } catch (Exception ex) {
+            timer.fail(ex);
             finalFuture.completeExceptionally(exceptionFactory.apply(ex.getMessage(), null));
         }
     }
@@ -0,0 +1,713 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotjobs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import software.amazon.awssdk.crt.http.HttpClientConnection;
+import software.amazon.awssdk.crt.http.HttpClientConnectionManager;
+import software.amazon.awssdk.crt.http.HttpClientConnectionManagerOptions;
+import software.amazon.awssdk.crt.http.HttpHeader;
+import software.amazon.awssdk.crt.http.HttpHeaderBlock;
+import software.amazon.awssdk.crt.http.HttpRequest;
+import software.amazon.awssdk.crt.http.HttpStream;
+import software.amazon.awssdk.crt.http.HttpStreamResponseHandler;
+import software.amazon.awssdk.crt.io.ClientBootstrap;
+import software.amazon.awssdk.crt.io.SocketOptions;
+import software.amazon.awssdk.crt.io.TlsContext;
+
+/**
+ * Downloads artifacts referenced by job documents straight to disk.
+ *
+ * Response bodies are copied through one fixed-size direct buffer per download into a FileChannel, and the
+ * SHA-256 of the artifact is computed as the buffer is flushed, so memory use does not grow with the artifact.
+ * The CRT event loop only queues what arrives; the writing and hashing happen on the thread running the download,
+ * and the HTTP read window is reopened as it catches up, so at most one buffer's worth of body is queued.
+ *
+ * If the connection drops, the download resumes with a Range request from the last byte written.  The request
+ * carries the ETag (or, failing that, the Last-Modified date) of the first response as If-Range, so an artifact
+ * that changed in the meantime is sent whole and downloaded again from the start.  A partial file left at the
+ * destination by an earlier attempt is resumed the same way, after its existing content has been hashed, but
+ * with no validator to send until the first response; pass the expected SHA-256 to catch a changed artifact
+ * there.  Servers that ignore the Range header are handled by restarting the download.
+ *
+ * If a job heartbeat is supplied, the download's progress is reported through the execution's statusDetails
+ * under {@value #DOWNLOADED_BYTES_DETAIL} and, once known, {@value #TOTAL_BYTES_DETAIL}.
+ *
+ * Requests are made with the CRT HTTP client; one connection manager is kept per scheme, host and port.
+ */
+public class JobArtifactFetcher implements AutoCloseable {
+
+    /**
+     * Status detail holding the number of artifact bytes on disk
+     */
+    public static final String DOWNLOADED_BYTES_DETAIL = "artifactDownloadedBytes";
+
+    /**
+     * Status detail holding the artifact size
+     */
+    public static final String TOTAL_BYTES_DETAIL = "artifactTotalBytes";
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+
+    private final ClientBootstrap bootstrap;
+    private final SocketOptions socketOptions;
+    private final int bufferSize;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private final Object lock = new Object();
+    private final Map<String, HttpClientConnectionManager> connectionManagers = new HashMap<>();
+    private TlsContext tlsContext;
+    private boolean ownsTlsContext;
+    private boolean closed;
+
+    /**
+     * A completed download
+     */
+    public static class Result {
+        private final Path path;
+        private final long size;
+        private final String sha256;
+
+        private Result(Path path, long size, String sha256) {
+            this.path = path;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * @return the file the artifact was written to
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return the artifact size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the lower-case hex SHA-256 of the artifact
+         */
+        public String getSha256() {
+            return sha256;
+        }
+    }
+
+    /**
+     * Builder type for JobArtifactFetcher instances
+     */
+    public static class JobArtifactFetcherBuilder {
+        private ClientBootstrap bootstrap;
+        private SocketOptions socketOptions;
+        private TlsContext tlsContext;
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+        private ExecutorService executor;
+
+        private JobArtifactFetcherBuilder() {}
+
+        /**
+         * Sets the client bootstrap connections are made with.  Defaults to the CRT's static default bootstrap.
+         *
+         * @param bootstrap the client bootstrap to use
+         * @return this builder object
+         */
+        public JobArtifactFetcherBuilder withClientBootstrap(ClientBootstrap bootstrap) {
+            this.bootstrap = bootstrap;
+
+            return this;
+        }
+
+        /**
+         * Sets the socket options connections are made with.  Defaults to the CRT's default socket options.
+         *
+         * @param socketOptions the socket options to use
+         * @return this builder object
+         */
+        public JobArtifactFetcherBuilder withSocketOptions(SocketOptions socketOptions) {
+            this.socketOptions = socketOptions;
+
+            return this;
+        }
+
+        /**
+         * Sets the TLS context for https sources.  If not set, a default TLS context is created when the first
+         * https artifact is fetched, and closed with the fetcher.
+         *
+         * @param tlsContext the TLS context to use
+         * @return this builder object
+         */
+        public JobArtifactFetcherBuilder withTlsContext(TlsContext tlsContext) {
+            this.tlsContext = tlsContext;
+
+            return this;
+        }
+
+        /**
+         * Sets the size of the direct buffer each download copies its body through, which is also the HTTP read
+         * window.  Defaults to 64 KiB.
+         *
+         * @param bufferSize the buffer size in bytes
+         * @return this builder object
+         */
+        public JobArtifactFetcherBuilder withBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+
+            return this;
+        }
+
+        /**
+         * Sets how many requests a download may make before it fails.  Defaults to 5.
+         *
+         * @param maxAttempts the maximum number of requests per download
+         * @return this builder object
+         */
+        public JobArtifactFetcherBuilder withMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+
+            return this;
+        }
+
+        /**
+         * Sets the delay before the first retry.  The delay doubles with each further retry, up to 30 seconds.
+         * Defaults to one second.
+         *
+         * @param retryDelayMillis the initial retry delay in milliseconds
+         * @return this builder object
+         */
+        public JobArtifactFetcherBuilder withRetryDelayMillis(long retryDelayMillis) {
+            this.retryDelayMillis = retryDelayMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets the executor downloads run on.  Each download occupies one thread while it runs.  If not set,
+         * the fetcher creates a single daemon thread, so downloads run one at a time, and shuts it down when
+         * the fetcher is closed.  A supplied executor is not shut down by the fetcher.
+         *
+         * @param executor the executor to run downloads on
+         * @return this builder object
+         */
+        public JobArtifactFetcherBuilder withExecutor(ExecutorService executor) {
+            this.executor = executor;
+
+            return this;
+        }
+
+        /**
+         * Creates a new JobArtifactFetcher from the existing configuration.
+         *
+         * @return a new JobArtifactFetcher
+         */
+        public JobArtifactFetcher build() {
+            if (bufferSize < 1) {
+                throw new IllegalArgumentException("JobArtifactFetcher buffer size must be positive");
+            }
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("JobArtifactFetcher must allow at least one attempt");
+            }
+            if (retryDelayMillis < 0) {
+                throw new IllegalArgumentException("JobArtifactFetcher retry delay cannot be negative");
+            }
+
+            return new JobArtifactFetcher(this);
+        }
+    }
+
+    private JobArtifactFetcher(JobArtifactFetcherBuilder builder) {
+        this.bootstrap = builder.bootstrap != null ? builder.bootstrap : ClientBootstrap.getOrCreateStaticDefault();
+        this.socketOptions = builder.socketOptions != null ? builder.socketOptions : new SocketOptions();
+        this.tlsContext = builder.tlsContext;
+        this.bufferSize = builder.bufferSize;
+        this.maxAttempts = builder.maxAttempts;
+        this.retryDelayMillis = builder.retryDelayMillis;
+        if (builder.executor != null) {
+            this.executor = builder.executor;
+            this.ownsExecutor = false;
+        } else {
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "JobArtifactFetcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.ownsExecutor = true;
+        }
+    }
+
+    /**
+     * Creates a new builder for JobArtifactFetcher instances
+     *
+     * @return a new builder object for JobArtifactFetcher instances
+     */
+    public static JobArtifactFetcherBuilder builder() {
+        return new JobArtifactFetcherBuilder();
+    }
+
+    /**
+     * Downloads an artifact without verifying it or reporting progress
+     *
+     * @param source the http or https URL of the artifact
+     * @param destination the file to write the artifact to
+     * @return a future that completes when the artifact is on disk
+     */
+    public CompletableFuture<Result> fetch(URI source, Path destination) {
+        return fetch(source, destination, null, null);
+    }
+
+    /**
+     * Downloads an artifact.  If the destination already holds part of the artifact, the download continues from
+     * its end.  If the artifact's SHA-256 does not match the expected one, the destination is deleted and the
+     * future fails.
+     *
+     * @param source the http or https URL of the artifact
+     * @param destination the file to write the artifact to
+     * @param expectedSha256 the expected hex SHA-256 of the artifact, or null to skip verification
+     * @param heartbeat the heartbeat of the job execution to report progress through, or null
+     * @return a future that completes when the artifact is on disk
+     */
+    public CompletableFuture<Result> fetch(URI source, Path destination, String expectedSha256, JobHeartbeatScheduler.Heartbeat heartbeat) {
+        if (source == null || destination == null) {
+            throw new IllegalArgumentException("JobArtifactFetcher source and destination cannot be null");
+        }
+        String scheme = source.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+            throw new IllegalArgumentException("JobArtifactFetcher only supports http and https sources");
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return download(source, destination, expectedSha256, heartbeat);
+            } catch (IOException | InterruptedException e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new RuntimeException("Failed to fetch artifact " + source.getHost() + source.getRawPath() + ": " + e.getMessage(), e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Closes the fetcher's connection managers.  Downloads still running fail.
+     */
+    @Override
+    public void close() {
+        List<HttpClientConnectionManager> managers;
+        TlsContext ownedTls = null;
+        synchronized (lock) {
+            closed = true;
+            managers = new ArrayList<>(connectionManagers.values());
+            connectionManagers.clear();
+            if (ownsTlsContext) {
+                ownedTls = tlsContext;
+                tlsContext = null;
+            }
+        }
+
+        for (HttpClientConnectionManager manager : managers) {
+            manager.close();
+        }
+        if (ownedTls != null) {
+            ownedTls.close();
+        }
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result download(URI source, Path destination, String expectedSha256, JobHeartbeatScheduler.Heartbeat heartbeat) throws IOException, InterruptedException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        long size;
+
+        try (FileChannel channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Transfer transfer = new Transfer(channel, digest, buffer, heartbeat);
+            transfer.hashExisting();
+
+            int attempt = 0;
+            while (true) {
+                attempt++;
+                String failure = request(source, transfer);
+                if (failure == null) {
+                    break;
+                }
+                if (attempt >= maxAttempts || transfer.fatal) {
+                    throw new IOException(failure);
+                }
+                Thread.sleep(Math.min(MAX_RETRY_DELAY_MILLIS, retryDelayMillis << Math.min(attempt - 1, 16)));
+            }
+
+            channel.force(false);
+            size = transfer.written;
+        }
+
+        String sha256 = toHex(digest.digest());
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+            Files.deleteIfExists(destination);
+            throw new IOException("checksum mismatch, expected SHA-256 " + expectedSha256 + " but was " + sha256);
+        }
+
+        return new Result(destination, size, sha256);
+    }
+
+    /**
+     * Makes one request for the rest of the artifact
+     *
+     * @return null if the artifact is complete, otherwise why it is not
+     */
+    private String request(URI source, Transfer transfer) throws IOException, InterruptedException {
+        HttpClientConnectionManager manager = connectionManager(source);
+        String path = source.getRawPath() == null || source.getRawPath().isEmpty() ? "/" : source.getRawPath();
+        if (source.getRawQuery() != null) {
+            path += "?" + source.getRawQuery();
+        }
+
+        List<HttpHeader> headers = new ArrayList<>();
+        headers.add(new HttpHeader("host", source.getPort() == -1 ? source.getHost() : source.getHost() + ":" + source.getPort()));
+        if (transfer.written > 0) {
+            headers.add(new HttpHeader("range", "bytes=" + transfer.written + "-"));
+            if (transfer.validator != null) {
+                headers.add(new HttpHeader("if-range", transfer.validator));
+            }
+        }
+        transfer.begin();
+
+        int errorCode;
+        try (HttpClientConnection connection = manager.acquireConnection().get()) {
+            HttpRequest request = new HttpRequest("GET", path, headers.toArray(new HttpHeader[0]), null);
+            // Callbacks run on a CRT event loop shared with other connections, so they only queue the response
+            BlockingQueue<Runnable> events = new LinkedBlockingQueue<>();
+            CompletableFuture<Integer> complete = new CompletableFuture<>();
+            try (HttpStream stream = connection.makeRequest(request, new HttpStreamResponseHandler() {
+                    @Override
+                    public void onResponseHeaders(HttpStream stream, int responseStatusCode, int blockType, HttpHeader[] httpHeaders) {
+                        if (blockType == HttpHeaderBlock.MAIN.getValue()) {
+                            events.add(() -> transfer.onHeaders(responseStatusCode, httpHeaders));
+                        }
+                    }
+
+                    @Override
+                    public void onResponseHeadersDone(HttpStream stream, int blockType) {
+                        if (blockType == HttpHeaderBlock.MAIN.getValue()) {
+                            events.add(transfer::onHeadersDone);
+                        }
+                    }
+
+                    @Override
+                    public int onResponseBody(HttpStream stream, byte[] bodyBytes) {
+                        events.add(() -> {
+                            transfer.onBody(bodyBytes);
+                            stream.incrementWindow(bodyBytes.length);
+                        });
+                        // The window is reopened once the bytes are on disk
+                        return 0;
+                    }
+
+                    @Override
+                    public void onResponseComplete(HttpStream stream, int errorCode) {
+                        events.add(() -> complete.complete(errorCode));
+                    }
+                })) {
+                stream.activate();
+                while (!complete.isDone()) {
+                    events.take().run();
+                }
+                errorCode = complete.join();
+            }
+        } catch (ExecutionException e) {
+            return "connection failed: " + e.getCause().getMessage();
+        } catch (RuntimeException e) {
+            // The CRT reports connection and stream setup failures as runtime exceptions
+            return "request failed: " + e.getMessage();
+        }
+
+        transfer.flush();
+        return transfer.end(errorCode);
+    }
+
+    private HttpClientConnectionManager connectionManager(URI source) throws IOException {
+        boolean secure = "https".equalsIgnoreCase(source.getScheme());
+        int port = source.getPort() != -1 ? source.getPort() : (secure ? 443 : 80);
+        String key = source.getScheme().toLowerCase() + "://" + source.getHost() + ":" + port;
+
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("fetcher is closed");
+            }
+
+            HttpClientConnectionManager manager = connectionManagers.get(key);
+            if (manager == null) {
+                HttpClientConnectionManagerOptions options = new HttpClientConnectionManagerOptions()
+                    .withClientBootstrap(bootstrap)
+                    .withSocketOptions(socketOptions)
+                    .withManualWindowManagement(true)
+                    .withWindowSize(bufferSize)
+                    .withUri(URI.create(source.getScheme().toLowerCase() + "://" + source.getHost()))
+                    .withPort(port);
+                if (secure) {
+                    if (tlsContext == null) {
+                        tlsContext = new TlsContext();
+                        ownsTlsContext = true;
+                    }
+                    options.withTlsContext(tlsContext);
+                }
+                manager = HttpClientConnectionManager.create(options);
+                connectionManagers.put(key, manager);
+            }
+            return manager;
+        }
+    }
+
+    /**
+     * The state of one download across its requests.  Only the downloading thread uses it.
+     */
+    private static class Transfer {
+        private final FileChannel channel;
+        private final MessageDigest digest;
+        private final ByteBuffer buffer;
+        private final JobHeartbeatScheduler.Heartbeat heartbeat;
+
+        private long written;
+        private long total = -1;
+        private String validator;
+        private boolean fatal;
+
+        private int status;
+        private long responseStart;
+        private long responseLength;
+        private String responseETag;
+        private String responseLastModified;
+        private boolean accepting;
+        private String failure;
+
+        private Transfer(FileChannel channel, MessageDigest digest, ByteBuffer buffer, JobHeartbeatScheduler.Heartbeat heartbeat) {
+            this.channel = channel;
+            this.digest = digest;
+            this.buffer = buffer;
+            this.heartbeat = heartbeat;
+        }
+
+        private void hashExisting() throws IOException {
+            long existing = channel.size();
+            long position = 0;
+            while (position < existing) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+            }
+            buffer.clear();
+            written = position;
+        }
+
+        private void begin() {
+            status = 0;
+            responseStart = -1;
+            responseLength = -1;
+            responseETag = null;
+            responseLastModified = null;
+            accepting = false;
+            failure = null;
+            buffer.clear();
+        }
+
+        private void onHeaders(int responseStatusCode, HttpHeader[] headers) {
+            status = responseStatusCode;
+            for (HttpHeader header : headers) {
+                String name = header.getName();
+                if ("content-length".equalsIgnoreCase(name)) {
+                    responseLength = parseLong(header.getValue().trim());
+                } else if ("etag".equalsIgnoreCase(name)) {
+                    responseETag = header.getValue().trim();
+                } else if ("last-modified".equalsIgnoreCase(name)) {
+                    responseLastModified = header.getValue().trim();
+                } else if ("content-range".equalsIgnoreCase(name)) {
+                    // bytes <first>-<last>/<total>
+                    String value = header.getValue().trim();
+                    int space = value.indexOf(' ');
+                    int dash = value.indexOf('-', space + 1);
+                    int slash = value.indexOf('/', dash + 1);
+                    if (space > 0 && dash > 0) {
+                        responseStart = parseLong(value.substring(space + 1, dash));
+                    }
+                    if (slash > 0) {
+                        total = parseLong(value.substring(slash + 1));
+                    }
+                }
+            }
+        }
+
+        private void onHeadersDone() {
+            try {
+                if (status == 200) {
+                    if (written > 0) {
+                        // The server ignored the range, or the artifact changed since the first response; start over
+                        restart();
+                    }
+                    total = responseLength;
+                    validator = responseValidator();
+                    accepting = true;
+                } else if (status == 206) {
+                    String current = responseValidator();
+                    if (validator != null && current != null && !validator.equals(current)) {
+                        // The server ignored If-Range; the bytes on disk belong to another version of the artifact
+                        restart();
+                        failure = "artifact changed during download";
+                        return;
+                    }
+                    if (validator == null) {
+                        validator = current;
+                    }
+                    if (responseStart != written) {
+                        failure = "server returned range starting at " + responseStart + " instead of " + written;
+                        return;
+                    }
+                    accepting = true;
+                } else if (status == 416) {
+                    // The partial file does not fit the artifact; start over on the next attempt
+                    restart();
+                    failure = "requested range not satisfiable";
+                } else {
+                    failure = "HTTP status " + status;
+                    fatal = status >= 400 && status < 500 && status != 408 && status != 429;
+                }
+
+                if (accepting && heartbeat != null && total >= 0) {
+                    heartbeat.putStatusDetail(TOTAL_BYTES_DETAIL, Long.toString(total));
+                }
+            } catch (IOException e) {
+                failure = e.getMessage();
+                fatal = true;
+            }
+        }
+
+        private void onBody(byte[] bytes) {
+            if (!accepting) {
+                return;
+            }
+
+            try {
+                int offset = 0;
+                while (offset < bytes.length) {
+                    int count = Math.min(buffer.remaining(), bytes.length - offset);
+                    buffer.put(bytes, offset, count);
+                    offset += count;
+                    if (!buffer.hasRemaining()) {
+                        flush();
+                    }
+                }
+            } catch (IOException e) {
+                accepting = false;
+                failure = e.getMessage();
+                fatal = true;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, written);
+                }
+                if (heartbeat != null) {
+                    heartbeat.putStatusDetail(DOWNLOADED_BYTES_DETAIL, Long.toString(written));
+                }
+            }
+            buffer.clear();
+        }
+
+        private String end(int errorCode) {
+            accepting = false;
+            if (failure != null) {
+                return failure;
+            }
+            if (errorCode != 0) {
+                return "connection interrupted with " + written + " bytes written (CRT error " + errorCode + ")";
+            }
+            if (total >= 0 && written < total) {
+                return "response ended with " + written + " of " + total + " bytes written";
+            }
+            return null;
+        }
+
+        private void restart() throws IOException {
+            channel.truncate(0);
+            digest.reset();
+            written = 0;
+            total = -1;
+            validator = null;
+        }
+
+        /**
+         * If-Range only accepts a strong ETag, so a weak one falls back to the Last-Modified date
+         */
+        private String responseValidator() {
+            if (responseETag != null && !responseETag.startsWith("W/")) {
+                return responseETag;
+            }
+            return responseLastModified;
+        }
+
+        private static long parseLong(String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotjobs;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionData;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.RejectedErrorCode;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponse;
+import software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponseException;
+
+/**
+ * A job execution claimed by a {@link JobExecutionRunner}, as seen by the handler processing it.
+ *
+ * The context tracks the execution's version locally.  Updates sent through it carry that version as their
+ * expected version and are sent one at a time, in the order they were requested.  If the service rejects an
+ * update with VersionMismatch, the context takes the execution's current version from the rejection (or, if the
+ * rejection does not carry it, from DescribeJobExecution) and sends the update once more.  The runner's claim
+ * is the exception: a claim rejected with VersionMismatch fails, since the execution changed after it was fetched.
+ */
+public class JobExecutionContext {
+
+    /**
+     * The jobs service operation contexts send their updates with.  Normally an IotJobsV2Client.
+     */
+    interface UpdateTransport {
+        CompletableFuture<UpdateJobExecutionResponse> updateJobExecution(UpdateJobExecutionRequest request);
+
+        /**
+         * Used to resync the execution's version after a VersionMismatch rejection that does not carry the
+         * execution's state.  Transports that cannot describe executions fail, and so does the update.
+         */
+        default CompletableFuture<DescribeJobExecutionResponse> describeJobExecution(DescribeJobExecutionRequest request) {
+            CompletableFuture<DescribeJobExecutionResponse> result = new CompletableFuture<>();
+            result.completeExceptionally(new UnsupportedOperationException("DescribeJobExecution is not supported by this transport"));
+            return result;
+        }
+    }
+
+    private final UpdateTransport transport;
+    private final String thingName;
+    private final JobExecutionData execution;
+
+    private final Object lock = new Object();
+    private Integer expectedVersion;
+    private CompletableFuture<?> lastUpdate = CompletableFuture.completedFuture(null);
+    private volatile JobHeartbeatScheduler.Heartbeat heartbeat;
+
+    JobExecutionContext(UpdateTransport transport, String thingName, JobExecutionData execution) {
+        this.transport = transport;
+        this.thingName = thingName;
+        this.execution = execution;
+        this.expectedVersion = execution.versionNumber;
+    }
+
+    /**
+     * @return the job execution, including its job document, as it was when the runner claimed it
+     */
+    public JobExecutionData getExecution() {
+        return execution;
+    }
+
+    /**
+     * @return the job id of the execution
+     */
+    public String getJobId() {
+        return execution.jobId;
+    }
+
+    /**
+     * @return the version the next update will expect the execution to be at
+     */
+    public Integer getExpectedVersion() {
+        synchronized (lock) {
+            return expectedVersion;
+        }
+    }
+
+    /**
+     * @return the heartbeat registered for the execution if the runner was configured with a
+     * {@link JobHeartbeatScheduler}, otherwise null.  Status details put on the heartbeat are sent with the next
+     * heartbeat rather than immediately.
+     */
+    public JobHeartbeatScheduler.Heartbeat getHeartbeat() {
+        return heartbeat;
+    }
+
+    void setHeartbeat(JobHeartbeatScheduler.Heartbeat heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Reports progress, leaving the execution IN_PROGRESS
+     *
+     * @param statusDetails details to report
+     * @return a future that completes when the service accepts the update
+     */
+    public CompletableFuture<UpdateJobExecutionResponse> reportProgress(Map<String, String> statusDetails) {
+        return update(JobStatus.IN_PROGRESS, statusDetails, null);
+    }
+
+    CompletableFuture<UpdateJobExecutionResponse> update(JobStatus status, Map<String, String> statusDetails, Long stepTimeoutInMinutes) {
+        return enqueue(status, statusDetails, stepTimeoutInMinutes, true);
+    }
+
+    /**
+     * Moves the execution to IN_PROGRESS, expecting the version it was fetched at.  A VersionMismatch is neither
+     * resynced nor retried: the execution changed after it was fetched and must not be started.
+     */
+    CompletableFuture<UpdateJobExecutionResponse> claim() {
+        return enqueue(JobStatus.IN_PROGRESS, null, null, false);
+    }
+
+    private CompletableFuture<UpdateJobExecutionResponse> enqueue(JobStatus status, Map<String, String> statusDetails,
+                                                                  Long stepTimeoutInMinutes, boolean resyncOnVersionMismatch) {
+        CompletableFuture<UpdateJobExecutionResponse> result = new CompletableFuture<>();
+
+        synchronized (lock) {
+            // Each update expects the version the previous one produced, so they are sent strictly in order
+            CompletableFuture<?> previous = lastUpdate;
+            lastUpdate = result;
+            previous.whenComplete((ignored, previousError) ->
+                send(status, statusDetails, stepTimeoutInMinutes, result, resyncOnVersionMismatch, resyncOnVersionMismatch));
+        }
+
+        return result;
+    }
+
+    private void send(JobStatus status, Map<String, String> statusDetails, Long stepTimeoutInMinutes,
+                      CompletableFuture<UpdateJobExecutionResponse> result, boolean resyncOnVersionMismatch,
+                      boolean retryOnVersionMismatch) {
+        UpdateJobExecutionRequest request = new UpdateJobExecutionRequest();
+        request.thingName = thingName;
+        request.jobId = execution.jobId;
+        request.executionNumber = execution.executionNumber;
+        request.status = status;
+        request.statusDetails = statusDetails != null ? new HashMap<>(statusDetails) : null;
+        request.stepTimeoutInMinutes = stepTimeoutInMinutes;
+        synchronized (lock) {
+            request.expectedVersion = expectedVersion;
+        }
+
+        CompletableFuture<UpdateJobExecutionResponse> response;
+        try {
+            response = transport.updateJobExecution(request);
+        } catch (Exception e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+
+        response.whenComplete((updated, error) -> {
+            if (error == null) {
+                synchronized (lock) {
+                    if (updated.executionState != null && updated.executionState.versionNumber != null) {
+                        expectedVersion = updated.executionState.versionNumber;
+                    } else if (expectedVersion != null) {
+                        expectedVersion = expectedVersion + 1;
+                    }
+                }
+                result.complete(updated);
+                return;
+            }
+
+            V2ErrorResponse rejection = resyncOnVersionMismatch ? versionMismatch(error) : null;
+            if (rejection == null) {
+                result.completeExceptionally(error);
+                return;
+            }
+
+            // Whether or not the update is retried, later updates must not keep expecting the stale version
+            resyncVersion(rejection).whenComplete((ignored, resyncError) -> {
+                if (resyncError == null && retryOnVersionMismatch) {
+                    send(status, statusDetails, stepTimeoutInMinutes, result, true, false);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        });
+    }
+
+    private CompletableFuture<Void> resyncVersion(V2ErrorResponse rejection) {
+        if (rejection.executionState != null && rejection.executionState.versionNumber != null) {
+            synchronized (lock) {
+                expectedVersion = rejection.executionState.versionNumber;
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        DescribeJobExecutionRequest request = new DescribeJobExecutionRequest();
+        request.thingName = thingName;
+        request.jobId = execution.jobId;
+        request.executionNumber = execution.executionNumber;
+        request.includeJobDocument = false;
+
+        CompletableFuture<DescribeJobExecutionResponse> described;
+        try {
+            described = transport.describeJobExecution(request);
+        } catch (Exception e) {
+            described = new CompletableFuture<>();
+            described.completeExceptionally(e);
+        }
+
+        return described.thenAccept(response -> {
+            if (response.execution == null || response.execution.versionNumber == null) {
+                throw new IllegalStateException("DescribeJobExecution did not return the execution's version");
+            }
+            synchronized (lock) {
+                expectedVersion = response.execution.versionNumber;
+            }
+        });
+    }
+
+    private static V2ErrorResponse versionMismatch(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (!(error instanceof V2ErrorResponseException)) {
+            return null;
+        }
+
+        V2ErrorResponse modeledError = ((V2ErrorResponseException) error).getModeledError();
+        if (modeledError == null || modeledError.code != RejectedErrorCode.VERSION_MISMATCH) {
+            return null;
+        }
+        return modeledError;
+    }
+}
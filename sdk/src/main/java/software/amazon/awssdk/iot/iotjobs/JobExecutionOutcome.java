@@ -0,0 +1,62 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotjobs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+
+/**
+ * The terminal status a {@link JobExecutionRunner} handler reports for a job execution
+ */
+public final class JobExecutionOutcome {
+    private final JobStatus status;
+    private final HashMap<String, String> statusDetails;
+
+    private JobExecutionOutcome(JobStatus status, Map<String, String> statusDetails) {
+        this.status = status;
+        this.statusDetails = statusDetails != null ? new HashMap<>(statusDetails) : null;
+    }
+
+    /**
+     * @param statusDetails optional details to report with the status
+     * @return an outcome that marks the execution SUCCEEDED
+     */
+    public static JobExecutionOutcome succeeded(Map<String, String> statusDetails) {
+        return new JobExecutionOutcome(JobStatus.SUCCEEDED, statusDetails);
+    }
+
+    /**
+     * @param statusDetails optional details to report with the status
+     * @return an outcome that marks the execution FAILED
+     */
+    public static JobExecutionOutcome failed(Map<String, String> statusDetails) {
+        return new JobExecutionOutcome(JobStatus.FAILED, statusDetails);
+    }
+
+    /**
+     * @param statusDetails optional details to report with the status
+     * @return an outcome that marks the execution REJECTED
+     */
+    public static JobExecutionOutcome rejected(Map<String, String> statusDetails) {
+        return new JobExecutionOutcome(JobStatus.REJECTED, statusDetails);
+    }
+
+    /**
+     * @return the terminal status to report
+     */
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the details to report with the status, or null
+     */
+    public HashMap<String, String> getStatusDetails() {
+        return statusDetails;
+    }
+}
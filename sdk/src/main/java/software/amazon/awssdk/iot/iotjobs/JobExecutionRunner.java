@@ -0,0 +1,563 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotjobs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import software.amazon.awssdk.crt.iot.StreamingOperation;
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.GetPendingJobExecutionsRequest;
+import software.amazon.awssdk.iot.iotjobs.model.GetPendingJobExecutionsResponse;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionData;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionSummary;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.NextJobExecutionChangedEvent;
+import software.amazon.awssdk.iot.iotjobs.model.NextJobExecutionChangedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.RejectedErrorCode;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponse;
+import software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponseException;
+
+/**
+ * Runs the pending job executions of a thing concurrently, on top of IotJobsV2Client.
+ *
+ * The runner lists the thing's pending executions with GetPendingJobExecutions and claims them, in-progress
+ * executions first and then queued executions in the order the service lists them, until the concurrency limit
+ * is reached.  Claiming an execution fetches it with its job document and moves it to IN_PROGRESS, expecting
+ * the version it was fetched at, so an execution that changed in the meantime is not started.  The handler
+ * then runs on the runner's executor, and its outcome is reported as the execution's terminal status.
+ *
+ * The runner does not poll.  It lists pending executions when started, whenever a handler finishes, and
+ * whenever the service publishes a NextJobExecutionChanged event for the thing.  If a listing or a claim fails
+ * for a reason that may be transient (a timeout, a lost connection, throttling or an internal service error),
+ * the runner lists again after a jittered exponential backoff.  An execution that was claimed but whose handler
+ * could not be run is reported as FAILED.
+ */
+public class JobExecutionRunner implements AutoCloseable {
+
+    /**
+     * Processes one job execution
+     */
+    @FunctionalInterface
+    public interface JobExecutionHandler {
+
+        /**
+         * Processes a job execution.  Progress can be reported through the context while the handler runs.
+         * If the handler throws, the execution is reported as FAILED.
+         *
+         * @param context the claimed execution
+         * @return the terminal status to report for the execution
+         * @throws Exception if processing failed
+         */
+        JobExecutionOutcome handle(JobExecutionContext context) throws Exception;
+    }
+
+    /**
+     * The jobs service operations the runner is built on.  Normally an IotJobsV2Client.
+     */
+    interface JobsTransport extends JobExecutionContext.UpdateTransport {
+        CompletableFuture<GetPendingJobExecutionsResponse> getPendingJobExecutions(GetPendingJobExecutionsRequest request);
+        CompletableFuture<DescribeJobExecutionResponse> describeJobExecution(DescribeJobExecutionRequest request);
+        AutoCloseable openNextJobExecutionChangedStream(NextJobExecutionChangedSubscriptionRequest request, V2ClientStreamOptions<NextJobExecutionChangedEvent> options);
+    }
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+    private static final String FAILURE_REASON_KEY = "reason";
+
+    private final JobsTransport transport;
+    private final String thingName;
+    private final JobExecutionHandler handler;
+    private final int maxConcurrency;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final JobHeartbeatScheduler heartbeatScheduler;
+    private final long retryDelayMillis;
+    private final ScheduledExecutorService retryScheduler;
+
+    private final Object lock = new Object();
+    private final Set<String> activeJobIds = new HashSet<>();
+    private boolean scanInProgress;
+    private boolean rescanRequested;
+    private boolean started;
+    private boolean closed;
+    private boolean retryScheduled;
+    private int consecutiveFailures;
+    private AutoCloseable wakeUpStream;
+
+    /**
+     * Builder type for JobExecutionRunner instances
+     */
+    public static class JobExecutionRunnerBuilder {
+        private final JobsTransport transport;
+        private final String thingName;
+        private final JobExecutionHandler handler;
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private Executor executor;
+        private JobHeartbeatScheduler heartbeatScheduler;
+        private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+
+        private JobExecutionRunnerBuilder(JobsTransport transport, String thingName, JobExecutionHandler handler) {
+            this.transport = transport;
+            this.thingName = thingName;
+            this.handler = handler;
+        }
+
+        /**
+         * Sets the maximum number of job executions processed at once.  Defaults to 4.
+         *
+         * @param maxConcurrency the maximum number of concurrently running handlers
+         * @return this builder object
+         */
+        public JobExecutionRunnerBuilder withMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+
+            return this;
+        }
+
+        /**
+         * Sets the executor handlers run on.  If not set, the runner creates a pool of daemon threads bounded by
+         * the concurrency limit and shuts it down when the runner is closed.  A supplied executor is not shut
+         * down by the runner.
+         *
+         * @param executor the executor to run handlers on
+         * @return this builder object
+         */
+        public JobExecutionRunnerBuilder withExecutor(Executor executor) {
+            this.executor = executor;
+
+            return this;
+        }
+
+        /**
+         * Sets a heartbeat scheduler to register executions with while their handlers run.  Handlers reach the
+         * heartbeat through {@link JobExecutionContext#getHeartbeat()}, and the terminal update carries the
+         * heartbeat's status details.  The scheduler is not closed by the runner.
+         *
+         * @param heartbeatScheduler the scheduler to send heartbeats with
+         * @return this builder object
+         */
+        public JobExecutionRunnerBuilder withHeartbeatScheduler(JobHeartbeatScheduler heartbeatScheduler) {
+            this.heartbeatScheduler = heartbeatScheduler;
+
+            return this;
+        }
+
+        /**
+         * Sets the delay before listing again after a listing or claim failed for a transient reason.  The delay
+         * doubles with each further consecutive failure, up to 30 seconds.  Defaults to one second.
+         *
+         * @param retryDelayMillis the initial retry delay in milliseconds
+         * @return this builder object
+         */
+        public JobExecutionRunnerBuilder withRetryDelayMillis(long retryDelayMillis) {
+            this.retryDelayMillis = retryDelayMillis;
+
+            return this;
+        }
+
+        /**
+         * Creates a new JobExecutionRunner from the existing configuration.  The runner does nothing until it is
+         * started.
+         *
+         * @return a new JobExecutionRunner
+         */
+        public JobExecutionRunner build() {
+            if (thingName == null) {
+                throw new IllegalArgumentException("JobExecutionRunner thingName cannot be null");
+            }
+            if (handler == null) {
+                throw new IllegalArgumentException("JobExecutionRunner handler cannot be null");
+            }
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("JobExecutionRunner must allow at least one concurrent execution");
+            }
+            if (retryDelayMillis < 0) {
+                throw new IllegalArgumentException("JobExecutionRunner retry delay cannot be negative");
+            }
+
+            return new JobExecutionRunner(this);
+        }
+    }
+
+    private JobExecutionRunner(JobExecutionRunnerBuilder builder) {
+        this.transport = builder.transport;
+        this.thingName = builder.thingName;
+        this.handler = builder.handler;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.heartbeatScheduler = builder.heartbeatScheduler;
+        this.retryDelayMillis = builder.retryDelayMillis;
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "JobExecutionRunner-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (builder.executor != null) {
+            this.executor = builder.executor;
+            this.ownedExecutor = null;
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.ownedExecutor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "JobExecutionRunner-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            this.executor = ownedExecutor;
+        }
+    }
+
+    /**
+     * Creates a new builder for a runner that processes a thing's job executions
+     *
+     * @param client the jobs client to perform operations with
+     * @param thingName the thing whose job executions to process
+     * @param handler the callback that processes each execution
+     * @return a new builder object for JobExecutionRunner instances
+     */
+    public static JobExecutionRunnerBuilder builder(IotJobsV2Client client, String thingName, JobExecutionHandler handler) {
+        return new JobExecutionRunnerBuilder(new JobsTransport() {
+            @Override
+            public CompletableFuture<GetPendingJobExecutionsResponse> getPendingJobExecutions(GetPendingJobExecutionsRequest request) {
+                return client.getPendingJobExecutions(request);
+            }
+
+            @Override
+            public CompletableFuture<DescribeJobExecutionResponse> describeJobExecution(DescribeJobExecutionRequest request) {
+                return client.describeJobExecution(request);
+            }
+
+            @Override
+            public CompletableFuture<UpdateJobExecutionResponse> updateJobExecution(UpdateJobExecutionRequest request) {
+                return client.updateJobExecution(request);
+            }
+
+            @Override
+            public AutoCloseable openNextJobExecutionChangedStream(NextJobExecutionChangedSubscriptionRequest request, V2ClientStreamOptions<NextJobExecutionChangedEvent> options) {
+                StreamingOperation stream = client.createNextJobExecutionChangedStream(request, options);
+                stream.open();
+                return stream;
+            }
+        }, thingName, handler);
+    }
+
+    static JobExecutionRunnerBuilder builder(JobsTransport transport, String thingName, JobExecutionHandler handler) {
+        return new JobExecutionRunnerBuilder(transport, thingName, handler);
+    }
+
+    /**
+     * Subscribes to NextJobExecutionChanged events and starts processing the thing's pending job executions
+     */
+    public void start() {
+        synchronized (lock) {
+            if (started || closed) {
+                return;
+            }
+            started = true;
+        }
+
+        NextJobExecutionChangedSubscriptionRequest request = new NextJobExecutionChangedSubscriptionRequest();
+        request.thingName = thingName;
+        V2ClientStreamOptions<NextJobExecutionChangedEvent> options = V2ClientStreamOptions.<NextJobExecutionChangedEvent>builder()
+            .withStreamEventHandler(event -> scan())
+            .build();
+        AutoCloseable stream = transport.openNextJobExecutionChangedStream(request, options);
+
+        boolean closeStream;
+        synchronized (lock) {
+            closeStream = closed;
+            if (!closed) {
+                wakeUpStream = stream;
+            }
+        }
+        if (closeStream) {
+            closeQuietly(stream);
+            return;
+        }
+
+        scan();
+    }
+
+    /**
+     * @return the number of job executions currently claimed or being processed
+     */
+    public int activeCount() {
+        synchronized (lock) {
+            return activeJobIds.size();
+        }
+    }
+
+    /**
+     * Stops claiming new executions and closes the wake-up subscription.  Handlers that are already running are
+     * allowed to finish and report their outcome.
+     */
+    @Override
+    public void close() {
+        AutoCloseable stream;
+        synchronized (lock) {
+            closed = true;
+            stream = wakeUpStream;
+            wakeUpStream = null;
+        }
+
+        if (stream != null) {
+            closeQuietly(stream);
+        }
+        retryScheduler.shutdownNow();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Lists pending executions and claims as many as the concurrency limit allows.  Requests arriving while a
+     * listing is in flight are folded into one follow-up listing.
+     */
+    void scan() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            if (scanInProgress) {
+                rescanRequested = true;
+                return;
+            }
+            if (activeJobIds.size() >= maxConcurrency) {
+                // A finishing handler triggers the next listing
+                return;
+            }
+            scanInProgress = true;
+            rescanRequested = false;
+        }
+
+        GetPendingJobExecutionsRequest request = new GetPendingJobExecutionsRequest();
+        request.thingName = thingName;
+        submit(() -> transport.getPendingJobExecutions(request)).whenComplete((pending, error) -> {
+            if (error == null) {
+                claimAvailable(pending);
+            } else if (isTransient(error)) {
+                scheduleRescan();
+            }
+
+            boolean again;
+            synchronized (lock) {
+                scanInProgress = false;
+                again = rescanRequested && !closed;
+            }
+            if (again) {
+                scan();
+            }
+        });
+    }
+
+    private void claimAvailable(GetPendingJobExecutionsResponse pending) {
+        List<JobExecutionSummary> candidates = new ArrayList<>();
+        if (pending.inProgressJobs != null) {
+            candidates.addAll(pending.inProgressJobs);
+        }
+        if (pending.queuedJobs != null) {
+            candidates.addAll(pending.queuedJobs);
+        }
+
+        List<JobExecutionSummary> claimed = new ArrayList<>();
+        synchronized (lock) {
+            if (candidates.isEmpty()) {
+                consecutiveFailures = 0;
+            }
+            for (JobExecutionSummary candidate : candidates) {
+                if (closed || activeJobIds.size() >= maxConcurrency) {
+                    break;
+                }
+                if (candidate.jobId != null && activeJobIds.add(candidate.jobId)) {
+                    claimed.add(candidate);
+                }
+            }
+        }
+
+        for (JobExecutionSummary summary : claimed) {
+            claim(summary);
+        }
+    }
+
+    private void claim(JobExecutionSummary summary) {
+        DescribeJobExecutionRequest describe = new DescribeJobExecutionRequest();
+        describe.thingName = thingName;
+        describe.jobId = summary.jobId;
+        describe.executionNumber = summary.executionNumber;
+        describe.includeJobDocument = true;
+
+        submit(() -> transport.describeJobExecution(describe)).thenCompose(described -> {
+            JobExecutionData execution = described.execution;
+            if (execution == null || (execution.status != JobStatus.QUEUED && execution.status != JobStatus.IN_PROGRESS)) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            JobExecutionContext context = new JobExecutionContext(transport, thingName, execution);
+            return context.claim().thenApply(ignored -> context);
+        }).whenComplete((context, error) -> {
+            if (error != null) {
+                release(summary.jobId, false);
+                if (isTransient(error)) {
+                    scheduleRescan();
+                }
+                return;
+            }
+            if (context == null) {
+                // The execution is no longer pending
+                release(summary.jobId, false);
+                return;
+            }
+
+            synchronized (lock) {
+                consecutiveFailures = 0;
+            }
+            try {
+                executor.execute(() -> run(context));
+            } catch (RuntimeException e) {
+                // The execution is already IN_PROGRESS; leaving it there would hold it until its timeout expires
+                HashMap<String, String> details = new HashMap<>();
+                details.put(FAILURE_REASON_KEY, "JobExecutionRunner could not run the handler: " + e);
+                context.update(JobStatus.FAILED, details, null)
+                    .whenComplete((updated, updateError) -> release(summary.jobId, false));
+            }
+        });
+    }
+
+    private void run(JobExecutionContext context) {
+        JobHeartbeatScheduler.Heartbeat heartbeat = null;
+        boolean reported = false;
+        try {
+            JobExecutionOutcome outcome;
+            try {
+                if (heartbeatScheduler != null) {
+                    heartbeat = heartbeatScheduler.register(context);
+                    context.setHeartbeat(heartbeat);
+                }
+
+                outcome = handler.handle(context);
+                if (outcome == null) {
+                    outcome = JobExecutionOutcome.succeeded(null);
+                }
+            } catch (Exception e) {
+                HashMap<String, String> details = new HashMap<>();
+                details.put(FAILURE_REASON_KEY, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+                outcome = JobExecutionOutcome.failed(details);
+            }
+
+            CompletableFuture<UpdateJobExecutionResponse> terminal = heartbeat != null
+                ? heartbeat.complete(outcome)
+                : context.update(outcome.getStatus(), outcome.getStatusDetails(), null);
+            reported = true;
+            terminal.whenComplete((updated, error) -> release(context.getJobId(), true));
+        } finally {
+            if (!reported) {
+                // An Error escaped the handler.  Stop extending the step timeout so the service times the execution
+                // out, and do not list again, which would hand the same execution straight back to the handler.
+                if (heartbeat != null) {
+                    heartbeat.close();
+                }
+                release(context.getJobId(), false);
+            }
+        }
+    }
+
+    private void release(String jobId, boolean rescan) {
+        synchronized (lock) {
+            activeJobIds.remove(jobId);
+        }
+
+        if (rescan) {
+            scan();
+        }
+    }
+
+    /**
+     * Lists again after a backoff that grows with each consecutive transient failure.  Failures while a retry is
+     * already scheduled are folded into it.
+     */
+    private void scheduleRescan() {
+        long delay;
+        synchronized (lock) {
+            if (closed || retryScheduled) {
+                return;
+            }
+            retryScheduled = true;
+            consecutiveFailures++;
+            delay = Math.min(MAX_RETRY_DELAY_MILLIS, retryDelayMillis << Math.min(consecutiveFailures - 1, 16));
+        }
+
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        try {
+            retryScheduler.schedule(() -> {
+                synchronized (lock) {
+                    retryScheduled = false;
+                }
+                scan();
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The runner was closed
+        }
+    }
+
+    private static boolean isTransient(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (!(error instanceof V2ErrorResponseException)) {
+            // Timeouts and connection failures
+            return true;
+        }
+
+        V2ErrorResponse modeledError = ((V2ErrorResponseException) error).getModeledError();
+        return modeledError == null
+            || modeledError.code == RejectedErrorCode.REQUEST_THROTTLED
+            || modeledError.code == RejectedErrorCode.INTERNAL_ERROR;
+    }
+
+    private static <T> CompletableFuture<T> submit(OperationSupplier<T> operation) {
+        try {
+            return operation.get();
+        } catch (Exception e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    @FunctionalInterface
+    private interface OperationSupplier<T> {
+        CompletableFuture<T> get();
+    }
+
+    private static void closeQuietly(AutoCloseable stream) {
+        try {
+            stream.close();
+        } catch (Exception e) {
+            // the runner is shutting down; there is nothing further to do with the stream
+        }
+    }
+}
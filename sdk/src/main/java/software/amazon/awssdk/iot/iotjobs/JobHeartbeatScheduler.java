@@ -0,0 +1,348 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotjobs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionData;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+
+/**
+ * Sends periodic IN_PROGRESS updates for long-running job executions, on top of IotJobsV2Client.
+ *
+ * Status details put on an execution's heartbeat between ticks are combined and sent together on the next tick,
+ * so each registered execution gets at most one UpdateJobExecution request per interval.  If a step timeout is
+ * configured, every tick sends an update (even with no new details) that extends the execution's
+ * stepTimeoutInMinutes; otherwise a tick only sends an update when details have changed.  A tick skips an
+ * execution whose previous update is still in flight.
+ *
+ * Each execution's version is tracked locally: every update expects the version produced by the previous one,
+ * so updates sent through the scheduler do not conflict with each other.  If something else changes the
+ * execution and a heartbeat is rejected with VersionMismatch, the tracked version is resynced from the service
+ * and the heartbeat is resent once; if that also fails, its details are sent again on the next tick with the
+ * resynced version.
+ */
+public class JobHeartbeatScheduler implements AutoCloseable {
+
+    private static final long DEFAULT_INTERVAL_MILLIS = 30000;
+
+    private final JobExecutionContext.UpdateTransport transport;
+    private final String thingName;
+    private final long intervalMillis;
+    private final Long stepTimeoutInMinutes;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+
+    private final Object lock = new Object();
+    private final Set<Heartbeat> heartbeats = new LinkedHashSet<>();
+    private ScheduledFuture<?> ticker;
+    private boolean closed;
+
+    /**
+     * An execution registered with the scheduler.  Closing it stops the execution's heartbeat without sending
+     * any pending details.
+     */
+    public class Heartbeat implements AutoCloseable {
+        private final JobExecutionContext context;
+        private final HashMap<String, String> statusDetails = new HashMap<>();
+        private boolean dirty;
+        private boolean inFlight;
+
+        private Heartbeat(JobExecutionContext context) {
+            this.context = context;
+        }
+
+        /**
+         * Sets a status detail, to be sent with the next heartbeat
+         *
+         * @param key the status detail name
+         * @param value the status detail value, or null to remove it
+         */
+        public void putStatusDetail(String key, String value) {
+            synchronized (lock) {
+                if (value != null) {
+                    statusDetails.put(key, value);
+                } else {
+                    statusDetails.remove(key);
+                }
+                dirty = true;
+            }
+        }
+
+        /**
+         * Sets several status details, to be sent with the next heartbeat
+         *
+         * @param details the status details to set
+         */
+        public void putStatusDetails(Map<String, String> details) {
+            synchronized (lock) {
+                statusDetails.putAll(details);
+                dirty = true;
+            }
+        }
+
+        /**
+         * @return a copy of the status details the execution's updates carry
+         */
+        public HashMap<String, String> getStatusDetails() {
+            synchronized (lock) {
+                return new HashMap<>(statusDetails);
+            }
+        }
+
+        /**
+         * @return the version the execution's next update will expect
+         */
+        public Integer getExpectedVersion() {
+            return context.getExpectedVersion();
+        }
+
+        /**
+         * Stops the heartbeat and reports the execution's terminal status.  The outcome's status details are
+         * added to the heartbeat's details.
+         *
+         * @param outcome the terminal status to report
+         * @return a future that completes when the service accepts the update
+         */
+        public CompletableFuture<UpdateJobExecutionResponse> complete(JobExecutionOutcome outcome) {
+            HashMap<String, String> details;
+            synchronized (lock) {
+                heartbeats.remove(this);
+                if (outcome.getStatusDetails() != null) {
+                    statusDetails.putAll(outcome.getStatusDetails());
+                }
+                details = new HashMap<>(statusDetails);
+                dirty = false;
+            }
+
+            return context.update(outcome.getStatus(), details.isEmpty() ? null : details, null);
+        }
+
+        /**
+         * Stops the heartbeat.  Details that have not been sent yet are discarded.
+         */
+        @Override
+        public void close() {
+            synchronized (lock) {
+                heartbeats.remove(this);
+            }
+        }
+    }
+
+    /**
+     * Builder type for JobHeartbeatScheduler instances
+     */
+    public static class JobHeartbeatSchedulerBuilder {
+        private final JobExecutionContext.UpdateTransport transport;
+        private final String thingName;
+        private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+        private Long stepTimeoutInMinutes;
+        private ScheduledExecutorService scheduler;
+
+        private JobHeartbeatSchedulerBuilder(JobExecutionContext.UpdateTransport transport, String thingName) {
+            this.transport = transport;
+            this.thingName = thingName;
+        }
+
+        /**
+         * Sets how often heartbeats are sent.  Defaults to 30 seconds.
+         *
+         * @param intervalMillis the heartbeat interval in milliseconds
+         * @return this builder object
+         */
+        public JobHeartbeatSchedulerBuilder withIntervalMillis(long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets the step timeout each heartbeat sets on the execution.  If set, every tick sends an update so the
+         * execution's step timer keeps being extended; the interval should be comfortably shorter than the
+         * timeout.  Not set by default.
+         *
+         * @param stepTimeoutInMinutes the step timeout each heartbeat requests
+         * @return this builder object
+         */
+        public JobHeartbeatSchedulerBuilder withStepTimeoutInMinutes(Long stepTimeoutInMinutes) {
+            this.stepTimeoutInMinutes = stepTimeoutInMinutes;
+
+            return this;
+        }
+
+        /**
+         * Sets the executor ticks run on.  If not set, the scheduler creates a single daemon thread and shuts it
+         * down when the scheduler is closed.  A supplied executor is not shut down by the scheduler.
+         *
+         * @param scheduler the executor to schedule ticks on
+         * @return this builder object
+         */
+        public JobHeartbeatSchedulerBuilder withScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+
+            return this;
+        }
+
+        /**
+         * Creates a new JobHeartbeatScheduler from the existing configuration and starts its ticks.
+         *
+         * @return a new JobHeartbeatScheduler
+         */
+        public JobHeartbeatScheduler build() {
+            if (intervalMillis <= 0) {
+                throw new IllegalArgumentException("JobHeartbeatScheduler interval must be positive");
+            }
+            if (stepTimeoutInMinutes != null && stepTimeoutInMinutes < 1) {
+                throw new IllegalArgumentException("JobHeartbeatScheduler step timeout must be at least one minute");
+            }
+
+            return new JobHeartbeatScheduler(this);
+        }
+    }
+
+    private JobHeartbeatScheduler(JobHeartbeatSchedulerBuilder builder) {
+        this.transport = builder.transport;
+        this.thingName = builder.thingName;
+        this.intervalMillis = builder.intervalMillis;
+        this.stepTimeoutInMinutes = builder.stepTimeoutInMinutes;
+        if (builder.scheduler != null) {
+            this.scheduler = builder.scheduler;
+            this.ownsScheduler = false;
+        } else {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "JobHeartbeatScheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.ownsScheduler = true;
+        }
+        this.ticker = scheduler.scheduleAtFixedRate(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new builder for a scheduler that sends heartbeats for a thing's job executions
+     *
+     * @param client the jobs client to send updates with
+     * @param thingName the thing whose job executions are registered.  Executions registered through a
+     * {@link JobExecutionRunner} use the runner's thing and client instead.
+     * @return a new builder object for JobHeartbeatScheduler instances
+     */
+    public static JobHeartbeatSchedulerBuilder builder(IotJobsV2Client client, String thingName) {
+        return new JobHeartbeatSchedulerBuilder(new JobExecutionContext.UpdateTransport() {
+            @Override
+            public CompletableFuture<UpdateJobExecutionResponse> updateJobExecution(UpdateJobExecutionRequest request) {
+                return client.updateJobExecution(request);
+            }
+
+            @Override
+            public CompletableFuture<DescribeJobExecutionResponse> describeJobExecution(DescribeJobExecutionRequest request) {
+                return client.describeJobExecution(request);
+            }
+        }, thingName);
+    }
+
+    static JobHeartbeatSchedulerBuilder builder(JobExecutionContext.UpdateTransport transport, String thingName) {
+        return new JobHeartbeatSchedulerBuilder(transport, thingName);
+    }
+
+    /**
+     * Starts sending heartbeats for an execution that is already IN_PROGRESS
+     *
+     * @param execution the execution; its jobId, executionNumber and versionNumber are used
+     * @return the execution's heartbeat
+     */
+    public Heartbeat register(JobExecutionData execution) {
+        return register(new JobExecutionContext(transport, thingName, execution));
+    }
+
+    Heartbeat register(JobExecutionContext context) {
+        Heartbeat heartbeat = new Heartbeat(context);
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("JobHeartbeatScheduler is closed");
+            }
+            heartbeats.add(heartbeat);
+        }
+
+        return heartbeat;
+    }
+
+    /**
+     * @return the number of executions currently registered
+     */
+    public int size() {
+        synchronized (lock) {
+            return heartbeats.size();
+        }
+    }
+
+    /**
+     * Stops every heartbeat.  Details that have not been sent yet are discarded.
+     */
+    @Override
+    public void close() {
+        ScheduledFuture<?> stopping;
+        synchronized (lock) {
+            closed = true;
+            heartbeats.clear();
+            stopping = ticker;
+            ticker = null;
+        }
+
+        if (stopping != null) {
+            stopping.cancel(false);
+        }
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    void tick() {
+        List<Heartbeat> due = new ArrayList<>();
+        List<HashMap<String, String>> details = new ArrayList<>();
+
+        synchronized (lock) {
+            for (Heartbeat heartbeat : heartbeats) {
+                if (heartbeat.inFlight || (!heartbeat.dirty && stepTimeoutInMinutes == null)) {
+                    continue;
+                }
+                heartbeat.inFlight = true;
+                heartbeat.dirty = false;
+                due.add(heartbeat);
+                details.add(heartbeat.statusDetails.isEmpty() ? null : new HashMap<>(heartbeat.statusDetails));
+            }
+        }
+
+        for (int i = 0; i < due.size(); i++) {
+            Heartbeat heartbeat = due.get(i);
+            heartbeat.context.update(JobStatus.IN_PROGRESS, details.get(i), stepTimeoutInMinutes)
+                .whenComplete((updated, error) -> {
+                    synchronized (lock) {
+                        heartbeat.inFlight = false;
+                        if (error != null) {
+                            // Resend the details on the next tick.  A version conflict has already resynced the
+                            // context's version, so the resend does not repeat the stale one.
+                            heartbeat.dirty = true;
+                        }
+                    }
+                });
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotjobs;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import software.amazon.awssdk.iot.JsonPayloadDecoder;
+
+/**
+ * A job document that is parsed on first access.
+ *
+ * IotJobsV2Client deserializes the jobDocument of job executions into this class.  Until the document is parsed
+ * into this map it holds a reference to the whole received payload, not a copy of the document's slice of it.
+ * Reading it through any map method parses the slice into this map exactly as the eagerly parsed document would
+ * have been, and releases the payload.  Handlers that only need the document in their own type can call
+ * {@link #as(Class)}, which parses the JSON text directly into that type without building the map.
+ *
+ * Like HashMap, the document is not safe to modify from several threads at once.  Concurrent first reads are
+ * safe: the document is parsed once.
+ */
+public class LazyJobDocument extends HashMap<String, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Type DOCUMENT_TYPE = new TypeToken<HashMap<String, Object>>() {}.getType();
+
+    private final transient Gson gson;
+    private transient byte[] json;
+    private final transient int offset;
+    private final transient int length;
+    private volatile boolean parsed;
+
+    LazyJobDocument(Gson gson, byte[] json, int offset, int length) {
+        this.gson = gson;
+        this.json = json;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return true if the document has been parsed into this map
+     */
+    public boolean isParsed() {
+        return parsed;
+    }
+
+    /**
+     * Parses the document into an object of the given class.  If the document has already been parsed into this
+     * map, or was modified, the map's current content is converted instead.
+     *
+     * @param type the class to parse the document into
+     * @param <T> the type to parse the document into
+     * @return the parsed document
+     */
+    public <T> T as(Class<T> type) {
+        return type.cast(as((Type) type));
+    }
+
+    /**
+     * Parses the document into an object of the given (possibly generic) type.  If the document has already been
+     * parsed into this map, or was modified, the map's current content is converted instead.
+     *
+     * @param type the type to parse the document into
+     * @param <T> the type to parse the document into
+     * @return the parsed document
+     */
+    public <T> T as(Type type) {
+        byte[] unparsed;
+        synchronized (this) {
+            unparsed = parsed ? null : json;
+        }
+
+        if (unparsed != null) {
+            return JsonPayloadDecoder.fromJson(gson, unparsed, offset, length, type);
+        }
+        return gson.fromJson(gson.toJsonTree(new HashMap<>(this)), type);
+    }
+
+    /**
+     * @return the document as UTF-8 JSON
+     */
+    public byte[] toJsonBytes() {
+        synchronized (this) {
+            if (!parsed) {
+                return Arrays.copyOfRange(json, offset, offset + length);
+            }
+        }
+
+        return gson.toJson(new HashMap<>(this)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void parse() {
+        if (parsed) {
+            return;
+        }
+
+        synchronized (this) {
+            if (parsed) {
+                return;
+            }
+
+            HashMap<String, Object> document = JsonPayloadDecoder.fromJson(gson, json, offset, length, DOCUMENT_TYPE);
+            if (document != null) {
+                super.putAll(document);
+            }
+            json = null;
+            parsed = true;
+        }
+    }
+
+    @Override
+    public int size() {
+        parse();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        parse();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Object get(Object key) {
+        parse();
+        return super.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        parse();
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        parse();
+        return super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        parse();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        parse();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        parse();
+        super.putAll(m);
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        parse();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        parse();
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        parse();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        parse();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        parse();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        parse();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        parse();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        parse();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        parse();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void clear() {
+        parse();
+        super.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        parse();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        parse();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        parse();
+        return super.entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        parse();
+        super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        parse();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object clone() {
+        parse();
+        return new HashMap<>(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        parse();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        parse();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        parse();
+        return super.toString();
+    }
+
+    /**
+     * Serializes as a plain HashMap, since the Gson instance the document was read with is not serializable
+     *
+     * @return a HashMap holding the parsed document
+     */
+    private Object writeReplace() {
+        parse();
+        return new HashMap<>(this);
+    }
+}
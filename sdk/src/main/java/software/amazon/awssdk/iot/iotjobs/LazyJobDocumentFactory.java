@@ -0,0 +1,272 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotjobs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import software.amazon.awssdk.iot.JsonPayloadDecoder;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionData;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+
+/**
+ * Reads the jobDocument of job execution models as a {@link LazyJobDocument}.
+ *
+ * {@link #fromJson(Gson, byte[], Class)} scans the raw payload bytes once for jobDocument objects and hands Gson a
+ * copy of the payload in which each document is replaced by a small placeholder object.  Gson reads the remaining
+ * fields with the models' default streaming adapters and never sees the document's tokens; the adapters this
+ * factory creates then swap each placeholder for a LazyJobDocument over the document's slice of the original
+ * payload.  Payloads decoded any other way keep the eagerly parsed document Gson's default adapter produces.
+ */
+class LazyJobDocumentFactory implements TypeAdapterFactory {
+
+    private static final byte[] JOB_DOCUMENT = "jobDocument".getBytes(StandardCharsets.UTF_8);
+    private static final String PLACEHOLDER_KEY = "";
+
+    private static final Map<Class<?>, DocumentField> DOCUMENT_FIELDS = new HashMap<>();
+
+    private static final ThreadLocal<Decode> DECODES = new ThreadLocal<>();
+
+    static {
+        DOCUMENT_FIELDS.put(JobExecutionData.class, new DocumentField(
+            model -> ((JobExecutionData) model).jobDocument,
+            (model, document) -> ((JobExecutionData) model).jobDocument = document));
+        DOCUMENT_FIELDS.put(UpdateJobExecutionResponse.class, new DocumentField(
+            model -> ((UpdateJobExecutionResponse) model).jobDocument,
+            (model, document) -> ((UpdateJobExecutionResponse) model).jobDocument = document));
+    }
+
+    private static class DocumentField {
+        final Function<Object, HashMap<String, Object>> getter;
+        final BiConsumer<Object, LazyJobDocument> setter;
+
+        DocumentField(Function<Object, HashMap<String, Object>> getter, BiConsumer<Object, LazyJobDocument> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * The payload being decoded on a thread, and the offsets of the documents cut out of it
+     */
+    private static class Decode {
+        final byte[] payload;
+        final int[] documents;
+
+        Decode(byte[] payload, int[] documents) {
+            this.payload = payload;
+            this.documents = documents;
+        }
+    }
+
+    /**
+     * Deserializes a UTF-8 JSON payload, reading any jobDocument objects in it lazily
+     *
+     * @param gson the Gson instance to deserialize with; it must have this factory registered
+     * @param payload the UTF-8 encoded JSON payload
+     * @param type the class to deserialize into
+     * @param <T> the type to deserialize into
+     * @return the deserialized object, or null if the payload is empty
+     */
+    static <T> T fromJson(Gson gson, byte[] payload, Class<T> type) {
+        int[] documents = findDocuments(payload);
+        if (documents.length == 0) {
+            return JsonPayloadDecoder.fromJson(gson, payload, type);
+        }
+
+        Decode previous = DECODES.get();
+        DECODES.set(new Decode(payload, documents));
+        try {
+            return JsonPayloadDecoder.fromJson(gson, withPlaceholders(payload, documents), type);
+        } finally {
+            if (previous != null) {
+                DECODES.set(previous);
+            } else {
+                DECODES.remove();
+            }
+        }
+    }
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        DocumentField field = DOCUMENT_FIELDS.get(type.getRawType());
+        if (field == null) {
+            return null;
+        }
+
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+
+        return new TypeAdapter<T>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                delegate.write(out, value);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                T model = delegate.read(in);
+
+                Decode decode = DECODES.get();
+                if (model == null || decode == null) {
+                    return model;
+                }
+
+                HashMap<String, Object> placeholder = field.getter.apply(model);
+                if (placeholder != null && placeholder.size() == 1 && placeholder.get(PLACEHOLDER_KEY) instanceof Number) {
+                    int index = ((Number) placeholder.get(PLACEHOLDER_KEY)).intValue() * 2;
+                    int start = decode.documents[index];
+                    int end = decode.documents[index + 1];
+                    field.setter.accept(model, new LazyJobDocument(gson, decode.payload, start, end - start));
+                }
+                return model;
+            }
+        };
+    }
+
+    /**
+     * Finds the object values of every jobDocument key outside of another job document
+     *
+     * @return the start and end offset of each document, in payload order; empty if there are none or the payload
+     * is malformed, in which case Gson reports the error
+     */
+    static int[] findDocuments(byte[] payload) {
+        int[] documents = new int[0];
+        int count = 0;
+
+        int i = 0;
+        while (i < payload.length) {
+            if (payload[i] != '"') {
+                i++;
+                continue;
+            }
+
+            int stringEnd = skipString(payload, i);
+            if (stringEnd < 0) {
+                return new int[0];
+            }
+
+            int value = skipWhitespace(payload, stringEnd);
+            if (value < payload.length && payload[value] == ':' && isJobDocument(payload, i + 1, stringEnd - 1)) {
+                value = skipWhitespace(payload, value + 1);
+                if (value < payload.length && payload[value] == '{') {
+                    int documentEnd = skipObject(payload, value);
+                    if (documentEnd < 0) {
+                        return new int[0];
+                    }
+                    if (count * 2 == documents.length) {
+                        documents = Arrays.copyOf(documents, Math.max(4, documents.length * 2));
+                    }
+                    documents[count * 2] = value;
+                    documents[count * 2 + 1] = documentEnd;
+                    count++;
+                    i = documentEnd;
+                    continue;
+                }
+            }
+            i = stringEnd;
+        }
+
+        return Arrays.copyOf(documents, count * 2);
+    }
+
+    private static byte[] withPlaceholders(byte[] payload, int[] documents) {
+        byte[][] placeholders = new byte[documents.length / 2][];
+        int length = payload.length;
+        for (int i = 0; i < placeholders.length; i++) {
+            placeholders[i] = ("{\"" + PLACEHOLDER_KEY + "\":" + i + "}").getBytes(StandardCharsets.UTF_8);
+            length += placeholders[i].length - (documents[i * 2 + 1] - documents[i * 2]);
+        }
+
+        byte[] stripped = new byte[length];
+        int from = 0;
+        int to = 0;
+        for (int i = 0; i < placeholders.length; i++) {
+            int start = documents[i * 2];
+            System.arraycopy(payload, from, stripped, to, start - from);
+            to += start - from;
+            System.arraycopy(placeholders[i], 0, stripped, to, placeholders[i].length);
+            to += placeholders[i].length;
+            from = documents[i * 2 + 1];
+        }
+        System.arraycopy(payload, from, stripped, to, payload.length - from);
+
+        return stripped;
+    }
+
+    private static boolean isJobDocument(byte[] payload, int start, int end) {
+        if (end - start != JOB_DOCUMENT.length) {
+            return false;
+        }
+        for (int i = 0; i < JOB_DOCUMENT.length; i++) {
+            if (payload[start + i] != JOB_DOCUMENT[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the offset just past the closing quote of the string starting at {@code start}, or -1 if unterminated
+     */
+    private static int skipString(byte[] payload, int start) {
+        for (int i = start + 1; i < payload.length; i++) {
+            if (payload[i] == '\\') {
+                i++;
+            } else if (payload[i] == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the offset just past the brace closing the object starting at {@code start}, or -1 if unterminated
+     */
+    private static int skipObject(byte[] payload, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < payload.length) {
+            byte b = payload[i];
+            if (b == '"') {
+                i = skipString(payload, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] payload, int start) {
+        int i = start;
+        while (i < payload.length && (payload[i] == ' ' || payload[i] == '\t' || payload[i] == '\n' || payload[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+}
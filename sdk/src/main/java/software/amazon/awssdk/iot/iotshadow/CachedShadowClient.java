@@ -0,0 +1,699 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import software.amazon.awssdk.crt.iot.StreamingOperation;
+import software.amazon.awssdk.crt.iot.SubscriptionStatusEventType;
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotshadow.model.GetNamedShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowResponse;
+import software.amazon.awssdk.iot.iotshadow.model.NamedShadowDeltaUpdatedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotshadow.model.NamedShadowUpdatedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowMetadata;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowStateWithDelta;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedSnapshot;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedSubscriptionRequest;
+
+/**
+ * An opt-in, in-memory cache of shadow documents on top of IotShadowV2Client.
+ *
+ * The first read of a shadow subscribes to its updated and delta streams and, once both subscriptions are
+ * established, fetches the document with a GetShadow request, so that no change made after the fetch can be
+ * missed.  From then on the cached document is kept current from the streams and reads are served
+ * from memory.  The version carried by each event is used to discard events older than the cached document:
+ * <ul>
+ *   <li>an updated event carries the complete document and replaces the cached one if it is at least as new</li>
+ *   <li>a delta event only describes the desired properties that changed, so it is applied with
+ *   {@link ShadowDeltaMerger} when it is newer than the cached version.  Skipped versions are normal, since
+ *   reported-only updates publish no delta; the updated event for each version carries the complete document
+ *   and replaces the one produced from the delta</li>
+ * </ul>
+ *
+ * Entries are evicted least-recently-read first once the configured number of shadows is cached, and are
+ * re-fetched on their next read once their time to live has elapsed or their subscriptions are lost.  A read
+ * after a subscription was lost waits for it to be re-established before fetching.  An entry whose subscription
+ * halts is dropped, and a read waiting on it fails.  Evicting an entry closes its streams.
+ *
+ * Cached responses are shared between readers and must be treated as read-only.
+ */
+public class CachedShadowClient implements AutoCloseable {
+
+    /**
+     * The shadow service operations the cache is built on.  Normally an IotShadowV2Client.  The subscription
+     * status of each stream is reported to its status handler rather than through the stream options.
+     */
+    interface ShadowSource {
+        CompletableFuture<GetShadowResponse> getShadow(String thingName, String shadowName);
+        AutoCloseable openUpdatedStream(String thingName, String shadowName, V2ClientStreamOptions<ShadowUpdatedEvent> options,
+                                        Consumer<SubscriptionStatusEventType> statusHandler);
+        AutoCloseable openDeltaStream(String thingName, String shadowName, V2ClientStreamOptions<ShadowDeltaUpdatedEvent> options,
+                                      Consumer<SubscriptionStatusEventType> statusHandler);
+    }
+
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+    private static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final ShadowSource source;
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+    private final LongSupplier clock;
+
+    private final Object lock = new Object();
+    // Access ordered, so only user reads may call get(); internal bookkeeping uses remove(key, value), which does
+    // not count as an access and so leaves the LRU order alone
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed;
+
+    /**
+     * Builder type for CachedShadowClient instances
+     */
+    public static class CachedShadowClientBuilder {
+        private final ShadowSource source;
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+        private long timeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+        private LongSupplier clock = System::nanoTime;
+
+        private CachedShadowClientBuilder(ShadowSource source) {
+            this.source = source;
+        }
+
+        /**
+         * Sets the maximum number of shadows to cache.  Defaults to 1024.
+         *
+         * @param maxEntries the maximum number of shadows to cache
+         * @return this builder object
+         */
+        public CachedShadowClientBuilder withMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+
+            return this;
+        }
+
+        /**
+         * Sets how long a fetched document is served before it is fetched again, even if its streams report
+         * no change.  Defaults to five minutes.
+         *
+         * @param timeToLiveMillis the time to live of a fetched document in milliseconds
+         * @return this builder object
+         */
+        public CachedShadowClientBuilder withTimeToLiveMillis(long timeToLiveMillis) {
+            this.timeToLiveMillis = timeToLiveMillis;
+
+            return this;
+        }
+
+        CachedShadowClientBuilder withClock(LongSupplier clock) {
+            this.clock = clock;
+
+            return this;
+        }
+
+        /**
+         * Creates a new CachedShadowClient from the existing configuration.
+         *
+         * @return a new CachedShadowClient
+         */
+        public CachedShadowClient build() {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("CachedShadowClient must allow at least one entry");
+            }
+            if (timeToLiveMillis <= 0) {
+                throw new IllegalArgumentException("CachedShadowClient time to live must be positive");
+            }
+
+            return new CachedShadowClient(this);
+        }
+    }
+
+    private CachedShadowClient(CachedShadowClientBuilder builder) {
+        this.source = builder.source;
+        this.maxEntries = builder.maxEntries;
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(builder.timeToLiveMillis);
+        this.clock = builder.clock;
+    }
+
+    /**
+     * Creates a new builder for a cache over a shadow client
+     *
+     * @param client the shadow client to fetch and subscribe with
+     * @return a new builder object for CachedShadowClient instances
+     */
+    public static CachedShadowClientBuilder builder(IotShadowV2Client client) {
+        return new CachedShadowClientBuilder(new ShadowSource() {
+            @Override
+            public CompletableFuture<GetShadowResponse> getShadow(String thingName, String shadowName) {
+                if (shadowName == null) {
+                    GetShadowRequest request = new GetShadowRequest();
+                    request.thingName = thingName;
+                    return client.getShadow(request);
+                }
+
+                GetNamedShadowRequest request = new GetNamedShadowRequest();
+                request.thingName = thingName;
+                request.shadowName = shadowName;
+                return client.getNamedShadow(request);
+            }
+
+            @Override
+            public AutoCloseable openUpdatedStream(String thingName, String shadowName, V2ClientStreamOptions<ShadowUpdatedEvent> options,
+                                                   Consumer<SubscriptionStatusEventType> statusHandler) {
+                StreamingOperation stream;
+                if (shadowName == null) {
+                    ShadowUpdatedSubscriptionRequest request = new ShadowUpdatedSubscriptionRequest();
+                    request.thingName = thingName;
+                    stream = client.createShadowUpdatedStream(request, withStatusHandler(options, statusHandler));
+                } else {
+                    NamedShadowUpdatedSubscriptionRequest request = new NamedShadowUpdatedSubscriptionRequest();
+                    request.thingName = thingName;
+                    request.shadowName = shadowName;
+                    stream = client.createNamedShadowUpdatedStream(request, withStatusHandler(options, statusHandler));
+                }
+                stream.open();
+                return stream;
+            }
+
+            @Override
+            public AutoCloseable openDeltaStream(String thingName, String shadowName, V2ClientStreamOptions<ShadowDeltaUpdatedEvent> options,
+                                                 Consumer<SubscriptionStatusEventType> statusHandler) {
+                StreamingOperation stream;
+                if (shadowName == null) {
+                    ShadowDeltaUpdatedSubscriptionRequest request = new ShadowDeltaUpdatedSubscriptionRequest();
+                    request.thingName = thingName;
+                    stream = client.createShadowDeltaUpdatedStream(request, withStatusHandler(options, statusHandler));
+                } else {
+                    NamedShadowDeltaUpdatedSubscriptionRequest request = new NamedShadowDeltaUpdatedSubscriptionRequest();
+                    request.thingName = thingName;
+                    request.shadowName = shadowName;
+                    stream = client.createNamedShadowDeltaUpdatedStream(request, withStatusHandler(options, statusHandler));
+                }
+                stream.open();
+                return stream;
+            }
+        });
+    }
+
+    private static <T> V2ClientStreamOptions<T> withStatusHandler(V2ClientStreamOptions<T> options, Consumer<SubscriptionStatusEventType> statusHandler) {
+        return V2ClientStreamOptions.<T>builder()
+            .withStreamEventHandler(options.streamEventHandler())
+            .withSubscriptionEventHandler(event -> statusHandler.accept(event.getType()))
+            .withDeserializationFailureHandler(options.deserializationFailureHandler())
+            .build();
+    }
+
+    static CachedShadowClientBuilder builder(ShadowSource source) {
+        return new CachedShadowClientBuilder(source);
+    }
+
+    /**
+     * Reads a device's (classic) shadow, from memory if it is cached
+     *
+     * @param request modeled request to perform
+     *
+     * @return a future that will complete with the cached or fetched document
+     */
+    public CompletableFuture<GetShadowResponse> getShadow(GetShadowRequest request) {
+        return getShadow(request, false);
+    }
+
+    /**
+     * Reads a device's (classic) shadow
+     *
+     * @param request modeled request to perform
+     * @param forceRefresh whether to fetch the document from the service even if it is cached
+     *
+     * @return a future that will complete with the cached or fetched document
+     */
+    public CompletableFuture<GetShadowResponse> getShadow(GetShadowRequest request, boolean forceRefresh) {
+        return read(request.thingName, null, forceRefresh);
+    }
+
+    /**
+     * Reads a named shadow, from memory if it is cached
+     *
+     * @param request modeled request to perform
+     *
+     * @return a future that will complete with the cached or fetched document
+     */
+    public CompletableFuture<GetShadowResponse> getNamedShadow(GetNamedShadowRequest request) {
+        return getNamedShadow(request, false);
+    }
+
+    /**
+     * Reads a named shadow
+     *
+     * @param request modeled request to perform
+     * @param forceRefresh whether to fetch the document from the service even if it is cached
+     *
+     * @return a future that will complete with the cached or fetched document
+     */
+    public CompletableFuture<GetShadowResponse> getNamedShadow(GetNamedShadowRequest request, boolean forceRefresh) {
+        if (request.shadowName == null) {
+            CompletableFuture<GetShadowResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalArgumentException("GetNamedShadowRequest.shadowName cannot be null"));
+            return future;
+        }
+
+        return read(request.thingName, request.shadowName, forceRefresh);
+    }
+
+    /**
+     * Drops a shadow from the cache and closes its streams
+     *
+     * @param thingName thing the shadow belongs to
+     * @param shadowName name of the shadow, or null for the classic shadow
+     */
+    public void invalidate(String thingName, String shadowName) {
+        CacheEntry entry;
+        synchronized (lock) {
+            entry = entries.remove(toKey(thingName, shadowName));
+        }
+
+        if (entry != null) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * @return the number of shadows currently cached
+     */
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Drops every cached shadow and closes their streams
+     */
+    @Override
+    public void close() {
+        List<CacheEntry> removed;
+        synchronized (lock) {
+            closed = true;
+            removed = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+
+        for (CacheEntry entry : removed) {
+            discard(entry);
+        }
+    }
+
+    private CompletableFuture<GetShadowResponse> read(String thingName, String shadowName, boolean forceRefresh) {
+        if (thingName == null) {
+            CompletableFuture<GetShadowResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalArgumentException("thingName cannot be null"));
+            return future;
+        }
+
+        String key = toKey(thingName, shadowName);
+        CacheEntry created = null;
+        CompletableFuture<GetShadowResponse> fetch = null;
+        boolean fetchNow = false;
+        List<CacheEntry> evicted = new ArrayList<>();
+        CacheEntry entry;
+
+        synchronized (lock) {
+            if (closed) {
+                CompletableFuture<GetShadowResponse> future = new CompletableFuture<>();
+                future.completeExceptionally(new IllegalStateException("CachedShadowClient is closed"));
+                return future;
+            }
+
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new CacheEntry(key, thingName, shadowName);
+                entries.put(key, entry);
+                created = entry;
+
+                Iterator<CacheEntry> eldest = entries.values().iterator();
+                while (entries.size() > maxEntries) {
+                    evicted.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+
+            if (entry.inFlight != null) {
+                return entry.inFlight;
+            }
+
+            if (!forceRefresh && entry.document != null && !entry.stale
+                    && clock.getAsLong() - entry.fetchedAtNanos < timeToLiveNanos) {
+                return CompletableFuture.completedFuture(entry.document);
+            }
+
+            fetch = new CompletableFuture<>();
+            entry.inFlight = fetch;
+            // Until both subscriptions are established, a change made after the fetch could be missed
+            if (entry.isSubscribed()) {
+                fetchNow = true;
+            } else {
+                entry.awaitingSubscriptions = true;
+            }
+        }
+
+        for (CacheEntry evictedEntry : evicted) {
+            discard(evictedEntry);
+        }
+
+        if (created != null) {
+            try {
+                openStreams(created);
+            } catch (Exception e) {
+                synchronized (lock) {
+                    created.awaitingSubscriptions = false;
+                }
+                remove(created);
+                created.closeStreams();
+                fetch.completeExceptionally(e);
+                return fetch;
+            }
+        }
+
+        if (fetchNow) {
+            fetch(entry, fetch);
+        }
+        return fetch;
+    }
+
+    private void openStreams(CacheEntry entry) {
+        V2ClientStreamOptions<ShadowUpdatedEvent> updatedOptions = V2ClientStreamOptions.<ShadowUpdatedEvent>builder()
+            .withStreamEventHandler(event -> onUpdated(entry, event))
+            .withDeserializationFailureHandler(event -> markStale(entry))
+            .build();
+        entry.addStream(source.openUpdatedStream(entry.thingName, entry.shadowName, updatedOptions,
+            type -> onSubscriptionStatus(entry, true, type)));
+
+        V2ClientStreamOptions<ShadowDeltaUpdatedEvent> deltaOptions = V2ClientStreamOptions.<ShadowDeltaUpdatedEvent>builder()
+            .withStreamEventHandler(event -> onDelta(entry, event))
+            .withDeserializationFailureHandler(event -> markStale(entry))
+            .build();
+        entry.addStream(source.openDeltaStream(entry.thingName, entry.shadowName, deltaOptions,
+            type -> onSubscriptionStatus(entry, false, type)));
+    }
+
+    private void fetch(CacheEntry entry, CompletableFuture<GetShadowResponse> fetch) {
+        CompletableFuture<GetShadowResponse> response;
+        try {
+            response = source.getShadow(entry.thingName, entry.shadowName);
+        } catch (Exception e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+
+        response.whenComplete((document, error) -> {
+            GetShadowResponse result = null;
+            boolean drop = false;
+            synchronized (lock) {
+                entry.inFlight = null;
+                if (error == null) {
+                    // Stream events that arrived while the request was in flight may already be newer
+                    if (entry.document == null || isNewer(document.version, entry.document.version) || entry.stale) {
+                        entry.document = document;
+                        entry.partial = false;
+                    }
+                    entry.stale = false;
+                    entry.fetchedAtNanos = clock.getAsLong();
+                    result = entry.document;
+                } else if (entries.remove(entry.key, entry)) {
+                    drop = true;
+                }
+            }
+
+            if (drop) {
+                entry.closeStreams();
+            }
+
+            if (error != null) {
+                fetch.completeExceptionally(error);
+            } else {
+                fetch.complete(result);
+            }
+        });
+    }
+
+    private void onUpdated(CacheEntry entry, ShadowUpdatedEvent event) {
+        ShadowUpdatedSnapshot current = event.current;
+        if (current == null || current.version == null) {
+            return;
+        }
+
+        synchronized (lock) {
+            GetShadowResponse cached = entry.document;
+            if (cached != null && !isNewer(current.version, cached.version)
+                    && !(entry.partial && current.version.equals(cached.version))) {
+                return;
+            }
+
+            GetShadowResponse document = new GetShadowResponse();
+            document.state = new ShadowStateWithDelta();
+            if (current.state != null) {
+                document.state.desired = current.state.desired;
+                document.state.reported = current.state.reported;
+                document.state.delta = computeDelta(current.state.desired, current.state.reported);
+            }
+            document.metadata = current.metadata;
+            document.timestamp = event.timestamp;
+            document.version = current.version;
+
+            entry.document = document;
+            entry.partial = false;
+        }
+    }
+
+    private void onDelta(CacheEntry entry, ShadowDeltaUpdatedEvent event) {
+        synchronized (lock) {
+            GetShadowResponse cached = entry.document;
+            if (cached == null) {
+                return;
+            }
+
+            if (cached.version == null) {
+                entry.stale = true;
+                return;
+            }
+
+            ShadowState held = new ShadowState();
+            if (cached.state != null) {
+                held.desired = cached.state.desired;
+                held.reported = cached.state.reported;
+            }
+
+            ShadowDeltaMerger.MergeResult result = ShadowDeltaMerger.apply(held, cached.version, event);
+            if (result.getOutcome() != ShadowDeltaMerger.Outcome.APPLIED) {
+                return;
+            }
+
+            List<String> ignoredPaths = new ArrayList<>();
+            GetShadowResponse document = new GetShadowResponse();
+            document.state = new ShadowStateWithDelta();
+            document.state.desired = result.getState().desired;
+            document.state.reported = result.getState().reported;
+            document.state.delta = ShadowDeltaMerger.merge(cached.state != null ? cached.state.delta : null, event.state, "", ignoredPaths);
+
+            document.metadata = new ShadowMetadata();
+            if (cached.metadata != null) {
+                document.metadata.desired = ShadowDeltaMerger.merge(cached.metadata.desired, event.metadata, "", ignoredPaths);
+                document.metadata.reported = cached.metadata.reported;
+            } else {
+                document.metadata.desired = ShadowDeltaMerger.merge(null, event.metadata, "", ignoredPaths);
+            }
+            document.timestamp = event.timestamp;
+            document.version = result.getVersion();
+
+            entry.document = document;
+            entry.partial = true;
+        }
+    }
+
+    private void onSubscriptionStatus(CacheEntry entry, boolean updatedStream, SubscriptionStatusEventType type) {
+        CompletableFuture<GetShadowResponse> fetch = null;
+        boolean drop = false;
+        synchronized (lock) {
+            boolean established = type == SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED;
+            if (updatedStream) {
+                entry.updatedEstablished = established;
+            } else {
+                entry.deltaEstablished = established;
+            }
+
+            if (established) {
+                if (entry.awaitingSubscriptions && entry.isSubscribed()) {
+                    entry.awaitingSubscriptions = false;
+                    fetch = entry.inFlight;
+                }
+            } else {
+                entry.stale = true;
+                // A halted subscription is not retried, so the entry can never be kept current again
+                if (type == SubscriptionStatusEventType.SUBSCRIPTION_HALTED) {
+                    drop = entries.remove(entry.key, entry);
+                }
+            }
+        }
+
+        if (fetch != null) {
+            fetch(entry, fetch);
+        }
+        if (drop) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * Closes a removed entry's streams and fails a read still waiting for them to be established
+     */
+    private void discard(CacheEntry entry) {
+        CompletableFuture<GetShadowResponse> waiting = null;
+        synchronized (lock) {
+            if (entry.awaitingSubscriptions) {
+                entry.awaitingSubscriptions = false;
+                waiting = entry.inFlight;
+                entry.inFlight = null;
+            }
+        }
+
+        entry.closeStreams();
+        if (waiting != null) {
+            waiting.completeExceptionally(new IllegalStateException("CachedShadowClient dropped shadow " + entry.key + " before its subscriptions were established"));
+        }
+    }
+
+    private void markStale(CacheEntry entry) {
+        synchronized (lock) {
+            entry.stale = true;
+        }
+    }
+
+    private void remove(CacheEntry entry) {
+        synchronized (lock) {
+            entries.remove(entry.key, entry);
+        }
+    }
+
+    private static boolean isNewer(Integer version, Integer cachedVersion) {
+        return version != null && (cachedVersion == null || version > cachedVersion);
+    }
+
+    /**
+     * Computes the delta section the service would report for a document: the desired properties whose values
+     * differ from, or are missing in, the reported state.
+     */
+    private static HashMap<String, Object> computeDelta(Map<String, Object> desired, Map<String, Object> reported) {
+        if (desired == null) {
+            return null;
+        }
+
+        HashMap<String, Object> delta = new HashMap<>();
+        for (Map.Entry<String, Object> property : desired.entrySet()) {
+            Object desiredValue = property.getValue();
+            Object reportedValue = reported != null ? reported.get(property.getKey()) : null;
+            if (desiredValue instanceof Map && reportedValue instanceof Map) {
+                HashMap<String, Object> nested = computeDelta(asMap(desiredValue), asMap(reportedValue));
+                if (nested != null) {
+                    delta.put(property.getKey(), nested);
+                }
+            } else if (reported == null || !reported.containsKey(property.getKey()) || !Objects.equals(desiredValue, reportedValue)) {
+                delta.put(property.getKey(), desiredValue);
+            }
+        }
+
+        return delta.isEmpty() ? null : delta;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        // Nested JSON objects are deserialized as string-keyed maps
+        return (Map<String, Object>) value;
+    }
+
+    private static String toKey(String thingName, String shadowName) {
+        if (shadowName == null) {
+            return thingName;
+        }
+
+        return thingName + "/name/" + shadowName;
+    }
+
+    /**
+     * A cached shadow: its latest document and the streams keeping it current
+     */
+    private static class CacheEntry {
+        private final String key;
+        private final String thingName;
+        private final String shadowName;
+        private final List<AutoCloseable> streams = new ArrayList<>(2);
+        private boolean streamsClosed;
+
+        private GetShadowResponse document;
+        private long fetchedAtNanos;
+        private boolean partial;
+        private boolean stale;
+        private CompletableFuture<GetShadowResponse> inFlight;
+        private boolean updatedEstablished;
+        private boolean deltaEstablished;
+        private boolean awaitingSubscriptions;
+
+        private CacheEntry(String key, String thingName, String shadowName) {
+            this.key = key;
+            this.thingName = thingName;
+            this.shadowName = shadowName;
+        }
+
+        private boolean isSubscribed() {
+            return updatedEstablished && deltaEstablished;
+        }
+
+        private void addStream(AutoCloseable stream) {
+            synchronized (streams) {
+                if (!streamsClosed) {
+                    streams.add(stream);
+                    return;
+                }
+            }
+
+            // The entry was evicted while its streams were being opened
+            closeQuietly(stream);
+        }
+
+        private void closeStreams() {
+            List<AutoCloseable> toClose;
+            synchronized (streams) {
+                streamsClosed = true;
+                toClose = new ArrayList<>(streams);
+                streams.clear();
+            }
+
+            for (AutoCloseable stream : toClose) {
+                closeQuietly(stream);
+            }
+        }
+
+        private static void closeQuietly(AutoCloseable stream) {
+            try {
+                stream.close();
+            } catch (Exception e) {
+                // the entry is being discarded; there is nothing further to do with the stream
+            }
+        }
+    }
+}
@@ -8,9 +8,9 @@
 package software.amazon.awssdk.iot.iotshadow;
 
 import java.lang.AutoCloseable;
+import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
-import java.util.UUID;
 import java.util.function.BiFunction;
 
 import com.google.gson.Gson;
@@ -30,10 +30,37 @@ import software.amazon.awssdk.iot.iotshadow.model.*;
 */
 public class IotShadowV2Client implements AutoCloseable {
 
+    private static final TopicTemplate DELETE_NAMED_SHADOW_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/delete");
+    private static final TopicTemplate DELETE_NAMED_SHADOW_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/delete/+");
+    private static final TopicTemplate DELETE_SHADOW_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/delete");
+    private static final TopicTemplate DELETE_SHADOW_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/shadow/delete/+");
+    private static final TopicTemplate GET_NAMED_SHADOW_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/get");
+    private static final TopicTemplate GET_NAMED_SHADOW_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/get/+");
+    private static final TopicTemplate GET_SHADOW_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/get");
+    private static final TopicTemplate GET_SHADOW_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/shadow/get/+");
+    private static final TopicTemplate UPDATE_NAMED_SHADOW_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/update");
+    private static final TopicTemplate UPDATE_NAMED_SHADOW_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/update/accepted");
+    private static final TopicTemplate UPDATE_NAMED_SHADOW_SUBSCRIPTION_TOPIC1 = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/update/rejected");
+    private static final TopicTemplate UPDATE_SHADOW_PUBLISH_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/update");
+    private static final TopicTemplate UPDATE_SHADOW_SUBSCRIPTION_TOPIC0 = TopicTemplate.compile("$aws/things/{thingName}/shadow/update/accepted");
+    private static final TopicTemplate UPDATE_SHADOW_SUBSCRIPTION_TOPIC1 = TopicTemplate.compile("$aws/things/{thingName}/shadow/update/rejected");
+    private static final TopicTemplate CREATE_NAMED_SHADOW_DELTA_UPDATED_STREAM_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/update/delta");
+    private static final TopicTemplate CREATE_NAMED_SHADOW_UPDATED_STREAM_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/update/documents");
+    private static final TopicTemplate CREATE_SHADOW_DELTA_UPDATED_STREAM_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/update/delta");
+    private static final TopicTemplate CREATE_SHADOW_UPDATED_STREAM_TOPIC = TopicTemplate.compile("$aws/things/{thingName}/shadow/update/documents");
+
     private MqttRequestResponseClient rrClient;
     private final Gson gson;
+    private final CorrelationTokenGenerator correlationTokenGenerator;
+    private final V2ClientMetricsListener metricsListener;
 
-    private Gson createGson() {
+    /**
+     * Creates a Gson configured the way the client configures its own, for decoding and encoding shadow payloads
+     * outside of a client
+     *
+     * @return a new Gson
+     */
+    public static Gson createGson() {
         GsonBuilder gson = new GsonBuilder();
         gson.disableHtmlEscaping();
         gson.registerTypeAdapter(Timestamp.class, new Timestamp.Serializer());
@@ -42,14 +69,16 @@ public class IotShadowV2Client implements AutoCloseable {
         return gson.create();
     }
 
-    private void addTypeAdapters(GsonBuilder gson) {
+    private static void addTypeAdapters(GsonBuilder gson) {
         ShadowStateFactory shadowStateFactory = new ShadowStateFactory();
         gson.registerTypeAdapterFactory(shadowStateFactory);
     }
 
-    private IotShadowV2Client(MqttRequestResponseClient rrClient) {
+    private IotShadowV2Client(MqttRequestResponseClient rrClient, V2ClientOptions clientOptions) {
         this.rrClient = rrClient;
         this.gson = createGson();
+        this.correlationTokenGenerator = clientOptions.correlationTokenGenerator();
+        this.metricsListener = clientOptions.metricsListener();
     }
 
     /**
@@ -59,8 +88,19 @@ public class IotShadowV2Client implements AutoCloseable {
      * @param options configuration options to use
      */
     static public IotShadowV2Client newFromMqtt5(Mqtt5Client protocolClient, MqttRequestResponseClientOptions options) {
+        return newFromMqtt5(protocolClient, options, V2ClientOptions.builder().build());
+    }
+
+    /**
+     * Constructs a new IotShadowV2Client, using an MQTT5 client as transport
+     *
+     * @param protocolClient the MQTT5 client to use
+     * @param options configuration options to use
+     * @param clientOptions SDK-side configuration options to use
+     */
+    static public IotShadowV2Client newFromMqtt5(Mqtt5Client protocolClient, MqttRequestResponseClientOptions options, V2ClientOptions clientOptions) {
         MqttRequestResponseClient rrClient = new MqttRequestResponseClient(protocolClient, options);
-        return new IotShadowV2Client(rrClient);
+        return new IotShadowV2Client(rrClient, clientOptions);
     }
 
     /**
@@ -70,8 +110,19 @@ public class IotShadowV2Client implements AutoCloseable {
      * @param options configuration options to use
      */
     static public IotShadowV2Client newFromMqtt311(MqttClientConnection protocolClient, MqttRequestResponseClientOptions options) {
+        return newFromMqtt311(protocolClient, options, V2ClientOptions.builder().build());
+    }
+
+    /**
+     * Constructs a new IotShadowV2Client, using an MQTT311 client as transport
+     *
+     * @param protocolClient the MQTT311 client to use
+     * @param options configuration options to use
+     * @param clientOptions SDK-side configuration options to use
+     */
+    static public IotShadowV2Client newFromMqtt311(MqttClientConnection protocolClient, MqttRequestResponseClientOptions options, V2ClientOptions clientOptions) {
         MqttRequestResponseClient rrClient = new MqttRequestResponseClient(protocolClient, options);
-        return new IotShadowV2Client(rrClient);
+        return new IotShadowV2Client(rrClient, clientOptions);
     }
 
     /**
@@ -83,14 +134,29 @@ public class IotShadowV2Client implements AutoCloseable {
         this.rrClient = null;
     }
 
-    private ShadowUpdatedEvent createShadowUpdatedEvent(IncomingPublishEvent publishEvent) {
-        String payload = new String(publishEvent.getPayload(), StandardCharsets.UTF_8);
-        return this.gson.fromJson(payload, ShadowUpdatedEvent.class);
-    }
-
-    private ShadowDeltaUpdatedEvent createShadowDeltaUpdatedEvent(IncomingPublishEvent publishEvent) {
-        String payload = new String(publishEvent.getPayload(), StandardCharsets.UTF_8);
-        return this.gson.fromJson(payload, ShadowDeltaUpdatedEvent.class);
+    /**
+     * Decodes a stream event and hands it to the stream's handler, or reports it to the deserialization failure
+     * handler if it cannot be decoded.  This is what each of the client's streams runs for an incoming publish.
+     *
+     * @param eventGson the Gson to decode with
+     * @param eventType the type to decode into
+     * @param options the stream's callbacks
+     * @param topic the topic the publish arrived on
+     * @param payload the publish payload
+     * @param <T> the event type
+     */
+    public static <T> void deliverStreamEvent(Gson eventGson, Type eventType, V2ClientStreamOptions<T> options, String topic, byte[] payload) {
+        try {
+            T response = JsonPayloadDecoder.fromJson(eventGson, payload, eventType);
+            options.streamEventHandler().accept(response);
+        } catch (Exception e) {
+            V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
+                .withCause(e)
+                .withPayload(payload)
+                .withTopic(topic)
+                .build();
+            options.deserializationFailureHandler().accept(failureEvent);
+        }
     }
 
     /**
@@ -105,6 +171,7 @@ public class IotShadowV2Client implements AutoCloseable {
      */
     public CompletableFuture<DeleteShadowResponse> deleteNamedShadow(DeleteNamedShadowRequest request) {
         V2ClientFuture<DeleteShadowResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "DeleteNamedShadow");
 
         try {
             if (request.thingName == null) {
@@ -118,14 +185,12 @@ public class IotShadowV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/shadow/name/{shadowName}/delete";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
-            publishTopic = publishTopic.replace("{shadowName}", request.shadowName);
+            String publishTopic = DELETE_NAMED_SHADOW_PUBLISH_TOPIC.render(request.thingName, request.shadowName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -133,27 +198,26 @@ public class IotShadowV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/shadow/name/{shadowName}/delete/+";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
-            subscription0 = subscription0.replace("{shadowName}", request.shadowName);
+            String subscription0 = DELETE_NAMED_SHADOW_SUBSCRIPTION_TOPIC0.render(request.thingName, request.shadowName);
             builder.withSubscription(subscription0);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
             String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
             String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, DeleteShadowResponse.class, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, DeleteShadowResponse.class, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -172,6 +236,7 @@ public class IotShadowV2Client implements AutoCloseable {
      */
     public CompletableFuture<DeleteShadowResponse> deleteShadow(DeleteShadowRequest request) {
         V2ClientFuture<DeleteShadowResponse> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "DeleteShadow");
 
         try {
             if (request.thingName == null) {
@@ -181,13 +246,12 @@ public class IotShadowV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/shadow/delete";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
+            String publishTopic = DELETE_SHADOW_PUBLISH_TOPIC.render(request.thingName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -195,26 +259,26 @@ public class IotShadowV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/shadow/delete/+";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
+            String subscription0 = DELETE_SHADOW_SUBSCRIPTION_TOPIC0.render(request.thingName);
             builder.withSubscription(subscription0);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
             String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
             String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, DeleteShadowResponse.class, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, DeleteShadowResponse.class, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -232,7 +296,16 @@ public class IotShadowV2Client implements AutoCloseable {
      * @return a future that will complete with the corresponding response
      */
     public CompletableFuture<GetShadowResponse> getNamedShadow(GetNamedShadowRequest request) {
-        V2ClientFuture<GetShadowResponse> responseFuture = new V2ClientFuture<>();
+        return getNamedShadow(request, this.gson, GetShadowResponse.class);
+    }
+
+    /**
+     * Variant of {@link #getNamedShadow(GetNamedShadowRequest)} that decodes the response into the given type with the given Gson
+     * instance.  Used by TypedShadowClient to bind shadow state to application classes.
+     */
+    <T> CompletableFuture<T> getNamedShadow(GetNamedShadowRequest request, Gson responseGson, Type responseType) {
+        V2ClientFuture<T> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "GetNamedShadow");
 
         try {
             if (request.thingName == null) {
@@ -246,14 +319,12 @@ public class IotShadowV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/shadow/name/{shadowName}/get";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
-            publishTopic = publishTopic.replace("{shadowName}", request.shadowName);
+            String publishTopic = GET_NAMED_SHADOW_PUBLISH_TOPIC.render(request.thingName, request.shadowName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -261,27 +332,26 @@ public class IotShadowV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/shadow/name/{shadowName}/get/+";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
-            subscription0 = subscription0.replace("{shadowName}", request.shadowName);
+            String subscription0 = GET_NAMED_SHADOW_SUBSCRIPTION_TOPIC0.render(request.thingName, request.shadowName);
             builder.withSubscription(subscription0);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
             String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
             String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, GetShadowResponse.class, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, responseGson, responseType, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -299,7 +369,16 @@ public class IotShadowV2Client implements AutoCloseable {
      * @return a future that will complete with the corresponding response
      */
     public CompletableFuture<GetShadowResponse> getShadow(GetShadowRequest request) {
-        V2ClientFuture<GetShadowResponse> responseFuture = new V2ClientFuture<>();
+        return getShadow(request, this.gson, GetShadowResponse.class);
+    }
+
+    /**
+     * Variant of {@link #getShadow(GetShadowRequest)} that decodes the response into the given type with the given Gson
+     * instance.  Used by TypedShadowClient to bind shadow state to application classes.
+     */
+    <T> CompletableFuture<T> getShadow(GetShadowRequest request, Gson responseGson, Type responseType) {
+        V2ClientFuture<T> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "GetShadow");
 
         try {
             if (request.thingName == null) {
@@ -309,13 +388,12 @@ public class IotShadowV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/shadow/get";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
+            String publishTopic = GET_SHADOW_PUBLISH_TOPIC.render(request.thingName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -323,26 +401,26 @@ public class IotShadowV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/shadow/get/+";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
+            String subscription0 = GET_SHADOW_SUBSCRIPTION_TOPIC0.render(request.thingName);
             builder.withSubscription(subscription0);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
             String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
             String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, GetShadowResponse.class, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, responseGson, responseType, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -360,7 +438,16 @@ public class IotShadowV2Client implements AutoCloseable {
      * @return a future that will complete with the corresponding response
      */
     public CompletableFuture<UpdateShadowResponse> updateNamedShadow(UpdateNamedShadowRequest request) {
-        V2ClientFuture<UpdateShadowResponse> responseFuture = new V2ClientFuture<>();
+        return updateNamedShadow(request, this.gson, UpdateShadowResponse.class);
+    }
+
+    /**
+     * Variant of {@link #updateNamedShadow(UpdateNamedShadowRequest)} that decodes the response into the given type with the given Gson
+     * instance.  Used by TypedShadowClient to bind shadow state to application classes.
+     */
+    <T> CompletableFuture<T> updateNamedShadow(UpdateNamedShadowRequest request, Gson responseGson, Type responseType) {
+        V2ClientFuture<T> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "UpdateNamedShadow");
 
         try {
             if (request.thingName == null) {
@@ -374,14 +461,12 @@ public class IotShadowV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/shadow/name/{shadowName}/update";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
-            publishTopic = publishTopic.replace("{shadowName}", request.shadowName);
+            String publishTopic = UPDATE_NAMED_SHADOW_PUBLISH_TOPIC.render(request.thingName, request.shadowName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -389,31 +474,28 @@ public class IotShadowV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/shadow/name/{shadowName}/update/accepted";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
-            subscription0 = subscription0.replace("{shadowName}", request.shadowName);
+            String subscription0 = UPDATE_NAMED_SHADOW_SUBSCRIPTION_TOPIC0.render(request.thingName, request.shadowName);
             builder.withSubscription(subscription0);
-            String subscription1 = "$aws/things/{thingName}/shadow/name/{shadowName}/update/rejected";
-            subscription1 = subscription1.replace("{thingName}", request.thingName);
-            subscription1 = subscription1.replace("{shadowName}", request.shadowName);
+            String subscription1 = UPDATE_NAMED_SHADOW_SUBSCRIPTION_TOPIC1.render(request.thingName, request.shadowName);
             builder.withSubscription(subscription1);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
-            String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            String responseTopic1 = subscription0;
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
-            String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            String responseTopic2 = subscription1;
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, UpdateShadowResponse.class, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, responseGson, responseType, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -431,7 +513,16 @@ public class IotShadowV2Client implements AutoCloseable {
      * @return a future that will complete with the corresponding response
      */
     public CompletableFuture<UpdateShadowResponse> updateShadow(UpdateShadowRequest request) {
-        V2ClientFuture<UpdateShadowResponse> responseFuture = new V2ClientFuture<>();
+        return updateShadow(request, this.gson, UpdateShadowResponse.class);
+    }
+
+    /**
+     * Variant of {@link #updateShadow(UpdateShadowRequest)} that decodes the response into the given type with the given Gson
+     * instance.  Used by TypedShadowClient to bind shadow state to application classes.
+     */
+    <T> CompletableFuture<T> updateShadow(UpdateShadowRequest request, Gson responseGson, Type responseType) {
+        V2ClientFuture<T> responseFuture = new V2ClientFuture<>();
+        V2OperationTimer timer = V2OperationTimer.start(this.metricsListener, "UpdateShadow");
 
         try {
             if (request.thingName == null) {
@@ -441,13 +532,12 @@ public class IotShadowV2Client implements AutoCloseable {
             RequestResponseOperation.RequestResponseOperationBuilder builder = RequestResponseOperation.builder();
 
             // Correlation Token
-            String correlationToken = UUID.randomUUID().toString();
+            String correlationToken = this.correlationTokenGenerator.nextToken();
             request.clientToken = correlationToken;
             builder.withCorrelationToken(correlationToken);
 
             // Publish Topic
-            String publishTopic = "$aws/things/{thingName}/shadow/update";
-            publishTopic = publishTopic.replace("{thingName}", request.thingName);
+            String publishTopic = UPDATE_SHADOW_PUBLISH_TOPIC.render(request.thingName);
             builder.withPublishTopic(publishTopic);
 
             // Payload
@@ -455,29 +545,28 @@ public class IotShadowV2Client implements AutoCloseable {
             builder.withPayload(payloadJson.getBytes(StandardCharsets.UTF_8));
 
             // Subscriptions
-            String subscription0 = "$aws/things/{thingName}/shadow/update/accepted";
-            subscription0 = subscription0.replace("{thingName}", request.thingName);
+            String subscription0 = UPDATE_SHADOW_SUBSCRIPTION_TOPIC0.render(request.thingName);
             builder.withSubscription(subscription0);
-            String subscription1 = "$aws/things/{thingName}/shadow/update/rejected";
-            subscription1 = subscription1.replace("{thingName}", request.thingName);
+            String subscription1 = UPDATE_SHADOW_SUBSCRIPTION_TOPIC1.render(request.thingName);
             builder.withSubscription(subscription1);
 
             // Response paths
             ResponsePath.ResponsePathBuilder pathBuilder1 = ResponsePath.builder();
-            String responseTopic1 = publishTopic + "/accepted";
-            pathBuilder1.withResponseTopic(publishTopic + "/accepted");
+            String responseTopic1 = subscription0;
+            pathBuilder1.withResponseTopic(responseTopic1);
             pathBuilder1.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder1.build());
 
             ResponsePath.ResponsePathBuilder pathBuilder2 = ResponsePath.builder();
-            String responseTopic2 = publishTopic + "/rejected";
-            pathBuilder2.withResponseTopic(publishTopic + "/rejected");
+            String responseTopic2 = subscription1;
+            pathBuilder2.withResponseTopic(responseTopic2);
             pathBuilder2.withCorrelationTokenJsonPath("clientToken");
             builder.withResponsePath(pathBuilder2.build());
 
             // Submit
-            submitOperation(responseFuture, builder.build(), responseTopic1, UpdateShadowResponse.class, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
+            submitOperation(responseFuture, timer, builder.build(), responseTopic1, responseGson, responseType, responseTopic2, V2ErrorResponse.class, IotShadowV2Client::createV2ErrorResponseException);
         } catch (Exception e) {
+            timer.fail(e);
             responseFuture.completeExceptionally(createV2ErrorResponseException(e.getMessage(), null));
         }
 
@@ -497,34 +586,28 @@ public class IotShadowV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createNamedShadowDeltaUpdatedStream(NamedShadowDeltaUpdatedSubscriptionRequest request, V2ClientStreamOptions<ShadowDeltaUpdatedEvent> options) {
-        String topic = "$aws/things/{thingName}/shadow/name/{shadowName}/update/delta";
+        return createNamedShadowDeltaUpdatedStream(request, options, this.gson, ShadowDeltaUpdatedEvent.class);
+    }
 
+    /**
+     * Variant of {@link #createNamedShadowDeltaUpdatedStream(NamedShadowDeltaUpdatedSubscriptionRequest, V2ClientStreamOptions)} that decodes events into the given type
+     * with the given Gson instance.  Used by TypedShadowClient to bind shadow state to application classes.
+     */
+    <T> StreamingOperation createNamedShadowDeltaUpdatedStream(NamedShadowDeltaUpdatedSubscriptionRequest request, V2ClientStreamOptions<T> options, Gson eventGson, Type eventType) {
         if (request.thingName == null) {
             throw new CrtRuntimeException("NamedShadowDeltaUpdatedSubscriptionRequest.thingName cannot be null");
         }
-        topic = topic.replace("{thingName}", request.thingName);
 
         if (request.shadowName == null) {
             throw new CrtRuntimeException("NamedShadowDeltaUpdatedSubscriptionRequest.shadowName cannot be null");
         }
-        topic = topic.replace("{shadowName}", request.shadowName);
+
+        String topic = CREATE_NAMED_SHADOW_DELTA_UPDATED_STREAM_TOPIC.render(request.thingName, request.shadowName);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
-            .withIncomingPublishEventCallback((event) -> {
-                try {
-                    ShadowDeltaUpdatedEvent response = createShadowDeltaUpdatedEvent(event);
-                    options.streamEventHandler().accept(response);
-                } catch (Exception e) {
-                    V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
-                        .withCause(e)
-                        .withPayload(event.getPayload())
-                        .withTopic(event.getTopic())
-                        .build();
-                    options.deserializationFailureHandler().accept(failureEvent);
-                }
-            })
+            .withIncomingPublishEventCallback((event) -> deliverStreamEvent(eventGson, eventType, options, event.getTopic(), event.getPayload()))
             .build();
 
         return this.rrClient.createStream(innerOptions);
@@ -543,34 +626,28 @@ public class IotShadowV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createNamedShadowUpdatedStream(NamedShadowUpdatedSubscriptionRequest request, V2ClientStreamOptions<ShadowUpdatedEvent> options) {
-        String topic = "$aws/things/{thingName}/shadow/name/{shadowName}/update/documents";
+        return createNamedShadowUpdatedStream(request, options, this.gson, ShadowUpdatedEvent.class);
+    }
 
+    /**
+     * Variant of {@link #createNamedShadowUpdatedStream(NamedShadowUpdatedSubscriptionRequest, V2ClientStreamOptions)} that decodes events into the given type
+     * with the given Gson instance.  Used by TypedShadowClient to bind shadow state to application classes.
+     */
+    <T> StreamingOperation createNamedShadowUpdatedStream(NamedShadowUpdatedSubscriptionRequest request, V2ClientStreamOptions<T> options, Gson eventGson, Type eventType) {
         if (request.thingName == null) {
             throw new CrtRuntimeException("NamedShadowUpdatedSubscriptionRequest.thingName cannot be null");
         }
-        topic = topic.replace("{thingName}", request.thingName);
 
         if (request.shadowName == null) {
             throw new CrtRuntimeException("NamedShadowUpdatedSubscriptionRequest.shadowName cannot be null");
         }
-        topic = topic.replace("{shadowName}", request.shadowName);
+
+        String topic = CREATE_NAMED_SHADOW_UPDATED_STREAM_TOPIC.render(request.thingName, request.shadowName);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
-            .withIncomingPublishEventCallback((event) -> {
-                try {
-                    ShadowUpdatedEvent response = createShadowUpdatedEvent(event);
-                    options.streamEventHandler().accept(response);
-                } catch (Exception e) {
-                    V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
-                        .withCause(e)
-                        .withPayload(event.getPayload())
-                        .withTopic(event.getTopic())
-                        .build();
-                    options.deserializationFailureHandler().accept(failureEvent);
-                }
-            })
+            .withIncomingPublishEventCallback((event) -> deliverStreamEvent(eventGson, eventType, options, event.getTopic(), event.getPayload()))
             .build();
 
         return this.rrClient.createStream(innerOptions);
@@ -589,29 +666,24 @@ public class IotShadowV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createShadowDeltaUpdatedStream(ShadowDeltaUpdatedSubscriptionRequest request, V2ClientStreamOptions<ShadowDeltaUpdatedEvent> options) {
-        String topic = "$aws/things/{thingName}/shadow/update/delta";
+        return createShadowDeltaUpdatedStream(request, options, this.gson, ShadowDeltaUpdatedEvent.class);
+    }
 
+    /**
+     * Variant of {@link #createShadowDeltaUpdatedStream(ShadowDeltaUpdatedSubscriptionRequest, V2ClientStreamOptions)} that decodes events into the given type
+     * with the given Gson instance.  Used by TypedShadowClient to bind shadow state to application classes.
+     */
+    <T> StreamingOperation createShadowDeltaUpdatedStream(ShadowDeltaUpdatedSubscriptionRequest request, V2ClientStreamOptions<T> options, Gson eventGson, Type eventType) {
         if (request.thingName == null) {
             throw new CrtRuntimeException("ShadowDeltaUpdatedSubscriptionRequest.thingName cannot be null");
         }
-        topic = topic.replace("{thingName}", request.thingName);
+
+        String topic = CREATE_SHADOW_DELTA_UPDATED_STREAM_TOPIC.render(request.thingName);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
-            .withIncomingPublishEventCallback((event) -> {
-                try {
-                    ShadowDeltaUpdatedEvent response = createShadowDeltaUpdatedEvent(event);
-                    options.streamEventHandler().accept(response);
-                } catch (Exception e) {
-                    V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
-                        .withCause(e)
-                        .withPayload(event.getPayload())
-                        .withTopic(event.getTopic())
-                        .build();
-                    options.deserializationFailureHandler().accept(failureEvent);
-                }
-            })
+            .withIncomingPublishEventCallback((event) -> deliverStreamEvent(eventGson, eventType, options, event.getTopic(), event.getPayload()))
             .build();
 
         return this.rrClient.createStream(innerOptions);
@@ -630,29 +702,24 @@ public class IotShadowV2Client implements AutoCloseable {
      *    associated MQTT topic
      */
     public StreamingOperation createShadowUpdatedStream(ShadowUpdatedSubscriptionRequest request, V2ClientStreamOptions<ShadowUpdatedEvent> options) {
-        String topic = "$aws/things/{thingName}/shadow/update/documents";
+        return createShadowUpdatedStream(request, options, this.gson, ShadowUpdatedEvent.class);
+    }
 
+    /**
+     * Variant of {@link #createShadowUpdatedStream(ShadowUpdatedSubscriptionRequest, V2ClientStreamOptions)} that decodes events into the given type
+     * with the given Gson instance.  Used by TypedShadowClient to bind shadow state to application classes.
+     */
+    <T> StreamingOperation createShadowUpdatedStream(ShadowUpdatedSubscriptionRequest request, V2ClientStreamOptions<T> options, Gson eventGson, Type eventType) {
         if (request.thingName == null) {
             throw new CrtRuntimeException("ShadowUpdatedSubscriptionRequest.thingName cannot be null");
         }
-        topic = topic.replace("{thingName}", request.thingName);
+
+        String topic = CREATE_SHADOW_UPDATED_STREAM_TOPIC.render(request.thingName);
 
         StreamingOperationOptions innerOptions = StreamingOperationOptions.builder()
             .withTopic(topic)
             .withSubscriptionStatusEventCallback(options.subscriptionEventHandler())
-            .withIncomingPublishEventCallback((event) -> {
-                try {
-                    ShadowUpdatedEvent response = createShadowUpdatedEvent(event);
-                    options.streamEventHandler().accept(response);
-                } catch (Exception e) {
-                    V2DeserializationFailureEvent failureEvent = V2DeserializationFailureEvent.builder()
-                        .withCause(e)
-                        .withPayload(event.getPayload())
-                        .withTopic(event.getTopic())
-                        .build();
-                    options.deserializationFailureHandler().accept(failureEvent);
-                }
-            })
+            .withIncomingPublishEventCallback((event) -> deliverStreamEvent(eventGson, eventType, options, event.getTopic(), event.getPayload()))
             .build();
 
         return this.rrClient.createStream(innerOptions);
@@ -662,34 +729,45 @@ public class IotShadowV2Client implements AutoCloseable {
         return new V2ErrorResponseException(message, errorResponse);
     }
 
-    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, RequestResponseOperation operation, String responseTopic, Class<T> responseClass, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
+    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, V2OperationTimer timer, RequestResponseOperation operation, String responseTopic, Class<T> responseClass, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
+        submitOperation(finalFuture, timer, operation, responseTopic, this.gson, responseClass, errorTopic, errorClass, exceptionFactory);
+    }
+
+    private <T, E> void submitOperation(V2ClientFuture<T> finalFuture, V2OperationTimer timer, RequestResponseOperation operation, String responseTopic, Gson responseGson, Type responseType, String errorTopic, Class<E> errorClass, BiFunction<String, E, Throwable> exceptionFactory) {
         try {
+            timer.submitted();
             CompletableFuture<MqttRequestResponse> responseFuture = this.rrClient.submitRequest(operation);
             CompletableFuture<MqttRequestResponse> compositeFuture = responseFuture.whenComplete((res, ex) -> {
+                timer.received();
                 if (ex != null) {
+                    timer.fail(ex);
                     finalFuture.completeExceptionally(exceptionFactory.apply(ex.getMessage(), null));
                 } else if (res.getTopic().equals(responseTopic)) {
                     try {
-                        String payload = new String(res.getPayload(), StandardCharsets.UTF_8);
-                        T response = this.gson.fromJson(payload, responseClass);
+                        T response = JsonPayloadDecoder.fromJson(responseGson, res.getPayload(), responseType);
+                        timer.complete(V2OperationOutcome.SUCCEEDED);
                         finalFuture.complete(response);
                     } catch (Exception e) {
+                        timer.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
                         finalFuture.completeExceptionally(exceptionFactory.apply(e.getMessage(), null));
                     }
                 } else if (res.getTopic().equals(errorTopic)) {
                     try {
-                        String payload = new String(res.getPayload(), StandardCharsets.UTF_8);
-                        E error = this.gson.fromJson(payload, errorClass);
+                        E error = JsonPayloadDecoder.fromJson(this.gson, res.getPayload(), errorClass);
+                        timer.complete(V2OperationOutcome.REJECTED);
                         finalFuture.completeExceptionally(exceptionFactory.apply("Request-response operation failure", error));
                     } catch (Exception e) {
+                        timer.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
                         finalFuture.completeExceptionally(exceptionFactory.apply(e.getMessage(), null));
                     }
                 } else {
+                    timer.complete(V2OperationOutcome.FAILED);
                     finalFuture.completeExceptionally(exceptionFactory.apply("Request-response operation completed on unknown topic: " + res.getTopic(), null));
                 }
             });
             finalFuture.setTriggeringFuture(compositeFuture);
         } catch (Exception ex) {
+            timer.fail(ex);
             finalFuture.completeExceptionally(exceptionFactory.apply(ex.getMessage(), null));
         }
     }
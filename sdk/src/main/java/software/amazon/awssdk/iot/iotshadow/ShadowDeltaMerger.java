@@ -0,0 +1,214 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+
+/**
+ * Applies shadow delta events to a locally held shadow state, so that a full view of the shadow can be kept
+ * without a GetShadow round trip per delta.
+ *
+ * The state of a delta event is merged into the desired section the way the Device Shadow service merges an
+ * update: nested objects are merged property by property, any other value (including arrays) replaces the held
+ * value, and a null value deletes the property.  Held state is never modified; maps along the changed paths are
+ * copied and everything else is shared with the held state.
+ *
+ * Every merge reports the dotted paths of the leaf properties it changed, such as
+ * {@code desired.config.sampleRate}.
+ */
+public final class ShadowDeltaMerger {
+
+    /**
+     * How a delta event related to the held version
+     */
+    public enum Outcome {
+
+        /**
+         * The event was newer than the held version and was applied.  Versions may be skipped: an update that
+         * only changes reported state increments the shadow version without publishing a delta event.
+         */
+        APPLIED,
+
+        /**
+         * The event was not newer than the held version, so it was a duplicate or arrived out of order, and was
+         * ignored.
+         */
+        STALE
+    }
+
+    /**
+     * The result of applying a delta event
+     */
+    public static final class MergeResult {
+        private final Outcome outcome;
+        private final ShadowState state;
+        private final Integer version;
+        private final List<String> changedPaths;
+
+        private MergeResult(Outcome outcome, ShadowState state, Integer version, List<String> changedPaths) {
+            this.outcome = outcome;
+            this.state = state;
+            this.version = version;
+            this.changedPaths = changedPaths;
+        }
+
+        /**
+         * @return how the event related to the held version
+         */
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return the merged state if the event was applied, otherwise the held state
+         */
+        public ShadowState getState() {
+            return state;
+        }
+
+        /**
+         * @return the version of the returned state
+         */
+        public Integer getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the dotted paths of the properties the event changed, empty unless it was applied
+         */
+        public List<String> getChangedPaths() {
+            return changedPaths;
+        }
+    }
+
+    private static final String DESIRED_PATH = "desired";
+
+    private ShadowDeltaMerger() {}
+
+    /**
+     * Applies a delta event to a held shadow state
+     *
+     * @param held the held state; it is not modified
+     * @param heldVersion the version of the held state, or null if it is unknown
+     * @param event the delta event to apply
+     * @return the outcome, resulting state and changed paths
+     */
+    public static MergeResult apply(ShadowState held, Integer heldVersion, ShadowDeltaUpdatedEvent event) {
+        if (event.version == null || (heldVersion != null && event.version <= heldVersion)) {
+            return new MergeResult(Outcome.STALE, held, heldVersion, Collections.emptyList());
+        }
+
+        List<String> changedPaths = new ArrayList<>();
+        HashMap<String, Object> desired = held != null ? held.desired : null;
+        HashMap<String, Object> merged = merge(desired, event.state, DESIRED_PATH, changedPaths);
+
+        ShadowState state = new ShadowState();
+        if (held != null) {
+            state.reported = held.reported;
+            state.reportedIsNullable = held.reportedIsNullable;
+            state.desiredIsNullable = held.desiredIsNullable;
+        }
+        state.desired = merged;
+
+        return new MergeResult(Outcome.APPLIED, state, event.version, Collections.unmodifiableList(changedPaths));
+    }
+
+    /**
+     * Merges a set of changes into a map with shadow update semantics.  Nested maps are merged, null values
+     * delete, and anything else replaces.
+     *
+     * @param target the map to merge into, or null for an empty map; it is not modified
+     * @param changes the changes to merge, or null for no changes
+     * @param pathPrefix the dotted path of the target, prepended to reported paths; may be empty
+     * @param changedPaths receives the dotted paths of the properties that changed
+     * @return the merged map, or the target itself if nothing changed
+     */
+    public static HashMap<String, Object> merge(Map<String, Object> target, Map<String, Object> changes,
+                                                String pathPrefix, List<String> changedPaths) {
+        HashMap<String, Object> base = toHashMap(target);
+        if (changes == null || changes.isEmpty()) {
+            return base;
+        }
+
+        HashMap<String, Object> merged = null;
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String name = change.getKey();
+            String path = pathPrefix.isEmpty() ? name : pathPrefix + "." + name;
+            Object held = base != null ? base.get(name) : null;
+            boolean present = base != null && base.containsKey(name);
+            Object value = change.getValue();
+
+            if (value == null) {
+                if (!present) {
+                    continue;
+                }
+                merged = copyOnWrite(merged, base);
+                merged.remove(name);
+                addLeafPaths(held, path, changedPaths);
+            } else if (value instanceof Map && held instanceof Map) {
+                int before = changedPaths.size();
+                HashMap<String, Object> nested = merge(asMap(held), asMap(value), path, changedPaths);
+                if (changedPaths.size() != before) {
+                    merged = copyOnWrite(merged, base);
+                    merged.put(name, nested);
+                }
+            } else if (!present || !Objects.equals(held, value)) {
+                merged = copyOnWrite(merged, base);
+                merged.put(name, value);
+                if (held instanceof Map) {
+                    addLeafPaths(held, path, changedPaths);
+                }
+                addLeafPaths(value, path, changedPaths);
+            }
+        }
+
+        return merged != null ? merged : base;
+    }
+
+    private static HashMap<String, Object> copyOnWrite(HashMap<String, Object> merged, HashMap<String, Object> base) {
+        if (merged != null) {
+            return merged;
+        }
+
+        return base != null ? new HashMap<>(base) : new HashMap<>();
+    }
+
+    private static HashMap<String, Object> toHashMap(Map<String, Object> map) {
+        if (map == null || map instanceof HashMap) {
+            return (HashMap<String, Object>) map;
+        }
+
+        return new HashMap<>(map);
+    }
+
+    /**
+     * Reports every leaf below a replaced or deleted value, so a listener on a nested property learns of it
+     * even when an ancestor object was replaced as a whole.
+     */
+    private static void addLeafPaths(Object value, String path, List<String> changedPaths) {
+        if (value instanceof Map && !((Map<?, ?>) value).isEmpty()) {
+            for (Map.Entry<String, Object> entry : asMap(value).entrySet()) {
+                addLeafPaths(entry.getValue(), path + "." + entry.getKey(), changedPaths);
+            }
+        } else {
+            changedPaths.add(path);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        // Nested JSON objects are deserialized as string-keyed maps
+        return (Map<String, Object>) value;
+    }
+}
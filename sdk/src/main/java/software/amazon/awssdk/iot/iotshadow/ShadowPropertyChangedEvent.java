@@ -0,0 +1,42 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+/**
+ * A change to a shadow property that a {@link ShadowPropertyDispatcher} listener was registered for
+ */
+public class ShadowPropertyChangedEvent {
+    private final String path;
+    private final Object value;
+    private final Integer version;
+
+    ShadowPropertyChangedEvent(String path, Object value, Integer version) {
+        this.path = path;
+        this.value = value;
+        this.version = version;
+    }
+
+    /**
+     * @return the dotted path the listener was registered for, such as {@code desired.config.sampleRate}
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the new value of the property, or null if the property was deleted.  Object values are maps.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return the shadow version the change belongs to
+     */
+    public Integer getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,333 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import software.amazon.awssdk.crt.Log;
+import software.amazon.awssdk.crt.Log.LogLevel;
+import software.amazon.awssdk.crt.Log.LogSubject;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedSnapshot;
+
+/**
+ * Dispatches shadow stream events to listeners registered for individual property paths, such as
+ * {@code desired.config.sampleRate}.
+ *
+ * Listener paths are held in a trie of path segments.  An event is walked once, alongside the trie, and only
+ * the parts of the event that some listener is registered under are visited; listeners whose properties the
+ * event does not touch are not run.  A listener runs when its property, or any property beneath it, changes.
+ * If an ancestor of the property is deleted or replaced by a non-object value, the listener runs with a null
+ * value.
+ *
+ * Use {@link #deltaUpdatedHandler()} and {@link #updatedHandler()} as the stream event handlers of
+ * V2ClientStreamOptions for the shadow's delta and updated streams.  The state of a delta event is dispatched
+ * under {@code desired}.  An updated event is dispatched by comparing its previous and current documents, under
+ * both {@code desired} and {@code reported}.
+ *
+ * Listeners may be added and removed while events are being dispatched.  A listener that throws does not stop
+ * the other listeners from running, and the exception is not passed back to the stream that delivered the
+ * event; it goes to the listener error handler, which by default logs it.
+ */
+public class ShadowPropertyDispatcher {
+
+    private static final String DESIRED = "desired";
+    private static final String REPORTED = "reported";
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Consumer<ShadowPropertyChangedEvent>[] NO_LISTENERS = new Consumer[0];
+
+    private volatile Node root = new Node("", Collections.emptyMap(), NO_LISTENERS);
+    private final Object registrationLock = new Object();
+    private final BiConsumer<ShadowPropertyChangedEvent, RuntimeException> listenerErrorHandler;
+
+    /**
+     * Creates a dispatcher that logs listener exceptions
+     */
+    public ShadowPropertyDispatcher() {
+        this(null);
+    }
+
+    /**
+     * Creates a dispatcher that hands listener exceptions to an error handler
+     *
+     * @param listenerErrorHandler called with the event and the exception when a listener throws, or null to log
+     * the exception
+     */
+    public ShadowPropertyDispatcher(BiConsumer<ShadowPropertyChangedEvent, RuntimeException> listenerErrorHandler) {
+        this.listenerErrorHandler = listenerErrorHandler;
+    }
+
+    /**
+     * Registers a listener for a property path
+     *
+     * @param path dotted path of the property, starting with {@code desired} or {@code reported}
+     * @param listener the callback to invoke when the property changes
+     */
+    public void addListener(String path, Consumer<ShadowPropertyChangedEvent> listener) {
+        String[] segments = parsePath(path);
+        Objects.requireNonNull(listener, "listener");
+
+        synchronized (registrationLock) {
+            root = root.withListener(segments, 0, listener, true);
+        }
+    }
+
+    /**
+     * Removes a listener previously registered for a property path
+     *
+     * @param path dotted path the listener was registered with
+     * @param listener the callback to remove
+     * @return true if the listener was registered for the path
+     */
+    public boolean removeListener(String path, Consumer<ShadowPropertyChangedEvent> listener) {
+        String[] segments = parsePath(path);
+
+        synchronized (registrationLock) {
+            Node updated = root.withListener(segments, 0, listener, false);
+            if (updated == root) {
+                return false;
+            }
+            root = updated;
+            return true;
+        }
+    }
+
+    /**
+     * @return a handler suitable for a shadow delta stream that dispatches each event to this dispatcher
+     */
+    public Consumer<ShadowDeltaUpdatedEvent> deltaUpdatedHandler() {
+        return this::dispatch;
+    }
+
+    /**
+     * @return a handler suitable for a shadow updated stream that dispatches each event to this dispatcher
+     */
+    public Consumer<ShadowUpdatedEvent> updatedHandler() {
+        return this::dispatch;
+    }
+
+    /**
+     * Runs the listeners for every property a delta event changes
+     *
+     * @param event the delta event to dispatch
+     */
+    public void dispatch(ShadowDeltaUpdatedEvent event) {
+        Node desired = root.children.get(DESIRED);
+        if (desired == null || event.state == null) {
+            return;
+        }
+
+        Dispatch dispatch = new Dispatch(event.version);
+        dispatch.walkDelta(desired, event.state, true);
+    }
+
+    /**
+     * Runs the listeners for every property that differs between the previous and current documents of an
+     * updated event
+     *
+     * @param event the updated event to dispatch
+     */
+    public void dispatch(ShadowUpdatedEvent event) {
+        ShadowState previous = stateOf(event.previous);
+        ShadowState current = stateOf(event.current);
+        Dispatch dispatch = new Dispatch(event.current != null ? event.current.version : null);
+
+        Node desired = root.children.get(DESIRED);
+        if (desired != null) {
+            dispatch.walkUpdated(desired, previous.desired, current.desired);
+        }
+
+        Node reported = root.children.get(REPORTED);
+        if (reported != null) {
+            dispatch.walkUpdated(reported, previous.reported, current.reported);
+        }
+    }
+
+    private static ShadowState stateOf(ShadowUpdatedSnapshot snapshot) {
+        if (snapshot == null || snapshot.state == null) {
+            return new ShadowState();
+        }
+
+        return snapshot.state;
+    }
+
+    private static String[] parsePath(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Shadow property path cannot be empty");
+        }
+
+        String[] segments = path.split("\\.", -1);
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("Shadow property path has an empty segment: " + path);
+            }
+        }
+
+        if (!segments[0].equals(DESIRED) && !segments[0].equals(REPORTED)) {
+            throw new IllegalArgumentException("Shadow property path must start with desired or reported: " + path);
+        }
+
+        return segments;
+    }
+
+    private void onListenerFailure(ShadowPropertyChangedEvent event, RuntimeException failure) {
+        if (listenerErrorHandler != null) {
+            try {
+                listenerErrorHandler.accept(event, failure);
+                return;
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+
+        Log.log(LogLevel.Error, LogSubject.JavaCrtGeneral, "ShadowPropertyDispatcher listener for " + event.getPath() + " threw: " + failure);
+    }
+
+    /**
+     * State of a single dispatch: the version of the event being dispatched
+     */
+    private class Dispatch {
+        private final Integer version;
+
+        private Dispatch(Integer version) {
+            this.version = version;
+        }
+
+        private void walkDelta(Node node, Object value, boolean present) {
+            if (!present) {
+                return;
+            }
+
+            notify(node, value);
+            if (node.children.isEmpty()) {
+                return;
+            }
+
+            if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                for (Map.Entry<String, Node> child : node.children.entrySet()) {
+                    String name = child.getKey();
+                    walkDelta(child.getValue(), map.get(name), map.containsKey(name));
+                }
+            } else {
+                // The object this node's children lived in has been deleted or replaced
+                for (Node child : node.children.values()) {
+                    notifySubtree(child);
+                }
+            }
+        }
+
+        private void walkUpdated(Node node, Object previous, Object current) {
+            if (Objects.equals(previous, current)) {
+                return;
+            }
+
+            notify(node, current);
+            if (node.children.isEmpty()) {
+                return;
+            }
+
+            Map<?, ?> previousMap = previous instanceof Map ? (Map<?, ?>) previous : Collections.emptyMap();
+            Map<?, ?> currentMap = current instanceof Map ? (Map<?, ?>) current : Collections.emptyMap();
+            for (Map.Entry<String, Node> child : node.children.entrySet()) {
+                String name = child.getKey();
+                walkUpdated(child.getValue(), previousMap.get(name), currentMap.get(name));
+            }
+        }
+
+        private void notifySubtree(Node node) {
+            notify(node, null);
+            for (Node child : node.children.values()) {
+                notifySubtree(child);
+            }
+        }
+
+        private void notify(Node node, Object value) {
+            if (node.listeners.length == 0) {
+                return;
+            }
+
+            ShadowPropertyChangedEvent event = new ShadowPropertyChangedEvent(node.path, value, version);
+            for (Consumer<ShadowPropertyChangedEvent> listener : node.listeners) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    onListenerFailure(event, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * An immutable trie node.  Registration replaces the nodes along the registered path and shares the rest,
+     * so a dispatch in progress keeps walking the trie it started with.  Each node carries its full dotted path
+     * so dispatch does not build path strings.
+     */
+    private static class Node {
+        private final String path;
+        private final Map<String, Node> children;
+        private final Consumer<ShadowPropertyChangedEvent>[] listeners;
+
+        private Node(String path, Map<String, Node> children, Consumer<ShadowPropertyChangedEvent>[] listeners) {
+            this.path = path;
+            this.children = children;
+            this.listeners = listeners;
+        }
+
+        private boolean isEmpty() {
+            return children.isEmpty() && listeners.length == 0;
+        }
+
+        private Node withListener(String[] segments, int index, Consumer<ShadowPropertyChangedEvent> listener, boolean add) {
+            if (index == segments.length) {
+                if (add) {
+                    Consumer<ShadowPropertyChangedEvent>[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+                    updated[listeners.length] = listener;
+                    return new Node(path, children, updated);
+                }
+
+                for (int i = 0; i < listeners.length; i++) {
+                    if (listeners[i] == listener) {
+                        Consumer<ShadowPropertyChangedEvent>[] updated = Arrays.copyOf(listeners, listeners.length - 1);
+                        System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+                        return new Node(path, children, updated);
+                    }
+                }
+                return this;
+            }
+
+            Node child = children.get(segments[index]);
+            if (child == null) {
+                if (!add) {
+                    return this;
+                }
+                child = new Node(index == 0 ? segments[0] : path + "." + segments[index], Collections.emptyMap(), NO_LISTENERS);
+            }
+
+            Node updatedChild = child.withListener(segments, index + 1, listener, add);
+            if (updatedChild == child) {
+                return this;
+            }
+
+            Map<String, Node> updatedChildren = new HashMap<>(children);
+            if (updatedChild.isEmpty()) {
+                updatedChildren.remove(segments[index]);
+            } else {
+                updatedChildren.put(segments[index], updatedChild);
+            }
+            return new Node(path, updatedChildren.isEmpty() ? Collections.emptyMap() : updatedChildren, listeners);
+        }
+    }
+}
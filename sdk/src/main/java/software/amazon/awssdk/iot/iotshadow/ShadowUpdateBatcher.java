@@ -0,0 +1,511 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateNamedShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowResponse;
+
+/**
+ * Coalesces shadow updates that arrive in quick succession into a single UpdateShadow request.
+ *
+ * Updates to the same thing and shadow are deep-merged into one pending document, mirroring the way the
+ * Device Shadow service applies a sequence of partial updates.  The pending document is sent when the batching
+ * window that started with its first update elapses, when it has absorbed the configured maximum number of
+ * updates, or when {@link #flush()} or {@link #close()} is called.  Every caller whose update went into the
+ * document receives the single service response (or failure) for it.
+ *
+ * Updates that cannot be merged without changing their meaning are not coalesced:
+ * <ul>
+ *   <li>an update carrying a version is sent on its own, after any pending document for the same shadow</li>
+ *   <li>an update that sets a property the pending document deletes (or vice versa for whole sections) first
+ *   sends the pending document and then starts a new one</li>
+ * </ul>
+ *
+ * Requests are handed to the transport while the batcher's lock is held, so requests for the same shadow reach
+ * the transport in the order their updates were made.  The transport must therefore not block.
+ */
+public class ShadowUpdateBatcher implements AutoCloseable {
+
+    /**
+     * Transport the batcher sends its coalesced requests through.  Normally an IotShadowV2Client.
+     */
+    interface UpdateTransport {
+        CompletableFuture<UpdateShadowResponse> updateShadow(UpdateShadowRequest request);
+        CompletableFuture<UpdateShadowResponse> updateNamedShadow(UpdateNamedShadowRequest request);
+    }
+
+    private static final long DEFAULT_WINDOW_MILLIS = 100;
+    private static final int DEFAULT_MAX_UPDATES_PER_BATCH = 32;
+
+    private final UpdateTransport transport;
+    private final long windowMillis;
+    private final int maxUpdatesPerBatch;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+
+    private final Object lock = new Object();
+    private final Map<String, PendingUpdate> pendingUpdates = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * Builder type for ShadowUpdateBatcher instances
+     */
+    public static class ShadowUpdateBatcherBuilder {
+        private final UpdateTransport transport;
+        private long windowMillis = DEFAULT_WINDOW_MILLIS;
+        private int maxUpdatesPerBatch = DEFAULT_MAX_UPDATES_PER_BATCH;
+        private ScheduledExecutorService scheduler;
+
+        private ShadowUpdateBatcherBuilder(UpdateTransport transport) {
+            this.transport = transport;
+        }
+
+        /**
+         * Sets how long the batcher waits, after the first update to a shadow, for further updates to merge
+         * with it.  Defaults to 100 milliseconds.
+         *
+         * @param windowMillis the batching window in milliseconds
+         * @return this builder object
+         */
+        public ShadowUpdateBatcherBuilder withWindowMillis(long windowMillis) {
+            this.windowMillis = windowMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of updates after which a pending document is sent without waiting for the rest of
+         * the batching window.  Defaults to 32.
+         *
+         * @param maxUpdatesPerBatch the maximum number of updates to merge into one request
+         * @return this builder object
+         */
+        public ShadowUpdateBatcherBuilder withMaxUpdatesPerBatch(int maxUpdatesPerBatch) {
+            this.maxUpdatesPerBatch = maxUpdatesPerBatch;
+
+            return this;
+        }
+
+        /**
+         * Sets the executor used to send pending documents when their batching window elapses.  If not set,
+         * the batcher creates a single daemon thread and shuts it down when the batcher is closed.  A supplied
+         * executor is not shut down by the batcher.
+         *
+         * @param scheduler the executor to schedule flushes on
+         * @return this builder object
+         */
+        public ShadowUpdateBatcherBuilder withScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+
+            return this;
+        }
+
+        /**
+         * Creates a new ShadowUpdateBatcher from the existing configuration.
+         *
+         * @return a new ShadowUpdateBatcher
+         */
+        public ShadowUpdateBatcher build() {
+            if (windowMillis < 0) {
+                throw new IllegalArgumentException("ShadowUpdateBatcher window cannot be negative");
+            }
+            if (maxUpdatesPerBatch < 1) {
+                throw new IllegalArgumentException("ShadowUpdateBatcher must allow at least one update per batch");
+            }
+
+            return new ShadowUpdateBatcher(this);
+        }
+    }
+
+    private ShadowUpdateBatcher(ShadowUpdateBatcherBuilder builder) {
+        this.transport = builder.transport;
+        this.windowMillis = builder.windowMillis;
+        this.maxUpdatesPerBatch = builder.maxUpdatesPerBatch;
+        if (builder.scheduler != null) {
+            this.scheduler = builder.scheduler;
+            this.ownsScheduler = false;
+        } else {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ShadowUpdateBatcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.ownsScheduler = true;
+        }
+    }
+
+    /**
+     * Creates a new builder for a batcher that sends its updates through a shadow client
+     *
+     * @param client the shadow client to send coalesced updates with
+     * @return a new builder object for ShadowUpdateBatcher instances
+     */
+    public static ShadowUpdateBatcherBuilder builder(IotShadowV2Client client) {
+        return new ShadowUpdateBatcherBuilder(new UpdateTransport() {
+            @Override
+            public CompletableFuture<UpdateShadowResponse> updateShadow(UpdateShadowRequest request) {
+                return client.updateShadow(request);
+            }
+
+            @Override
+            public CompletableFuture<UpdateShadowResponse> updateNamedShadow(UpdateNamedShadowRequest request) {
+                return client.updateNamedShadow(request);
+            }
+        });
+    }
+
+    static ShadowUpdateBatcherBuilder builder(UpdateTransport transport) {
+        return new ShadowUpdateBatcherBuilder(transport);
+    }
+
+    /**
+     * Queues an update to a device's (classic) shadow.  The request object is not modified or retained.
+     *
+     * @param request modeled request to merge into the pending update
+     *
+     * @return a future that will complete with the response to the request the update was sent in
+     */
+    public CompletableFuture<UpdateShadowResponse> updateShadow(UpdateShadowRequest request) {
+        if (request.thingName == null || request.state == null || request.version != null) {
+            return sendAlone(request.thingName, null, () -> transport.updateShadow(request));
+        }
+
+        return submit(request.thingName, null, request.state);
+    }
+
+    /**
+     * Queues an update to a named shadow.  The request object is not modified or retained.
+     *
+     * @param request modeled request to merge into the pending update
+     *
+     * @return a future that will complete with the response to the request the update was sent in
+     */
+    public CompletableFuture<UpdateShadowResponse> updateNamedShadow(UpdateNamedShadowRequest request) {
+        if (request.thingName == null || request.shadowName == null || request.state == null || request.version != null) {
+            return sendAlone(request.thingName, request.shadowName, () -> transport.updateNamedShadow(request));
+        }
+
+        return submit(request.thingName, request.shadowName, request.state);
+    }
+
+    /**
+     * Sends every pending update immediately
+     */
+    public void flush() {
+        List<PendingUpdate> updates;
+        List<CompletableFuture<UpdateShadowResponse>> responses = new ArrayList<>();
+        synchronized (lock) {
+            updates = new ArrayList<>(pendingUpdates.values());
+            pendingUpdates.clear();
+            for (PendingUpdate update : updates) {
+                update.cancelTimer();
+                responses.add(issue(update));
+            }
+        }
+
+        for (int i = 0; i < updates.size(); i++) {
+            deliver(updates.get(i), responses.get(i));
+        }
+    }
+
+    /**
+     * Sends every pending update and stops accepting new ones.  Updates submitted afterwards fail.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+
+        flush();
+
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private CompletableFuture<UpdateShadowResponse> submit(String thingName, String shadowName, ShadowState state) {
+        CompletableFuture<UpdateShadowResponse> future = new CompletableFuture<>();
+        String key = toKey(thingName, shadowName);
+        PendingUpdate toSend = null;
+        CompletableFuture<UpdateShadowResponse> toSendResponse = null;
+        PendingUpdate full = null;
+        CompletableFuture<UpdateShadowResponse> fullResponse = null;
+
+        synchronized (lock) {
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("ShadowUpdateBatcher is closed"));
+                return future;
+            }
+
+            PendingUpdate pending = pendingUpdates.get(key);
+            if (pending != null && !pending.merge(state)) {
+                pendingUpdates.remove(key);
+                pending.cancelTimer();
+                toSend = pending;
+                toSendResponse = issue(toSend);
+                pending = null;
+            }
+
+            if (pending == null) {
+                pending = new PendingUpdate(key, thingName, shadowName);
+                pending.merge(state);
+                pendingUpdates.put(key, pending);
+                if (maxUpdatesPerBatch > 1) {
+                    PendingUpdate scheduled = pending;
+                    pending.timer = scheduler.schedule(() -> flushIfPending(scheduled), windowMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            pending.futures.add(future);
+            if (pending.futures.size() >= maxUpdatesPerBatch) {
+                pendingUpdates.remove(key);
+                pending.cancelTimer();
+                full = pending;
+                fullResponse = issue(full);
+            }
+        }
+
+        if (toSend != null) {
+            deliver(toSend, toSendResponse);
+        }
+        if (full != null) {
+            deliver(full, fullResponse);
+        }
+
+        return future;
+    }
+
+    /**
+     * Sends a request that is not batched, after any pending document for the same shadow.
+     */
+    private CompletableFuture<UpdateShadowResponse> sendAlone(String thingName, String shadowName,
+                                                              Supplier<CompletableFuture<UpdateShadowResponse>> request) {
+        PendingUpdate pending = null;
+        CompletableFuture<UpdateShadowResponse> pendingResponse = null;
+        try {
+            synchronized (lock) {
+                if (thingName != null) {
+                    pending = pendingUpdates.remove(toKey(thingName, shadowName));
+                    if (pending != null) {
+                        pending.cancelTimer();
+                        pendingResponse = issue(pending);
+                    }
+                }
+
+                return request.get();
+            }
+        } finally {
+            if (pending != null) {
+                deliver(pending, pendingResponse);
+            }
+        }
+    }
+
+    private void flushIfPending(PendingUpdate update) {
+        CompletableFuture<UpdateShadowResponse> response;
+        synchronized (lock) {
+            if (pendingUpdates.get(update.key) != update) {
+                return;
+            }
+            pendingUpdates.remove(update.key);
+            response = issue(update);
+        }
+
+        deliver(update, response);
+    }
+
+    /**
+     * Hands a pending document to the transport.  Called with the lock held.
+     */
+    private CompletableFuture<UpdateShadowResponse> issue(PendingUpdate update) {
+        CompletableFuture<UpdateShadowResponse> response;
+        try {
+            if (update.shadowName == null) {
+                UpdateShadowRequest request = new UpdateShadowRequest();
+                request.thingName = update.thingName;
+                request.state = update.state;
+                response = transport.updateShadow(request);
+            } else {
+                UpdateNamedShadowRequest request = new UpdateNamedShadowRequest();
+                request.thingName = update.thingName;
+                request.shadowName = update.shadowName;
+                request.state = update.state;
+                response = transport.updateNamedShadow(request);
+            }
+        } catch (Exception e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+
+        return response;
+    }
+
+    /**
+     * Completes the callers waiting on a document once its response arrives.  Called without the lock, so that
+     * their callbacks do not run under it.
+     */
+    private static void deliver(PendingUpdate update, CompletableFuture<UpdateShadowResponse> response) {
+        response.whenComplete((result, error) -> {
+            for (CompletableFuture<UpdateShadowResponse> future : update.futures) {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(result);
+                }
+            }
+        });
+    }
+
+    private static String toKey(String thingName, String shadowName) {
+        if (shadowName == null) {
+            return thingName;
+        }
+
+        return thingName + "/name/" + shadowName;
+    }
+
+    /**
+     * The merged document for one thing and shadow, plus the callers waiting on it.
+     */
+    private static class PendingUpdate {
+        private final String key;
+        private final String thingName;
+        private final String shadowName;
+        private final ShadowState state = new ShadowState();
+        private final List<CompletableFuture<UpdateShadowResponse>> futures = new ArrayList<>();
+        private ScheduledFuture<?> timer;
+
+        private PendingUpdate(String key, String thingName, String shadowName) {
+            this.key = key;
+            this.thingName = thingName;
+            this.shadowName = shadowName;
+        }
+
+        private void cancelTimer() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+        }
+
+        /**
+         * Merges a later update into this document.  Returns false, leaving the document unchanged, if the
+         * update cannot be expressed as part of the same document.
+         */
+        private boolean merge(ShadowState update) {
+            if (!canMergeSection(state.desired, state.desiredIsNullable, update.desired, update.desiredIsNullable)
+                    || !canMergeSection(state.reported, state.reportedIsNullable, update.reported, update.reportedIsNullable)) {
+                return false;
+            }
+
+            if (update.desired != null) {
+                state.desired = mergeSection(state.desired, update.desired);
+            } else if (update.desiredIsNullable) {
+                state.desired = null;
+                state.desiredIsNullable = true;
+            }
+
+            if (update.reported != null) {
+                state.reported = mergeSection(state.reported, update.reported);
+            } else if (update.reportedIsNullable) {
+                state.reported = null;
+                state.reportedIsNullable = true;
+            }
+
+            return true;
+        }
+
+        private static boolean canMergeSection(Map<String, Object> pending, boolean pendingCleared,
+                                               Map<String, Object> update, boolean updateClears) {
+            if (update == null) {
+                return true;
+            }
+
+            // A section cleared by an earlier update cannot be cleared and repopulated in the same document
+            if (pending == null) {
+                return !pendingCleared;
+            }
+
+            return canMergeMaps(pending, update);
+        }
+
+        private static boolean canMergeMaps(Map<String, Object> pending, Map<?, ?> update) {
+            for (Map.Entry<?, ?> entry : update.entrySet()) {
+                String name = String.valueOf(entry.getKey());
+                if (!pending.containsKey(name)) {
+                    continue;
+                }
+
+                Object pendingValue = pending.get(name);
+                Object updateValue = entry.getValue();
+                if (updateValue instanceof Map) {
+                    // A deleted property cannot be deleted and then partially set in the same document
+                    if (pendingValue == null) {
+                        return false;
+                    }
+                    if (pendingValue instanceof Map && !canMergeMaps(castMap(pendingValue), (Map<?, ?>) updateValue)) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        private static HashMap<String, Object> mergeSection(HashMap<String, Object> pending, Map<String, Object> update) {
+            if (pending == null) {
+                pending = new HashMap<>();
+            }
+
+            mergeMaps(pending, update);
+            return pending;
+        }
+
+        private static void mergeMaps(Map<String, Object> pending, Map<?, ?> update) {
+            for (Map.Entry<?, ?> entry : update.entrySet()) {
+                String name = String.valueOf(entry.getKey());
+                Object pendingValue = pending.get(name);
+                Object updateValue = entry.getValue();
+
+                if (updateValue instanceof Map && pendingValue instanceof Map) {
+                    mergeMaps(castMap(pendingValue), (Map<?, ?>) updateValue);
+                } else {
+                    pending.put(name, copyValue(updateValue));
+                }
+            }
+        }
+
+        private static Object copyValue(Object value) {
+            if (!(value instanceof Map)) {
+                return value;
+            }
+
+            Map<String, Object> copy = new HashMap<>();
+            mergeMaps(copy, (Map<?, ?>) value);
+            return copy;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> castMap(Object value) {
+            // Only maps created by copyValue are ever merged into, so the cast is safe
+            return (Map<String, Object>) value;
+        }
+    }
+}
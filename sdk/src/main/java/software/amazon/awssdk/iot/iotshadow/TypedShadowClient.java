@@ -0,0 +1,485 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import software.amazon.awssdk.crt.iot.StreamingOperation;
+import software.amazon.awssdk.iot.ShadowStateFactory;
+import software.amazon.awssdk.iot.Timestamp;
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotshadow.model.GetNamedShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.NamedShadowDeltaUpdatedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotshadow.model.NamedShadowUpdatedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowMetadata;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateNamedShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowRequest;
+
+/**
+ * A view of IotShadowV2Client that binds the desired and reported sections of shadow documents directly to
+ * application classes.
+ *
+ * Responses and stream events are decoded from the MQTT payload straight into the desired and reported
+ * classes with a Gson instance configured for them, instead of into HashMap trees of boxed values that the
+ * application then converts.  Type adapters for the application classes can be registered on the builder.
+ *
+ * Updates are encoded from the application classes.  Null fields are omitted, so an update only changes the
+ * properties whose fields are set.
+ *
+ * The typed client shares the shadow client's connection and does not need to be closed; closing the shadow
+ * client invalidates it.
+ *
+ * @param <D> Type the desired (and delta) sections are bound to
+ * @param <R> Type the reported section is bound to
+ */
+public class TypedShadowClient<D, R> {
+
+    private final IotShadowV2Client client;
+    private final Gson gson;
+    private final Type documentType;
+    private final Type updatedEventType;
+    private final Type deltaEventType;
+
+    /**
+     * Builder type for TypedShadowClient instances
+     *
+     * @param <D> Type the desired (and delta) sections are bound to
+     * @param <R> Type the reported section is bound to
+     */
+    public static class TypedShadowClientBuilder<D, R> {
+        private final IotShadowV2Client client;
+        private final Class<D> desiredClass;
+        private final Class<R> reportedClass;
+        private final List<Object[]> typeAdapters = new ArrayList<>();
+        private final List<TypeAdapterFactory> typeAdapterFactories = new ArrayList<>();
+        private boolean includeMetadata = true;
+
+        private TypedShadowClientBuilder(IotShadowV2Client client, Class<D> desiredClass, Class<R> reportedClass) {
+            this.client = client;
+            this.desiredClass = desiredClass;
+            this.reportedClass = reportedClass;
+        }
+
+        /**
+         * Registers a Gson type adapter, serializer or deserializer for a type used by the desired or reported
+         * classes
+         *
+         * @param type the type the adapter handles
+         * @param typeAdapter a TypeAdapter, JsonSerializer, JsonDeserializer or InstanceCreator
+         * @return this builder object
+         */
+        public TypedShadowClientBuilder<D, R> withTypeAdapter(Type type, Object typeAdapter) {
+            typeAdapters.add(new Object[] { type, typeAdapter });
+
+            return this;
+        }
+
+        /**
+         * Registers a Gson type adapter factory for types used by the desired or reported classes
+         *
+         * @param typeAdapterFactory the factory to register
+         * @return this builder object
+         */
+        public TypedShadowClientBuilder<D, R> withTypeAdapterFactory(TypeAdapterFactory typeAdapterFactory) {
+            typeAdapterFactories.add(typeAdapterFactory);
+
+            return this;
+        }
+
+        /**
+         * Sets whether the per-property metadata of shadow documents is decoded.  When false, the metadata
+         * section is skipped while parsing and documents carry no metadata.  Defaults to true.
+         *
+         * @param includeMetadata whether to decode document metadata
+         * @return this builder object
+         */
+        public TypedShadowClientBuilder<D, R> withMetadata(boolean includeMetadata) {
+            this.includeMetadata = includeMetadata;
+
+            return this;
+        }
+
+        /**
+         * Creates a new TypedShadowClient from the existing configuration.
+         *
+         * @return a new TypedShadowClient
+         */
+        public TypedShadowClient<D, R> build() {
+            return new TypedShadowClient<>(this);
+        }
+    }
+
+    private TypedShadowClient(TypedShadowClientBuilder<D, R> builder) {
+        this.client = builder.client;
+        this.gson = createGson(builder);
+        this.documentType = TypeToken.getParameterized(TypedShadowDocument.class, builder.desiredClass, builder.reportedClass).getType();
+        this.updatedEventType = TypeToken.getParameterized(TypedShadowUpdatedEvent.class, builder.desiredClass, builder.reportedClass).getType();
+        this.deltaEventType = TypeToken.getParameterized(TypedShadowDeltaUpdatedEvent.class, builder.desiredClass).getType();
+    }
+
+    /**
+     * Creates a new builder for a typed view of a shadow client
+     *
+     * @param client the shadow client to perform operations with
+     * @param desiredClass the class to bind the desired and delta sections to
+     * @param reportedClass the class to bind the reported section to
+     * @param <D> Type the desired (and delta) sections are bound to
+     * @param <R> Type the reported section is bound to
+     * @return a new builder object for TypedShadowClient instances
+     */
+    public static <D, R> TypedShadowClientBuilder<D, R> builder(IotShadowV2Client client, Class<D> desiredClass, Class<R> reportedClass) {
+        return new TypedShadowClientBuilder<>(client, desiredClass, reportedClass);
+    }
+
+    private static Gson createGson(TypedShadowClientBuilder<?, ?> builder) {
+        GsonBuilder gson = new GsonBuilder();
+        gson.disableHtmlEscaping();
+        // Keeps numbers in untyped values as written rather than widening to double
+        gson.setObjectToNumberStrategy(ToNumberPolicy.LAZILY_PARSED_NUMBER);
+        gson.registerTypeAdapter(Timestamp.class, new Timestamp.Serializer());
+        gson.registerTypeAdapter(Timestamp.class, new Timestamp.Deserializer());
+        if (builder.includeMetadata) {
+            gson.registerTypeAdapterFactory(new ShadowStateFactory());
+        } else {
+            gson.registerTypeAdapter(ShadowMetadata.class, new SkippingMetadataAdapter());
+        }
+        for (Object[] typeAdapter : builder.typeAdapters) {
+            gson.registerTypeAdapter((Type) typeAdapter[0], typeAdapter[1]);
+        }
+        for (TypeAdapterFactory factory : builder.typeAdapterFactories) {
+            gson.registerTypeAdapterFactory(factory);
+        }
+        return gson.create();
+    }
+
+    /**
+     * Gets the (classic) shadow for an AWS IoT thing.
+     *
+     * @param request modeled request to perform
+     *
+     * @return a future that will complete with the typed shadow document
+     */
+    public CompletableFuture<TypedShadowDocument<D, R>> getShadow(GetShadowRequest request) {
+        return client.getShadow(request, gson, documentType);
+    }
+
+    /**
+     * Gets a named shadow for an AWS IoT thing.
+     *
+     * @param request modeled request to perform
+     *
+     * @return a future that will complete with the typed shadow document
+     */
+    public CompletableFuture<TypedShadowDocument<D, R>> getNamedShadow(GetNamedShadowRequest request) {
+        return client.getNamedShadow(request, gson, documentType);
+    }
+
+    /**
+     * Updates a device's (classic) shadow.
+     *
+     * @param thingName AWS IoT thing to update the shadow of
+     * @param desired desired properties to set, or null to leave the desired section unchanged
+     * @param reported reported properties to set, or null to leave the reported section unchanged
+     *
+     * @return a future that will complete with the typed response; its state holds only the properties that
+     *    were updated
+     */
+    public CompletableFuture<TypedShadowDocument<D, R>> updateShadow(String thingName, D desired, R reported) {
+        UpdateShadowRequest request = new UpdateShadowRequest();
+        request.thingName = thingName;
+        request.state = toShadowState(desired, reported);
+        return client.updateShadow(request, gson, documentType);
+    }
+
+    /**
+     * Updates a named shadow.
+     *
+     * @param thingName AWS IoT thing to update the shadow of
+     * @param shadowName name of the shadow to update
+     * @param desired desired properties to set, or null to leave the desired section unchanged
+     * @param reported reported properties to set, or null to leave the reported section unchanged
+     *
+     * @return a future that will complete with the typed response; its state holds only the properties that
+     *    were updated
+     */
+    public CompletableFuture<TypedShadowDocument<D, R>> updateNamedShadow(String thingName, String shadowName, D desired, R reported) {
+        UpdateNamedShadowRequest request = new UpdateNamedShadowRequest();
+        request.thingName = thingName;
+        request.shadowName = shadowName;
+        request.state = toShadowState(desired, reported);
+        return client.updateNamedShadow(request, gson, documentType);
+    }
+
+    /**
+     * Creates a stream of typed updated events for a device's (classic) shadow.
+     *
+     * @param request modeled streaming operation subscription configuration
+     * @param options set of callbacks that the operation should invoke in response to related events
+     *
+     * @return a streaming operation which will invoke a callback every time the shadow is updated
+     */
+    public StreamingOperation createShadowUpdatedStream(ShadowUpdatedSubscriptionRequest request, V2ClientStreamOptions<TypedShadowUpdatedEvent<D, R>> options) {
+        return client.createShadowUpdatedStream(request, options, gson, updatedEventType);
+    }
+
+    /**
+     * Creates a stream of typed updated events for a named shadow.
+     *
+     * @param request modeled streaming operation subscription configuration
+     * @param options set of callbacks that the operation should invoke in response to related events
+     *
+     * @return a streaming operation which will invoke a callback every time the shadow is updated
+     */
+    public StreamingOperation createNamedShadowUpdatedStream(NamedShadowUpdatedSubscriptionRequest request, V2ClientStreamOptions<TypedShadowUpdatedEvent<D, R>> options) {
+        return client.createNamedShadowUpdatedStream(request, options, gson, updatedEventType);
+    }
+
+    /**
+     * Creates a stream of typed delta events for a device's (classic) shadow.
+     *
+     * @param request modeled streaming operation subscription configuration
+     * @param options set of callbacks that the operation should invoke in response to related events
+     *
+     * @return a streaming operation which will invoke a callback every time the desired state diverges from
+     *    the reported state
+     */
+    public StreamingOperation createShadowDeltaUpdatedStream(ShadowDeltaUpdatedSubscriptionRequest request, V2ClientStreamOptions<TypedShadowDeltaUpdatedEvent<D>> options) {
+        return client.createShadowDeltaUpdatedStream(request, options, gson, deltaEventType);
+    }
+
+    /**
+     * Creates a stream of typed delta events for a named shadow.
+     *
+     * @param request modeled streaming operation subscription configuration
+     * @param options set of callbacks that the operation should invoke in response to related events
+     *
+     * @return a streaming operation which will invoke a callback every time the desired state diverges from
+     *    the reported state
+     */
+    public StreamingOperation createNamedShadowDeltaUpdatedStream(NamedShadowDeltaUpdatedSubscriptionRequest request, V2ClientStreamOptions<TypedShadowDeltaUpdatedEvent<D>> options) {
+        return client.createNamedShadowDeltaUpdatedStream(request, options, gson, deltaEventType);
+    }
+
+    Gson gson() {
+        return gson;
+    }
+
+    Type documentType() {
+        return documentType;
+    }
+
+    Type updatedEventType() {
+        return updatedEventType;
+    }
+
+    Type deltaEventType() {
+        return deltaEventType;
+    }
+
+    ShadowState toShadowState(D desired, R reported) {
+        ShadowState state = new ShadowState();
+        state.desired = toStateMap(desired);
+        state.reported = toStateMap(reported);
+        return state;
+    }
+
+    @SuppressWarnings("unchecked")
+    private HashMap<String, Object> toStateMap(Object section) {
+        if (section == null) {
+            return null;
+        }
+
+        // The shadow client encodes ShadowState, whose sections are maps, so the section is written straight into one
+        StateMapWriter writer = new StateMapWriter();
+        try {
+            ((TypeAdapter<Object>) gson.getAdapter(section.getClass())).write(writer, section);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return writer.result();
+    }
+
+    /**
+     * A JsonWriter that builds the maps, lists and values a section is written as, rather than text
+     */
+    private static class StateMapWriter extends JsonWriter {
+        private static final Writer UNWRITABLE = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int count) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void flush() {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void close() {
+                throw new AssertionError();
+            }
+        };
+
+        private final ArrayDeque<Object> stack = new ArrayDeque<>();
+        private String pendingName;
+        private Object result;
+
+        StateMapWriter() {
+            super(UNWRITABLE);
+            setSerializeNulls(false);
+        }
+
+        HashMap<String, Object> result() {
+            if (!(result instanceof HashMap)) {
+                throw new JsonParseException("Shadow state sections must be written as JSON objects");
+            }
+            @SuppressWarnings("unchecked")
+            HashMap<String, Object> map = (HashMap<String, Object>) result;
+            return map;
+        }
+
+        @SuppressWarnings("unchecked")
+        private JsonWriter put(Object value) {
+            Object top = stack.peek();
+            if (top instanceof HashMap) {
+                if (pendingName == null) {
+                    throw new IllegalStateException("Expected a name before " + value);
+                }
+                if (value != null || getSerializeNulls()) {
+                    ((HashMap<String, Object>) top).put(pendingName, value);
+                }
+                pendingName = null;
+            } else if (top instanceof ArrayList) {
+                ((ArrayList<Object>) top).add(value);
+            } else {
+                result = value;
+            }
+            return this;
+        }
+
+        @Override
+        public JsonWriter beginArray() {
+            ArrayList<Object> array = new ArrayList<>();
+            put(array);
+            stack.push(array);
+            return this;
+        }
+
+        @Override
+        public JsonWriter endArray() {
+            stack.pop();
+            return this;
+        }
+
+        @Override
+        public JsonWriter beginObject() {
+            HashMap<String, Object> object = new HashMap<>();
+            put(object);
+            stack.push(object);
+            return this;
+        }
+
+        @Override
+        public JsonWriter endObject() {
+            stack.pop();
+            return this;
+        }
+
+        @Override
+        public JsonWriter name(String name) {
+            pendingName = name;
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(String value) {
+            return put(value);
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) {
+            throw new UnsupportedOperationException("Raw JSON values cannot be written to a shadow state section");
+        }
+
+        @Override
+        public JsonWriter nullValue() {
+            return put(null);
+        }
+
+        @Override
+        public JsonWriter value(boolean value) {
+            return put(value);
+        }
+
+        @Override
+        public JsonWriter value(Boolean value) {
+            return put(value);
+        }
+
+        @Override
+        public JsonWriter value(float value) {
+            return put(value);
+        }
+
+        @Override
+        public JsonWriter value(double value) {
+            return put(value);
+        }
+
+        @Override
+        public JsonWriter value(long value) {
+            return put(value);
+        }
+
+        @Override
+        public JsonWriter value(Number value) {
+            return put(value);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * Skips the metadata section of a document without materializing it
+     */
+    private static class SkippingMetadataAdapter extends TypeAdapter<ShadowMetadata> {
+        @Override
+        public void write(JsonWriter out, ShadowMetadata value) throws IOException {
+            out.nullValue();
+        }
+
+        @Override
+        public ShadowMetadata read(JsonReader in) throws IOException {
+            in.skipValue();
+            return null;
+        }
+    }
+}
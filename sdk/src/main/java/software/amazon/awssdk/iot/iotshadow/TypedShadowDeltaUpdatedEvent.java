@@ -0,0 +1,55 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+import java.util.HashMap;
+
+import software.amazon.awssdk.iot.Timestamp;
+
+/**
+ * A shadow delta event bound to an application class.  The typed counterpart of ShadowDeltaUpdatedEvent.
+ *
+ * @param <D> Type the desired section is bound to
+ */
+public class TypedShadowDeltaUpdatedEvent<D> {
+
+    /**
+     * The desired properties that differ from the reported state.  Properties the delta does not mention are
+     * left at their default values.
+     *
+     */
+    public D state;
+
+
+    /**
+     * Timestamps for the shadow properties that were updated.
+     *
+     */
+    public HashMap<String, Object> metadata;
+
+
+    /**
+     * The time the event was generated by AWS IoT.
+     *
+     */
+    public Timestamp timestamp;
+
+
+    /**
+     * The current version of the document for the device's shadow.
+     *
+     */
+    public Integer version;
+
+
+    /**
+     * An opaque token used to correlate requests and responses.  Present only if a client token was used in the request.
+     *
+     */
+    public String clientToken;
+
+
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+import software.amazon.awssdk.iot.Timestamp;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowMetadata;
+
+/**
+ * A shadow document bound to application classes.  The typed counterpart of GetShadowResponse,
+ * UpdateShadowResponse and ShadowUpdatedSnapshot.
+ *
+ * @param <D> Type the desired (and delta) sections are bound to
+ * @param <R> Type the reported section is bound to
+ */
+public class TypedShadowDocument<D, R> {
+
+    /**
+     * An opaque token used to correlate requests and responses.  Only present in responses.
+     *
+     */
+    public String clientToken;
+
+
+    /**
+     * The shadow state.
+     *
+     */
+    public TypedShadowState<D, R> state;
+
+
+    /**
+     * Contains the timestamps for each attribute in the desired and reported sections of the state.  Null if
+     * the typed client was configured to discard metadata.
+     *
+     */
+    public ShadowMetadata metadata;
+
+
+    /**
+     * The time the message was generated by AWS IoT.  Not present in updated event snapshots.
+     *
+     */
+    public Timestamp timestamp;
+
+
+    /**
+     * The version of the document.
+     *
+     */
+    public Integer version;
+
+
+}
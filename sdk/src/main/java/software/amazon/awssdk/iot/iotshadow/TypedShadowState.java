@@ -0,0 +1,37 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+/**
+ * Shadow state bound to application classes.  The typed counterpart of ShadowState and ShadowStateWithDelta.
+ *
+ * @param <D> Type the desired (and delta) sections are bound to
+ * @param <R> Type the reported section is bound to
+ */
+public class TypedShadowState<D, R> {
+
+    /**
+     * The desired shadow state (from external services and devices).
+     *
+     */
+    public D desired;
+
+
+    /**
+     * The (last) reported shadow state from the device.
+     *
+     */
+    public R reported;
+
+
+    /**
+     * The delta between the reported and desired states.  Only present in responses to GetShadow requests.
+     *
+     */
+    public D delta;
+
+
+}
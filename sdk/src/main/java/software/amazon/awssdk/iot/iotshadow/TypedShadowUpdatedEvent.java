@@ -0,0 +1,39 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.iotshadow;
+
+import software.amazon.awssdk.iot.Timestamp;
+
+/**
+ * A shadow updated event bound to application classes.  The typed counterpart of ShadowUpdatedEvent.
+ *
+ * @param <D> Type the desired sections are bound to
+ * @param <R> Type the reported sections are bound to
+ */
+public class TypedShadowUpdatedEvent<D, R> {
+
+    /**
+     * Contains the state of the object before the update.
+     *
+     */
+    public TypedShadowDocument<D, R> previous;
+
+
+    /**
+     * Contains the state of the object after the update.
+     *
+     */
+    public TypedShadowDocument<D, R> current;
+
+
+    /**
+     * The time the event was generated by AWS IoT.
+     *
+     */
+    public Timestamp timestamp;
+
+
+}
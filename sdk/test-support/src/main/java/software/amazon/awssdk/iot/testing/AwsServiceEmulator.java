@@ -0,0 +1,351 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonObject;
+
+import software.amazon.awssdk.crt.Log;
+import software.amazon.awssdk.crt.Log.LogLevel;
+import software.amazon.awssdk.crt.Log.LogSubject;
+import software.amazon.awssdk.iot.iotcommands.model.DeviceType;
+
+/**
+ * Answers the AWS IoT service topics on a {@link LocalMqttBroker} the way IoT Core does, so the V2 service clients
+ * can run against the broker: device shadows (classic and named), jobs, commands and fleet provisioning.
+ *
+ * Requests are handled in arrival order on one thread.  Each reply can be delayed by a random latency, and requests
+ * can be rejected as throttled or dropped without a reply, to exercise client timeouts and error handling.
+ * Service state lives only in memory and is lost when the emulator is closed.
+ */
+public final class AwsServiceEmulator implements LocalMqttBroker.PublishListener, AutoCloseable {
+
+    private final long minLatencyMillis;
+    private final long maxLatencyMillis;
+    private final double rejectionProbability;
+    private final double dropProbability;
+    private final Random random;
+
+    private final ShadowService shadow = new ShadowService();
+    private final JobsService jobs = new JobsService();
+    private final CommandsService commands = new CommandsService();
+    private final EmulatedService[] services = { shadow, jobs, commands, new IdentityService() };
+    private final ScheduledExecutorService executor;
+    private volatile LocalMqttBroker broker;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rejectedRequestCount = new AtomicLong();
+    private final AtomicLong droppedRequestCount = new AtomicLong();
+
+    /**
+     * Builder for AwsServiceEmulator
+     */
+    public static class AwsServiceEmulatorBuilder {
+        private long minLatencyMillis;
+        private long maxLatencyMillis;
+        private double rejectionProbability;
+        private double dropProbability;
+        private Long randomSeed;
+
+        private AwsServiceEmulatorBuilder() {}
+
+        /**
+         * Delays each reply by a latency drawn uniformly from a range.  Defaults to no delay.
+         *
+         * @param minMillis the shortest delay, in milliseconds
+         * @param maxMillis the longest delay, in milliseconds
+         * @return the builder
+         */
+        public AwsServiceEmulatorBuilder withResponseLatency(long minMillis, long maxMillis) {
+            this.minLatencyMillis = minMillis;
+            this.maxLatencyMillis = maxMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets the fraction of requests rejected as throttled, with each service's throttling error.  Defaults to 0.
+         *
+         * @param probability the probability of rejecting a request, between 0 and 1
+         * @return the builder
+         */
+        public AwsServiceEmulatorBuilder withRejectionProbability(double probability) {
+            this.rejectionProbability = probability;
+
+            return this;
+        }
+
+        /**
+         * Sets the fraction of requests ignored without a reply, so that the client's operation times out.
+         * Defaults to 0.
+         *
+         * @param probability the probability of dropping a request, between 0 and 1
+         * @return the builder
+         */
+        public AwsServiceEmulatorBuilder withDropProbability(double probability) {
+            this.dropProbability = probability;
+
+            return this;
+        }
+
+        /**
+         * Seeds the random choices of latency, rejection and dropping, to make a run repeatable
+         *
+         * @param seed the seed
+         * @return the builder
+         */
+        public AwsServiceEmulatorBuilder withRandomSeed(long seed) {
+            this.randomSeed = seed;
+
+            return this;
+        }
+
+        /**
+         * @return a new emulator, to be attached to a broker
+         */
+        public AwsServiceEmulator build() {
+            if (minLatencyMillis < 0 || maxLatencyMillis < minLatencyMillis) {
+                throw new IllegalArgumentException("AwsServiceEmulator response latency range is invalid");
+            }
+            if (!isProbability(rejectionProbability) || !isProbability(dropProbability)) {
+                throw new IllegalArgumentException("AwsServiceEmulator probabilities must be between 0 and 1");
+            }
+
+            return new AwsServiceEmulator(this);
+        }
+
+        private static boolean isProbability(double value) {
+            return value >= 0 && value <= 1;
+        }
+    }
+
+    /**
+     * @return a new builder for an emulator
+     */
+    public static AwsServiceEmulatorBuilder builder() {
+        return new AwsServiceEmulatorBuilder();
+    }
+
+    private AwsServiceEmulator(AwsServiceEmulatorBuilder builder) {
+        this.minLatencyMillis = builder.minLatencyMillis;
+        this.maxLatencyMillis = builder.maxLatencyMillis;
+        this.rejectionProbability = builder.rejectionProbability;
+        this.dropProbability = builder.dropProbability;
+        this.random = builder.randomSeed != null ? new Random(builder.randomSeed) : new Random();
+
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "AwsServiceEmulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.executor = scheduler;
+    }
+
+    /**
+     * Starts answering the service topics on a broker.  An emulator serves a single broker.
+     *
+     * @param broker the broker
+     */
+    public synchronized void attach(LocalMqttBroker broker) {
+        if (this.broker != null) {
+            throw new IllegalStateException("AwsServiceEmulator is already attached to a broker");
+        }
+        this.broker = broker;
+        broker.addPublishListener(this);
+    }
+
+    @Override
+    public void onPublish(String clientId, String topic, byte[] payload) {
+        // Messages published through the broker are the emulator's own replies and events
+        if (clientId == null || !topic.startsWith("$aws/")) {
+            return;
+        }
+
+        String[] segments = topic.split("/", -1);
+        if (segments.length < 2) {
+            return;
+        }
+        for (EmulatedService service : services) {
+            if (service.isRequestTopic(segments)) {
+                try {
+                    executor.execute(() -> process(service, topic, segments, payload));
+                } catch (RejectedExecutionException e) {
+                    // closed
+                }
+                return;
+            }
+        }
+    }
+
+    private void process(EmulatedService service, String topic, String[] segments, byte[] payload) {
+        requestCount.incrementAndGet();
+        if (dropProbability > 0 && random.nextDouble() < dropProbability) {
+            droppedRequestCount.incrementAndGet();
+            return;
+        }
+
+        EmulatedService.Replies replies = new EmulatedService.Replies();
+        try {
+            if (rejectionProbability > 0 && random.nextDouble() < rejectionProbability) {
+                rejectedRequestCount.incrementAndGet();
+                service.throttle(topic, segments, payload, replies);
+            } else {
+                service.handle(topic, segments, payload, replies);
+            }
+        } catch (RuntimeException e) {
+            Log.log(LogLevel.Warn, LogSubject.JavaCrtGeneral, "AwsServiceEmulator failed to handle a request on " + topic + ": " + e);
+            return;
+        }
+
+        if (replies.isEmpty()) {
+            return;
+        }
+        long latency = minLatencyMillis + (long) (random.nextDouble() * (maxLatencyMillis - minLatencyMillis));
+        if (latency == 0) {
+            replies.publish(broker);
+        } else {
+            executor.schedule(() -> replies.publish(broker), latency, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queues a job on a thing and publishes the jobs notify and notify-next events for it
+     *
+     * @param thingName the thing's name
+     * @param jobId the job's identifier
+     * @param jobDocument the job document, a JSON object
+     */
+    public void addJob(String thingName, String jobId, String jobDocument) {
+        JsonObject document = EmulatedService.parseObject(jobDocument.getBytes(StandardCharsets.UTF_8));
+        if (document == null) {
+            throw new IllegalArgumentException("Job document must be a JSON object");
+        }
+        LocalMqttBroker target = requireBroker();
+        call(() -> {
+            jobs.addJob(thingName, jobId, document).publish(target);
+            return null;
+        });
+    }
+
+    /**
+     * Starts a command execution on a device by publishing to its JSON request topic
+     *
+     * @param deviceType whether the device is a thing or an MQTT client
+     * @param deviceId the thing name or MQTT client id
+     * @param payload the command's JSON payload
+     * @param timeoutSeconds the execution timeout, sent as the message expiry interval
+     * @return the execution's identifier
+     */
+    public String sendCommand(DeviceType deviceType, String deviceId, String payload, long timeoutSeconds) {
+        LocalMqttBroker target = requireBroker();
+        return call(() -> {
+            EmulatedService.Replies replies = new EmulatedService.Replies();
+            String executionId = commands.sendCommand(deviceType.toString(), deviceId, payload.getBytes(StandardCharsets.UTF_8), timeoutSeconds, replies);
+            replies.publish(target);
+            return executionId;
+        });
+    }
+
+    /**
+     * @param thingName the thing's name
+     * @param shadowName the shadow's name, or null for the classic shadow
+     * @return the shadow's state, metadata and version as JSON, or null if the shadow does not exist
+     */
+    public String getShadowDocument(String thingName, String shadowName) {
+        return call(() -> shadow.getDocument(thingName, shadowName));
+    }
+
+    /**
+     * @param thingName the thing's name
+     * @param jobId the job's identifier
+     * @return the status of the thing's execution of the job, or null if there is none
+     */
+    public String getJobExecutionStatus(String thingName, String jobId) {
+        return call(() -> jobs.getStatus(thingName, jobId));
+    }
+
+    /**
+     * @param deviceType whether the device is a thing or an MQTT client
+     * @param deviceId the thing name or MQTT client id
+     * @param executionId the execution's identifier, from {@link #sendCommand}
+     * @return the status the device last reported, CREATED if it has reported none, or null if the execution does
+     * not exist
+     */
+    public String getCommandExecutionStatus(DeviceType deviceType, String deviceId, String executionId) {
+        return call(() -> commands.getStatus(deviceType.toString(), deviceId, executionId));
+    }
+
+    /**
+     * @return the number of service requests received
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the number of requests rejected as throttled
+     */
+    public long getRejectedRequestCount() {
+        return rejectedRequestCount.get();
+    }
+
+    /**
+     * @return the number of requests dropped without a reply
+     */
+    public long getDroppedRequestCount() {
+        return droppedRequestCount.get();
+    }
+
+    /**
+     * Stops answering requests.  Replies still waiting out their latency are discarded.
+     */
+    @Override
+    public void close() {
+        LocalMqttBroker attached = broker;
+        if (attached != null) {
+            attached.removePublishListener(this);
+        }
+        executor.shutdownNow();
+    }
+
+    private LocalMqttBroker requireBroker() {
+        LocalMqttBroker attached = broker;
+        if (attached == null) {
+            throw new IllegalStateException("AwsServiceEmulator is not attached to a broker");
+        }
+        return attached;
+    }
+
+    /**
+     * Runs a task on the emulator's thread, where the service state lives
+     */
+    private <T> T call(Callable<T> task) {
+        try {
+            return executor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for AwsServiceEmulator", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("AwsServiceEmulator is closed", e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Emulates the commands service on the $aws/commands/{things|clients}/{deviceId}/executions topics.  Commands are
+ * sent to devices with {@link AwsServiceEmulator#sendCommand}; devices report progress on the JSON response topic.
+ * The CBOR response topics are not emulated, so requests to them get no reply.
+ */
+class CommandsService extends EmulatedService {
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private static final class Execution {
+        private String status = "CREATED";
+
+        private boolean isTerminal() {
+            return "SUCCEEDED".equals(status) || "FAILED".equals(status) || "REJECTED".equals(status);
+        }
+    }
+
+    private final Map<String, Execution> executions = new HashMap<>();
+
+    @Override
+    boolean isRequestTopic(String[] segments) {
+        // $aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/json
+        return "commands".equals(segments[1]) && segments.length == 8
+                && ("things".equals(segments[2]) || "clients".equals(segments[2]))
+                && "executions".equals(segments[4]) && "response".equals(segments[6]) && "json".equals(segments[7]);
+    }
+
+    @Override
+    void handle(String topic, String[] segments, byte[] payload, Replies replies) {
+        String executionId = segments[5];
+        String replyPrefix = topic.substring(0, topic.length() - "json".length());
+        JsonObject request = parseObject(payload);
+        if (request == null) {
+            reject(replyPrefix, executionId, "InvalidJson", "Payload contains invalid json", replies);
+            return;
+        }
+
+        Execution execution = executions.get(executionKey(segments[2], segments[3], executionId));
+        if (execution == null) {
+            reject(replyPrefix, executionId, "ResourceNotFound", "Command execution " + executionId + " not found", replies);
+            return;
+        }
+        if (execution.isTerminal()) {
+            reject(replyPrefix, executionId, "TerminalStateReached", "Command execution is already in the terminal state " + execution.status, replies);
+            return;
+        }
+
+        String status = getString(request, "status");
+        if (!isReportableStatus(status)) {
+            reject(replyPrefix, executionId, "InvalidRequest", "Invalid command execution status: " + status, replies);
+            return;
+        }
+        execution.status = status;
+
+        JsonObject response = new JsonObject();
+        response.addProperty("executionId", executionId);
+        replies.add(replyPrefix + "accepted/json", response);
+    }
+
+    private static boolean isReportableStatus(String status) {
+        if (status == null) {
+            return false;
+        }
+        switch (status) {
+            case "IN_PROGRESS":
+            case "SUCCEEDED":
+            case "FAILED":
+            case "REJECTED":
+            case "TIMED_OUT":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    void throttle(String topic, String[] segments, byte[] payload, Replies replies) {
+        reject(topic.substring(0, topic.length() - "json".length()), segments[5], "RequestThrottled", "Rate limit exceeded", replies);
+    }
+
+    private static void reject(String replyPrefix, String executionId, String error, String message, Replies replies) {
+        JsonObject response = new JsonObject();
+        response.addProperty("error", error);
+        response.addProperty("errorMessage", message);
+        response.addProperty("executionId", executionId);
+        replies.add(replyPrefix + "rejected/json", response);
+    }
+
+    /**
+     * Starts a command execution on a device
+     *
+     * @param deviceType "things" or "clients"
+     * @param deviceId the thing name or MQTT client id
+     * @param payload the command's JSON payload
+     * @param timeoutSeconds the execution timeout, sent as the message expiry interval
+     * @param replies receives the request message
+     * @return the execution's identifier
+     */
+    String sendCommand(String deviceType, String deviceId, byte[] payload, long timeoutSeconds, Replies replies) {
+        String executionId = UUID.randomUUID().toString();
+        executions.put(executionKey(deviceType, deviceId, executionId), new Execution());
+
+        String topic = "$aws/commands/" + deviceType + "/" + deviceId + "/executions/" + executionId + "/request/json";
+        replies.add(topic, payload, MqttCodec.publishProperties(JSON_CONTENT_TYPE, timeoutSeconds));
+        return executionId;
+    }
+
+    /**
+     * @return the execution's last reported status, CREATED if the device has not reported one, or null if the
+     * execution does not exist
+     */
+    String getStatus(String deviceType, String deviceId, String executionId) {
+        Execution execution = executions.get(executionKey(deviceType, deviceId, executionId));
+        return execution != null ? execution.status : null;
+    }
+
+    private static String executionKey(String deviceType, String deviceId, String executionId) {
+        return deviceType + "/" + deviceId + "/" + executionId;
+    }
+}
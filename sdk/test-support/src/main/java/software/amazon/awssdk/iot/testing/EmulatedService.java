@@ -0,0 +1,134 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * One AWS IoT service emulated by {@link AwsServiceEmulator}.  Services are only called from the emulator's thread,
+ * so their state needs no synchronization.
+ */
+abstract class EmulatedService {
+
+    /**
+     * The messages a service sends in answer to one request
+     */
+    static final class Replies {
+        private final List<String> topics = new ArrayList<>();
+        private final List<byte[]> payloads = new ArrayList<>();
+        private final List<byte[]> properties = new ArrayList<>();
+
+        void add(String topic, JsonObject body) {
+            add(topic, body.toString().getBytes(StandardCharsets.UTF_8), new byte[0]);
+        }
+
+        void add(String topic, byte[] payload, byte[] publishProperties) {
+            topics.add(topic);
+            payloads.add(payload);
+            properties.add(publishProperties);
+        }
+
+        void moveTo(Replies other) {
+            other.topics.addAll(topics);
+            other.payloads.addAll(payloads);
+            other.properties.addAll(properties);
+            topics.clear();
+            payloads.clear();
+            properties.clear();
+        }
+
+        boolean isEmpty() {
+            return topics.isEmpty();
+        }
+
+        void publish(LocalMqttBroker broker) {
+            for (int i = 0; i < topics.size(); i++) {
+                broker.publish(topics.get(i), payloads.get(i), properties.get(i));
+            }
+        }
+    }
+
+    /**
+     * @param segments the segments of a topic a client published to
+     * @return true if the topic is a request topic of this service
+     */
+    abstract boolean isRequestTopic(String[] segments);
+
+    /**
+     * Handles a request
+     *
+     * @param topic the request topic
+     * @param segments the request topic's segments
+     * @param payload the request payload
+     * @param replies receives the messages to send in answer
+     */
+    abstract void handle(String topic, String[] segments, byte[] payload, Replies replies);
+
+    /**
+     * Rejects a request the way the service rejects requests over its rate limit
+     *
+     * @param topic the request topic
+     * @param segments the request topic's segments
+     * @param payload the request payload
+     * @param replies receives the rejection
+     */
+    abstract void throttle(String topic, String[] segments, byte[] payload, Replies replies);
+
+    /**
+     * @param payload a request payload
+     * @return the payload as a JSON object, or null if it is not one
+     */
+    static JsonObject parseObject(byte[] payload) {
+        try {
+            JsonElement element = JsonParser.parseString(new String(payload, StandardCharsets.UTF_8));
+            return element.isJsonObject() ? element.getAsJsonObject() : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param object a JSON object, or null
+     * @param name a member name
+     * @return the member's string value, or null if the object, the member or its string value is missing
+     */
+    static String getString(JsonObject object, String name) {
+        if (object == null) {
+            return null;
+        }
+        JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    /**
+     * Copies the request's client token, if any, into a response
+     *
+     * @param request the request, or null
+     * @param response the response
+     * @return the response
+     */
+    static JsonObject withClientToken(JsonObject request, JsonObject response) {
+        String clientToken = getString(request, "clientToken");
+        if (clientToken != null) {
+            response.addProperty("clientToken", clientToken);
+        }
+        return response;
+    }
+
+    /**
+     * @return the current time in epoch seconds, the unit of every service timestamp
+     */
+    static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,667 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import software.amazon.awssdk.crt.CRT;
+import software.amazon.awssdk.crt.io.ClientBootstrap;
+import software.amazon.awssdk.crt.io.EventLoopGroup;
+import software.amazon.awssdk.crt.io.HostResolver;
+import software.amazon.awssdk.crt.iot.MqttRequestResponseClientOptions;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5Client;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5ClientOptions;
+import software.amazon.awssdk.crt.mqtt5.OnAttemptingConnectReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionFailureReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionSuccessReturn;
+import software.amazon.awssdk.crt.mqtt5.OnDisconnectionReturn;
+import software.amazon.awssdk.crt.mqtt5.OnStoppedReturn;
+import software.amazon.awssdk.iot.AwsIotMqtt5ClientBuilder;
+import software.amazon.awssdk.iot.LatencyHistogram;
+import software.amazon.awssdk.iot.V2ClientMetrics;
+import software.amazon.awssdk.iot.V2ClientOptions;
+import software.amazon.awssdk.iot.iotjobs.IotJobsV2Client;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.StartNextJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.StartNextPendingJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionRequest;
+import software.amazon.awssdk.iot.iotshadow.IotShadowV2Client;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowRequest;
+
+/**
+ * Simulates a fleet of devices from one JVM, each with its own MQTT5 client made by an
+ * {@link AwsIotMqtt5ClientBuilder}, and reports what the fleet cost and how it performed.
+ *
+ * Every client is built from the one builder the caller configures, so they share the builder's TlsContext, and
+ * the simulator gives them one EventLoopGroup, HostResolver and ClientBootstrap.  Connects are started at a fixed
+ * rate with random jitter, as a fleet coming back after an outage would, rather than all at once.  Each connected
+ * device then runs its iterations without blocking a thread: update and read back its shadow, start its next
+ * pending job and complete it, and pause for a random think time.
+ *
+ * Against a {@link LocalMqttBroker} serving TLS with an {@link AwsServiceEmulator} attached, the simulator runs
+ * offline; pass the emulator so each device is given a job to run every iteration:
+ *
+ * <pre>{@code
+ * AwsIotMqtt5ClientBuilder clientBuilder = AwsIotMqtt5ClientBuilder.newMqttBuilder(broker.getHost())
+ *     .withPort((long) broker.getPort())
+ *     .withCertificateAuthority(TestCertificates.CA_CERTIFICATE_PEM);
+ * FleetSimulator.Report report = FleetSimulator.builder(clientBuilder)
+ *     .withEmulator(emulator)
+ *     .withDeviceCount(10000)
+ *     .withConnectRate(500)
+ *     .build()
+ *     .run();
+ * }</pre>
+ *
+ * The simulator sets the builder's client id, lifecycle events and bootstrap; it leaves the builder's other
+ * settings alone, and sets the bootstrap back to the default when the run ends.
+ */
+public final class FleetSimulator {
+
+    /**
+     * The results of a run
+     */
+    public static final class Report {
+        private final int deviceCount;
+        private final int connectedCount;
+        private final LatencyHistogram connectLatency;
+        private final long connectFailureCount;
+        private final long operationCount;
+        private final long failedOperationCount;
+        private final long elapsedNanos;
+        private final V2ClientMetrics metrics;
+        private final long heapBytesPerClient;
+        private final long nativeBytesPerClient;
+
+        private Report(int deviceCount, int connectedCount, LatencyHistogram connectLatency, long connectFailureCount,
+                       long operationCount, long failedOperationCount, long elapsedNanos, V2ClientMetrics metrics,
+                       long heapBytesPerClient, long nativeBytesPerClient) {
+            this.deviceCount = deviceCount;
+            this.connectedCount = connectedCount;
+            this.connectLatency = connectLatency;
+            this.connectFailureCount = connectFailureCount;
+            this.operationCount = operationCount;
+            this.failedOperationCount = failedOperationCount;
+            this.elapsedNanos = elapsedNanos;
+            this.metrics = metrics;
+            this.heapBytesPerClient = heapBytesPerClient;
+            this.nativeBytesPerClient = nativeBytesPerClient;
+        }
+
+        /**
+         * @return the number of simulated devices
+         */
+        public int getDeviceCount() {
+            return deviceCount;
+        }
+
+        /**
+         * @return the number of devices that connected; the others ran no traffic
+         */
+        public int getConnectedCount() {
+            return connectedCount;
+        }
+
+        /**
+         * @return the time from each client being started to its connection succeeding, including any retries
+         */
+        public LatencyHistogram getConnectLatency() {
+            return connectLatency;
+        }
+
+        /**
+         * @return the number of failed connection attempts, which the clients retry until the connect deadline
+         */
+        public long getConnectFailureCount() {
+            return connectFailureCount;
+        }
+
+        /**
+         * @return the number of scripted operations attempted: shadow updates and gets, and job starts and updates
+         */
+        public long getOperationCount() {
+            return operationCount;
+        }
+
+        /**
+         * @return the number of scripted operations that failed, were rejected or timed out
+         */
+        public long getFailedOperationCount() {
+            return failedOperationCount;
+        }
+
+        /**
+         * @return the time the devices spent running their iterations, excluding connecting and shutting down
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return scripted operations per second
+         */
+        public double getThroughput() {
+            return elapsedNanos > 0 ? operationCount * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * @return the per-operation latencies and outcomes of every device's service clients
+         */
+        public V2ClientMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * @return the growth of the Java heap, after garbage collection, from building and connecting the devices'
+         * clients, divided by the number of devices
+         */
+        public long getHeapBytesPerClient() {
+            return heapBytesPerClient;
+        }
+
+        /**
+         * @return the growth of native memory from building and connecting the devices' clients, divided by the
+         * number of devices; 0 unless the CRT tracks native memory (aws.crt.memory.tracing)
+         */
+        public long getNativeBytesPerClient() {
+            return nativeBytesPerClient;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d devices connected (p50=%.2fms p99=%.2fms, %d failed attempts), %d operations, %d failed, %.1f operations/s, %d heap and %d native bytes per client",
+                    connectedCount, deviceCount, connectLatency.getValueAtPercentile(50) / 1e6,
+                    connectLatency.getValueAtPercentile(99) / 1e6, connectFailureCount, operationCount, failedOperationCount,
+                    getThroughput(), heapBytesPerClient, nativeBytesPerClient);
+        }
+    }
+
+    /**
+     * Builder for FleetSimulator
+     */
+    public static class FleetSimulatorBuilder {
+        private final AwsIotMqtt5ClientBuilder clientBuilder;
+        private AwsServiceEmulator emulator;
+        private int deviceCount = 100;
+        private String clientIdPrefix = "fleet-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+        private int connectRate = 200;
+        private int connectJitterMillis = 250;
+        private int eventLoopThreads;
+        private int iterations = 5;
+        private int minThinkTimeMillis;
+        private int maxThinkTimeMillis = 100;
+        private int operationTimeoutSeconds = 30;
+
+        private FleetSimulatorBuilder(AwsIotMqtt5ClientBuilder clientBuilder) {
+            this.clientBuilder = clientBuilder;
+        }
+
+        /**
+         * Sets the emulator that gives each device a job every iteration.  Without one, devices only start jobs
+         * that the service already has for them.
+         *
+         * @param emulator the emulator attached to the broker the clients connect to
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withEmulator(AwsServiceEmulator emulator) {
+            this.emulator = emulator;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of simulated devices.  Defaults to 100.
+         *
+         * @param deviceCount the number of devices
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withDeviceCount(int deviceCount) {
+            this.deviceCount = deviceCount;
+
+            return this;
+        }
+
+        /**
+         * Sets the prefix of the devices' client ids, which are also their thing names.  Defaults to a random
+         * prefix, so that runs against the same broker do not interfere.
+         *
+         * @param clientIdPrefix the prefix
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withClientIdPrefix(String clientIdPrefix) {
+            this.clientIdPrefix = clientIdPrefix;
+
+            return this;
+        }
+
+        /**
+         * Sets the rate at which clients are started.  Defaults to 200 per second.
+         *
+         * @param connectRate the number of clients started per second
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withConnectRate(int connectRate) {
+            this.connectRate = connectRate;
+
+            return this;
+        }
+
+        /**
+         * Sets the most each client's start is delayed past its place in the ramp, chosen at random per client.
+         * Defaults to 250 milliseconds.
+         *
+         * @param connectJitterMillis the largest delay, in milliseconds
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withConnectJitterMillis(int connectJitterMillis) {
+            this.connectJitterMillis = connectJitterMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of threads in the event loop group every client shares.  Defaults to 0, one per
+         * processor.
+         *
+         * @param eventLoopThreads the number of threads
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withEventLoopThreads(int eventLoopThreads) {
+            this.eventLoopThreads = eventLoopThreads;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of iterations each device runs.  Defaults to 5.
+         *
+         * @param iterations the number of iterations
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withIterations(int iterations) {
+            this.iterations = iterations;
+
+            return this;
+        }
+
+        /**
+         * Sets the range of the pause between a device's iterations, chosen at random per pause.  Defaults to
+         * between 0 and 100 milliseconds.
+         *
+         * @param minThinkTimeMillis the shortest pause, in milliseconds
+         * @param maxThinkTimeMillis the longest pause, in milliseconds
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withThinkTimeMillis(int minThinkTimeMillis, int maxThinkTimeMillis) {
+            this.minThinkTimeMillis = minThinkTimeMillis;
+            this.maxThinkTimeMillis = maxThinkTimeMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets the service clients' operation timeout, which is also how long a client may take to connect after
+         * its start.  Defaults to 30 seconds.
+         *
+         * @param operationTimeoutSeconds the timeout, in seconds
+         * @return the builder
+         */
+        public FleetSimulatorBuilder withOperationTimeoutSeconds(int operationTimeoutSeconds) {
+            this.operationTimeoutSeconds = operationTimeoutSeconds;
+
+            return this;
+        }
+
+        /**
+         * @return a new simulator
+         */
+        public FleetSimulator build() {
+            if (clientBuilder == null) {
+                throw new IllegalArgumentException("FleetSimulator clientBuilder cannot be null");
+            }
+            if (deviceCount <= 0 || iterations <= 0 || connectRate <= 0) {
+                throw new IllegalArgumentException("FleetSimulator device count, iterations and connect rate must be positive");
+            }
+            if (connectJitterMillis < 0 || eventLoopThreads < 0) {
+                throw new IllegalArgumentException("FleetSimulator connect jitter and event loop threads cannot be negative");
+            }
+            if (minThinkTimeMillis < 0 || maxThinkTimeMillis < minThinkTimeMillis) {
+                throw new IllegalArgumentException("FleetSimulator think time range is invalid");
+            }
+            if (operationTimeoutSeconds <= 0) {
+                throw new IllegalArgumentException("FleetSimulator operationTimeoutSeconds must be positive");
+            }
+            if (clientIdPrefix == null) {
+                throw new IllegalArgumentException("FleetSimulator clientIdPrefix cannot be null");
+            }
+
+            return new FleetSimulator(this);
+        }
+    }
+
+    /**
+     * @param clientBuilder the builder the devices' clients are made with, configured with the endpoint, port and
+     * TLS settings to connect with
+     * @return a new builder for a simulator
+     */
+    public static FleetSimulatorBuilder builder(AwsIotMqtt5ClientBuilder clientBuilder) {
+        return new FleetSimulatorBuilder(clientBuilder);
+    }
+
+    private static final class Device {
+        private final String thingName;
+        private final CompletableFuture<Void> connected = new CompletableFuture<>();
+        private volatile long startNanos;
+        private Mqtt5Client mqttClient;
+        private IotShadowV2Client shadowClient;
+        private IotJobsV2Client jobsClient;
+
+        private Device(String thingName) {
+            this.thingName = thingName;
+        }
+    }
+
+    private final AwsIotMqtt5ClientBuilder clientBuilder;
+    private final AwsServiceEmulator emulator;
+    private final int deviceCount;
+    private final String clientIdPrefix;
+    private final int connectRate;
+    private final int connectJitterMillis;
+    private final int eventLoopThreads;
+    private final int iterations;
+    private final int minThinkTimeMillis;
+    private final int maxThinkTimeMillis;
+    private final int operationTimeoutSeconds;
+
+    private final V2ClientMetrics metrics = new V2ClientMetrics();
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final AtomicLong connectFailureCount = new AtomicLong();
+    private final AtomicLong operationCount = new AtomicLong();
+    private final AtomicLong failedOperationCount = new AtomicLong();
+
+    private FleetSimulator(FleetSimulatorBuilder builder) {
+        this.clientBuilder = builder.clientBuilder;
+        this.emulator = builder.emulator;
+        this.deviceCount = builder.deviceCount;
+        this.clientIdPrefix = builder.clientIdPrefix;
+        this.connectRate = builder.connectRate;
+        this.connectJitterMillis = builder.connectJitterMillis;
+        this.eventLoopThreads = builder.eventLoopThreads;
+        this.iterations = builder.iterations;
+        this.minThinkTimeMillis = builder.minThinkTimeMillis;
+        this.maxThinkTimeMillis = builder.maxThinkTimeMillis;
+        this.operationTimeoutSeconds = builder.operationTimeoutSeconds;
+    }
+
+    /**
+     * Builds and connects the devices' clients, runs their iterations and disconnects them
+     *
+     * @return the results
+     * @throws InterruptedException if interrupted while waiting for the devices
+     */
+    public Report run() throws InterruptedException {
+        List<Device> devices = new ArrayList<>(deviceCount);
+        for (int i = 0; i < deviceCount; i++) {
+            devices.add(new Device(clientIdPrefix + i));
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FleetSimulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (EventLoopGroup eventLoopGroup = new EventLoopGroup(eventLoopThreads);
+             HostResolver resolver = new HostResolver(eventLoopGroup);
+             ClientBootstrap bootstrap = new ClientBootstrap(eventLoopGroup, resolver)) {
+            List<Device> connected = new ArrayList<>();
+            long heapBytesPerClient;
+            long nativeBytesPerClient;
+            long elapsedNanos;
+            try {
+                long heapBefore = usedHeap();
+                long nativeBefore = CRT.nativeMemory();
+                connect(devices, bootstrap, scheduler, connected);
+                heapBytesPerClient = Math.max(0, usedHeap() - heapBefore) / deviceCount;
+                nativeBytesPerClient = Math.max(0, CRT.nativeMemory() - nativeBefore) / deviceCount;
+
+                long start = System.nanoTime();
+                List<CompletableFuture<Void>> scripts = new ArrayList<>(connected.size());
+                for (Device device : connected) {
+                    scripts.add(runIterations(device, 0, scheduler));
+                }
+                try {
+                    // Every operation times out on its own, so this only guards against a lost completion
+                    CompletableFuture.allOf(scripts.toArray(new CompletableFuture[0]))
+                            .get((long) iterations * (4L * operationTimeoutSeconds + maxThinkTimeMillis / 1000 + 1), TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    // the scripts count their own failures
+                }
+                elapsedNanos = System.nanoTime() - start;
+            } finally {
+                for (Device device : devices) {
+                    closeDevice(device);
+                }
+                clientBuilder.withBootstrap(null);
+            }
+
+            return new Report(deviceCount, connected.size(), connectLatency, connectFailureCount.get(), operationCount.get(),
+                    failedOperationCount.get(), elapsedNanos, metrics, heapBytesPerClient, nativeBytesPerClient);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void connect(List<Device> devices, ClientBootstrap bootstrap, ScheduledExecutorService scheduler,
+                         List<Device> connected) throws InterruptedException {
+        clientBuilder.withBootstrap(bootstrap);
+        for (int i = 0; i < devices.size(); i++) {
+            Device device = devices.get(i);
+            device.mqttClient = clientBuilder
+                    .withClientId(device.thingName)
+                    .withLifeCycleEvents(new DeviceLifecycle(device))
+                    .build();
+            if (device.mqttClient == null) {
+                device.connected.completeExceptionally(new IllegalStateException("Unable to build the client"));
+                continue;
+            }
+
+            long delayNanos = i * 1_000_000_000L / connectRate
+                    + TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextInt(connectJitterMillis + 1));
+            scheduler.schedule(() -> {
+                device.startNanos = System.nanoTime();
+                device.mqttClient.start();
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        long rampNanos = devices.size() * 1_000_000_000L / connectRate + TimeUnit.MILLISECONDS.toNanos(connectJitterMillis);
+        long deadline = System.nanoTime() + rampNanos + TimeUnit.SECONDS.toNanos(operationTimeoutSeconds);
+        for (Device device : devices) {
+            try {
+                device.connected.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                continue;
+            }
+            connected.add(device);
+        }
+
+        MqttRequestResponseClientOptions requestResponseOptions = MqttRequestResponseClientOptions.builder()
+                .withMaxRequestResponseSubscriptions(6)
+                .withMaxStreamingSubscriptions(1)
+                .withOperationTimeoutSeconds(operationTimeoutSeconds)
+                .build();
+        V2ClientOptions clientOptions = V2ClientOptions.builder()
+                .withMetricsListener(metrics)
+                .build();
+        for (Device device : connected) {
+            device.shadowClient = IotShadowV2Client.newFromMqtt5(device.mqttClient, requestResponseOptions, clientOptions);
+            device.jobsClient = IotJobsV2Client.newFromMqtt5(device.mqttClient, requestResponseOptions, clientOptions);
+        }
+    }
+
+    /**
+     * Chains a device's remaining iterations.  The stages run on the clients' event loops and the scheduler, so
+     * none of them block.
+     */
+    private CompletableFuture<Void> runIterations(Device device, int iteration, ScheduledExecutorService scheduler) {
+        if (iteration >= iterations) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return runIteration(device, iteration, scheduler)
+                .thenCompose(ignored -> think(scheduler))
+                .thenCompose(ignored -> runIterations(device, iteration + 1, scheduler));
+    }
+
+    private CompletableFuture<Void> runIteration(Device device, int iteration, ScheduledExecutorService scheduler) {
+        return step(() -> {
+            UpdateShadowRequest request = new UpdateShadowRequest();
+            request.thingName = device.thingName;
+            request.state = new ShadowState();
+            HashMap<String, Object> reported = new HashMap<>();
+            reported.put("iteration", iteration);
+            request.state.reported = reported;
+            return device.shadowClient.updateShadow(request);
+        }).thenCompose(ignored -> step(() -> {
+            GetShadowRequest request = new GetShadowRequest();
+            request.thingName = device.thingName;
+            return device.shadowClient.getShadow(request);
+        })).thenCompose(ignored -> queueJob(device, iteration, scheduler)).thenCompose(ignored -> step(() -> {
+            StartNextPendingJobExecutionRequest request = new StartNextPendingJobExecutionRequest();
+            request.thingName = device.thingName;
+            return device.jobsClient.startNextPendingJobExecution(request);
+        })).thenCompose((StartNextJobExecutionResponse started) -> {
+            if (started == null || started.execution == null) {
+                // Nothing was pending, or the start failed and was counted
+                return CompletableFuture.completedFuture(null);
+            }
+            return step(() -> {
+                UpdateJobExecutionRequest request = new UpdateJobExecutionRequest();
+                request.thingName = device.thingName;
+                request.jobId = started.execution.jobId;
+                request.status = JobStatus.SUCCEEDED;
+                request.expectedVersion = started.execution.versionNumber;
+                return device.jobsClient.updateJobExecution(request);
+            });
+        }).thenApply(ignored -> null);
+    }
+
+    /**
+     * Gives the device a job through the emulator, if there is one.  Queueing waits on the emulator's thread, so it
+     * runs on the scheduler rather than a client's event loop.
+     */
+    private CompletableFuture<Void> queueJob(Device device, int iteration, ScheduledExecutorService scheduler) {
+        if (emulator == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.runAsync(() -> emulator.addJob(device.thingName, "job-" + iteration,
+                "{\"operation\":\"noop\",\"iteration\":" + iteration + "}"), scheduler)
+                .exceptionally(error -> null);
+    }
+
+    private CompletableFuture<Void> think(ScheduledExecutorService scheduler) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        int millis = ThreadLocalRandom.current().nextInt(minThinkTimeMillis, maxThinkTimeMillis + 1);
+        scheduler.schedule(() -> done.complete(null), millis, TimeUnit.MILLISECONDS);
+        return done;
+    }
+
+    private interface Operation<T> {
+        CompletableFuture<T> start();
+    }
+
+    /**
+     * Starts one scripted operation
+     *
+     * @return a future with the operation's result, or null if it failed; it never completes exceptionally
+     */
+    private <T> CompletableFuture<T> step(Operation<T> operation) {
+        operationCount.incrementAndGet();
+        CompletableFuture<T> started;
+        try {
+            started = operation.start();
+        } catch (RuntimeException e) {
+            started = new CompletableFuture<>();
+            started.completeExceptionally(e);
+        }
+
+        return started.handle((result, error) -> {
+            if (error != null) {
+                // rejected, timed out or failed; the service clients' metrics record which
+                failedOperationCount.incrementAndGet();
+                return null;
+            }
+            return result;
+        });
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void closeDevice(Device device) {
+        if (device.jobsClient != null) {
+            device.jobsClient.close();
+        }
+        if (device.shadowClient != null) {
+            device.shadowClient.close();
+        }
+        if (device.mqttClient != null) {
+            device.mqttClient.stop(null);
+            device.mqttClient.close();
+        }
+    }
+
+    private final class DeviceLifecycle implements Mqtt5ClientOptions.LifecycleEvents {
+        private final Device device;
+
+        private DeviceLifecycle(Device device) {
+            this.device = device;
+        }
+
+        @Override
+        public void onAttemptingConnect(Mqtt5Client client, OnAttemptingConnectReturn onAttemptingConnectReturn) {}
+
+        @Override
+        public void onConnectionSuccess(Mqtt5Client client, OnConnectionSuccessReturn onConnectionSuccessReturn) {
+            if (device.connected.complete(null)) {
+                connectLatency.record(System.nanoTime() - device.startNanos);
+            }
+        }
+
+        @Override
+        public void onConnectionFailure(Mqtt5Client client, OnConnectionFailureReturn onConnectionFailureReturn) {
+            // The client retries with backoff; a device only counts as unconnected if the deadline passes first
+            connectFailureCount.incrementAndGet();
+        }
+
+        @Override
+        public void onDisconnection(Mqtt5Client client, OnDisconnectionReturn onDisconnectionReturn) {}
+
+        @Override
+        public void onStopped(Mqtt5Client client, OnStoppedReturn onStoppedReturn) {}
+    }
+}
@@ -0,0 +1,371 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Emulates the jobs service on the $aws/things/{thingName}/jobs topics: get pending, start next, describe and update
+ * of job executions, and the notify and notify-next events.  Jobs are queued on a thing with
+ * {@link AwsServiceEmulator#addJob}.
+ */
+class JobsService extends EmulatedService {
+
+    private static final String NEXT_JOB_ID = "$next";
+
+    private static final class Execution {
+        private final String jobId;
+        private final String thingName;
+        private final JsonObject jobDocument;
+        private final long executionNumber;
+        private final long queuedAt;
+        private String status = "QUEUED";
+        private JsonObject statusDetails;
+        private long startedAt;
+        private long lastUpdatedAt;
+        private int versionNumber = 1;
+
+        private Execution(String jobId, String thingName, JsonObject jobDocument, long executionNumber, long now) {
+            this.jobId = jobId;
+            this.thingName = thingName;
+            this.jobDocument = jobDocument;
+            this.executionNumber = executionNumber;
+            this.queuedAt = now;
+            this.lastUpdatedAt = now;
+        }
+
+        private boolean isPending() {
+            return "QUEUED".equals(status) || "IN_PROGRESS".equals(status);
+        }
+    }
+
+    private final Map<String, Map<String, Execution>> things = new HashMap<>();
+    private final Replies events = new Replies();
+    private long nextExecutionNumber = 1;
+
+    @Override
+    boolean isRequestTopic(String[] segments) {
+        if (!"things".equals(segments[1]) || segments.length < 5 || !"jobs".equals(segments[3])) {
+            return false;
+        }
+        if (segments.length == 5) {
+            return "get".equals(segments[4]) || "start-next".equals(segments[4]);
+        }
+        return segments.length == 6 && ("get".equals(segments[5]) || "update".equals(segments[5]));
+    }
+
+    @Override
+    void handle(String topic, String[] segments, byte[] payload, Replies replies) {
+        String thingName = segments[2];
+        JsonObject request = parseObject(payload);
+        if (request == null) {
+            reject(topic, null, "InvalidJson", "Payload contains invalid json", null, replies);
+            return;
+        }
+
+        Map<String, Execution> executions = things.computeIfAbsent(thingName, key -> new LinkedHashMap<>());
+        if (segments.length == 5) {
+            if ("get".equals(segments[4])) {
+                replies.add(topic + "/accepted", withClientToken(request, pendingExecutions(executions)));
+            } else {
+                startNext(topic, thingName, executions, request, replies);
+            }
+            return;
+        }
+
+        String jobId = segments[4];
+        if ("get".equals(segments[5])) {
+            Execution execution = NEXT_JOB_ID.equals(jobId) ? nextExecution(executions) : executions.get(jobId);
+            if (execution == null) {
+                reject(topic, request, "ResourceNotFound", "Job execution not found for job " + jobId, null, replies);
+                return;
+            }
+
+            JsonObject response = new JsonObject();
+            response.add("execution", executionData(execution, !Boolean.FALSE.equals(getBoolean(request, "includeJobDocument"))));
+            response.addProperty("timestamp", now());
+            replies.add(topic + "/accepted", withClientToken(request, response));
+        } else {
+            update(topic, thingName, executions.get(jobId), executions, request, replies);
+        }
+    }
+
+    private void startNext(String topic, String thingName, Map<String, Execution> executions, JsonObject request, Replies replies) {
+        JsonObject response = new JsonObject();
+        Execution execution = nextExecution(executions);
+        if (execution != null) {
+            if ("QUEUED".equals(execution.status)) {
+                long now = now();
+                execution.status = "IN_PROGRESS";
+                execution.startedAt = now;
+                execution.lastUpdatedAt = now;
+                execution.versionNumber++;
+                JsonElement statusDetails = request.get("statusDetails");
+                if (statusDetails != null && statusDetails.isJsonObject()) {
+                    execution.statusDetails = statusDetails.getAsJsonObject().deepCopy();
+                }
+                addNotifyEvent(thingName, executions);
+            }
+            response.add("execution", executionData(execution, true));
+        }
+        response.addProperty("timestamp", now());
+        replies.add(topic + "/accepted", withClientToken(request, response));
+        flushEvents(replies);
+    }
+
+    private void update(String topic, String thingName, Execution execution, Map<String, Execution> executions, JsonObject request, Replies replies) {
+        if (execution == null) {
+            reject(topic, request, "ResourceNotFound", "Job execution not found", null, replies);
+            return;
+        }
+        if (!execution.isPending()) {
+            reject(topic, request, "TerminalStateReached", "Job execution is already in the terminal state " + execution.status, execution, replies);
+            return;
+        }
+
+        String status = getString(request, "status");
+        if (status == null || !isUpdatableStatus(status)) {
+            reject(topic, request, "InvalidRequest", "Invalid job execution status: " + status, null, replies);
+            return;
+        }
+        if ("QUEUED".equals(status) && "IN_PROGRESS".equals(execution.status)) {
+            reject(topic, request, "InvalidStateTransition", "Job execution cannot return to QUEUED", execution, replies);
+            return;
+        }
+        Integer expectedVersion = getInteger(request, "expectedVersion");
+        if (expectedVersion != null && expectedVersion != execution.versionNumber) {
+            reject(topic, request, "VersionMismatch", "Expected version " + expectedVersion + " but was " + execution.versionNumber, execution, replies);
+            return;
+        }
+
+        Execution previousNext = nextExecution(executions);
+        String previousStatus = execution.status;
+        long now = now();
+        if ("QUEUED".equals(previousStatus) && !"QUEUED".equals(status)) {
+            execution.startedAt = now;
+        }
+        execution.status = status;
+        execution.lastUpdatedAt = now;
+        execution.versionNumber++;
+        JsonElement statusDetails = request.get("statusDetails");
+        if (statusDetails != null && statusDetails.isJsonObject()) {
+            execution.statusDetails = statusDetails.getAsJsonObject().deepCopy();
+        }
+
+        JsonObject response = new JsonObject();
+        if (Boolean.TRUE.equals(getBoolean(request, "includeJobExecutionState"))) {
+            response.add("executionState", executionState(execution));
+        }
+        if (Boolean.TRUE.equals(getBoolean(request, "includeJobDocument"))) {
+            response.add("jobDocument", execution.jobDocument.deepCopy());
+        }
+        response.addProperty("timestamp", now);
+        replies.add(topic + "/accepted", withClientToken(request, response));
+
+        if (!previousStatus.equals(status)) {
+            addNotifyEvent(thingName, executions);
+        }
+        if (nextExecution(executions) != previousNext) {
+            addNotifyNextEvent(thingName, executions);
+        }
+        flushEvents(replies);
+    }
+
+    private static boolean isUpdatableStatus(String status) {
+        switch (status) {
+            case "QUEUED":
+            case "IN_PROGRESS":
+            case "SUCCEEDED":
+            case "FAILED":
+            case "REJECTED":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    void throttle(String topic, String[] segments, byte[] payload, Replies replies) {
+        reject(topic, parseObject(payload), "RequestThrottled", "Rate limit exceeded", null, replies);
+    }
+
+    private static void reject(String topic, JsonObject request, String code, String message, Execution execution, Replies replies) {
+        JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+        error.addProperty("timestamp", now());
+        if (execution != null) {
+            error.add("executionState", executionState(execution));
+        }
+        replies.add(topic + "/rejected", withClientToken(request, error));
+    }
+
+    /**
+     * Queues a job on a thing
+     *
+     * @param thingName the thing's name
+     * @param jobId the job's identifier
+     * @param jobDocument the job document
+     * @return the events announcing the job
+     */
+    Replies addJob(String thingName, String jobId, JsonObject jobDocument) {
+        Map<String, Execution> executions = things.computeIfAbsent(thingName, key -> new LinkedHashMap<>());
+        Execution previousNext = nextExecution(executions);
+        Execution existing = executions.get(jobId);
+        if (existing != null && existing.isPending()) {
+            throw new IllegalStateException("Job " + jobId + " is already pending on " + thingName);
+        }
+        // A finished execution of the same job moves to the back of the queue when the job is re-run
+        executions.remove(jobId);
+        executions.put(jobId, new Execution(jobId, thingName, jobDocument, nextExecutionNumber++, now()));
+
+        addNotifyEvent(thingName, executions);
+        if (nextExecution(executions) != previousNext) {
+            addNotifyNextEvent(thingName, executions);
+        }
+        Replies replies = new Replies();
+        flushEvents(replies);
+        return replies;
+    }
+
+    /**
+     * @param thingName the thing's name
+     * @param jobId the job's identifier
+     * @return the status of the thing's execution of the job, or null if there is none
+     */
+    String getStatus(String thingName, String jobId) {
+        Map<String, Execution> executions = things.get(thingName);
+        Execution execution = executions != null ? executions.get(jobId) : null;
+        return execution != null ? execution.status : null;
+    }
+
+    /**
+     * The next execution is the oldest one in progress, or else the oldest queued one
+     */
+    private static Execution nextExecution(Map<String, Execution> executions) {
+        Execution queued = null;
+        for (Execution execution : executions.values()) {
+            if ("IN_PROGRESS".equals(execution.status)) {
+                return execution;
+            }
+            if (queued == null && "QUEUED".equals(execution.status)) {
+                queued = execution;
+            }
+        }
+        return queued;
+    }
+
+    private static JsonObject pendingExecutions(Map<String, Execution> executions) {
+        JsonArray inProgress = new JsonArray();
+        JsonArray queued = new JsonArray();
+        for (Execution execution : executions.values()) {
+            if ("IN_PROGRESS".equals(execution.status)) {
+                inProgress.add(executionSummary(execution));
+            } else if ("QUEUED".equals(execution.status)) {
+                queued.add(executionSummary(execution));
+            }
+        }
+
+        JsonObject response = new JsonObject();
+        response.add("inProgressJobs", inProgress);
+        response.add("queuedJobs", queued);
+        response.addProperty("timestamp", now());
+        return response;
+    }
+
+    private void addNotifyEvent(String thingName, Map<String, Execution> executions) {
+        JsonArray inProgress = new JsonArray();
+        JsonArray queued = new JsonArray();
+        for (Execution execution : executions.values()) {
+            if ("IN_PROGRESS".equals(execution.status)) {
+                inProgress.add(executionSummary(execution));
+            } else if ("QUEUED".equals(execution.status)) {
+                queued.add(executionSummary(execution));
+            }
+        }
+
+        JsonObject jobs = new JsonObject();
+        if (inProgress.size() > 0) {
+            jobs.add("IN_PROGRESS", inProgress);
+        }
+        if (queued.size() > 0) {
+            jobs.add("QUEUED", queued);
+        }
+        JsonObject event = new JsonObject();
+        event.add("jobs", jobs);
+        event.addProperty("timestamp", now());
+        events.add("$aws/things/" + thingName + "/jobs/notify", event);
+    }
+
+    private void addNotifyNextEvent(String thingName, Map<String, Execution> executions) {
+        JsonObject event = new JsonObject();
+        Execution next = nextExecution(executions);
+        if (next != null) {
+            event.add("execution", executionData(next, true));
+        }
+        event.addProperty("timestamp", now());
+        events.add("$aws/things/" + thingName + "/jobs/notify-next", event);
+    }
+
+    /**
+     * Moves the pending events behind a request's replies, the order the service sends them in
+     */
+    private void flushEvents(Replies replies) {
+        events.moveTo(replies);
+    }
+
+    private static JsonObject executionSummary(Execution execution) {
+        JsonObject summary = new JsonObject();
+        summary.addProperty("jobId", execution.jobId);
+        summary.addProperty("executionNumber", execution.executionNumber);
+        summary.addProperty("versionNumber", execution.versionNumber);
+        summary.addProperty("queuedAt", execution.queuedAt);
+        if (execution.startedAt != 0) {
+            summary.addProperty("startedAt", execution.startedAt);
+        }
+        summary.addProperty("lastUpdatedAt", execution.lastUpdatedAt);
+        return summary;
+    }
+
+    private static JsonObject executionData(Execution execution, boolean includeJobDocument) {
+        JsonObject data = executionSummary(execution);
+        data.addProperty("thingName", execution.thingName);
+        data.addProperty("status", execution.status);
+        if (execution.statusDetails != null) {
+            data.add("statusDetails", execution.statusDetails.deepCopy());
+        }
+        if (includeJobDocument) {
+            data.add("jobDocument", execution.jobDocument.deepCopy());
+        }
+        return data;
+    }
+
+    private static JsonObject executionState(Execution execution) {
+        JsonObject state = new JsonObject();
+        state.addProperty("status", execution.status);
+        if (execution.statusDetails != null) {
+            state.add("statusDetails", execution.statusDetails.deepCopy());
+        }
+        state.addProperty("versionNumber", execution.versionNumber);
+        return state;
+    }
+
+    private static Boolean getBoolean(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isBoolean() ? element.getAsBoolean() : null;
+    }
+
+    private static Integer getInteger(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber() ? element.getAsInt() : null;
+    }
+}
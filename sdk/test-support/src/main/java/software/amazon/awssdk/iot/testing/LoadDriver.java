@@ -0,0 +1,583 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import software.amazon.awssdk.crt.CRT;
+import software.amazon.awssdk.crt.io.ClientBootstrap;
+import software.amazon.awssdk.crt.io.EventLoopGroup;
+import software.amazon.awssdk.crt.io.HostResolver;
+import software.amazon.awssdk.crt.iot.MqttRequestResponseClientOptions;
+import software.amazon.awssdk.crt.iot.StreamingOperation;
+import software.amazon.awssdk.crt.iot.SubscriptionStatusEventType;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5Client;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5ClientOptions;
+import software.amazon.awssdk.crt.mqtt5.OnAttemptingConnectReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionFailureReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionSuccessReturn;
+import software.amazon.awssdk.crt.mqtt5.OnDisconnectionReturn;
+import software.amazon.awssdk.crt.mqtt5.OnStoppedReturn;
+import software.amazon.awssdk.crt.mqtt5.packets.ConnectPacket;
+import software.amazon.awssdk.iot.LatencyHistogram;
+import software.amazon.awssdk.iot.V2ClientMetrics;
+import software.amazon.awssdk.iot.V2ClientOptions;
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotcommands.IotCommandsV2Client;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionEvent;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionStatus;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionsSubscriptionRequest;
+import software.amazon.awssdk.iot.iotcommands.model.DeviceType;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.IotJobsV2Client;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.StartNextJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.StartNextPendingJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionRequest;
+import software.amazon.awssdk.iot.iotshadow.IotShadowV2Client;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowRequest;
+
+/**
+ * Runs many simulated devices through IotShadowV2Client, IotJobsV2Client and IotCommandsV2Client against a
+ * {@link LocalMqttBroker} with an attached {@link AwsServiceEmulator}, and reports how the clients performed.
+ *
+ * Every device gets its own MQTT5 connection and service clients; the connections share one event loop group and
+ * bootstrap, as an application simulating devices would.  In each iteration a device reports and reads back its
+ * shadow, is given a job which it starts and completes, and is sent a command which it acknowledges as succeeded.
+ * A fixed number of devices run their iterations at a time, so the load is closed-loop: a slower service means
+ * fewer requests per second rather than a growing backlog.
+ *
+ * <pre>{@code
+ * LoadDriver.Report report = LoadDriver.builder(broker, emulator)
+ *     .withDeviceCount(2000)
+ *     .withConcurrency(200)
+ *     .build()
+ *     .run();
+ * }</pre>
+ */
+public final class LoadDriver {
+
+    /**
+     * The results of a run
+     */
+    public static final class Report {
+        private final int deviceCount;
+        private final int connectedCount;
+        private final long operationCount;
+        private final long failedOperationCount;
+        private final long elapsedNanos;
+        private final V2ClientMetrics metrics;
+        private final LatencyHistogram commandRoundTrips;
+
+        private Report(int deviceCount, int connectedCount, long operationCount, long failedOperationCount,
+                       long elapsedNanos, V2ClientMetrics metrics, LatencyHistogram commandRoundTrips) {
+            this.deviceCount = deviceCount;
+            this.connectedCount = connectedCount;
+            this.operationCount = operationCount;
+            this.failedOperationCount = failedOperationCount;
+            this.elapsedNanos = elapsedNanos;
+            this.metrics = metrics;
+            this.commandRoundTrips = commandRoundTrips;
+        }
+
+        /**
+         * @return the number of simulated devices
+         */
+        public int getDeviceCount() {
+            return deviceCount;
+        }
+
+        /**
+         * @return the number of devices that connected; the others ran no traffic
+         */
+        public int getConnectedCount() {
+            return connectedCount;
+        }
+
+        /**
+         * @return the number of scripted operations attempted: shadow updates and gets, job starts and updates,
+         * and command round trips
+         */
+        public long getOperationCount() {
+            return operationCount;
+        }
+
+        /**
+         * @return the number of scripted operations that failed, were rejected or timed out
+         */
+        public long getFailedOperationCount() {
+            return failedOperationCount;
+        }
+
+        /**
+         * @return the time the devices spent running their iterations, excluding connecting and shutting down
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return scripted operations per second
+         */
+        public double getThroughput() {
+            return elapsedNanos > 0 ? operationCount * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * @return the per-operation latencies and outcomes of every device's service clients
+         */
+        public V2ClientMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * @return the time from the emulator sending each command to the device's update being accepted
+         */
+        public LatencyHistogram getCommandRoundTrips() {
+            return commandRoundTrips;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d devices connected, %d operations, %d failed, %.1f operations/s, command round trip p50=%.2fms p99=%.2fms",
+                    connectedCount, deviceCount, operationCount, failedOperationCount, getThroughput(),
+                    commandRoundTrips.getValueAtPercentile(50) / 1e6, commandRoundTrips.getValueAtPercentile(99) / 1e6);
+        }
+    }
+
+    /**
+     * Builder for LoadDriver
+     */
+    public static class LoadDriverBuilder {
+        private final LocalMqttBroker broker;
+        private final AwsServiceEmulator emulator;
+        private int deviceCount = 100;
+        private int iterations = 5;
+        private int concurrency = 64;
+        private int maxConnectsInFlight = 100;
+        private int operationTimeoutSeconds = 30;
+        private String thingNamePrefix = "load-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+
+        private LoadDriverBuilder(LocalMqttBroker broker, AwsServiceEmulator emulator) {
+            this.broker = broker;
+            this.emulator = emulator;
+        }
+
+        /**
+         * Sets the number of simulated devices.  Defaults to 100.
+         *
+         * @param deviceCount the number of devices
+         * @return the builder
+         */
+        public LoadDriverBuilder withDeviceCount(int deviceCount) {
+            this.deviceCount = deviceCount;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of iterations each device runs.  Defaults to 5.
+         *
+         * @param iterations the number of iterations
+         * @return the builder
+         */
+        public LoadDriverBuilder withIterations(int iterations) {
+            this.iterations = iterations;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of devices running their iterations at the same time.  Defaults to 64.
+         *
+         * @param concurrency the number of active devices
+         * @return the builder
+         */
+        public LoadDriverBuilder withConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of devices connecting at the same time.  Defaults to 100.
+         *
+         * @param maxConnectsInFlight the number of connection attempts in flight
+         * @return the builder
+         */
+        public LoadDriverBuilder withMaxConnectsInFlight(int maxConnectsInFlight) {
+            this.maxConnectsInFlight = maxConnectsInFlight;
+
+            return this;
+        }
+
+        /**
+         * Sets the service clients' operation timeout.  Defaults to 30 seconds.
+         *
+         * @param operationTimeoutSeconds the timeout, in seconds
+         * @return the builder
+         */
+        public LoadDriverBuilder withOperationTimeoutSeconds(int operationTimeoutSeconds) {
+            this.operationTimeoutSeconds = operationTimeoutSeconds;
+
+            return this;
+        }
+
+        /**
+         * Sets the prefix of the devices' thing names and client ids.  Defaults to a random prefix, so that
+         * runs against the same broker do not interfere.
+         *
+         * @param thingNamePrefix the prefix
+         * @return the builder
+         */
+        public LoadDriverBuilder withThingNamePrefix(String thingNamePrefix) {
+            this.thingNamePrefix = thingNamePrefix;
+
+            return this;
+        }
+
+        /**
+         * @return a new driver
+         */
+        public LoadDriver build() {
+            if (broker == null || emulator == null) {
+                throw new IllegalArgumentException("LoadDriver broker and emulator cannot be null");
+            }
+            if (deviceCount <= 0 || iterations <= 0 || concurrency <= 0 || maxConnectsInFlight <= 0) {
+                throw new IllegalArgumentException("LoadDriver device count, iterations, concurrency and maxConnectsInFlight must be positive");
+            }
+            if (operationTimeoutSeconds <= 0) {
+                throw new IllegalArgumentException("LoadDriver operationTimeoutSeconds must be positive");
+            }
+            if (thingNamePrefix == null) {
+                throw new IllegalArgumentException("LoadDriver thingNamePrefix cannot be null");
+            }
+
+            return new LoadDriver(this);
+        }
+    }
+
+    /**
+     * @param broker the broker the devices connect to
+     * @param emulator the emulator attached to the broker, which also sends the devices jobs and commands
+     * @return a new builder for a driver
+     */
+    public static LoadDriverBuilder builder(LocalMqttBroker broker, AwsServiceEmulator emulator) {
+        return new LoadDriverBuilder(broker, emulator);
+    }
+
+    private static final class Device {
+        private final String thingName;
+        private final CompletableFuture<Void> connected = new CompletableFuture<>();
+        private final Map<String, CompletableFuture<String>> pendingCommands = new ConcurrentHashMap<>();
+        private Mqtt5Client mqttClient;
+        private IotShadowV2Client shadowClient;
+        private IotJobsV2Client jobsClient;
+        private IotCommandsV2Client commandsClient;
+        private StreamingOperation commandStream;
+
+        private Device(String thingName) {
+            this.thingName = thingName;
+        }
+
+        private CompletableFuture<String> pendingCommand(String executionId) {
+            return pendingCommands.computeIfAbsent(executionId, key -> new CompletableFuture<>());
+        }
+    }
+
+    private final LocalMqttBroker broker;
+    private final AwsServiceEmulator emulator;
+    private final int deviceCount;
+    private final int iterations;
+    private final int concurrency;
+    private final int maxConnectsInFlight;
+    private final int operationTimeoutSeconds;
+    private final String thingNamePrefix;
+
+    private final V2ClientMetrics metrics = new V2ClientMetrics();
+    private final LatencyHistogram commandRoundTrips = new LatencyHistogram();
+    private final AtomicLong operationCount = new AtomicLong();
+    private final AtomicLong failedOperationCount = new AtomicLong();
+
+    private LoadDriver(LoadDriverBuilder builder) {
+        this.broker = builder.broker;
+        this.emulator = builder.emulator;
+        this.deviceCount = builder.deviceCount;
+        this.iterations = builder.iterations;
+        this.concurrency = builder.concurrency;
+        this.maxConnectsInFlight = builder.maxConnectsInFlight;
+        this.operationTimeoutSeconds = builder.operationTimeoutSeconds;
+        this.thingNamePrefix = builder.thingNamePrefix;
+    }
+
+    /**
+     * Connects the devices, runs their iterations and disconnects them
+     *
+     * @return the results
+     * @throws InterruptedException if interrupted while waiting for the devices
+     */
+    public Report run() throws InterruptedException {
+        List<Device> devices = new ArrayList<>(deviceCount);
+        for (int i = 0; i < deviceCount; i++) {
+            devices.add(new Device(thingNamePrefix + i));
+        }
+
+        try (EventLoopGroup eventLoopGroup = new EventLoopGroup(0);
+             HostResolver resolver = new HostResolver(eventLoopGroup);
+             ClientBootstrap bootstrap = new ClientBootstrap(eventLoopGroup, resolver)) {
+            List<Device> connected = new ArrayList<>();
+            long elapsedNanos;
+            try {
+                connect(devices, bootstrap, connected);
+
+                ExecutorService pool = Executors.newFixedThreadPool(Math.min(concurrency, connected.size() > 0 ? connected.size() : 1));
+                try {
+                    long start = System.nanoTime();
+                    List<Future<?>> scripts = new ArrayList<>(connected.size());
+                    for (Device device : connected) {
+                        scripts.add(pool.submit(() -> runIterations(device)));
+                    }
+                    for (Future<?> script : scripts) {
+                        try {
+                            script.get();
+                        } catch (ExecutionException e) {
+                            // runIterations counts its own failures
+                        }
+                    }
+                    elapsedNanos = System.nanoTime() - start;
+                } finally {
+                    pool.shutdownNow();
+                }
+            } finally {
+                for (Device device : devices) {
+                    closeDevice(device);
+                }
+            }
+
+            return new Report(deviceCount, connected.size(), operationCount.get(), failedOperationCount.get(),
+                    elapsedNanos, metrics, commandRoundTrips);
+        }
+    }
+
+    private void connect(List<Device> devices, ClientBootstrap bootstrap, List<Device> connected) throws InterruptedException {
+        MqttRequestResponseClientOptions requestResponseOptions = MqttRequestResponseClientOptions.builder()
+                .withMaxRequestResponseSubscriptions(8)
+                .withMaxStreamingSubscriptions(2)
+                .withOperationTimeoutSeconds(operationTimeoutSeconds)
+                .build();
+        V2ClientOptions clientOptions = V2ClientOptions.builder()
+                .withMetricsListener(metrics)
+                .build();
+
+        Semaphore connectsInFlight = new Semaphore(maxConnectsInFlight);
+        for (Device device : devices) {
+            // A connect that never resolves only holds its permit until the timeout
+            connectsInFlight.tryAcquire(operationTimeoutSeconds, TimeUnit.SECONDS);
+            device.connected.whenComplete((ignored, error) -> connectsInFlight.release());
+            device.mqttClient = new Mqtt5Client(new Mqtt5ClientOptions.Mqtt5ClientOptionsBuilder(broker.getHost(), (long) broker.getPort())
+                    .withBootstrap(bootstrap)
+                    .withConnectOptions(new ConnectPacket.ConnectPacketBuilder().withClientId(device.thingName).withKeepAliveIntervalSeconds(1200L).build())
+                    .withLifecycleEvents(new DeviceLifecycle(device))
+                    .build());
+            device.mqttClient.start();
+        }
+
+        for (Device device : devices) {
+            try {
+                device.connected.get(operationTimeoutSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                continue;
+            }
+
+            device.shadowClient = IotShadowV2Client.newFromMqtt5(device.mqttClient, requestResponseOptions, clientOptions);
+            device.jobsClient = IotJobsV2Client.newFromMqtt5(device.mqttClient, requestResponseOptions, clientOptions);
+            device.commandsClient = IotCommandsV2Client.newFromMqtt5(device.mqttClient, requestResponseOptions, clientOptions);
+            if (openCommandStream(device)) {
+                connected.add(device);
+            }
+        }
+    }
+
+    private boolean openCommandStream(Device device) {
+        CompletableFuture<Void> subscribed = new CompletableFuture<>();
+        V2ClientStreamOptions<CommandExecutionEvent> options = V2ClientStreamOptions.<CommandExecutionEvent>builder()
+                .withStreamEventHandler(event -> acknowledgeCommand(device, event))
+                .withSubscriptionEventHandler(event -> {
+                    if (event.getType() == SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED) {
+                        subscribed.complete(null);
+                    } else if (event.getType() == SubscriptionStatusEventType.SUBSCRIPTION_HALTED) {
+                        subscribed.completeExceptionally(new IllegalStateException("Command stream subscription halted"));
+                    }
+                })
+                .build();
+
+        CommandExecutionsSubscriptionRequest request = new CommandExecutionsSubscriptionRequest();
+        request.deviceType = DeviceType.THING;
+        request.deviceId = device.thingName;
+        device.commandStream = device.commandsClient.createCommandExecutionsJsonPayloadStream(request, options);
+        device.commandStream.open();
+        try {
+            subscribed.get(operationTimeoutSeconds, TimeUnit.SECONDS);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * The device side of a command: acknowledge it as succeeded.  Called on the client's event loop, so it only
+     * chains futures.
+     */
+    private void acknowledgeCommand(Device device, CommandExecutionEvent event) {
+        UpdateCommandExecutionRequest request = new UpdateCommandExecutionRequest();
+        request.deviceType = DeviceType.THING;
+        request.deviceId = device.thingName;
+        request.executionId = event.executionId;
+        request.status = CommandExecutionStatus.SUCCEEDED;
+        CompletableFuture<String> pending = device.pendingCommand(event.executionId);
+        device.commandsClient.updateCommandExecution(request).whenComplete((response, error) -> {
+            if (error != null) {
+                pending.completeExceptionally(error);
+            } else {
+                pending.complete(event.executionId);
+            }
+        });
+    }
+
+    private void runIterations(Device device) {
+        for (int iteration = 0; iteration < iterations && !Thread.currentThread().isInterrupted(); iteration++) {
+            final int counter = iteration;
+            step(() -> {
+                UpdateShadowRequest request = new UpdateShadowRequest();
+                request.thingName = device.thingName;
+                request.state = new ShadowState();
+                HashMap<String, Object> reported = new HashMap<>();
+                reported.put("iteration", counter);
+                request.state.reported = reported;
+                return device.shadowClient.updateShadow(request);
+            });
+            step(() -> {
+                GetShadowRequest request = new GetShadowRequest();
+                request.thingName = device.thingName;
+                return device.shadowClient.getShadow(request);
+            });
+
+            String jobId = "job-" + counter;
+            emulator.addJob(device.thingName, jobId, "{\"operation\":\"noop\",\"iteration\":" + counter + "}");
+            StartNextJobExecutionResponse started = step(() -> {
+                StartNextPendingJobExecutionRequest request = new StartNextPendingJobExecutionRequest();
+                request.thingName = device.thingName;
+                return device.jobsClient.startNextPendingJobExecution(request);
+            });
+            if (started != null && started.execution != null) {
+                step(() -> {
+                    UpdateJobExecutionRequest request = new UpdateJobExecutionRequest();
+                    request.thingName = device.thingName;
+                    request.jobId = started.execution.jobId;
+                    request.status = JobStatus.SUCCEEDED;
+                    request.expectedVersion = started.execution.versionNumber;
+                    return device.jobsClient.updateJobExecution(request);
+                });
+            } else {
+                // Count the update that could not be attempted, so every iteration has the same operations
+                operationCount.incrementAndGet();
+                failedOperationCount.incrementAndGet();
+            }
+
+            long commandStart = System.nanoTime();
+            String acknowledged = step(() -> {
+                String executionId = emulator.sendCommand(DeviceType.THING, device.thingName, "{\"action\":\"ping\"}", operationTimeoutSeconds);
+                return device.pendingCommand(executionId).whenComplete((ignored, error) -> device.pendingCommands.remove(executionId));
+            });
+            if (acknowledged != null) {
+                commandRoundTrips.record(System.nanoTime() - commandStart);
+            }
+        }
+    }
+
+    private interface Operation<T> {
+        CompletableFuture<T> start();
+    }
+
+    /**
+     * Runs one scripted operation to completion
+     *
+     * @return the operation's result, or null if it failed
+     */
+    private <T> T step(Operation<T> operation) {
+        operationCount.incrementAndGet();
+        try {
+            return operation.start().get(operationTimeoutSeconds + 5L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // rejected, timed out or failed; the service clients' metrics record which
+        }
+        failedOperationCount.incrementAndGet();
+        return null;
+    }
+
+    private static void closeDevice(Device device) {
+        if (device.commandStream != null) {
+            device.commandStream.close();
+        }
+        if (device.commandsClient != null) {
+            device.commandsClient.close();
+        }
+        if (device.jobsClient != null) {
+            device.jobsClient.close();
+        }
+        if (device.shadowClient != null) {
+            device.shadowClient.close();
+        }
+        if (device.mqttClient != null) {
+            device.mqttClient.stop(null);
+            device.mqttClient.close();
+        }
+    }
+
+    private static final class DeviceLifecycle implements Mqtt5ClientOptions.LifecycleEvents {
+        private final Device device;
+
+        private DeviceLifecycle(Device device) {
+            this.device = device;
+        }
+
+        @Override
+        public void onAttemptingConnect(Mqtt5Client client, OnAttemptingConnectReturn onAttemptingConnectReturn) {}
+
+        @Override
+        public void onConnectionSuccess(Mqtt5Client client, OnConnectionSuccessReturn onConnectionSuccessReturn) {
+            device.connected.complete(null);
+        }
+
+        @Override
+        public void onConnectionFailure(Mqtt5Client client, OnConnectionFailureReturn onConnectionFailureReturn) {
+            device.connected.completeExceptionally(new IllegalStateException("Connection failed: " + CRT.awsErrorString(onConnectionFailureReturn.getErrorCode())));
+        }
+
+        @Override
+        public void onDisconnection(Mqtt5Client client, OnDisconnectionReturn onDisconnectionReturn) {}
+
+        @Override
+        public void onStopped(Mqtt5Client client, OnStoppedReturn onStoppedReturn) {}
+    }
+}
@@ -0,0 +1,472 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+
+import software.amazon.awssdk.crt.Log;
+import software.amazon.awssdk.crt.Log.LogLevel;
+import software.amazon.awssdk.crt.Log.LogSubject;
+
+/**
+ * A lightweight MQTT 3.1.1 and MQTT 5 broker that runs in the test's JVM, so clients can be exercised without a
+ * network or an AWS account.  One thread serves every connection with non-blocking I/O.
+ *
+ * The broker supports what device SDK clients use: QoS 0 and 1 (QoS 2 publishes are accepted and delivered at
+ * QoS 1), wildcard subscriptions, no-local subscriptions, will messages and session takeover.  It does not keep
+ * sessions between connections, store retained messages, redeliver unacknowledged messages, authenticate clients
+ * or support shared subscriptions, and its CONNACK says so to MQTT5 clients.
+ *
+ * By default the broker speaks plain TCP.  {@link LocalMqttBrokerBuilder#withTls} makes it serve TLS instead, so the
+ * clients built by AwsIotMqtt5ClientBuilder can connect with their usual TLS settings; {@link TestCertificates}
+ * provides a certificate for localhost.
+ *
+ * Attach an {@link AwsServiceEmulator} to answer the AWS IoT shadow, jobs, commands and provisioning topics:
+ *
+ * <pre>{@code
+ * try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+ *      AwsServiceEmulator emulator = AwsServiceEmulator.builder().build()) {
+ *     emulator.attach(broker);
+ *     Mqtt5ClientOptions options = new Mqtt5ClientOptions.Mqtt5ClientOptionsBuilder(broker.getHost(), (long) broker.getPort())
+ *         ...
+ * }
+ * }</pre>
+ */
+public final class LocalMqttBroker implements AutoCloseable {
+
+    /**
+     * Receives every message published to the broker, by clients or through {@link #publish}
+     */
+    public interface PublishListener {
+
+        /**
+         * Called on the broker's I/O thread for each published message.  Implementations must not block; hand
+         * longer work to another thread.
+         *
+         * @param clientId the identifier of the publishing client, or null for messages published through the broker
+         * @param topic the topic
+         * @param payload the payload
+         */
+        void onPublish(String clientId, String topic, byte[] payload);
+    }
+
+    private final String host;
+    private final int maxPacketSize;
+    private final SSLContext sslContext;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final CopyOnWriteArrayList<PublishListener> listeners = new CopyOnWriteArrayList<>();
+    private final SubscriptionTree subscriptions = new SubscriptionTree();
+    private final Map<String, MqttConnection> clients = new HashMap<>();
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong publishesReceived = new AtomicLong();
+    private final AtomicLong publishesDelivered = new AtomicLong();
+
+    /**
+     * Builder for LocalMqttBroker
+     */
+    public static class LocalMqttBrokerBuilder {
+        private String host = "127.0.0.1";
+        private int port;
+        private int maxPacketSize = 1024 * 1024;
+        private SSLContext sslContext;
+
+        private LocalMqttBrokerBuilder() {}
+
+        /**
+         * Sets the address to listen on.  Defaults to 127.0.0.1.
+         *
+         * @param host the address to listen on
+         * @return the builder
+         */
+        public LocalMqttBrokerBuilder withHost(String host) {
+            this.host = host;
+
+            return this;
+        }
+
+        /**
+         * Sets the port to listen on.  Defaults to 0, which picks a free port; read it with {@link LocalMqttBroker#getPort}.
+         *
+         * @param port the port to listen on
+         * @return the builder
+         */
+        public LocalMqttBrokerBuilder withPort(int port) {
+            this.port = port;
+
+            return this;
+        }
+
+        /**
+         * Sets the largest packet the broker accepts.  Defaults to 1 MiB; AWS IoT Core limits publishes to 128 KiB.
+         *
+         * @param maxPacketSize the largest packet, in bytes
+         * @return the builder
+         */
+        public LocalMqttBrokerBuilder withMaxPacketSize(int maxPacketSize) {
+            this.maxPacketSize = maxPacketSize;
+
+            return this;
+        }
+
+        /**
+         * Serves TLS with the given context instead of plain TCP.  The broker does not ask clients for certificates.
+         *
+         * @param sslContext the server context, such as {@link TestCertificates#createServerContext}, or null for plain TCP
+         * @return the builder
+         */
+        public LocalMqttBrokerBuilder withTls(SSLContext sslContext) {
+            this.sslContext = sslContext;
+
+            return this;
+        }
+
+        /**
+         * Binds the broker's socket and starts serving connections
+         *
+         * @return the running broker
+         */
+        public LocalMqttBroker build() {
+            if (host == null) {
+                throw new IllegalArgumentException("LocalMqttBroker host cannot be null");
+            }
+            if (port < 0 || port > 0xFFFF) {
+                throw new IllegalArgumentException("LocalMqttBroker port must be between 0 and 65535");
+            }
+            if (maxPacketSize <= 0 || maxPacketSize > MqttCodec.MAX_REMAINING_LENGTH) {
+                throw new IllegalArgumentException("LocalMqttBroker maxPacketSize is out of range");
+            }
+
+            try {
+                return new LocalMqttBroker(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to start the local MQTT broker", e);
+            }
+        }
+    }
+
+    /**
+     * @return a new builder for a broker
+     */
+    public static LocalMqttBrokerBuilder builder() {
+        return new LocalMqttBrokerBuilder();
+    }
+
+    private LocalMqttBroker(LocalMqttBrokerBuilder builder) throws IOException {
+        this.host = builder.host;
+        this.maxPacketSize = builder.maxPacketSize;
+        this.sslContext = builder.sslContext;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(host, builder.port), 1024);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+
+        thread = new Thread(this::run, "LocalMqttBroker-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the address the broker listens on
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return the port the broker listens on
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return true if the broker serves TLS
+     */
+    public boolean isTls() {
+        return sslContext != null;
+    }
+
+    int getMaxPacketSize() {
+        return maxPacketSize;
+    }
+
+    /**
+     * Adds a listener for published messages
+     *
+     * @param listener the listener
+     */
+    public void addPublishListener(PublishListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addPublishListener}
+     *
+     * @param listener the listener
+     */
+    public void removePublishListener(PublishListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publishes a message to every matching subscriber, at QoS 1.  May be called from any thread.
+     *
+     * @param topic the topic
+     * @param payload the payload
+     */
+    public void publish(String topic, byte[] payload) {
+        publish(topic, payload, new byte[0]);
+    }
+
+    /**
+     * Publishes a UTF-8 message to every matching subscriber, at QoS 1.  May be called from any thread.
+     *
+     * @param topic the topic
+     * @param payload the payload
+     */
+    public void publish(String topic, String payload) {
+        publish(topic, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Publishes a message with MQTT5 properties, which MQTT 3.1.1 subscribers do not receive
+     *
+     * @param topic the topic
+     * @param payload the payload
+     * @param properties encoded MQTT5 PUBLISH properties
+     */
+    void publish(String topic, byte[] payload, byte[] properties) {
+        if (!MqttCodec.isValidTopicName(topic)) {
+            throw new IllegalArgumentException("Invalid topic name " + topic);
+        }
+        execute(() -> route(null, topic, payload, 1, properties));
+    }
+
+    private void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * @return the number of connected clients
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * @return the number of messages published to the broker
+     */
+    public long getPublishesReceived() {
+        return publishesReceived.get();
+    }
+
+    /**
+     * @return the number of messages the broker has sent to subscribers
+     */
+    public long getPublishesDelivered() {
+        return publishesDelivered.get();
+    }
+
+    /**
+     * Disconnects every client and stops the broker
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long lastKeepAliveCheck = System.nanoTime();
+        try {
+            while (running) {
+                selector.select(1000);
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    handle(key);
+                }
+
+                long now = System.nanoTime();
+                if (now - lastKeepAliveCheck > 1_000_000_000L) {
+                    lastKeepAliveCheck = now;
+                    closeExpiredConnections(now);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.log(LogLevel.Error, LogSubject.JavaCrtGeneral, "LocalMqttBroker stopped after an error: " + e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+
+        MqttConnection connection = (MqttConnection) key.attachment();
+        if (key.isWritable()) {
+            connection.onWritable();
+        }
+        if (key.isValid() && key.isReadable()) {
+            connection.onReadable();
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    Transport transport = sslContext != null
+                            ? new TlsTransport(channel, sslContext.createSSLEngine())
+                            : new Transport(channel);
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new MqttConnection(this, transport, key));
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+        } catch (IOException e) {
+            Log.log(LogLevel.Warn, LogSubject.JavaCrtGeneral, "LocalMqttBroker failed to accept a connection: " + e);
+        }
+    }
+
+    private void closeExpiredConnections(long now) {
+        List<MqttConnection> expired = new ArrayList<>();
+        for (MqttConnection connection : clients.values()) {
+            if (connection.isKeepAliveExpired(now)) {
+                expired.add(connection);
+            }
+        }
+        for (MqttConnection connection : expired) {
+            connection.close(true);
+        }
+    }
+
+    private void shutdown() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof MqttConnection) {
+                ((MqttConnection) key.attachment()).close(false);
+            }
+        }
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            // stopping anyway
+        }
+    }
+
+    void register(MqttConnection connection) {
+        MqttConnection previous = clients.put(connection.getClientId(), connection);
+        connectionCount.set(clients.size());
+        if (previous != null) {
+            previous.takenOver();
+        }
+    }
+
+    void unregister(MqttConnection connection) {
+        String clientId = connection.getClientId();
+        if (clientId != null && clients.get(clientId) == connection) {
+            clients.remove(clientId);
+            connectionCount.set(clients.size());
+        }
+    }
+
+    void subscribe(MqttConnection connection, String filter, SubscriptionTree.Subscription subscription) {
+        subscriptions.subscribe(filter, connection, subscription);
+    }
+
+    boolean unsubscribe(MqttConnection connection, String filter) {
+        return subscriptions.unsubscribe(filter, connection);
+    }
+
+    /**
+     * Delivers a message to the matching subscribers and the publish listeners.  Called on the I/O thread.
+     */
+    void route(MqttConnection publisher, String topic, byte[] payload, int qos, byte[] properties) {
+        publishesReceived.incrementAndGet();
+
+        // Delivering can close a subscriber that has fallen behind, which can route its will, so matches are not shared
+        Map<MqttConnection, SubscriptionTree.Subscription> matches = new IdentityHashMap<>();
+        subscriptions.match(topic, matches);
+        for (Map.Entry<MqttConnection, SubscriptionTree.Subscription> match : matches.entrySet()) {
+            MqttConnection subscriber = match.getKey();
+            SubscriptionTree.Subscription subscription = match.getValue();
+            if (subscriber.isClosed() || (subscription.noLocal && subscriber == publisher)) {
+                continue;
+            }
+            subscriber.deliver(topic, payload, Math.min(qos, subscription.qos), properties);
+            publishesDelivered.incrementAndGet();
+        }
+
+        String clientId = publisher != null ? publisher.getClientId() : null;
+        for (PublishListener listener : listeners) {
+            try {
+                listener.onPublish(clientId, topic, payload);
+            } catch (RuntimeException e) {
+                Log.log(LogLevel.Warn, LogSubject.JavaCrtGeneral, "LocalMqttBroker publish listener failed: " + e);
+            }
+        }
+    }
+}
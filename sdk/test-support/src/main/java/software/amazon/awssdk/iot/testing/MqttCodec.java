@@ -0,0 +1,463 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encoding and decoding of the MQTT 3.1.1 and MQTT 5 wire formats, as far as the local broker needs them.
+ */
+final class MqttCodec {
+
+    static final int CONNECT = 1;
+    static final int CONNACK = 2;
+    static final int PUBLISH = 3;
+    static final int PUBACK = 4;
+    static final int PUBREC = 5;
+    static final int PUBREL = 6;
+    static final int PUBCOMP = 7;
+    static final int SUBSCRIBE = 8;
+    static final int SUBACK = 9;
+    static final int UNSUBSCRIBE = 10;
+    static final int UNSUBACK = 11;
+    static final int PINGREQ = 12;
+    static final int PINGRESP = 13;
+    static final int DISCONNECT = 14;
+    static final int AUTH = 15;
+
+    static final int PROTOCOL_LEVEL_311 = 4;
+    static final int PROTOCOL_LEVEL_5 = 5;
+
+    static final int MAX_REMAINING_LENGTH = 268435455;
+
+    static final int PROPERTY_PAYLOAD_FORMAT_INDICATOR = 0x01;
+    static final int PROPERTY_MESSAGE_EXPIRY_INTERVAL = 0x02;
+    static final int PROPERTY_CONTENT_TYPE = 0x03;
+    static final int PROPERTY_SUBSCRIPTION_IDENTIFIER = 0x0B;
+    static final int PROPERTY_ASSIGNED_CLIENT_IDENTIFIER = 0x12;
+    static final int PROPERTY_TOPIC_ALIAS = 0x23;
+    static final int PROPERTY_MAXIMUM_QOS = 0x24;
+    static final int PROPERTY_RETAIN_AVAILABLE = 0x25;
+    static final int PROPERTY_SUBSCRIPTION_IDENTIFIERS_AVAILABLE = 0x29;
+    static final int PROPERTY_SHARED_SUBSCRIPTION_AVAILABLE = 0x2A;
+
+    static final int CONNACK_UNACCEPTABLE_PROTOCOL_VERSION = 0x01;
+    static final int REASON_SUCCESS = 0x00;
+    static final int REASON_NO_SUBSCRIPTION_EXISTED = 0x11;
+    static final int REASON_UNSPECIFIED_ERROR = 0x80;
+    static final int REASON_SESSION_TAKEN_OVER = 0x8E;
+    static final int REASON_TOPIC_FILTER_INVALID = 0x8F;
+    static final int REASON_SHARED_SUBSCRIPTIONS_NOT_SUPPORTED = 0x9E;
+    static final int REASON_DISCONNECT_WITH_WILL = 0x04;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private MqttCodec() {}
+
+    /**
+     * Reads a fixed header's remaining length, if the buffer holds all of it
+     *
+     * @param buffer the buffer, positioned after the first byte of the fixed header; the position is advanced
+     * past the length only if it is complete
+     * @return the remaining length, or -1 if more bytes are needed
+     * @throws ProtocolException if the length is malformed
+     */
+    static int readRemainingLength(ByteBuffer buffer) throws ProtocolException {
+        int value = 0;
+        int start = buffer.position();
+        for (int i = 0; i < 4; i++) {
+            if (!buffer.hasRemaining()) {
+                buffer.position(start);
+                return -1;
+            }
+            int encoded = buffer.get() & 0xFF;
+            value |= (encoded & 0x7F) << (7 * i);
+            if ((encoded & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ProtocolException("Malformed remaining length");
+    }
+
+    static int readVariableInt(ByteBuffer buffer) throws ProtocolException {
+        int value = readRemainingLength(buffer);
+        if (value < 0) {
+            throw new ProtocolException("Truncated variable byte integer");
+        }
+        return value;
+    }
+
+    static int readUnsignedShort(ByteBuffer buffer) throws ProtocolException {
+        require(buffer, 2);
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    static int readUnsignedByte(ByteBuffer buffer) throws ProtocolException {
+        require(buffer, 1);
+        return buffer.get() & 0xFF;
+    }
+
+    static byte[] readBinary(ByteBuffer buffer) throws ProtocolException {
+        int length = readUnsignedShort(buffer);
+        require(buffer, length);
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    static String readString(ByteBuffer buffer) throws ProtocolException {
+        return new String(readBinary(buffer), StandardCharsets.UTF_8);
+    }
+
+    static byte[] readRemaining(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.remaining()];
+        buffer.get(value);
+        return value;
+    }
+
+    /**
+     * Reads an MQTT5 property block
+     *
+     * @param buffer the buffer, positioned at the block's length
+     * @return the encoded properties, without the length
+     * @throws ProtocolException if the block is malformed
+     */
+    static byte[] readProperties(ByteBuffer buffer) throws ProtocolException {
+        int length = readVariableInt(buffer);
+        require(buffer, length);
+        if (length == 0) {
+            return EMPTY;
+        }
+        byte[] properties = new byte[length];
+        buffer.get(properties);
+        return properties;
+    }
+
+    /**
+     * @param properties encoded MQTT5 properties
+     * @param id a property identifier
+     * @return true if the properties contain the identifier
+     * @throws ProtocolException if the properties are malformed
+     */
+    static boolean hasProperty(byte[] properties, int id) throws ProtocolException {
+        ByteBuffer buffer = ByteBuffer.wrap(properties);
+        while (buffer.hasRemaining()) {
+            int propertyId = readVariableInt(buffer);
+            if (propertyId == id) {
+                return true;
+            }
+            skipPropertyValue(buffer, propertyId);
+        }
+        return false;
+    }
+
+    /**
+     * Removes the properties of an incoming PUBLISH that apply only to its hop from the publisher: the topic alias
+     * and subscription identifiers.
+     *
+     * @param properties encoded MQTT5 PUBLISH properties
+     * @return the properties to forward to subscribers
+     * @throws ProtocolException if the properties are malformed
+     */
+    static byte[] forwardedPublishProperties(byte[] properties) throws ProtocolException {
+        if (properties.length == 0) {
+            return properties;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(properties);
+        Writer forwarded = null;
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            int propertyId = readVariableInt(buffer);
+            skipPropertyValue(buffer, propertyId);
+            if (propertyId == PROPERTY_TOPIC_ALIAS || propertyId == PROPERTY_SUBSCRIPTION_IDENTIFIER) {
+                if (forwarded == null) {
+                    forwarded = new Writer(properties.length);
+                    forwarded.bytes(properties, 0, start);
+                }
+            } else if (forwarded != null) {
+                forwarded.bytes(properties, start, buffer.position() - start);
+            }
+        }
+        return forwarded != null ? forwarded.toByteArray() : properties;
+    }
+
+    private static void skipPropertyValue(ByteBuffer buffer, int propertyId) throws ProtocolException {
+        switch (propertyId) {
+            case 0x01: case 0x17: case 0x19: case 0x24: case 0x25: case 0x28: case 0x29: case 0x2A:
+                skip(buffer, 1);
+                break;
+            case 0x13: case 0x21: case 0x22: case 0x23:
+                skip(buffer, 2);
+                break;
+            case 0x02: case 0x11: case 0x18: case 0x27:
+                skip(buffer, 4);
+                break;
+            case 0x0B:
+                readVariableInt(buffer);
+                break;
+            case 0x03: case 0x08: case 0x09: case 0x12: case 0x15: case 0x16: case 0x1A: case 0x1C: case 0x1F:
+                skip(buffer, readUnsignedShort(buffer));
+                break;
+            case 0x26:
+                skip(buffer, readUnsignedShort(buffer));
+                skip(buffer, readUnsignedShort(buffer));
+                break;
+            default:
+                throw new ProtocolException("Unknown property identifier " + propertyId);
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, int length) throws ProtocolException {
+        require(buffer, length);
+        buffer.position(buffer.position() + length);
+    }
+
+    private static void require(ByteBuffer buffer, int length) throws ProtocolException {
+        if (buffer.remaining() < length) {
+            throw new ProtocolException("Truncated packet");
+        }
+    }
+
+    /**
+     * @param topic a topic name
+     * @return true if the topic is a valid name to publish to
+     */
+    static boolean isValidTopicName(String topic) {
+        return !topic.isEmpty() && topic.indexOf('+') < 0 && topic.indexOf('#') < 0 && topic.indexOf('\0') < 0;
+    }
+
+    /**
+     * @param filter a topic filter
+     * @return true if the filter is valid: wildcards occupy whole segments, and '#' only the last
+     */
+    static boolean isValidTopicFilter(String filter) {
+        if (filter.isEmpty() || filter.indexOf('\0') >= 0) {
+            return false;
+        }
+        int length = filter.length();
+        for (int i = 0; i < length; i++) {
+            char c = filter.charAt(i);
+            if (c == '+' || c == '#') {
+                boolean wholeSegment = (i == 0 || filter.charAt(i - 1) == '/') && (i == length - 1 || filter.charAt(i + 1) == '/');
+                if (!wholeSegment || (c == '#' && i != length - 1)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes a PUBLISH packet
+     *
+     * @param protocolLevel the receiving connection's protocol level
+     * @param topic the topic
+     * @param payload the payload
+     * @param qos the quality of service, 0 or 1
+     * @param packetId the packet identifier, ignored at QoS 0
+     * @param properties encoded MQTT5 properties, ignored for MQTT 3.1.1
+     * @return the packet
+     */
+    static ByteBuffer publish(int protocolLevel, String topic, byte[] payload, int qos, int packetId, byte[] properties) {
+        Writer writer = new Writer(topic.length() + payload.length + properties.length + 16);
+        writer.string(topic);
+        if (qos > 0) {
+            writer.u16(packetId);
+        }
+        if (protocolLevel == PROTOCOL_LEVEL_5) {
+            writer.variableInt(properties.length);
+            writer.bytes(properties, 0, properties.length);
+        }
+        writer.bytes(payload, 0, payload.length);
+        return writer.toPacket(PUBLISH, qos << 1);
+    }
+
+    /**
+     * Encodes a PUBACK, PUBREC, PUBREL, PUBCOMP or UNSUBACK for MQTT 3.1.1, or a successful PUBACK, PUBREC, PUBREL or
+     * PUBCOMP for MQTT 5, which may omit the reason code.
+     *
+     * @param type the packet type
+     * @param packetId the packet identifier being acknowledged
+     * @return the packet
+     */
+    static ByteBuffer acknowledgement(int type, int packetId) {
+        Writer writer = new Writer(2);
+        writer.u16(packetId);
+        return writer.toPacket(type, type == PUBREL ? 0x02 : 0);
+    }
+
+    /**
+     * Encodes a SUBACK, or an MQTT5 UNSUBACK
+     *
+     * @param type SUBACK or UNSUBACK
+     * @param protocolLevel the connection's protocol level
+     * @param packetId the packet identifier being acknowledged
+     * @param reasonCodes one reason code or granted QoS per topic filter
+     * @return the packet
+     */
+    static ByteBuffer subscriptionAcknowledgement(int type, int protocolLevel, int packetId, byte[] reasonCodes) {
+        Writer writer = new Writer(reasonCodes.length + 3);
+        writer.u16(packetId);
+        if (protocolLevel == PROTOCOL_LEVEL_5) {
+            writer.variableInt(0);
+        }
+        if (protocolLevel == PROTOCOL_LEVEL_5 || type == SUBACK) {
+            writer.bytes(reasonCodes, 0, reasonCodes.length);
+        }
+        return writer.toPacket(type, 0);
+    }
+
+    /**
+     * Encodes a CONNACK
+     *
+     * @param protocolLevel the connection's protocol level
+     * @param reasonCode the return code (MQTT 3.1.1) or reason code (MQTT 5)
+     * @param assignedClientId the client identifier the broker assigned, or null
+     * @return the packet
+     */
+    static ByteBuffer connack(int protocolLevel, int reasonCode, String assignedClientId) {
+        Writer writer = new Writer(32);
+        writer.u8(0);
+        writer.u8(reasonCode);
+        if (protocolLevel == PROTOCOL_LEVEL_5) {
+            Writer properties = new Writer(32);
+            properties.u8(PROPERTY_MAXIMUM_QOS);
+            properties.u8(1);
+            properties.u8(PROPERTY_RETAIN_AVAILABLE);
+            properties.u8(0);
+            properties.u8(PROPERTY_SUBSCRIPTION_IDENTIFIERS_AVAILABLE);
+            properties.u8(0);
+            properties.u8(PROPERTY_SHARED_SUBSCRIPTION_AVAILABLE);
+            properties.u8(0);
+            if (assignedClientId != null) {
+                properties.u8(PROPERTY_ASSIGNED_CLIENT_IDENTIFIER);
+                properties.string(assignedClientId);
+            }
+            byte[] encoded = properties.toByteArray();
+            writer.variableInt(encoded.length);
+            writer.bytes(encoded, 0, encoded.length);
+        }
+        return writer.toPacket(CONNACK, 0);
+    }
+
+    /**
+     * Encodes an MQTT5 DISCONNECT sent by the server
+     *
+     * @param reasonCode the reason code
+     * @return the packet
+     */
+    static ByteBuffer disconnect(int reasonCode) {
+        Writer writer = new Writer(2);
+        writer.u8(reasonCode);
+        writer.variableInt(0);
+        return writer.toPacket(DISCONNECT, 0);
+    }
+
+    static ByteBuffer pingResponse() {
+        return ByteBuffer.wrap(new byte[] { (byte) (PINGRESP << 4), 0 });
+    }
+
+    /**
+     * Encodes the MQTT5 PUBLISH properties the emulated services set on the messages they send
+     *
+     * @param contentType the content type, or null
+     * @param messageExpiryIntervalSeconds the message expiry interval, or 0 for none
+     * @return the encoded properties
+     */
+    static byte[] publishProperties(String contentType, long messageExpiryIntervalSeconds) {
+        Writer writer = new Writer(32);
+        if (messageExpiryIntervalSeconds > 0) {
+            writer.u8(PROPERTY_MESSAGE_EXPIRY_INTERVAL);
+            writer.u32(messageExpiryIntervalSeconds);
+        }
+        if (contentType != null) {
+            writer.u8(PROPERTY_CONTENT_TYPE);
+            writer.string(contentType);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * A growable buffer for encoding packets
+     */
+    static final class Writer {
+        private byte[] buffer;
+        private int length;
+
+        Writer(int capacity) {
+            buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        private void ensure(int additional) {
+            if (length + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+            }
+        }
+
+        void u8(int value) {
+            ensure(1);
+            buffer[length++] = (byte) value;
+        }
+
+        void u16(int value) {
+            ensure(2);
+            buffer[length++] = (byte) (value >> 8);
+            buffer[length++] = (byte) value;
+        }
+
+        void u32(long value) {
+            ensure(4);
+            buffer[length++] = (byte) (value >> 24);
+            buffer[length++] = (byte) (value >> 16);
+            buffer[length++] = (byte) (value >> 8);
+            buffer[length++] = (byte) value;
+        }
+
+        void variableInt(int value) {
+            do {
+                int encoded = value & 0x7F;
+                value >>>= 7;
+                u8(value > 0 ? encoded | 0x80 : encoded);
+            } while (value > 0);
+        }
+
+        void string(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            u16(encoded.length);
+            bytes(encoded, 0, encoded.length);
+        }
+
+        void bytes(byte[] value, int offset, int count) {
+            ensure(count);
+            System.arraycopy(value, offset, buffer, length, count);
+            length += count;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        /**
+         * @param type the packet type
+         * @param flags the fixed header flags
+         * @return a packet whose fixed header precedes the bytes written so far
+         */
+        ByteBuffer toPacket(int type, int flags) {
+            Writer header = new Writer(5);
+            header.u8((type << 4) | flags);
+            header.variableInt(length);
+            ByteBuffer packet = ByteBuffer.allocate(header.length + length);
+            packet.put(header.buffer, 0, header.length);
+            packet.put(buffer, 0, length);
+            packet.flip();
+            return packet;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * One client connection to the local broker.  Decodes the packets the client sends and queues the packets sent to
+ * it.  Only used from the broker's I/O thread.
+ */
+class MqttConnection {
+
+    private static final int INITIAL_READ_BUFFER_SIZE = 8 * 1024;
+    private static final long MAX_QUEUED_BYTES = 64L * 1024 * 1024;
+
+    private final LocalMqttBroker broker;
+    private final Transport transport;
+    private final SelectionKey key;
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private final Set<String> subscriptions = new HashSet<>();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+    private long queuedBytes;
+
+    private int protocolLevel;
+    private String clientId;
+    private int keepAliveSeconds;
+    private long lastReceivedNanos = System.nanoTime();
+    private int nextPacketId = 1;
+    private boolean closed;
+
+    private String willTopic;
+    private byte[] willPayload;
+    private byte[] willProperties;
+    private int willQos;
+
+    MqttConnection(LocalMqttBroker broker, Transport transport, SelectionKey key) {
+        this.broker = broker;
+        this.transport = transport;
+        this.key = key;
+    }
+
+    String getClientId() {
+        return clientId;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Reads what the socket has and handles every complete packet
+     */
+    void onReadable() {
+        try {
+            do {
+                int read = transport.read(readBuffer);
+                if (read < 0) {
+                    close(true);
+                    return;
+                }
+
+                lastReceivedNanos = System.nanoTime();
+                readBuffer.flip();
+                while (!closed && readPacket()) {
+                    // handle every complete packet in the buffer
+                }
+                readBuffer.compact();
+                // A TLS transport may have decrypted more than the buffer took, with nothing left on the socket to wake us
+            } while (!closed && transport.hasBufferedInput());
+
+            if (!closed && transport.hasPendingOutput()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            close(true);
+        }
+    }
+
+    private boolean readPacket() throws IOException {
+        int start = readBuffer.position();
+        if (readBuffer.remaining() < 2) {
+            return false;
+        }
+
+        int header = readBuffer.get() & 0xFF;
+        int remainingLength = MqttCodec.readRemainingLength(readBuffer);
+        int packetSize = remainingLength + readBuffer.position() - start;
+        if (remainingLength >= 0 && packetSize > broker.getMaxPacketSize()) {
+            throw new ProtocolException("Packet of " + packetSize + " bytes exceeds the broker's maximum");
+        }
+        if (remainingLength < 0 || remainingLength > readBuffer.remaining()) {
+            readBuffer.position(start);
+            if (remainingLength >= 0 && packetSize > readBuffer.capacity()) {
+                growReadBuffer(packetSize);
+            }
+            return false;
+        }
+
+        ByteBuffer packet = readBuffer.slice();
+        packet.limit(remainingLength);
+        readBuffer.position(readBuffer.position() + remainingLength);
+        handlePacket(header >> 4, header & 0x0F, packet);
+        return true;
+    }
+
+    private void growReadBuffer(int packetSize) {
+        // The buffer is in read mode; the copy stays in read mode so the caller's compact() still applies
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(packetSize, readBuffer.capacity() * 2));
+        larger.put(readBuffer);
+        larger.flip();
+        readBuffer = larger;
+    }
+
+    private void handlePacket(int type, int flags, ByteBuffer packet) throws IOException {
+        if (protocolLevel == 0 && type != MqttCodec.CONNECT) {
+            throw new ProtocolException("Expected CONNECT, received packet type " + type);
+        }
+
+        switch (type) {
+            case MqttCodec.CONNECT:
+                handleConnect(packet);
+                break;
+            case MqttCodec.PUBLISH:
+                handlePublish(flags, packet);
+                break;
+            case MqttCodec.PUBREL:
+                send(MqttCodec.acknowledgement(MqttCodec.PUBCOMP, MqttCodec.readUnsignedShort(packet)));
+                break;
+            case MqttCodec.PUBACK:
+            case MqttCodec.PUBREC:
+            case MqttCodec.PUBCOMP:
+                // Deliveries are not retried, so acknowledgements need no tracking
+                break;
+            case MqttCodec.SUBSCRIBE:
+                handleSubscribe(packet);
+                break;
+            case MqttCodec.UNSUBSCRIBE:
+                handleUnsubscribe(packet);
+                break;
+            case MqttCodec.PINGREQ:
+                send(MqttCodec.pingResponse());
+                break;
+            case MqttCodec.DISCONNECT:
+                int reasonCode = packet.hasRemaining() ? packet.get() & 0xFF : MqttCodec.REASON_SUCCESS;
+                close(reasonCode == MqttCodec.REASON_DISCONNECT_WITH_WILL);
+                break;
+            default:
+                throw new ProtocolException("Unsupported packet type " + type);
+        }
+    }
+
+    private void handleConnect(ByteBuffer packet) throws IOException {
+        if (protocolLevel != 0) {
+            throw new ProtocolException("Second CONNECT on one connection");
+        }
+
+        String protocolName = MqttCodec.readString(packet);
+        int level = MqttCodec.readUnsignedByte(packet);
+        if (!"MQTT".equals(protocolName) || (level != MqttCodec.PROTOCOL_LEVEL_311 && level != MqttCodec.PROTOCOL_LEVEL_5)) {
+            protocolLevel = MqttCodec.PROTOCOL_LEVEL_311;
+            send(MqttCodec.connack(protocolLevel, MqttCodec.CONNACK_UNACCEPTABLE_PROTOCOL_VERSION, null));
+            close(false);
+            return;
+        }
+
+        protocolLevel = level;
+        int connectFlags = MqttCodec.readUnsignedByte(packet);
+        keepAliveSeconds = MqttCodec.readUnsignedShort(packet);
+        if (protocolLevel == MqttCodec.PROTOCOL_LEVEL_5) {
+            MqttCodec.readProperties(packet);
+        }
+
+        clientId = MqttCodec.readString(packet);
+        String assignedClientId = null;
+        if (clientId.isEmpty()) {
+            clientId = "local-" + UUID.randomUUID();
+            assignedClientId = protocolLevel == MqttCodec.PROTOCOL_LEVEL_5 ? clientId : null;
+        }
+
+        if ((connectFlags & 0x04) != 0) {
+            willProperties = protocolLevel == MqttCodec.PROTOCOL_LEVEL_5
+                ? MqttCodec.forwardedPublishProperties(MqttCodec.readProperties(packet)) : new byte[0];
+            willTopic = MqttCodec.readString(packet);
+            willPayload = MqttCodec.readBinary(packet);
+            willQos = Math.min((connectFlags >> 3) & 0x03, 1);
+        }
+        // The username and password, if present, are accepted without checking
+
+        broker.register(this);
+        send(MqttCodec.connack(protocolLevel, MqttCodec.REASON_SUCCESS, assignedClientId));
+    }
+
+    private void handlePublish(int flags, ByteBuffer packet) throws IOException {
+        int qos = (flags >> 1) & 0x03;
+        if (qos == 3) {
+            throw new ProtocolException("Invalid QoS");
+        }
+
+        String topic = MqttCodec.readString(packet);
+        int packetId = qos > 0 ? MqttCodec.readUnsignedShort(packet) : 0;
+        byte[] properties = new byte[0];
+        if (protocolLevel == MqttCodec.PROTOCOL_LEVEL_5) {
+            properties = MqttCodec.readProperties(packet);
+            if (MqttCodec.hasProperty(properties, MqttCodec.PROPERTY_TOPIC_ALIAS)) {
+                // The broker's CONNACK allows no topic aliases
+                throw new ProtocolException("Topic alias sent to a broker that allows none");
+            }
+            properties = MqttCodec.forwardedPublishProperties(properties);
+        }
+        if (!MqttCodec.isValidTopicName(topic)) {
+            throw new ProtocolException("Invalid topic name " + topic);
+        }
+
+        byte[] payload = MqttCodec.readRemaining(packet);
+        broker.route(this, topic, payload, Math.min(qos, 1), properties);
+
+        if (qos == 1) {
+            send(MqttCodec.acknowledgement(MqttCodec.PUBACK, packetId));
+        } else if (qos == 2) {
+            send(MqttCodec.acknowledgement(MqttCodec.PUBREC, packetId));
+        }
+    }
+
+    private void handleSubscribe(ByteBuffer packet) throws IOException {
+        int packetId = MqttCodec.readUnsignedShort(packet);
+        if (protocolLevel == MqttCodec.PROTOCOL_LEVEL_5) {
+            MqttCodec.readProperties(packet);
+        }
+
+        List<Byte> reasonCodes = new ArrayList<>();
+        while (packet.hasRemaining()) {
+            String filter = MqttCodec.readString(packet);
+            int options = MqttCodec.readUnsignedByte(packet);
+            int qos = Math.min(options & 0x03, 1);
+            boolean noLocal = protocolLevel == MqttCodec.PROTOCOL_LEVEL_5 && (options & 0x04) != 0;
+
+            if (filter.startsWith("$share/")) {
+                reasonCodes.add((byte) (protocolLevel == MqttCodec.PROTOCOL_LEVEL_5
+                    ? MqttCodec.REASON_SHARED_SUBSCRIPTIONS_NOT_SUPPORTED : MqttCodec.REASON_UNSPECIFIED_ERROR));
+            } else if (!MqttCodec.isValidTopicFilter(filter)) {
+                reasonCodes.add((byte) (protocolLevel == MqttCodec.PROTOCOL_LEVEL_5
+                    ? MqttCodec.REASON_TOPIC_FILTER_INVALID : MqttCodec.REASON_UNSPECIFIED_ERROR));
+            } else {
+                broker.subscribe(this, filter, new SubscriptionTree.Subscription(qos, noLocal));
+                subscriptions.add(filter);
+                reasonCodes.add((byte) qos);
+            }
+        }
+        if (reasonCodes.isEmpty()) {
+            throw new ProtocolException("SUBSCRIBE without topic filters");
+        }
+
+        send(MqttCodec.subscriptionAcknowledgement(MqttCodec.SUBACK, protocolLevel, packetId, toArray(reasonCodes)));
+    }
+
+    private void handleUnsubscribe(ByteBuffer packet) throws IOException {
+        int packetId = MqttCodec.readUnsignedShort(packet);
+        if (protocolLevel == MqttCodec.PROTOCOL_LEVEL_5) {
+            MqttCodec.readProperties(packet);
+        }
+
+        List<Byte> reasonCodes = new ArrayList<>();
+        while (packet.hasRemaining()) {
+            String filter = MqttCodec.readString(packet);
+            boolean existed = subscriptions.remove(filter) && broker.unsubscribe(this, filter);
+            reasonCodes.add((byte) (existed ? MqttCodec.REASON_SUCCESS : MqttCodec.REASON_NO_SUBSCRIPTION_EXISTED));
+        }
+
+        send(MqttCodec.subscriptionAcknowledgement(MqttCodec.UNSUBACK, protocolLevel, packetId, toArray(reasonCodes)));
+    }
+
+    private static byte[] toArray(List<Byte> values) {
+        byte[] array = new byte[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Queues a message published to a topic this connection subscribes to
+     *
+     * @param topic the topic
+     * @param payload the payload
+     * @param qos the quality of service to deliver at
+     * @param properties the encoded MQTT5 properties to deliver with the message
+     */
+    void deliver(String topic, byte[] payload, int qos, byte[] properties) {
+        int packetId = 0;
+        if (qos > 0) {
+            packetId = nextPacketId;
+            nextPacketId = nextPacketId == 0xFFFF ? 1 : nextPacketId + 1;
+        }
+        send(MqttCodec.publish(protocolLevel, topic, payload, qos, packetId, properties));
+    }
+
+    /**
+     * Tells the client that another connection has taken over its client identifier, and closes the connection
+     */
+    void takenOver() {
+        if (protocolLevel == MqttCodec.PROTOCOL_LEVEL_5) {
+            send(MqttCodec.disconnect(MqttCodec.REASON_SESSION_TAKEN_OVER));
+        }
+        close(false);
+    }
+
+    private void send(ByteBuffer packet) {
+        if (closed) {
+            return;
+        }
+
+        try {
+            if (writeQueue.isEmpty() && !transport.hasPendingOutput()) {
+                transport.write(packet);
+                if (transport.hasPendingOutput() || packet.hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+                if (!packet.hasRemaining()) {
+                    return;
+                }
+            }
+
+            writeQueue.add(packet);
+            queuedBytes += packet.remaining();
+            if (queuedBytes > MAX_QUEUED_BYTES) {
+                // A client this far behind is not reading; drop it rather than buffer without bound
+                close(true);
+            }
+        } catch (IOException e) {
+            close(true);
+        }
+    }
+
+    /**
+     * Writes queued packets until the queue is empty or the socket is full
+     */
+    void onWritable() {
+        try {
+            if (!transport.flush()) {
+                return;
+            }
+            while (!writeQueue.isEmpty()) {
+                ByteBuffer packet = writeQueue.peek();
+                int before = packet.remaining();
+                transport.write(packet);
+                queuedBytes -= before - packet.remaining();
+                if (packet.hasRemaining()) {
+                    return;
+                }
+                writeQueue.poll();
+                if (transport.hasPendingOutput()) {
+                    return;
+                }
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            close(true);
+        }
+    }
+
+    /**
+     * @param nowNanos the current time
+     * @return true if the client has sent nothing for one and a half times its keep alive interval
+     */
+    boolean isKeepAliveExpired(long nowNanos) {
+        return keepAliveSeconds > 0 && nowNanos - lastReceivedNanos > keepAliveSeconds * 1_500_000_000L;
+    }
+
+    /**
+     * Closes the connection and removes its subscriptions
+     *
+     * @param publishWill whether to publish the will message, if the client set one
+     */
+    void close(boolean publishWill) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        for (String filter : subscriptions) {
+            broker.unsubscribe(this, filter);
+        }
+        subscriptions.clear();
+        broker.unregister(this);
+
+        if (publishWill && willTopic != null) {
+            broker.route(this, willTopic, willPayload, willQos, willProperties);
+        }
+
+        // Flush what fits in the socket, such as a final CONNACK or DISCONNECT, before closing
+        try {
+            for (ByteBuffer packet : writeQueue) {
+                transport.write(packet);
+                if (packet.hasRemaining()) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // closing anyway
+        }
+        writeQueue.clear();
+        key.cancel();
+        transport.close();
+    }
+}
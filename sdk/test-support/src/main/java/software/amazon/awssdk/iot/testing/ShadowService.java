@@ -0,0 +1,317 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Emulates the device shadow service on the $aws/things/{thingName}/shadow topics, for classic and named shadows:
+ * get, update with version checks and merge semantics, delete, and the delta and documents events.
+ */
+class ShadowService extends EmulatedService {
+
+    private static final class Shadow {
+        private JsonObject desired;
+        private JsonObject reported;
+        private final JsonObject desiredMetadata = new JsonObject();
+        private final JsonObject reportedMetadata = new JsonObject();
+        private int version;
+    }
+
+    private final Map<String, Shadow> shadows = new HashMap<>();
+
+    @Override
+    boolean isRequestTopic(String[] segments) {
+        if (!"things".equals(segments[1]) || segments.length < 5 || !"shadow".equals(segments[3])) {
+            return false;
+        }
+        if (segments.length == 5) {
+            return isOperation(segments[4]);
+        }
+        return segments.length == 7 && "name".equals(segments[4]) && isOperation(segments[6]);
+    }
+
+    private static boolean isOperation(String segment) {
+        return "get".equals(segment) || "update".equals(segment) || "delete".equals(segment);
+    }
+
+    @Override
+    void handle(String topic, String[] segments, byte[] payload, Replies replies) {
+        String thingName = segments[2];
+        String shadowName = segments.length == 7 ? segments[5] : "";
+        String operation = segments[segments.length - 1];
+        String key = shadowKey(thingName, shadowName);
+        JsonObject request = parseObject(payload);
+        if (request == null) {
+            reject(topic, null, 400, "Payload contains invalid json", replies);
+            return;
+        }
+
+        Shadow shadow = shadows.get(key);
+        switch (operation) {
+            case "get":
+                if (shadow == null) {
+                    reject(topic, request, 404, "No shadow exists with name: '" + thingName + "'", replies);
+                } else {
+                    replies.add(topic + "/accepted", withClientToken(request, getResponse(shadow)));
+                }
+                break;
+            case "delete":
+                if (shadow == null) {
+                    reject(topic, request, 404, "No shadow exists with name: '" + thingName + "'", replies);
+                } else {
+                    shadows.remove(key);
+                    JsonObject response = new JsonObject();
+                    response.addProperty("version", shadow.version);
+                    response.addProperty("timestamp", now());
+                    replies.add(topic + "/accepted", withClientToken(request, response));
+                }
+                break;
+            default:
+                update(topic, key, shadow, request, replies);
+        }
+    }
+
+    private void update(String topic, String key, Shadow shadow, JsonObject request, Replies replies) {
+        JsonElement state = request.get("state");
+        if (state == null || !state.isJsonObject()) {
+            reject(topic, request, 400, "Missing required node: state", replies);
+            return;
+        }
+        JsonElement expectedVersion = request.get("version");
+        if (expectedVersion != null && expectedVersion.isJsonPrimitive()
+                && (shadow == null || expectedVersion.getAsInt() != shadow.version)) {
+            reject(topic, request, 409, "Version conflict", replies);
+            return;
+        }
+
+        JsonObject previous = shadow != null ? snapshot(shadow) : null;
+        if (shadow == null) {
+            shadow = new Shadow();
+            shadows.put(key, shadow);
+        }
+
+        long now = now();
+        JsonObject updateMetadata = new JsonObject();
+        JsonElement desired = state.getAsJsonObject().get("desired");
+        if (desired != null) {
+            updateMetadata.add("desired", apply(shadow, true, desired, now));
+        }
+        JsonElement reported = state.getAsJsonObject().get("reported");
+        if (reported != null) {
+            updateMetadata.add("reported", apply(shadow, false, reported, now));
+        }
+        shadow.version++;
+
+        JsonObject accepted = new JsonObject();
+        accepted.add("state", state.deepCopy());
+        accepted.add("metadata", updateMetadata);
+        accepted.addProperty("version", shadow.version);
+        accepted.addProperty("timestamp", now);
+        replies.add(topic + "/accepted", withClientToken(request, accepted));
+
+        JsonObject delta = delta(shadow.desired, shadow.reported);
+        if (desired != null && delta != null) {
+            JsonObject deltaEvent = new JsonObject();
+            deltaEvent.add("state", delta);
+            deltaEvent.add("metadata", new JsonObject());
+            deltaEvent.addProperty("version", shadow.version);
+            deltaEvent.addProperty("timestamp", now);
+            replies.add(topic + "/delta", withClientToken(request, deltaEvent));
+        }
+
+        JsonObject documents = new JsonObject();
+        if (previous != null) {
+            documents.add("previous", previous);
+        }
+        documents.add("current", snapshot(shadow));
+        documents.addProperty("timestamp", now);
+        replies.add(topic + "/documents", withClientToken(request, documents));
+    }
+
+    /**
+     * Applies one section of an update: null clears the section, an object is merged into it
+     *
+     * @return the metadata of the update
+     */
+    private static JsonElement apply(Shadow shadow, boolean desired, JsonElement update, long now) {
+        JsonObject metadata = desired ? shadow.desiredMetadata : shadow.reportedMetadata;
+        if (!update.isJsonObject()) {
+            if (desired) {
+                shadow.desired = null;
+            } else {
+                shadow.reported = null;
+            }
+            clear(metadata);
+            return timestamp(now);
+        }
+
+        JsonObject section = desired ? shadow.desired : shadow.reported;
+        if (section == null) {
+            section = new JsonObject();
+        }
+        JsonObject updateMetadata = merge(section, metadata, update.getAsJsonObject(), now);
+        section = section.size() > 0 ? section : null;
+        if (desired) {
+            shadow.desired = section;
+        } else {
+            shadow.reported = section;
+        }
+        return updateMetadata;
+    }
+
+    private static JsonObject merge(JsonObject target, JsonObject metadata, JsonObject update, long now) {
+        JsonObject updateMetadata = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : update.entrySet()) {
+            String name = entry.getKey();
+            JsonElement value = entry.getValue();
+            if (value.isJsonNull()) {
+                target.remove(name);
+                metadata.remove(name);
+                updateMetadata.add(name, timestamp(now));
+            } else if (value.isJsonObject() && target.has(name) && target.get(name).isJsonObject()) {
+                JsonElement childMetadata = metadata.get(name);
+                if (childMetadata == null || !childMetadata.isJsonObject()) {
+                    childMetadata = new JsonObject();
+                    metadata.add(name, childMetadata);
+                }
+                updateMetadata.add(name, merge(target.getAsJsonObject(name), childMetadata.getAsJsonObject(), value.getAsJsonObject(), now));
+            } else {
+                target.add(name, value.deepCopy());
+                JsonElement valueMetadata = metadataOf(value, now);
+                metadata.add(name, valueMetadata);
+                updateMetadata.add(name, valueMetadata.deepCopy());
+            }
+        }
+        return updateMetadata;
+    }
+
+    private static JsonElement metadataOf(JsonElement value, long now) {
+        if (!value.isJsonObject()) {
+            return timestamp(now);
+        }
+        JsonObject metadata = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet()) {
+            metadata.add(entry.getKey(), metadataOf(entry.getValue(), now));
+        }
+        return metadata;
+    }
+
+    private static JsonObject timestamp(long now) {
+        JsonObject timestamp = new JsonObject();
+        timestamp.addProperty("timestamp", now);
+        return timestamp;
+    }
+
+    private static void clear(JsonObject object) {
+        for (String name : object.keySet().toArray(new String[0])) {
+            object.remove(name);
+        }
+    }
+
+    /**
+     * @return the desired properties that differ from the reported ones, or null if there are none
+     */
+    private static JsonObject delta(JsonObject desired, JsonObject reported) {
+        if (desired == null) {
+            return null;
+        }
+
+        JsonObject delta = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : desired.entrySet()) {
+            JsonElement reportedValue = reported != null ? reported.get(entry.getKey()) : null;
+            JsonElement desiredValue = entry.getValue();
+            if (desiredValue.isJsonObject() && reportedValue != null && reportedValue.isJsonObject()) {
+                JsonObject nested = delta(desiredValue.getAsJsonObject(), reportedValue.getAsJsonObject());
+                if (nested != null) {
+                    delta.add(entry.getKey(), nested);
+                }
+            } else if (!desiredValue.equals(reportedValue)) {
+                delta.add(entry.getKey(), desiredValue.deepCopy());
+            }
+        }
+        return delta.size() > 0 ? delta : null;
+    }
+
+    private static JsonObject getResponse(Shadow shadow) {
+        JsonObject state = new JsonObject();
+        if (shadow.desired != null) {
+            state.add("desired", shadow.desired.deepCopy());
+        }
+        if (shadow.reported != null) {
+            state.add("reported", shadow.reported.deepCopy());
+        }
+        JsonObject delta = delta(shadow.desired, shadow.reported);
+        if (delta != null) {
+            state.add("delta", delta);
+        }
+
+        JsonObject response = new JsonObject();
+        response.add("state", state);
+        response.add("metadata", metadata(shadow));
+        response.addProperty("version", shadow.version);
+        response.addProperty("timestamp", now());
+        return response;
+    }
+
+    private static JsonObject snapshot(Shadow shadow) {
+        JsonObject state = new JsonObject();
+        if (shadow.desired != null) {
+            state.add("desired", shadow.desired.deepCopy());
+        }
+        if (shadow.reported != null) {
+            state.add("reported", shadow.reported.deepCopy());
+        }
+
+        JsonObject snapshot = new JsonObject();
+        snapshot.add("state", state);
+        snapshot.add("metadata", metadata(shadow));
+        snapshot.addProperty("version", shadow.version);
+        return snapshot;
+    }
+
+    private static JsonObject metadata(Shadow shadow) {
+        JsonObject metadata = new JsonObject();
+        if (shadow.desired != null) {
+            metadata.add("desired", shadow.desiredMetadata.deepCopy());
+        }
+        if (shadow.reported != null) {
+            metadata.add("reported", shadow.reportedMetadata.deepCopy());
+        }
+        return metadata;
+    }
+
+    @Override
+    void throttle(String topic, String[] segments, byte[] payload, Replies replies) {
+        reject(topic, parseObject(payload), 429, "Rate limit exceeded", replies);
+    }
+
+    private static void reject(String topic, JsonObject request, int code, String message, Replies replies) {
+        JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+        error.addProperty("timestamp", now());
+        replies.add(topic + "/rejected", withClientToken(request, error));
+    }
+
+    /**
+     * @param thingName the thing's name
+     * @param shadowName the shadow's name, or null or empty for the classic shadow
+     * @return the shadow's state document, as the get operation returns it, or null if it does not exist
+     */
+    String getDocument(String thingName, String shadowName) {
+        Shadow shadow = shadows.get(shadowKey(thingName, shadowName));
+        return shadow != null ? snapshot(shadow).toString() : null;
+    }
+
+    private static String shadowKey(String thingName, String shadowName) {
+        return shadowName == null || shadowName.isEmpty() ? thingName : thingName + "/" + shadowName;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The broker's subscriptions, as a tree with one level per topic segment.  Matching a topic visits only the
+ * branches for its segments and the wildcards beside them, so the cost is independent of how many devices are
+ * subscribed.  Not thread-safe; the broker only uses it from its I/O thread.
+ */
+final class SubscriptionTree {
+
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+
+    /**
+     * One connection's subscription to a filter
+     */
+    static final class Subscription {
+        final int qos;
+        final boolean noLocal;
+
+        Subscription(int qos, boolean noLocal) {
+            this.qos = qos;
+            this.noLocal = noLocal;
+        }
+    }
+
+    private static final class Node {
+        private final Node parent;
+        private final String segment;
+        private final Map<String, Node> children = new HashMap<>();
+        private final Map<MqttConnection, Subscription> subscribers = new IdentityHashMap<>();
+
+        private Node(Node parent, String segment) {
+            this.parent = parent;
+            this.segment = segment;
+        }
+    }
+
+    private final Node root = new Node(null, null);
+    private int count;
+
+    /**
+     * Adds or replaces a connection's subscription
+     *
+     * @param filter a valid topic filter
+     * @param connection the subscribing connection
+     * @param subscription the subscription's options
+     */
+    void subscribe(String filter, MqttConnection connection, Subscription subscription) {
+        Node node = root;
+        for (String segment : filter.split("/", -1)) {
+            Node parent = node;
+            node = node.children.computeIfAbsent(segment, key -> new Node(parent, key));
+        }
+        if (node.subscribers.put(connection, subscription) == null) {
+            count++;
+        }
+    }
+
+    /**
+     * Removes a connection's subscription
+     *
+     * @param filter a topic filter
+     * @param connection the subscribed connection
+     * @return true if the connection was subscribed to the filter
+     */
+    boolean unsubscribe(String filter, MqttConnection connection) {
+        Node node = root;
+        for (String segment : filter.split("/", -1)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return false;
+            }
+        }
+        if (node.subscribers.remove(connection) == null) {
+            return false;
+        }
+
+        count--;
+        while (node.parent != null && node.subscribers.isEmpty() && node.children.isEmpty()) {
+            node.parent.children.remove(node.segment);
+            node = node.parent;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the subscriptions matching a topic.  A connection with several matching subscriptions appears once,
+     * with the highest QoS among them.
+     *
+     * @param topic a topic name
+     * @param matches receives each matching connection and its subscription
+     */
+    void match(String topic, Map<MqttConnection, Subscription> matches) {
+        String[] segments = topic.split("/", -1);
+        // Topics beginning with '$' are not matched by filters beginning with a wildcard
+        boolean system = topic.startsWith("$");
+        match(root, segments, 0, system, matches);
+    }
+
+    private static void match(Node node, String[] segments, int level, boolean system, Map<MqttConnection, Subscription> matches) {
+        boolean wildcardsAllowed = level > 0 || !system;
+        if (wildcardsAllowed) {
+            Node multiLevel = node.children.get(MULTI_LEVEL_WILDCARD);
+            if (multiLevel != null) {
+                collect(multiLevel, matches);
+            }
+        }
+
+        if (level == segments.length) {
+            collect(node, matches);
+            return;
+        }
+
+        Node exact = node.children.get(segments[level]);
+        if (exact != null) {
+            match(exact, segments, level + 1, system, matches);
+        }
+        if (wildcardsAllowed) {
+            Node singleLevel = node.children.get(SINGLE_LEVEL_WILDCARD);
+            if (singleLevel != null) {
+                match(singleLevel, segments, level + 1, system, matches);
+            }
+        }
+    }
+
+    private static void collect(Node node, Map<MqttConnection, Subscription> matches) {
+        for (Map.Entry<MqttConnection, Subscription> entry : node.subscribers.entrySet()) {
+            Subscription existing = matches.get(entry.getKey());
+            if (existing == null || existing.qos < entry.getValue().qos) {
+                matches.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the number of subscriptions across all connections
+     */
+    int size() {
+        return count;
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+/**
+ * TLS over a non-blocking socket, driven by an {@link SSLEngine} in server mode.  The three buffers are kept in
+ * write mode between calls: netIn holds records read from the socket, appIn the plaintext they decrypt to, and
+ * netOut the records waiting for the socket.
+ */
+final class TlsTransport extends Transport {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SSLEngine engine;
+    private ByteBuffer netIn;
+    private ByteBuffer appIn;
+    private final ByteBuffer netOut;
+    private boolean inputClosed;
+
+    TlsTransport(SocketChannel channel, SSLEngine engine) throws SSLException {
+        super(channel);
+        this.engine = engine;
+        engine.setUseClientMode(false);
+        netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+        netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        engine.beginHandshake();
+    }
+
+    @Override
+    int read(ByteBuffer dst) throws IOException {
+        if (!inputClosed && channel.read(netIn) < 0) {
+            inputClosed = true;
+        }
+        process();
+
+        appIn.flip();
+        int count = Math.min(appIn.remaining(), dst.remaining());
+        ByteBuffer chunk = appIn.duplicate();
+        chunk.limit(chunk.position() + count);
+        dst.put(chunk);
+        appIn.position(appIn.position() + count);
+        appIn.compact();
+
+        if (count == 0 && inputClosed) {
+            return -1;
+        }
+        return count;
+    }
+
+    @Override
+    void write(ByteBuffer src) throws IOException {
+        process();
+        while (src.hasRemaining()) {
+            SSLEngineResult result = engine.wrap(src, netOut);
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new SSLException("TLS session is closed");
+            }
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                if (!flushNetOut()) {
+                    return;
+                }
+            } else if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                // Still handshaking and waiting on the client; the caller keeps the rest queued
+                break;
+            }
+        }
+        flushNetOut();
+    }
+
+    @Override
+    boolean flush() throws IOException {
+        if (!flushNetOut()) {
+            return false;
+        }
+
+        SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+        if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP || status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            process();
+        }
+        return netOut.position() == 0;
+    }
+
+    @Override
+    boolean hasPendingOutput() {
+        return netOut.position() > 0;
+    }
+
+    @Override
+    boolean hasBufferedInput() {
+        return appIn.position() > 0;
+    }
+
+    @Override
+    void close() {
+        engine.closeOutbound();
+        try {
+            engine.wrap(EMPTY, netOut);
+            flushNetOut();
+        } catch (IOException e) {
+            // closing anyway
+        }
+        super.close();
+    }
+
+    /**
+     * Advances the handshake and decrypts buffered records until the engine needs more from the socket, or the
+     * socket takes no more output
+     */
+    private void process() throws IOException {
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                    break;
+                case NEED_WRAP:
+                    if (!flushNetOut()) {
+                        return;
+                    }
+                    if (engine.wrap(EMPTY, netOut).getStatus() == SSLEngineResult.Status.CLOSED) {
+                        flushNetOut();
+                        return;
+                    }
+                    break;
+                default:
+                    if (!unwrap()) {
+                        flushNetOut();
+                        return;
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return true if the engine made progress and may make more
+     */
+    private boolean unwrap() throws SSLException {
+        netIn.flip();
+        SSLEngineResult result;
+        try {
+            result = engine.unwrap(netIn, appIn);
+        } finally {
+            netIn.compact();
+        }
+
+        switch (result.getStatus()) {
+            case BUFFER_UNDERFLOW:
+                int packetSize = engine.getSession().getPacketBufferSize();
+                if (netIn.position() == netIn.capacity() && packetSize > netIn.capacity()) {
+                    netIn = grow(netIn, packetSize);
+                    return true;
+                }
+                return false;
+            case BUFFER_OVERFLOW:
+                // Grow only when empty; otherwise wait for the reader to drain what is already decrypted
+                if (appIn.position() == 0) {
+                    appIn = grow(appIn, engine.getSession().getApplicationBufferSize());
+                    return true;
+                }
+                return false;
+            case CLOSED:
+                inputClosed = true;
+                return false;
+            default:
+                SSLEngineResult.HandshakeStatus status = result.getHandshakeStatus();
+                return result.bytesConsumed() > 0 || result.bytesProduced() > 0
+                        || status == SSLEngineResult.HandshakeStatus.NEED_TASK
+                        || status == SSLEngineResult.HandshakeStatus.NEED_WRAP;
+        }
+    }
+
+    /**
+     * @return true if netOut is now empty
+     */
+    private boolean flushNetOut() throws IOException {
+        netOut.flip();
+        try {
+            channel.write(netOut);
+        } finally {
+            netOut.compact();
+        }
+        return netOut.position() == 0;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int size) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
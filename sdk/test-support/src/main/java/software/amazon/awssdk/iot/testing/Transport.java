@@ -0,0 +1,71 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+
+package software.amazon.awssdk.iot.testing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The byte stream under a broker connection.  This one reads and writes the socket directly; {@link TlsTransport}
+ * adds TLS.  Like the connection, only used from the broker's I/O thread.
+ */
+class Transport {
+
+    protected final SocketChannel channel;
+
+    Transport(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param dst the buffer to read into
+     * @return the number of bytes read, possibly zero, or -1 at the end of the stream
+     */
+    int read(ByteBuffer dst) throws IOException {
+        return channel.read(dst);
+    }
+
+    /**
+     * Writes as much of src as the socket takes without blocking
+     *
+     * @param src the bytes to write
+     */
+    void write(ByteBuffer src) throws IOException {
+        channel.write(src);
+    }
+
+    /**
+     * Writes bytes the transport produced on its own, such as TLS handshake records
+     *
+     * @return true if nothing is left to write
+     */
+    boolean flush() throws IOException {
+        return true;
+    }
+
+    /**
+     * @return true if bytes are waiting for the socket to accept them
+     */
+    boolean hasPendingOutput() {
+        return false;
+    }
+
+    /**
+     * @return true if bytes already taken off the socket are waiting to be read
+     */
+    boolean hasBufferedInput() {
+        return false;
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class CorrelationTokenGeneratorTest {
+
+    @Test
+    public void testSequentialTokenFormat() {
+        SequentialCorrelationTokenGenerator generator = new SequentialCorrelationTokenGenerator(0x0123456789abcdefL);
+
+        assertEquals("0123456789abcdef-0", generator.nextToken());
+        assertEquals("0123456789abcdef-1", generator.nextToken());
+        for (int i = 2; i < 0x1f; i++) {
+            generator.nextToken();
+        }
+        assertEquals("0123456789abcdef-1f", generator.nextToken());
+    }
+
+    @Test
+    public void testSequentialTokensAreUniqueAcrossThreads() throws Exception {
+        CorrelationTokenGenerator generator = new SequentialCorrelationTokenGenerator();
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    tokens.add(generator.nextToken());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertEquals(40000, tokens.size());
+    }
+
+    @Test
+    public void testGeneratorsHaveDistinctPrefixes() {
+        assertNotEquals(new SequentialCorrelationTokenGenerator().nextToken(), new SequentialCorrelationTokenGenerator().nextToken());
+    }
+
+    @Test
+    public void testUuidGeneratorAndOptionsDefault() {
+        UUID.fromString(new UuidCorrelationTokenGenerator().nextToken());
+
+        assertInstanceOf(SequentialCorrelationTokenGenerator.class, V2ClientOptions.builder().build().correlationTokenGenerator());
+
+        CorrelationTokenGenerator generator = new UuidCorrelationTokenGenerator();
+        assertSame(generator, V2ClientOptions.builder().withCorrelationTokenGenerator(generator).build().correlationTokenGenerator());
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+public class JsonPayloadDecoderTest {
+
+    private final Gson gson = new Gson();
+
+    private static class Message {
+        public String text;
+        public int count;
+    }
+
+    @Test
+    public void testDecodesMultiByteText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("hé世😀");
+        }
+
+        byte[] payload = ("{\"text\":\"" + text + "\",\"count\":3}").getBytes(StandardCharsets.UTF_8);
+        Message message = JsonPayloadDecoder.fromJson(gson, payload, Message.class);
+
+        assertEquals(text.toString(), message.text);
+        assertEquals(3, message.count);
+    }
+
+    @Test
+    public void testMalformedInputMatchesStringDecoding() {
+        byte[] payload = new byte[] { '{', '"', 't', 'e', 'x', 't', '"', ':', '"', 'a', (byte) 0xC3, 'b', (byte) 0xF0, (byte) 0x9F, '"', '}' };
+        Message expected = gson.fromJson(new String(payload, StandardCharsets.UTF_8), Message.class);
+
+        assertEquals(expected.text, JsonPayloadDecoder.fromJson(gson, payload, Message.class).text);
+    }
+
+    @Test
+    public void testGenericTypesAndEmptyPayloads() {
+        byte[] payload = "{\"a\":[1,2]}".getBytes(StandardCharsets.UTF_8);
+        Map<String, List<Integer>> map = JsonPayloadDecoder.fromJson(gson, payload, new TypeToken<Map<String, List<Integer>>>() {}.getType());
+
+        assertEquals(2, map.get("a").get(1).intValue());
+        assertNull(JsonPayloadDecoder.fromJson(gson, new byte[0], Message.class));
+        assertThrows(JsonSyntaxException.class, () -> JsonPayloadDecoder.fromJson(gson, "{\"count\":".getBytes(StandardCharsets.UTF_8), Message.class));
+
+        // The per-thread reader must be usable again after a failure
+        assertEquals(4, JsonPayloadDecoder.fromJson(gson, "{\"count\":4}".getBytes(StandardCharsets.UTF_8), Message.class).count);
+    }
+}
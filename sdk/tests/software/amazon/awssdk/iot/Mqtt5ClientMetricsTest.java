@@ -0,0 +1,230 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import software.amazon.awssdk.crt.mqtt5.Mqtt5Client;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5ClientOptions;
+import software.amazon.awssdk.crt.mqtt5.OnAttemptingConnectReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionFailureReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionSuccessReturn;
+import software.amazon.awssdk.crt.mqtt5.OnDisconnectionReturn;
+import software.amazon.awssdk.crt.mqtt5.OnStoppedReturn;
+import software.amazon.awssdk.crt.mqtt5.QOS;
+import software.amazon.awssdk.crt.mqtt5.packets.PublishPacket;
+
+public class Mqtt5ClientMetricsTest {
+
+    private static class RecordingSink implements TaggedMetricsAdapter.MeterSink {
+        final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+        final Map<String, Number> gauges = new ConcurrentHashMap<>();
+        final List<Long> timings = new ArrayList<>();
+
+        @Override
+        public void recordTimer(String name, Map<String, String> tags, long nanos) {
+            assertEquals(Mqtt5ClientMetrics.PUBLISH_ACK_LATENCY_METER, name);
+            assertEquals("thing-1", tags.get("client"));
+            timings.add(nanos);
+        }
+
+        @Override
+        public void incrementCounter(String name, Map<String, String> tags, long amount) {
+            assertEquals("thing-1", tags.get("client"));
+            counters.computeIfAbsent(name, key -> new AtomicLong()).addAndGet(amount);
+        }
+
+        @Override
+        public void registerGauge(String name, Map<String, String> tags, Number value) {
+            gauges.put(name, value);
+        }
+
+        long counter(String name) {
+            AtomicLong counter = counters.get(name);
+            return counter != null ? counter.get() : 0;
+        }
+    }
+
+    private static PublishPacket packet(String payload, QOS qos) {
+        return new PublishPacket.PublishPacketBuilder()
+            .withTopic("telemetry")
+            .withQOS(qos)
+            .withPayload(payload.getBytes(StandardCharsets.UTF_8))
+            .build();
+    }
+
+    @Test
+    public void testEventsAreCountedAndForwardedInBatches() {
+        RecordingSink sink = new RecordingSink();
+        Mqtt5ClientMetrics metrics = Mqtt5ClientMetrics.builder().withMeterSink(sink).withTag("client", "thing-1").build();
+        assertEquals(5, sink.gauges.size());
+
+        long first = metrics.publishStarted(packet("hello", QOS.AT_LEAST_ONCE));
+        metrics.publishCompleted(first, true, true);
+        long second = metrics.publishStarted(packet("world!", QOS.AT_MOST_ONCE));
+        metrics.publishCompleted(second, false, true);
+        long third = metrics.publishStarted(packet("x", QOS.AT_LEAST_ONCE));
+        metrics.publishCompleted(third, true, false);
+        metrics.publishReceived(packet("abc", QOS.AT_LEAST_ONCE));
+
+        assertEquals(3, metrics.getPublishesSent());
+        assertEquals(12, metrics.getBytesSent());
+        assertEquals(1, metrics.getPublishesFailed());
+        assertEquals(1, metrics.getPublishesReceived());
+        assertEquals(3, metrics.getBytesReceived());
+        assertEquals(1, metrics.getPublishAckLatency().getCount());
+        assertEquals(1, sink.timings.size());
+        // Counters reach the sink only when sampled
+        assertTrue(sink.counters.isEmpty());
+
+        metrics.detach();
+        assertEquals(3, sink.counter(Mqtt5ClientMetrics.PUBLISHES_SENT_METER));
+        assertEquals(12, sink.counter(Mqtt5ClientMetrics.BYTES_SENT_METER));
+        assertEquals(1, sink.counter(Mqtt5ClientMetrics.PUBLISHES_FAILED_METER));
+        assertEquals(3, sink.counter(Mqtt5ClientMetrics.BYTES_RECEIVED_METER));
+
+        metrics.publishReceived(packet("defg", QOS.AT_LEAST_ONCE));
+        metrics.detach();
+        assertEquals(7, sink.counter(Mqtt5ClientMetrics.BYTES_RECEIVED_METER));
+        assertEquals(3, sink.counter(Mqtt5ClientMetrics.PUBLISHES_SENT_METER));
+    }
+
+    @Test
+    public void testLifecycleEventsAreCountedAndDelivered() {
+        Mqtt5ClientMetrics metrics = Mqtt5ClientMetrics.builder().build();
+        AtomicInteger delivered = new AtomicInteger();
+        Mqtt5ClientOptions.LifecycleEvents events = metrics.wrap(new Mqtt5ClientOptions.LifecycleEvents() {
+            @Override
+            public void onAttemptingConnect(Mqtt5Client client, OnAttemptingConnectReturn onAttemptingConnectReturn) {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onConnectionSuccess(Mqtt5Client client, OnConnectionSuccessReturn onConnectionSuccessReturn) {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onConnectionFailure(Mqtt5Client client, OnConnectionFailureReturn onConnectionFailureReturn) {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onDisconnection(Mqtt5Client client, OnDisconnectionReturn onDisconnectionReturn) {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onStopped(Mqtt5Client client, OnStoppedReturn onStoppedReturn) {
+                delivered.incrementAndGet();
+            }
+        });
+
+        events.onAttemptingConnect(null, null);
+        events.onConnectionFailure(null, null);
+        events.onConnectionSuccess(null, null);
+        assertTrue(metrics.isConnected());
+        events.onDisconnection(null, null);
+        events.onStopped(null, null);
+
+        assertFalse(metrics.isConnected());
+        assertEquals(1, metrics.getConnections());
+        assertEquals(1, metrics.getConnectionFailures());
+        assertEquals(1, metrics.getDisconnections());
+        assertEquals(5, delivered.get());
+
+        // Clients built without user callbacks still count events
+        Mqtt5ClientOptions.LifecycleEvents bare = metrics.wrap((Mqtt5ClientOptions.LifecycleEvents) null);
+        bare.onConnectionSuccess(null, null);
+        assertEquals(2, metrics.getConnections());
+    }
+
+    @Test
+    public void testStatisticsKeepTheirPeak() {
+        Mqtt5ClientMetrics metrics = Mqtt5ClientMetrics.builder().build();
+        metrics.recordStatistics(40, 4000, 10, 1000);
+        metrics.recordStatistics(5, 500, 1, 100);
+
+        assertEquals(5, metrics.getIncompleteOperationCount());
+        assertEquals(500, metrics.getIncompleteOperationSize());
+        assertEquals(1, metrics.getUnackedOperationCount());
+        assertEquals(100, metrics.getUnackedOperationSize());
+        assertEquals(40, metrics.getPeakIncompleteOperationCount());
+    }
+
+    @Test
+    public void testBuilderRejectsInvalidInterval() {
+        assertThrows(IllegalArgumentException.class, () -> Mqtt5ClientMetrics.builder().withSampleIntervalMillis(0).build());
+    }
+
+    @Test
+    public void testBuiltClientIsInstrumented() {
+        Mqtt5ClientMetrics metrics = Mqtt5ClientMetrics.builder().withSampleIntervalMillis(60000).build();
+        try (AwsIotMqtt5ClientBuilder builder = AwsIotMqtt5ClientBuilder.newMqttBuilder("localhost")) {
+            builder.withMetrics(metrics);
+            try (Mqtt5Client client = builder.build()) {
+                assertTrue(client instanceof InstrumentedMqtt5Client);
+                assertThrows(IllegalStateException.class, () -> metrics.attach(client));
+
+                metrics.sample();
+                assertEquals(0, metrics.getIncompleteOperationCount());
+
+                // A second client from the same builder would share the metrics, so none is created
+                assertThrows(IllegalStateException.class, builder::build);
+            }
+        }
+    }
+
+    @Test
+    public void testBuildWithoutMetricsAfterBuildWithMetrics() {
+        Mqtt5ClientOptions.LifecycleEvents lifecycleEvents = new Mqtt5ClientOptions.LifecycleEvents() {
+            @Override
+            public void onAttemptingConnect(Mqtt5Client client, OnAttemptingConnectReturn onAttemptingConnectReturn) {}
+
+            @Override
+            public void onConnectionSuccess(Mqtt5Client client, OnConnectionSuccessReturn onConnectionSuccessReturn) {}
+
+            @Override
+            public void onConnectionFailure(Mqtt5Client client, OnConnectionFailureReturn onConnectionFailureReturn) {}
+
+            @Override
+            public void onDisconnection(Mqtt5Client client, OnDisconnectionReturn onDisconnectionReturn) {}
+
+            @Override
+            public void onStopped(Mqtt5Client client, OnStoppedReturn onStoppedReturn) {}
+        };
+        Mqtt5ClientOptions.PublishEvents publishEvents = (client, publishReturn) -> {};
+
+        try (AwsIotMqtt5ClientBuilder builder = AwsIotMqtt5ClientBuilder.newMqttBuilder("localhost")) {
+            builder.withLifeCycleEvents(lifecycleEvents).withPublishEvents(publishEvents);
+            builder.withMetrics(Mqtt5ClientMetrics.builder().withSampleIntervalMillis(60000).build());
+            try (Mqtt5Client instrumented = builder.build()) {
+                assertNotSame(lifecycleEvents, instrumented.getClientOptions().getLifecycleEvents());
+            }
+
+            builder.withMetrics(null);
+            try (Mqtt5Client plain = builder.build()) {
+                assertFalse(plain instanceof InstrumentedMqtt5Client);
+                assertSame(lifecycleEvents, plain.getClientOptions().getLifecycleEvents());
+                assertSame(publishEvents, plain.getClientOptions().getPublishEvents());
+            }
+        }
+    }
+}
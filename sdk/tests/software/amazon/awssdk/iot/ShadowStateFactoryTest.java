@@ -0,0 +1,101 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowResponse;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowResponse;
+
+public class ShadowStateFactoryTest {
+
+    private static final String GET_SHADOW_RESPONSE = "{\"clientToken\":\"token\",\"unknown\":[1,{\"a\":2}],"
+        + "\"state\":{\"desired\":{\"color\":\"red\",\"config\":{\"rate\":5,\"tags\":[\"a\",\"b\"]}},"
+        + "\"reported\":{\"color\":\"blue\",\"on\":true,\"nothing\":null},\"delta\":{\"color\":\"red\"}},"
+        + "\"metadata\":{\"desired\":{\"color\":{\"timestamp\":1700000000}},\"reported\":{}},"
+        + "\"timestamp\":1700000001,\"version\":42}";
+
+    private static final String SHADOW_UPDATED_EVENT = "{\"previous\":{\"state\":{\"desired\":{\"a\":1}},"
+        + "\"metadata\":{\"desired\":{\"a\":{\"timestamp\":5}}},\"version\":1},"
+        + "\"current\":{\"state\":{\"desired\":{\"a\":2},\"reported\":null},\"version\":2},\"timestamp\":7}";
+
+    private static final String DELTA_EVENT = "{\"state\":{\"a\":{\"b\":1.5}},\"metadata\":{\"a\":{\"b\":{\"timestamp\":9}}},"
+        + "\"timestamp\":9,\"version\":3,\"clientToken\":\"t\"}";
+
+    private Gson createGson(boolean withFactory) {
+        GsonBuilder builder = new GsonBuilder();
+        builder.disableHtmlEscaping();
+        builder.registerTypeAdapter(Timestamp.class, new Timestamp.Serializer());
+        builder.registerTypeAdapter(Timestamp.class, new Timestamp.Deserializer());
+        if (withFactory) {
+            builder.registerTypeAdapterFactory(new ShadowStateFactory());
+        }
+        return builder.create();
+    }
+
+    private void assertSameAsReflective(String json, Class<?> type) {
+        Gson reflective = createGson(false);
+        Gson streaming = createGson(true);
+
+        Object expected = reflective.fromJson(json, type);
+        Object actual = streaming.fromJson(json, type);
+
+        // Re-serializing through the reflective path compares every field, including nested map value types
+        assertEquals(reflective.toJson(expected), reflective.toJson(actual));
+    }
+
+    @Test
+    public void testGetShadowResponseMatchesReflectiveRead() {
+        assertSameAsReflective(GET_SHADOW_RESPONSE, GetShadowResponse.class);
+
+        GetShadowResponse response = createGson(true).fromJson(GET_SHADOW_RESPONSE, GetShadowResponse.class);
+        assertEquals("token", response.clientToken);
+        assertEquals(42, response.version.intValue());
+        assertEquals(1700000001000L, response.timestamp.getTime());
+        assertEquals(5.0, ((java.util.Map<?, ?>) response.state.desired.get("config")).get("rate"));
+    }
+
+    @Test
+    public void testShadowEventsMatchReflectiveRead() {
+        assertSameAsReflective(SHADOW_UPDATED_EVENT, ShadowUpdatedEvent.class);
+        assertSameAsReflective(DELTA_EVENT, ShadowDeltaUpdatedEvent.class);
+        assertSameAsReflective("{\"state\":{\"reported\":{\"x\":\"y\"}},\"version\":8}", UpdateShadowResponse.class);
+
+        ShadowUpdatedEvent event = createGson(true).fromJson(SHADOW_UPDATED_EVENT, ShadowUpdatedEvent.class);
+        assertNull(event.current.state.reported);
+        assertNull(event.current.metadata);
+    }
+
+    @Test
+    public void testNullAndMalformedPayloads() {
+        Gson gson = createGson(true);
+
+        assertNull(gson.fromJson("null", GetShadowResponse.class));
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("{\"version\":\"abc\"}", GetShadowResponse.class));
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("{\"state\":{\"a\":1,\"a\":2}}", ShadowDeltaUpdatedEvent.class));
+    }
+
+    @Test
+    public void testNullableStateStillSerializesNulls() {
+        UpdateShadowRequest request = new UpdateShadowRequest();
+        request.thingName = "thing";
+        request.state = new ShadowState();
+        request.state.desiredIsNullable = true;
+
+        assertEquals("{\"thingName\":\"thing\",\"state\":{\"desired\":null,\"reported\":{}}}", createGson(true).toJson(request));
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.awaitCondition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedStreamRegistryTest {
+
+    private static class FakeStreams {
+        final List<V2ClientStreamOptions<String>> opened = new ArrayList<>();
+        final AtomicInteger open = new AtomicInteger();
+
+        AutoCloseable open(V2ClientStreamOptions<String> options) {
+            opened.add(options);
+            open.incrementAndGet();
+            return open::decrementAndGet;
+        }
+    }
+
+    private static V2ClientStreamOptions<String> collecting(List<String> events) {
+        return V2ClientStreamOptions.<String>builder().withStreamEventHandler(events::add).build();
+    }
+
+    @Test
+    public void testSameTopicSharesOneStreamAndFansOut() {
+        FakeStreams streams = new FakeStreams();
+        SharedStreamRegistry registry = new SharedStreamRegistry();
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+
+        SharedStreamRegistry.Subscription a = registry.subscribeStream("topic/a", String.class, collecting(first), streams::open);
+        SharedStreamRegistry.Subscription b = registry.subscribeStream("topic/a", String.class, collecting(second), streams::open);
+        registry.subscribeStream("topic/b", String.class, collecting(new ArrayList<>()), streams::open);
+
+        assertEquals(2, streams.opened.size());
+        assertEquals(2, registry.subscriberCount("topic/a"));
+
+        String event = "event";
+        streams.opened.get(0).streamEventHandler().accept(event);
+        assertEquals(1, first.size());
+        assertSame(event, second.get(0));
+
+        a.close();
+        a.close();
+        assertEquals(1, registry.subscriberCount("topic/a"));
+        assertEquals(2, streams.open.get());
+
+        b.close();
+        assertEquals(0, registry.subscriberCount("topic/a"));
+        assertEquals(1, streams.open.get());
+
+        registry.subscribeStream("topic/a", String.class, collecting(first), streams::open);
+        assertEquals(3, streams.opened.size());
+
+        registry.close();
+        assertEquals(0, streams.open.get());
+    }
+
+    @Test
+    public void testFailingHandlerDoesNotStopDelivery() {
+        FakeStreams streams = new FakeStreams();
+        SharedStreamRegistry registry = new SharedStreamRegistry();
+        List<String> received = new ArrayList<>();
+
+        registry.subscribeStream("topic", String.class, V2ClientStreamOptions.<String>builder().withStreamEventHandler(event -> {
+            throw new IllegalStateException("consumer failure");
+        }).build(), streams::open);
+        registry.subscribeStream("topic", String.class, collecting(received), streams::open);
+
+        streams.opened.get(0).streamEventHandler().accept("event");
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void testTopicRejectsADifferentEventType() {
+        FakeStreams streams = new FakeStreams();
+        SharedStreamRegistry registry = new SharedStreamRegistry();
+        registry.subscribeStream("topic", String.class, collecting(new ArrayList<>()), streams::open);
+
+        V2ClientStreamOptions<Integer> numbers = V2ClientStreamOptions.<Integer>builder().withStreamEventHandler(event -> {}).build();
+        assertThrows(IllegalArgumentException.class, () -> registry.subscribeStream("topic", Integer.class, numbers, options -> () -> {}));
+        assertEquals(1, registry.subscriberCount("topic"));
+        assertEquals(1, streams.opened.size());
+    }
+
+    @Test
+    public void testSubscribeAfterCloseIsRejected() {
+        FakeStreams streams = new FakeStreams();
+        SharedStreamRegistry registry = new SharedStreamRegistry();
+        registry.close();
+
+        assertThrows(IllegalStateException.class, () -> registry.subscribeStream("topic", String.class, collecting(new ArrayList<>()), streams::open));
+        assertEquals(0, streams.opened.size());
+    }
+
+    @Test
+    public void testFailedOpenIsNotRegistered() {
+        SharedStreamRegistry registry = new SharedStreamRegistry();
+
+        assertThrows(IllegalStateException.class, () -> registry.subscribeStream("topic", String.class, collecting(new ArrayList<>()), options -> {
+            throw new IllegalStateException("subscribe failed");
+        }));
+        assertEquals(0, registry.subscriberCount("topic"));
+    }
+
+    @Test
+    public void testFailedOpenFailsSubscribersThatAttachedMeanwhile() throws Exception {
+        SharedStreamRegistry registry = new SharedStreamRegistry();
+        CountDownLatch opening = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("subscribe failed");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        CompletableFuture<SharedStreamRegistry.Subscription> creator = CompletableFuture.supplyAsync(() ->
+            registry.subscribeStream("topic", String.class, collecting(new ArrayList<>()), options -> {
+                opening.countDown();
+                try {
+                    fail.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw failure;
+            }), executor);
+        assertTrue(opening.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<SharedStreamRegistry.Subscription> joiner = CompletableFuture.supplyAsync(() ->
+            registry.subscribeStream("topic", String.class, collecting(new ArrayList<>()), options -> () -> {}), executor);
+        awaitCondition(() -> registry.subscriberCount("topic") == 2);
+        fail.countDown();
+
+        ExecutionException creatorFailure = assertThrows(ExecutionException.class, () -> creator.get(5, TimeUnit.SECONDS));
+        ExecutionException joinerFailure = assertThrows(ExecutionException.class, () -> joiner.get(5, TimeUnit.SECONDS));
+        assertSame(failure, creatorFailure.getCause());
+        assertSame(failure, joinerFailure.getCause());
+        assertEquals(0, registry.subscriberCount("topic"));
+        executor.shutdown();
+
+        FakeStreams streams = new FakeStreams();
+        registry.subscribeStream("topic", String.class, collecting(new ArrayList<>()), streams::open);
+        assertEquals(1, streams.opened.size());
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+
+/**
+ * Fixtures and waits shared by the unit tests
+ */
+public final class TestUtils {
+
+    private TestUtils() {}
+
+    /**
+     * @param keysAndValues alternating string keys and their values
+     * @return a mutable map of the keys and values
+     */
+    public static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    /**
+     * @param version the shadow version the event carries
+     * @param state the delta state
+     * @return a shadow delta event
+     */
+    public static ShadowDeltaUpdatedEvent delta(int version, Map<String, Object> state) {
+        ShadowDeltaUpdatedEvent event = new ShadowDeltaUpdatedEvent();
+        event.version = version;
+        event.state = new HashMap<>(state);
+        return event;
+    }
+
+    /**
+     * Polls until the condition holds, failing the test after five seconds
+     *
+     * @param condition the condition to wait for
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
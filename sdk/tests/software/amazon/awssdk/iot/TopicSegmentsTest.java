@@ -0,0 +1,49 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TopicSegmentsTest {
+
+    private static final String TOPIC = "$aws/commands/things/gateway-7/executions/0f3c2a/request/json";
+
+    @Test
+    public void testSegmentsMatchSplit() {
+        String[] expected = TOPIC.split("/");
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], TopicSegments.segment(TOPIC, i));
+            assertTrue(TopicSegments.segmentEquals(TOPIC, i, expected[i]));
+        }
+        assertNull(TopicSegments.segment(TOPIC, expected.length));
+        assertNull(TopicSegments.segment(TOPIC, -1));
+    }
+
+    @Test
+    public void testWalkingSegments() {
+        int deviceType = TopicSegments.segmentStart(TOPIC, 2);
+        int deviceId = TopicSegments.nextSegmentStart(TOPIC, deviceType);
+        assertEquals("gateway-7", TOPIC.substring(deviceId, TopicSegments.segmentEnd(TOPIC, deviceId)));
+
+        int last = TopicSegments.segmentStart(TOPIC, 7);
+        assertEquals(TOPIC.length(), TopicSegments.segmentEnd(TOPIC, last));
+        assertEquals(-1, TopicSegments.nextSegmentStart(TOPIC, last));
+        assertEquals(-1, TopicSegments.nextSegmentStart(TOPIC, -1));
+    }
+
+    @Test
+    public void testEmptySegmentsAndPrefixes() {
+        assertEquals("", TopicSegments.segment("a//b/", 1));
+        assertEquals("", TopicSegments.segment("a//b/", 3));
+        assertFalse(TopicSegments.segmentEquals(TOPIC, 2, "thing"));
+        assertFalse(TopicSegments.segmentEquals(TOPIC, 2, "thingsX"));
+        assertFalse(TopicSegments.segmentEquals(TOPIC, 9, "json"));
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TopicTemplateTest {
+
+    @Test
+    public void testRenderMatchesReplace() {
+        String template = "$aws/commands/{deviceType}/{deviceId}/executions/{executionId}/response/accepted/json";
+        TopicTemplate compiled = TopicTemplate.compile(template);
+
+        String expected = template.replace("{deviceType}", "things").replace("{deviceId}", "dev-1").replace("{executionId}", "e1");
+        assertEquals(expected, compiled.render("things", "dev-1", "e1"));
+        assertEquals(Arrays.asList("deviceType", "deviceId", "executionId"), compiled.getParameterNames());
+    }
+
+    @Test
+    public void testTemplatesWithoutParametersOrWithLeadingAndTrailingParameters() {
+        assertEquals("$aws/certificates/create/json", TopicTemplate.compile("$aws/certificates/create/json").render());
+        assertEquals(Collections.emptyList(), TopicTemplate.compile("a/b").getParameterNames());
+        assertEquals("x/y", TopicTemplate.compile("{a}/{b}").render("x", "y"));
+    }
+
+    @Test
+    public void testValuesAreNotReinterpreted() {
+        // String.replace chains would substitute into a previously inserted value; rendering must not
+        assertEquals("$aws/things/{shadowName}/shadow/name/s/get",
+            TopicTemplate.compile("$aws/things/{thingName}/shadow/name/{shadowName}/get").render("{shadowName}", "s"));
+    }
+
+    @Test
+    public void testInvalidTemplatesAndArguments() {
+        assertThrows(IllegalArgumentException.class, () -> TopicTemplate.compile("a/{thingName"));
+        assertThrows(IllegalArgumentException.class, () -> TopicTemplate.compile("a/{}/b"));
+        assertThrows(IllegalArgumentException.class, () -> TopicTemplate.compile("a/{x}").render());
+    }
+}
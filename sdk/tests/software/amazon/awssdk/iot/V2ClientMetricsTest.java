@@ -0,0 +1,220 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import software.amazon.awssdk.crt.CrtRuntimeException;
+
+public class V2ClientMetricsTest {
+
+    // CRT error code of AWS_ERROR_MQTT_REQUEST_RESPONSE_TIMEOUT
+    private static final int REQUEST_RESPONSE_TIMEOUT = 5168;
+
+    @Test
+    public void testHistogramBucketsStayWithinPrecision() {
+        for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestValueInBucket(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 32, "value " + value + " reported as " + highest);
+            assertEquals(index, LatencyHistogram.bucketIndex(highest));
+            assertEquals(index + 1, LatencyHistogram.bucketIndex(highest + 1));
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 / 32);
+        assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 / 32);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(1000, histogram.getValueAtPercentile(0), 1000 / 32);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void testTimerReportsPhasesAndOutcomeOnce() {
+        List<V2OperationTimer> completed = new ArrayList<>();
+        List<String> started = new ArrayList<>();
+        V2ClientMetricsListener listener = new V2ClientMetricsListener() {
+            @Override
+            public void onOperationStarted(String operationName) {
+                started.add(operationName);
+            }
+
+            @Override
+            public void onOperationCompleted(V2OperationTimer timer) {
+                completed.add(timer);
+            }
+        };
+
+        V2OperationTimer timer = V2OperationTimer.start(listener, "GetNamedShadow");
+        assertEquals(-1, timer.getPhaseNanos(V2OperationPhase.SUBMIT));
+        timer.submitted();
+        timer.received();
+        timer.complete(V2OperationOutcome.SUCCEEDED);
+        timer.complete(V2OperationOutcome.FAILED);
+
+        assertEquals(1, started.size());
+        assertEquals(1, completed.size());
+        assertEquals(V2OperationOutcome.SUCCEEDED, timer.getOutcome());
+        long total = timer.getPhaseNanos(V2OperationPhase.TOTAL);
+        long phases = timer.getPhaseNanos(V2OperationPhase.SUBMIT) + timer.getPhaseNanos(V2OperationPhase.RESPONSE) + timer.getPhaseNanos(V2OperationPhase.DECODE);
+        assertEquals(total, phases);
+
+        V2OperationTimer timedOut = V2OperationTimer.start(listener, "GetNamedShadow");
+        timedOut.submitted();
+        timedOut.received();
+        timedOut.fail(new CompletionException(new CrtRuntimeException(REQUEST_RESPONSE_TIMEOUT)));
+        assertEquals(V2OperationOutcome.TIMED_OUT, timedOut.getOutcome());
+        assertEquals(-1, timedOut.getPhaseNanos(V2OperationPhase.DECODE));
+        assertTrue(timedOut.getPhaseNanos(V2OperationPhase.RESPONSE) >= 0);
+
+        V2OperationTimer failed = V2OperationTimer.start(listener, "GetNamedShadow");
+        failed.fail(new IllegalArgumentException("bad request"));
+        assertEquals(V2OperationOutcome.FAILED, failed.getOutcome());
+        assertEquals(-1, failed.getPhaseNanos(V2OperationPhase.RESPONSE));
+        assertTrue(failed.getPhaseNanos(V2OperationPhase.TOTAL) >= 0);
+    }
+
+    @Test
+    public void testThrowingListenerDoesNotAffectTheOperation() {
+        AtomicInteger calls = new AtomicInteger();
+        V2ClientMetricsListener listener = new V2ClientMetricsListener() {
+            @Override
+            public void onOperationStarted(String operationName) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("started");
+            }
+
+            @Override
+            public void onOperationCompleted(V2OperationTimer timer) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("completed");
+            }
+        };
+
+        V2OperationTimer timer = V2OperationTimer.start(listener, "GetNamedShadow");
+        timer.submitted();
+        timer.received();
+        timer.complete(V2OperationOutcome.SUCCEEDED);
+        assertEquals(V2OperationOutcome.SUCCEEDED, timer.getOutcome());
+
+        V2OperationTimer failed = V2OperationTimer.start(listener, "GetNamedShadow");
+        failed.fail(new IllegalArgumentException("bad request"));
+        assertEquals(V2OperationOutcome.FAILED, failed.getOutcome());
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void testDisabledTimerIsShared() {
+        V2OperationTimer timer = V2OperationTimer.start(V2ClientMetricsListener.NONE, "GetNamedShadow");
+        assertSame(timer, V2OperationTimer.start(null, "UpdateNamedShadow"));
+        timer.submitted();
+        timer.complete(V2OperationOutcome.SUCCEEDED);
+        assertNull(timer.getOutcome());
+    }
+
+    @Test
+    public void testMetricsAggregatePerOperation() {
+        V2ClientMetrics metrics = new V2ClientMetrics();
+
+        V2OperationTimer first = V2OperationTimer.start(metrics, "UpdateJobExecution");
+        V2OperationTimer second = V2OperationTimer.start(metrics, "UpdateJobExecution");
+        V2OperationTimer other = V2OperationTimer.start(metrics, "DescribeJobExecution");
+        assertEquals(2, metrics.getInFlight("UpdateJobExecution"));
+        assertEquals(3, metrics.getTotalInFlight());
+
+        first.submitted();
+        first.received();
+        first.complete(V2OperationOutcome.SUCCEEDED);
+        second.submitted();
+        second.received();
+        second.complete(V2OperationOutcome.DESERIALIZATION_FAILED);
+        other.submitted();
+        other.received();
+        other.fail(new RuntimeException("connection lost"));
+
+        assertEquals(0, metrics.getTotalInFlight());
+        assertEquals(2, metrics.getPeakInFlight("UpdateJobExecution"));
+        assertEquals(1, metrics.getOutcomeCount("UpdateJobExecution", V2OperationOutcome.SUCCEEDED));
+        assertEquals(1, metrics.getOutcomeCount("UpdateJobExecution", V2OperationOutcome.DESERIALIZATION_FAILED));
+        assertEquals(1, metrics.getOutcomeCount("DescribeJobExecution", V2OperationOutcome.FAILED));
+        assertEquals(2, metrics.getHistogram("UpdateJobExecution", V2OperationPhase.TOTAL).getCount());
+        assertEquals(2, metrics.getHistogram("UpdateJobExecution", V2OperationPhase.DECODE).getCount());
+        assertEquals(0, metrics.getHistogram("DescribeJobExecution", V2OperationPhase.DECODE).getCount());
+        assertNull(metrics.getHistogram("GetPendingJobExecutions", V2OperationPhase.TOTAL));
+        assertEquals(2, metrics.getOperationNames().size());
+    }
+
+    @Test
+    public void testTaggedAdapterForwardsToSink() {
+        Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> gauges = new ConcurrentHashMap<>();
+        List<Map<String, String>> timerTags = new ArrayList<>();
+        TaggedMetricsAdapter adapter = new TaggedMetricsAdapter(new TaggedMetricsAdapter.MeterSink() {
+            @Override
+            public void recordTimer(String name, Map<String, String> tags, long nanos) {
+                assertEquals(TaggedMetricsAdapter.DURATION_METER, name);
+                assertTrue(nanos >= 0);
+                timerTags.add(tags);
+            }
+
+            @Override
+            public void incrementCounter(String name, Map<String, String> tags, long amount) {
+                counters.computeIfAbsent(name + tags, key -> new AtomicLong()).addAndGet(amount);
+            }
+
+            @Override
+            public void registerGauge(String name, Map<String, String> tags, Number value) {
+                assertNull(gauges.put(name + tags.get(TaggedMetricsAdapter.OPERATION_TAG), (AtomicInteger) value));
+            }
+        });
+
+        V2OperationTimer timer = V2OperationTimer.start(adapter, "RegisterThing");
+        AtomicInteger inFlight = gauges.get(TaggedMetricsAdapter.IN_FLIGHT_METER + "RegisterThing");
+        assertEquals(1, inFlight.get());
+        timer.submitted();
+        timer.received();
+        timer.complete(V2OperationOutcome.REJECTED);
+        V2OperationTimer.start(adapter, "RegisterThing").fail(new RuntimeException());
+
+        assertEquals(0, inFlight.get());
+        assertEquals(1, gauges.size());
+        assertEquals(2, counters.size());
+        // REJECTED reports all four phases; the synchronous failure reports only TOTAL
+        assertEquals(5, timerTags.size());
+        assertEquals("REJECTED", timerTags.get(0).get(TaggedMetricsAdapter.OUTCOME_TAG));
+        assertEquals("SUBMIT", timerTags.get(0).get(TaggedMetricsAdapter.PHASE_TAG));
+        assertEquals("RegisterThing", timerTags.get(4).get(TaggedMetricsAdapter.OPERATION_TAG));
+        assertEquals("TOTAL", timerTags.get(4).get(TaggedMetricsAdapter.PHASE_TAG));
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotcommands;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionResult;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionStatus;
+import software.amazon.awssdk.iot.iotcommands.model.DeviceType;
+import software.amazon.awssdk.iot.iotcommands.model.RejectedErrorCode;
+import software.amazon.awssdk.iot.iotcommands.model.StatusReason;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionRequest;
+import software.amazon.awssdk.iot.iotcommands.model.V2ErrorResponse;
+
+public class CborCodecTest {
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static CborReader reader(String hex) {
+        return new CborReader(hex(hex));
+    }
+
+    // Examples from RFC 8949 Appendix A
+    @Test
+    public void testWriterMatchesRfcExamples() {
+        CborWriter writer = new CborWriter(16);
+        assertArrayEquals(hex("00"), writer.writeLong(0).toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("1818"), writer.writeLong(24).toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("1a000f4240"), writer.writeLong(1000000).toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("1b000000e8d4a51000"), writer.writeLong(1000000000000L).toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("3903e7"), writer.writeLong(-1000).toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("3b7fffffffffffffff"), writer.writeLong(Long.MIN_VALUE).toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("fb3ff199999999999a"), writer.writeDouble(1.1).toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("fa47c35000"), writer.writeDouble(100000.0).toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("6449455446"), writer.writeTextString("IETF").toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("62c3bc"), writer.writeTextString("ü").toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("63e6b0b4"), writer.writeTextString("水").toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("64f0908591"), writer.writeTextString("𐅑").toByteArray());
+        writer.reset();
+        assertArrayEquals(hex("4401020304"), writer.writeByteString(hex("01020304")).toByteArray());
+        writer.reset();
+        writer.writeArrayHeader(3).writeLong(1).writeArrayHeader(2).writeLong(2).writeLong(3).writeArrayHeader(2).writeLong(4).writeLong(5);
+        assertArrayEquals(hex("8301820203820405"), writer.toByteArray());
+        writer.reset();
+        writer.writeMapHeader(2).writeTextString("a").writeLong(1).writeTextString("b").writeArrayHeader(2).writeLong(2).writeLong(3);
+        assertArrayEquals(hex("a26161016162820203"), writer.toByteArray());
+        writer.reset();
+        writer.writeBoolean(false).writeBoolean(true).writeNull().writeTag(1).writeLong(1363896240);
+        assertArrayEquals(hex("f4f5f6c11a514b67b0"), writer.toByteArray());
+    }
+
+    @Test
+    public void testWriterGrowsForLongStrings() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("éx水");
+        }
+        byte[] encoded = new CborWriter(16).writeTextString(text.toString()).toByteArray();
+        assertEquals(text.toString(), new CborReader(encoded).readTextString());
+    }
+
+    @Test
+    public void testReaderDecodesRfcExamples() {
+        assertEquals(1000000000000L, reader("1b000000e8d4a51000").readLong());
+        assertEquals(-1000, reader("3903e7").readInt());
+        assertEquals(Long.MIN_VALUE, reader("3b7fffffffffffffff").readLong());
+        assertThrows(IllegalArgumentException.class, () -> reader("1bffffffffffffffff").readLong());
+        assertThrows(IllegalArgumentException.class, () -> reader("1b000000e8d4a51000").readInt());
+
+        assertEquals(1.5, reader("f93e00").readDouble());
+        assertEquals(-4.0, reader("f9c400").readDouble());
+        assertEquals(5.960464477539063e-8, reader("f90001").readDouble());
+        assertEquals(Double.POSITIVE_INFINITY, reader("f97c00").readDouble());
+        assertTrue(Double.isNaN(reader("f97e00").readDouble()));
+        assertEquals(100000.0, reader("fa47c35000").readDouble());
+        assertEquals(1.1, reader("fb3ff199999999999a").readDouble());
+
+        assertEquals("𐅑", reader("64f0908591").readTextString());
+        assertEquals("streaming", reader("7f657374726561646d696e67ff").readTextString());
+        assertArrayEquals(hex("0102030405"), reader("5f42010243030405ff").readByteString());
+
+        CborReader simple = reader("f4f5f6f7");
+        assertEquals(CborReader.Type.BOOLEAN, simple.peekType());
+        assertFalse(simple.readBoolean());
+        assertTrue(simple.readBoolean());
+        assertTrue(simple.readNullIfPresent());
+        assertEquals(CborReader.Type.UNDEFINED, simple.peekType());
+        assertTrue(simple.readNullIfPresent());
+        assertFalse(simple.hasNext());
+    }
+
+    @Test
+    public void testReaderWalksContainers() {
+        // {"Fun": true, "Amt": -2} with an indefinite-length map
+        CborReader map = reader("bf6346756ef563416d7421ff");
+        assertEquals(CborReader.INDEFINITE_LENGTH, map.readMapHeader());
+        assertFalse(map.readTextStringIfEquals("Amt"));
+        assertTrue(map.readTextStringIfEquals("Fun"));
+        assertTrue(map.readBoolean());
+        assertTrue(map.readTextStringIfEquals("Amt"));
+        assertEquals(-2, map.readInt());
+        assertTrue(map.readBreakIfPresent());
+        assertFalse(map.hasNext());
+
+        // [1, {"skip": [h'00', "x", 1(2)]}, 7]
+        CborWriter writer = new CborWriter();
+        writer.writeArrayHeader(3).writeLong(1)
+            .writeMapHeader(1).writeTextString("skip").writeArrayHeader(3).writeByteString(new byte[1]).writeTextString("x").writeTag(1).writeLong(2)
+            .writeLong(7);
+        CborReader array = new CborReader(writer.toByteArray());
+        assertEquals(3, array.readArrayHeader());
+        assertEquals(1, array.readInt());
+        array.skip();
+        assertEquals(7, array.readInt());
+        assertFalse(array.hasNext());
+
+        ByteBuffer view = reader("4401020304").readByteStringAsBuffer();
+        assertEquals(4, view.remaining());
+        assertEquals(3, view.get(2));
+        assertTrue(view.isReadOnly());
+    }
+
+    @Test
+    public void testTextComparisonHandlesNonAscii() {
+        byte[] encoded = new CborWriter().writeTextString("café").toByteArray();
+        CborReader reader = new CborReader(encoded);
+        assertFalse(reader.readTextStringIfEquals("cafe"));
+        assertFalse(reader.readTextStringIfEquals("caf"));
+        assertEquals(0, reader.position());
+        assertTrue(reader.readTextStringIfEquals("café"));
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testMalformedInputIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> reader("").peekType());
+        assertThrows(IllegalArgumentException.class, () -> reader("1a0001").readLong());
+        assertThrows(IllegalArgumentException.class, () -> reader("6449").readTextString());
+        assertThrows(IllegalArgumentException.class, () -> reader("9b00000000ffffffff").readArrayHeader());
+        assertThrows(IllegalArgumentException.class, () -> reader("6449455446").readLong());
+        assertThrows(IllegalArgumentException.class, () -> reader("1c").readLong());
+        assertThrows(IllegalArgumentException.class, () -> reader("ff").skip());
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            nested.append("81");
+        }
+        assertThrows(IllegalArgumentException.class, () -> reader(nested.append("00").toString()).skip());
+    }
+
+    @Test
+    public void testUpdateRequestEncoding() {
+        UpdateCommandExecutionRequest request = new UpdateCommandExecutionRequest();
+        request.deviceType = DeviceType.THING;
+        request.deviceId = "device";
+        request.executionId = "e-1";
+        request.status = CommandExecutionStatus.FAILED;
+        request.statusReason = new StatusReason();
+        request.statusReason.reasonCode = "E42";
+        request.result = new HashMap<>();
+        CommandExecutionResult result = new CommandExecutionResult();
+        result.b = true;
+        result.bin = new byte[] { 1, 2 };
+        request.result.put("output", result);
+
+        CborReader reader = new CborReader(CommandExecutionCborCodec.encodeUpdateCommandExecutionRequest(request));
+        assertEquals(6, reader.readMapHeader());
+        assertEquals("deviceType", reader.readTextString());
+        assertEquals("things", reader.readTextString());
+        reader.skip();
+        reader.skip();
+        assertTrue(reader.readTextStringIfEquals("executionId"));
+        assertEquals("e-1", reader.readTextString());
+        assertTrue(reader.readTextStringIfEquals("status"));
+        assertEquals("FAILED", reader.readTextString());
+        assertTrue(reader.readTextStringIfEquals("statusReason"));
+        assertEquals(1, reader.readMapHeader());
+        assertTrue(reader.readTextStringIfEquals("reasonCode"));
+        assertEquals("E42", reader.readTextString());
+        assertTrue(reader.readTextStringIfEquals("result"));
+        assertEquals(1, reader.readMapHeader());
+        assertTrue(reader.readTextStringIfEquals("output"));
+        assertEquals(2, reader.readMapHeader());
+        assertTrue(reader.readTextStringIfEquals("b"));
+        assertTrue(reader.readBoolean());
+        assertTrue(reader.readTextStringIfEquals("bin"));
+        assertArrayEquals(new byte[] { 1, 2 }, reader.readByteString());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testResponseDecoding() {
+        CborWriter writer = new CborWriter();
+        writer.writeMapHeader(2).writeTextString("clientToken").writeTextString("ignored").writeTextString("executionId").writeTextString("e-1");
+        assertEquals("e-1", CommandExecutionCborCodec.decodeUpdateCommandExecutionResponse(writer.toByteArray()).executionId);
+
+        writer.reset();
+        writer.writeMapHeader(3).writeTextString("error").writeTextString("TerminalStateReached")
+            .writeTextString("errorMessage").writeTextString("already done")
+            .writeTextString("extra").writeArrayHeader(1).writeNull();
+        V2ErrorResponse error = CommandExecutionCborCodec.decodeV2ErrorResponse(writer.toByteArray());
+        assertEquals(RejectedErrorCode.TERMINAL_STATE_REACHED, error.error);
+        assertEquals("already done", error.errorMessage);
+        assertNull(error.executionId);
+
+        writer.reset();
+        writer.writeMapHeader(1).writeTextString("error").writeTextString("SomethingNew");
+        assertEquals(RejectedErrorCode.UNKNOWN_ENUM_VALUE, CommandExecutionCborCodec.decodeV2ErrorResponse(writer.toByteArray()).error);
+    }
+}
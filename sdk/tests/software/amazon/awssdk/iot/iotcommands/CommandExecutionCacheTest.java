@@ -0,0 +1,151 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotcommands;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.awaitCondition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionResult;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionStatus;
+
+public class CommandExecutionCacheTest {
+
+    @Test
+    public void testDuplicatesAreRecognizedUntilExpiry() {
+        AtomicLong now = new AtomicLong(1000);
+        CommandExecutionCache cache = CommandExecutionCache.builder().withRetentionMillis(60000).withClock(now::get).build();
+
+        assertEquals(CommandExecutionCache.State.NEW, cache.begin("a", null));
+        assertEquals(CommandExecutionCache.State.IN_PROGRESS, cache.begin("a", null));
+        assertNull(cache.getOutcome("a"));
+
+        cache.complete("a", CommandExecutionOutcome.rejected("BAD_ARGS", "missing duration"));
+        assertEquals(CommandExecutionCache.State.COMPLETED, cache.begin("a", null));
+        CommandExecutionOutcome outcome = cache.getOutcome("a");
+        assertEquals(CommandExecutionStatus.REJECTED, outcome.getStatus());
+        assertEquals("missing duration", outcome.getStatusReason().reasonDescription);
+
+        // A long command timeout keeps its entry past the retention period
+        assertEquals(CommandExecutionCache.State.NEW, cache.begin("slow", 600));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(2));
+        assertNull(cache.getOutcome("a"));
+        assertEquals(CommandExecutionCache.State.NEW, cache.begin("a", null));
+        assertEquals(CommandExecutionCache.State.IN_PROGRESS, cache.begin("slow", 600));
+
+        cache.abandon("a");
+        assertEquals(CommandExecutionCache.State.NEW, cache.begin("a", null));
+    }
+
+    @Test
+    public void testOldestEntriesAreDroppedWhenFull() {
+        CommandExecutionCache cache = CommandExecutionCache.builder().withMaxEntries(3).build();
+        for (int i = 0; i < 5; i++) {
+            cache.begin("e" + i, null);
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(CommandExecutionCache.State.IN_PROGRESS, cache.begin("e4", null));
+        assertEquals(CommandExecutionCache.State.NEW, cache.begin("e0", null));
+    }
+
+    @Test
+    public void testFinishedExecutionsSurviveRestart(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("executions.json");
+        CommandExecutionResult result = new CommandExecutionResult();
+        result.bin = new byte[] { 7, 8 };
+
+        CommandExecutionCache first = CommandExecutionCache.builder().withPersistenceFile(file).build();
+        first.begin("done", null);
+        first.begin("running", null);
+        first.complete("done", CommandExecutionOutcome.succeeded(Collections.singletonMap("image", result)));
+        first.close();
+
+        CommandExecutionCache second = CommandExecutionCache.builder().withPersistenceFile(file).build();
+        assertEquals(1, second.size());
+        assertEquals(CommandExecutionCache.State.COMPLETED, second.begin("done", null));
+        assertArrayEquals(new byte[] { 7, 8 }, second.getOutcome("done").getResult().get("image").bin);
+        assertEquals(CommandExecutionCache.State.NEW, second.begin("running", null));
+
+        Files.write(file, "not json".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, CommandExecutionCache.builder().withPersistenceFile(file).build().size());
+    }
+
+    private static int savedCount(Path file) {
+        try (CommandExecutionCache cache = CommandExecutionCache.builder().withPersistenceFile(file).build()) {
+            return cache.size();
+        }
+    }
+
+    @Test
+    public void testSavesAreBatchedOffTheCompletingThread(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("executions.json");
+
+        try (CommandExecutionCache cache = CommandExecutionCache.builder().withPersistenceFile(file).withSaveDelayMillis(3600000).build()) {
+            for (int i = 0; i < 3; i++) {
+                cache.begin("e" + i, null);
+                cache.complete("e" + i, CommandExecutionOutcome.succeeded(null));
+            }
+            assertFalse(Files.exists(file));
+
+            cache.flush();
+            assertEquals(3, savedCount(file));
+        }
+
+        try (CommandExecutionCache cache = CommandExecutionCache.builder().withPersistenceFile(file).withSaveDelayMillis(10).build()) {
+            cache.complete("e3", CommandExecutionOutcome.succeeded(null));
+            awaitCondition(() -> savedCount(file) == 4);
+        }
+        assertFalse(Files.exists(directory.resolve("executions.json.tmp")));
+    }
+
+    @Test
+    public void testCloseDuringSaveKeepsItsCompletions(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("executions.json");
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch finishSave = new CountDownLatch(1);
+        AtomicBoolean blocked = new AtomicBoolean();
+
+        // The clock is read at the start of each save, so it can hold the first background save in progress
+        CommandExecutionCache cache = CommandExecutionCache.builder().withPersistenceFile(file).withSaveDelayMillis(0).withClock(() -> {
+            if (Thread.currentThread().getName().equals("CommandExecutionCache-save") && blocked.compareAndSet(false, true)) {
+                saving.countDown();
+                try {
+                    finishSave.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return System.currentTimeMillis();
+        }).build();
+
+        cache.begin("a", null);
+        cache.complete("a", CommandExecutionOutcome.succeeded(null));
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        Thread closer = new Thread(cache::close);
+        closer.start();
+        awaitCondition(() -> closer.getState() == Thread.State.BLOCKED || closer.getState() == Thread.State.TERMINATED);
+        finishSave.countDown();
+        closer.join(5000);
+
+        assertEquals(1, savedCount(file));
+    }
+}
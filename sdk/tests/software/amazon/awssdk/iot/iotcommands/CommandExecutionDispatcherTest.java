@@ -0,0 +1,225 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotcommands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.awaitCondition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionEvent;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionStatus;
+import software.amazon.awssdk.iot.iotcommands.model.DeviceType;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionRequest;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionResponse;
+
+public class CommandExecutionDispatcherTest {
+
+    private static class FakeUpdates implements CommandExecutionDispatcher.UpdateTransport {
+        final List<UpdateCommandExecutionRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger cborCount = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<UpdateCommandExecutionResponse> updateCommandExecution(UpdateCommandExecutionRequest request) {
+            requests.add(request);
+            return CompletableFuture.completedFuture(new UpdateCommandExecutionResponse());
+        }
+
+        @Override
+        public CompletableFuture<UpdateCommandExecutionResponse> updateCommandExecutionCbor(UpdateCommandExecutionRequest request) {
+            cborCount.incrementAndGet();
+            return updateCommandExecution(request);
+        }
+
+        UpdateCommandExecutionRequest find(String executionId) {
+            synchronized (requests) {
+                for (UpdateCommandExecutionRequest request : requests) {
+                    if (request.executionId.equals(executionId)) {
+                        return request;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static CommandExecutionEvent event(String executionId, Integer timeout) {
+        CommandExecutionEvent event = new CommandExecutionEvent();
+        event.executionId = executionId;
+        event.timeout = timeout;
+        event.payload = new byte[0];
+        return event;
+    }
+
+    @Test
+    public void testHandlersRunOffTheCallingThreadAndReply() throws Exception {
+        FakeUpdates updates = new FakeUpdates();
+        Thread caller = Thread.currentThread();
+        List<Thread> handlerThreads = Collections.synchronizedList(new ArrayList<>());
+
+        try (CommandExecutionDispatcher dispatcher = CommandExecutionDispatcher.builder(updates, DeviceType.THING, "device", event -> {
+                handlerThreads.add(Thread.currentThread());
+                if (event.executionId.equals("bad")) {
+                    throw new IllegalStateException("unsupported operation");
+                }
+                return CommandExecutionOutcome.succeeded(null);
+            }).build()) {
+
+            dispatcher.streamOptions().streamEventHandler().accept(event("good", 60));
+            dispatcher.submit(event("bad", 60));
+            CommandExecutionEvent routed = event("routed", 60);
+            routed.deviceType = DeviceType.CLIENT;
+            routed.deviceId = "child-3";
+            dispatcher.submit(routed);
+            awaitCondition(() -> updates.requests.size() == 3);
+        }
+
+        assertFalse(handlerThreads.contains(caller));
+        assertEquals(0, updates.cborCount.get());
+        UpdateCommandExecutionRequest good = updates.find("good");
+        assertEquals(CommandExecutionStatus.SUCCEEDED, good.status);
+        assertEquals(DeviceType.THING, good.deviceType);
+        assertEquals("device", good.deviceId);
+        assertNull(good.statusReason);
+
+        UpdateCommandExecutionRequest bad = updates.find("bad");
+        assertEquals(CommandExecutionStatus.FAILED, bad.status);
+        assertEquals(CommandExecutionDispatcher.HANDLER_ERROR_REASON, bad.statusReason.reasonCode);
+        assertEquals("unsupported operation", bad.statusReason.reasonDescription);
+
+        UpdateCommandExecutionRequest routed = updates.find("routed");
+        assertEquals(DeviceType.CLIENT, routed.deviceType);
+        assertEquals("child-3", routed.deviceId);
+    }
+
+    @Test
+    public void testExpiredExecutionsAreNotStarted() throws Exception {
+        FakeUpdates updates = new FakeUpdates();
+        AtomicLong now = new AtomicLong();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+        try (CommandExecutionDispatcher dispatcher = CommandExecutionDispatcher.builder(updates, DeviceType.CLIENT, "device", event -> {
+                handled.add(event.executionId);
+                release.await();
+                return CommandExecutionOutcome.succeeded(null);
+            }).withWorkerCount(1).withClock(now::get).withCborReplies(true).build()) {
+
+            dispatcher.submit(event("blocker", null));
+            awaitCondition(() -> handled.size() == 1);
+            dispatcher.submit(event("short", 5));
+            dispatcher.submit(event("long", 60));
+
+            now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+            release.countDown();
+            awaitCondition(() -> updates.requests.size() == 3);
+        }
+
+        assertEquals(3, updates.cborCount.get());
+        assertEquals(2, handled.size());
+        assertEquals("long", handled.get(1));
+        UpdateCommandExecutionRequest expired = updates.find("short");
+        assertEquals(CommandExecutionStatus.TIMED_OUT, expired.status);
+        assertEquals(CommandExecutionDispatcher.EXPIRED_REASON, expired.statusReason.reasonCode);
+    }
+
+    @Test
+    public void testQueueIsBounded() throws Exception {
+        FakeUpdates updates = new FakeUpdates();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (CommandExecutionDispatcher dispatcher = CommandExecutionDispatcher.builder(updates, DeviceType.THING, "device", event -> {
+                started.countDown();
+                release.await();
+                return CommandExecutionOutcome.succeeded(null);
+            }).withWorkerCount(1).withQueueCapacity(2).build()) {
+
+            dispatcher.submit(event("running", null));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            dispatcher.submit(event("queued-1", null));
+            dispatcher.submit(event("queued-2", null));
+            dispatcher.submit(event("overflow", null));
+
+            assertEquals(2, dispatcher.queuedCount());
+            UpdateCommandExecutionRequest overflow = updates.find("overflow");
+            assertEquals(CommandExecutionStatus.FAILED, overflow.status);
+            assertEquals(CommandExecutionDispatcher.QUEUE_FULL_REASON, overflow.statusReason.reasonCode);
+
+            release.countDown();
+            awaitCondition(() -> updates.requests.size() == 4);
+        }
+    }
+
+    @Test
+    public void testSameExecutionIdIsHandledInOrder() throws Exception {
+        FakeUpdates updates = new FakeUpdates();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        try (CommandExecutionDispatcher dispatcher = CommandExecutionDispatcher.builder(updates, DeviceType.THING, "device", event -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                order.add((int) event.payload[0]);
+                concurrent.decrementAndGet();
+                return CommandExecutionOutcome.succeeded(null);
+            }).withWorkerCount(4).build()) {
+
+            for (int i = 0; i < 5; i++) {
+                CommandExecutionEvent event = event("same", null);
+                event.payload = new byte[] { (byte) i };
+                dispatcher.submit(event);
+            }
+            awaitCondition(() -> updates.requests.size() == 5);
+        }
+
+        assertEquals(1, maxConcurrent.get());
+        assertEquals(java.util.Arrays.asList(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    public void testRedeliveriesAreAnsweredFromTheCache() throws Exception {
+        FakeUpdates updates = new FakeUpdates();
+        CommandExecutionCache cache = CommandExecutionCache.builder().build();
+        AtomicInteger handled = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (CommandExecutionDispatcher dispatcher = CommandExecutionDispatcher.builder(updates, DeviceType.THING, "device", event -> {
+                handled.incrementAndGet();
+                started.countDown();
+                release.await();
+                return CommandExecutionOutcome.rejected("BUSY", "actuator busy");
+            }).withExecutionCache(cache).build()) {
+
+            dispatcher.submit(event("once", 60));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            dispatcher.submit(event("once", 60));
+            assertEquals(0, dispatcher.queuedCount());
+
+            release.countDown();
+            awaitCondition(() -> updates.requests.size() == 1);
+            dispatcher.submit(event("once", 60));
+            assertEquals(2, updates.requests.size());
+        }
+
+        assertEquals(1, handled.get());
+        assertEquals(CommandExecutionStatus.REJECTED, updates.requests.get(1).status);
+        assertEquals("BUSY", updates.requests.get(1).statusReason.reasonCode);
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotidentity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.awaitCondition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import software.amazon.awssdk.iot.iotidentity.model.CreateCertificateFromCsrRequest;
+import software.amazon.awssdk.iot.iotidentity.model.CreateCertificateFromCsrResponse;
+import software.amazon.awssdk.iot.iotidentity.model.CreateKeysAndCertificateRequest;
+import software.amazon.awssdk.iot.iotidentity.model.CreateKeysAndCertificateResponse;
+import software.amazon.awssdk.iot.iotidentity.model.RegisterThingRequest;
+import software.amazon.awssdk.iot.iotidentity.model.RegisterThingResponse;
+import software.amazon.awssdk.iot.iotidentity.model.V2ErrorResponse;
+import software.amazon.awssdk.iot.iotidentity.model.V2ErrorResponseException;
+
+public class BulkProvisionerTest {
+
+    /**
+     * Completes requests on another thread after a short delay, as the service would
+     */
+    private static class FakeIdentityService implements BulkProvisioner.ProvisioningTransport {
+        final ScheduledExecutorService responder = Executors.newScheduledThreadPool(2);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger certificates = new AtomicInteger();
+        final Map<String, AtomicInteger> throttlesByCsr = new ConcurrentHashMap<>();
+        int throttlesPerCsr;
+        Integer csrErrorStatus;
+
+        private <T> CompletableFuture<T> respond(T response, Throwable error) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<T> future = new CompletableFuture<>();
+            responder.schedule(() -> {
+                inFlight.decrementAndGet();
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(response);
+                }
+            }, 2, TimeUnit.MILLISECONDS);
+            return future;
+        }
+
+        private static V2ErrorResponseException error(int statusCode, String errorCode) {
+            V2ErrorResponse modeled = new V2ErrorResponse();
+            modeled.statusCode = statusCode;
+            modeled.errorCode = errorCode;
+            return new V2ErrorResponseException("Request-response operation failure", modeled);
+        }
+
+        @Override
+        public CompletableFuture<CreateKeysAndCertificateResponse> createKeysAndCertificate(CreateKeysAndCertificateRequest request) {
+            int id = certificates.incrementAndGet();
+            CreateKeysAndCertificateResponse response = new CreateKeysAndCertificateResponse();
+            response.certificateId = "cert-" + id;
+            response.certificatePem = "pem-" + id;
+            response.privateKey = "key-" + id;
+            response.certificateOwnershipToken = "token-" + id;
+            return respond(response, null);
+        }
+
+        @Override
+        public CompletableFuture<CreateCertificateFromCsrResponse> createCertificateFromCsr(CreateCertificateFromCsrRequest request) {
+            if (csrErrorStatus != null) {
+                return respond(null, error(csrErrorStatus, "InvalidCSR"));
+            }
+            AtomicInteger throttles = throttlesByCsr.computeIfAbsent(request.certificateSigningRequest, key -> new AtomicInteger());
+            if (throttles.getAndIncrement() < throttlesPerCsr) {
+                return respond(null, error(400, "ThrottlingException"));
+            }
+
+            CreateCertificateFromCsrResponse response = new CreateCertificateFromCsrResponse();
+            response.certificateId = "cert-for-" + request.certificateSigningRequest;
+            response.certificatePem = "pem";
+            response.certificateOwnershipToken = "token-for-" + request.certificateSigningRequest;
+            return respond(response, null);
+        }
+
+        @Override
+        public CompletableFuture<RegisterThingResponse> registerThing(RegisterThingRequest request) {
+            RegisterThingResponse response = new RegisterThingResponse();
+            response.thingName = request.parameters.get("SerialNumber");
+            response.deviceConfiguration = new HashMap<>(Collections.singletonMap("token", request.certificateOwnershipToken));
+            return respond(response, null);
+        }
+    }
+
+    private final FakeIdentityService service = new FakeIdentityService();
+
+    @AfterEach
+    public void tearDown() {
+        service.responder.shutdownNow();
+    }
+
+    private static List<Map<String, String>> devices(int count) {
+        List<Map<String, String>> devices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            devices.add(Collections.singletonMap("SerialNumber", "SN" + i));
+        }
+        return devices;
+    }
+
+    @Test
+    public void testFlowsArePipelinedAndStreamedToTheSink() throws Exception {
+        StringWriter out = new StringWriter();
+
+        BulkProvisioner.Summary summary;
+        try (BulkProvisioner provisioner = BulkProvisioner.builder(service, "template", ProvisioningResultSink.jsonLines(out))
+                .withMaxInFlight(4)
+                .build()) {
+            summary = provisioner.provision(devices(25));
+        }
+
+        assertEquals(25, summary.getSucceeded());
+        assertEquals(0, summary.getFailed());
+        assertTrue(service.maxInFlight.get() > 1);
+        assertTrue(service.maxInFlight.get() <= 4);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(25, lines.length);
+        JsonObject first = JsonParser.parseString(lines[0]).getAsJsonObject();
+        assertTrue(first.get("successful").getAsBoolean());
+        assertTrue(first.get("privateKey").getAsString().startsWith("key-"));
+        assertEquals(first.get("thingName").getAsString(), first.getAsJsonObject("parameters").get("SerialNumber").getAsString());
+    }
+
+    @Test
+    public void testCsrsAreGeneratedOffTheCallerAndThrottlingIsRetried() throws Exception {
+        service.throttlesPerCsr = 2;
+        Thread caller = Thread.currentThread();
+        List<ProvisioningResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        try (BulkProvisioner provisioner = BulkProvisioner.builder(service, "template", results::add)
+                .withCsrGenerator(parameters -> {
+                    assertFalse(Thread.currentThread() == caller);
+                    return new GeneratedCsr("csr-" + parameters.get("SerialNumber"), "local-key");
+                })
+                .withRetryDelayMillis(1)
+                .build()) {
+            BulkProvisioner.Summary summary = provisioner.provision(devices(5));
+            assertEquals(5, summary.getSucceeded());
+        }
+
+        for (ProvisioningResult result : results) {
+            assertTrue(result.isSuccessful());
+            assertEquals("local-key", result.getPrivateKey());
+            assertEquals("cert-for-csr-" + result.getThingName(), result.getCertificateId());
+            // Two throttled attempts, the accepted CSR, and RegisterThing
+            assertEquals(4, result.getAttempts());
+        }
+    }
+
+    @Test
+    public void testRejectedRequestsFailWithoutRetry() throws Exception {
+        service.csrErrorStatus = 400;
+        List<ProvisioningResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        try (BulkProvisioner provisioner = BulkProvisioner.builder(service, "template", results::add)
+                .withCsrGenerator(parameters -> new GeneratedCsr("csr", null))
+                .withRetryDelayMillis(1)
+                .build()) {
+            BulkProvisioner.Summary summary = provisioner.provision(devices(2));
+            assertEquals(2, summary.getFailed());
+        }
+
+        ProvisioningResult result = results.get(0);
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getError() instanceof V2ErrorResponseException);
+        assertEquals(1, result.getAttempts());
+        assertNull(result.getThingName());
+    }
+
+    @Test
+    public void testSinkFailureStopsTheBatch() throws Exception {
+        AtomicInteger recorded = new AtomicInteger();
+
+        try (BulkProvisioner provisioner = BulkProvisioner.builder(service, "template", result -> {
+                    if (recorded.incrementAndGet() == 3) {
+                        throw new IOException("disk full");
+                    }
+                })
+                .withMaxInFlight(2)
+                .build()) {
+            IOException error = assertThrows(IOException.class, () -> provisioner.provision(devices(100)));
+            assertEquals("disk full", error.getMessage());
+        }
+
+        assertTrue(service.certificates.get() < 100);
+        assertEquals(3, recorded.get());
+    }
+
+    private static CompletableFuture<BulkProvisioner.Summary> provisionInBackground(BulkProvisioner provisioner, int devices) {
+        CompletableFuture<BulkProvisioner.Summary> summary = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                summary.complete(provisioner.provision(devices(devices)));
+            } catch (Exception e) {
+                summary.completeExceptionally(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return summary;
+    }
+
+    @Test
+    public void testCloseFailsFlowsWaitingForARetry() throws Exception {
+        service.throttlesPerCsr = Integer.MAX_VALUE;
+        List<ProvisioningResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        BulkProvisioner provisioner = BulkProvisioner.builder(service, "template", results::add)
+            .withCsrGenerator(parameters -> new GeneratedCsr("csr-" + parameters.get("SerialNumber"), null))
+            .withMaxInFlight(3)
+            .withRetryDelayMillis(3600000)
+            .build();
+        CompletableFuture<BulkProvisioner.Summary> summary = provisionInBackground(provisioner, 3);
+        awaitCondition(() -> service.throttlesByCsr.size() == 3 && service.inFlight.get() == 0);
+
+        provisioner.close();
+
+        assertEquals(3, summary.get(5, TimeUnit.SECONDS).getFailed());
+        assertEquals(3, results.size());
+        for (ProvisioningResult result : results) {
+            assertTrue(result.getError() instanceof IllegalStateException);
+            assertTrue(result.getError().getCause() instanceof V2ErrorResponseException);
+        }
+    }
+
+    @Test
+    public void testCloseFailsFlowsWaitingForACsr() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicInteger generating = new AtomicInteger();
+        List<ProvisioningResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        BulkProvisioner provisioner = BulkProvisioner.builder(service, "template", results::add)
+            .withCsrGenerator(parameters -> {
+                generating.incrementAndGet();
+                never.await();
+                return new GeneratedCsr("csr", null);
+            })
+            .withMaxInFlight(threads + 2)
+            .build();
+        CompletableFuture<BulkProvisioner.Summary> summary = provisionInBackground(provisioner, threads + 2);
+        awaitCondition(() -> generating.get() == threads);
+
+        provisioner.close();
+
+        assertEquals(threads + 2, summary.get(5, TimeUnit.SECONDS).getFailed());
+        assertEquals(threads + 2, results.size());
+        assertEquals(threads, generating.get());
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotidentity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.spec.SecretKeySpec;
+
+public class CsrPoolTest {
+
+    /**
+     * Reads one DER element: its tag, where its contents start, and where it ends
+     */
+    private static int[] element(byte[] der, int offset) {
+        int tag = der[offset] & 0xff;
+        int length = der[offset + 1] & 0xff;
+        int start = offset + 2;
+        if (length >= 0x80) {
+            int count = length & 0x7f;
+            length = 0;
+            for (int i = 0; i < count; i++) {
+                length = (length << 8) | (der[start++] & 0xff);
+            }
+        }
+        return new int[] { tag, start, start + length };
+    }
+
+    private static byte[] fromPem(String pem, String label) {
+        assertTrue(pem.startsWith("-----BEGIN " + label + "-----\n"));
+        assertTrue(pem.endsWith("-----END " + label + "-----\n"));
+        String body = pem.substring(pem.indexOf('\n') + 1, pem.indexOf("-----END"));
+        for (String line : body.split("\n")) {
+            assertTrue(line.length() <= 64);
+        }
+        return Base64.getMimeDecoder().decode(body);
+    }
+
+    private static void assertValidRequest(GeneratedCsr csr, String keyAlgorithm, String signatureAlgorithm, String commonName) throws Exception {
+        byte[] der = fromPem(csr.getCertificateSigningRequest(), "CERTIFICATE REQUEST");
+        int[] request = element(der, 0);
+        assertEquals(0x30, request[0]);
+        assertEquals(der.length, request[2]);
+
+        int[] info = element(der, request[1]);
+        int[] version = element(der, info[1]);
+        int[] subject = element(der, version[2]);
+        int[] publicKeyInfo = element(der, subject[2]);
+        int[] attributes = element(der, publicKeyInfo[2]);
+        int[] algorithm = element(der, info[2]);
+        int[] signature = element(der, algorithm[2]);
+        assertEquals(0x02, version[0]);
+        assertEquals(0xa0, attributes[0]);
+        assertEquals(0x03, signature[0]);
+        assertEquals(request[2], signature[2]);
+        assertTrue(new String(der, subject[1], subject[2] - subject[1], StandardCharsets.UTF_8).endsWith(commonName));
+
+        KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm);
+        PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(Arrays.copyOfRange(der, subject[2], publicKeyInfo[2])));
+        Signature verifier = Signature.getInstance(signatureAlgorithm);
+        verifier.initVerify(publicKey);
+        verifier.update(der, request[1], info[2] - request[1]);
+        assertTrue(verifier.verify(Arrays.copyOfRange(der, signature[1] + 1, signature[2])));
+
+        // The private key belongs to the requested public key
+        PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(fromPem(csr.getPrivateKey(), "PRIVATE KEY")));
+        Signature signer = Signature.getInstance(signatureAlgorithm);
+        signer.initSign(privateKey);
+        signer.update(new byte[] { 1, 2, 3 });
+        byte[] proof = signer.sign();
+        verifier.initVerify(publicKey);
+        verifier.update(new byte[] { 1, 2, 3 });
+        assertTrue(verifier.verify(proof));
+    }
+
+    @Test
+    public void testEcRequestsAreValid() throws Exception {
+        try (CsrPool pool = CsrPool.builder().withSize(2).withCommonName("line-4").build()) {
+            GeneratedCsr first = pool.take();
+            GeneratedCsr second = pool.generate(null);
+            assertValidRequest(first, "EC", "SHA256withECDSA", "line-4");
+            assertValidRequest(second, "EC", "SHA256withECDSA", "line-4");
+            assertNotEquals(first.getCertificateSigningRequest(), second.getCertificateSigningRequest());
+        }
+
+        try (CsrPool pool = CsrPool.builder().withSize(1).withKeyType(CsrPool.KeyType.EC_P384).withProtection(CsrPool.Protection.NONE).build()) {
+            assertValidRequest(pool.take(), "EC", "SHA384withECDSA", "AWS IoT Certificate");
+        }
+    }
+
+    @Test
+    public void testCallerSuppliedWrappingKey() throws Exception {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(128);
+        try (CsrPool pool = CsrPool.builder().withSize(1).withWrappingKey(keyGenerator.generateKey()).build()) {
+            assertValidRequest(pool.take(), "EC", "SHA256withECDSA", "AWS IoT Certificate");
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> CsrPool.builder()
+            .withWrappingKey(keyGenerator.generateKey()).withProtection(CsrPool.Protection.NONE).build());
+        assertThrows(IllegalArgumentException.class, () -> CsrPool.builder()
+            .withWrappingKey(new SecretKeySpec(new byte[16], "HmacSHA256")).build());
+    }
+
+    @Test
+    public void testRsaRequestsAreValid() throws Exception {
+        try (CsrPool pool = CsrPool.builder().withSize(1).withKeyType(CsrPool.KeyType.RSA_2048).build()) {
+            assertValidRequest(pool.take(), "RSA", "SHA256withRSA", "AWS IoT Certificate");
+        }
+    }
+
+    @Test
+    public void testPoolRefillsInTheBackground() throws Exception {
+        try (CsrPool pool = CsrPool.builder().withSize(3).build()) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (pool.available() < 3) {
+                assertTrue(System.nanoTime() < deadline, "pool did not fill");
+                Thread.sleep(5);
+            }
+
+            for (int i = 0; i < 5; i++) {
+                pool.take();
+            }
+            while (pool.available() < 3) {
+                assertTrue(System.nanoTime() < deadline, "pool did not refill");
+                Thread.sleep(5);
+            }
+
+            pool.close();
+            assertEquals(0, pool.available());
+        }
+    }
+
+    @Test
+    public void testObjectIdentifiersUseBase128() throws Exception {
+        try (CsrPool pool = CsrPool.builder().withSize(1).withKeyType(CsrPool.KeyType.RSA_2048).build()) {
+            byte[] der = fromPem(pool.take().getCertificateSigningRequest(), "CERTIFICATE REQUEST");
+            // sha256WithRSAEncryption, 1.2.840.113549.1.1.11
+            byte[] oid = { 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x0b };
+            boolean found = false;
+            for (int i = 0; i + oid.length <= der.length && !found; i++) {
+                found = Arrays.equals(oid, Arrays.copyOfRange(der, i, i + oid.length));
+            }
+            assertTrue(found);
+            assertArrayEquals(new byte[] { 0x05, 0x00 }, Arrays.copyOfRange(der, der.length - 256 - 5 - 2, der.length - 256 - 5));
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotjobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import software.amazon.awssdk.crt.io.ClientBootstrap;
+import software.amazon.awssdk.crt.io.EventLoopGroup;
+import software.amazon.awssdk.crt.io.HostResolver;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionData;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+
+public class JobArtifactFetcherTest {
+
+    private static final byte[] ARTIFACT = new byte[300 * 1024 + 17];
+    private static final byte[] UPDATED_ARTIFACT = new byte[200 * 1024 + 3];
+
+    static {
+        new Random(42).nextBytes(ARTIFACT);
+        new Random(43).nextBytes(UPDATED_ARTIFACT);
+    }
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private URI source;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final List<String> ifRanges = new CopyOnWriteArrayList<>();
+    private final AtomicInteger truncateNextResponses = new AtomicInteger();
+    private volatile boolean ignoreRange;
+    private volatile byte[] artifact = ARTIFACT;
+    private volatile String etag = "\"v1\"";
+    private volatile Runnable afterTruncatedResponse = () -> {};
+
+    private EventLoopGroup eventLoopGroup;
+    private HostResolver hostResolver;
+    private ClientBootstrap bootstrap;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/artifacts/firmware.bin", this::serve);
+        server.start();
+        source = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/artifacts/firmware.bin?X-Amz-Signature=abc");
+
+        eventLoopGroup = new EventLoopGroup(1);
+        hostResolver = new HostResolver(eventLoopGroup);
+        bootstrap = new ClientBootstrap(eventLoopGroup, hostResolver);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        bootstrap.close();
+        hostResolver.close();
+        eventLoopGroup.close();
+    }
+
+    /**
+     * Serves the artifact with an ETag, honouring single open-ended ranges unless told not to, or unless an
+     * If-Range names another version.  A truncated response advertises the full length, sends part of the body,
+     * and drops the connection.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        ranges.add(range == null ? "" : range);
+        ifRanges.add(ifRange == null ? "" : ifRange);
+        if (!"abc".equals(exchange.getRequestURI().getQuery().substring("X-Amz-Signature=".length()))) {
+            exchange.sendResponseHeaders(403, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] served = artifact;
+        exchange.getResponseHeaders().add("ETag", etag);
+        int start = 0;
+        if (range != null && !ignoreRange && (ifRange == null || ifRange.equals(etag))) {
+            start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            if (start >= served.length) {
+                exchange.getResponseHeaders().add("Content-Range", "bytes */" + served.length);
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (served.length - 1) + "/" + served.length);
+            exchange.sendResponseHeaders(206, served.length - start);
+        } else {
+            exchange.sendResponseHeaders(200, served.length);
+        }
+
+        OutputStream body = exchange.getResponseBody();
+        if (truncateNextResponses.getAndDecrement() > 0) {
+            body.write(served, start, (served.length - start) / 2);
+            body.flush();
+            afterTruncatedResponse.run();
+            // The server closes the connection when a handler fails mid-body
+            throw new IOException("dropping connection");
+        }
+        body.write(served, start, served.length - start);
+        exchange.close();
+    }
+
+    private JobArtifactFetcher fetcher() {
+        return JobArtifactFetcher.builder()
+            .withClientBootstrap(bootstrap)
+            .withBufferSize(16 * 1024)
+            .withRetryDelayMillis(10)
+            .build();
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static JobHeartbeatScheduler.Heartbeat heartbeat(JobHeartbeatScheduler scheduler) {
+        JobExecutionData execution = new JobExecutionData();
+        execution.jobId = "ota";
+        execution.versionNumber = 1;
+        return scheduler.register(execution);
+    }
+
+    @Test
+    public void testDownloadsAndVerifiesArtifact() throws Exception {
+        Path destination = directory.resolve("firmware.bin");
+        JobHeartbeatScheduler scheduler = JobHeartbeatScheduler.builder(request -> new CompletableFuture<UpdateJobExecutionResponse>(), "thing")
+            .withIntervalMillis(3600000).build();
+        JobHeartbeatScheduler.Heartbeat heartbeat = heartbeat(scheduler);
+
+        try (JobArtifactFetcher fetcher = fetcher()) {
+            JobArtifactFetcher.Result result = fetcher.fetch(source, destination, sha256(ARTIFACT), heartbeat).get(30, TimeUnit.SECONDS);
+
+            assertEquals(ARTIFACT.length, result.getSize());
+            assertEquals(sha256(ARTIFACT), result.getSha256());
+            assertArrayEquals(ARTIFACT, Files.readAllBytes(destination));
+            assertEquals(Arrays.asList(""), ranges);
+            assertEquals(Integer.toString(ARTIFACT.length), heartbeat.getStatusDetails().get(JobArtifactFetcher.DOWNLOADED_BYTES_DETAIL));
+            assertEquals(Integer.toString(ARTIFACT.length), heartbeat.getStatusDetails().get(JobArtifactFetcher.TOTAL_BYTES_DETAIL));
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void testResumesWithRangeAfterDisconnect() throws Exception {
+        Path destination = directory.resolve("firmware.bin");
+        truncateNextResponses.set(1);
+
+        try (JobArtifactFetcher fetcher = fetcher()) {
+            JobArtifactFetcher.Result result = fetcher.fetch(source, destination, sha256(ARTIFACT), null).get(30, TimeUnit.SECONDS);
+
+            assertEquals(sha256(ARTIFACT), result.getSha256());
+            assertArrayEquals(ARTIFACT, Files.readAllBytes(destination));
+        }
+
+        assertEquals(2, ranges.size());
+        assertEquals("", ranges.get(0));
+        assertFalse(ranges.get(1).isEmpty());
+        long resumedAt = Long.parseLong(ranges.get(1).substring("bytes=".length(), ranges.get(1).length() - 1));
+        assertTrue(resumedAt > 0 && resumedAt < ARTIFACT.length);
+        assertEquals(Arrays.asList("", "\"v1\""), ifRanges);
+    }
+
+    @Test
+    public void testRestartsWhenArtifactChangesBeforeResume() throws Exception {
+        Path destination = directory.resolve("firmware.bin");
+        truncateNextResponses.set(1);
+        afterTruncatedResponse = () -> {
+            artifact = UPDATED_ARTIFACT;
+            etag = "\"v2\"";
+        };
+
+        try (JobArtifactFetcher fetcher = fetcher()) {
+            JobArtifactFetcher.Result result = fetcher.fetch(source, destination, sha256(UPDATED_ARTIFACT), null).get(30, TimeUnit.SECONDS);
+
+            assertEquals(UPDATED_ARTIFACT.length, result.getSize());
+            assertArrayEquals(UPDATED_ARTIFACT, Files.readAllBytes(destination));
+        }
+
+        assertEquals(2, ranges.size());
+        assertFalse(ranges.get(1).isEmpty());
+        assertEquals("\"v1\"", ifRanges.get(1));
+    }
+
+    @Test
+    public void testResumesPartialFileAndRestartsWhenRangeIgnored() throws Exception {
+        Path destination = directory.resolve("firmware.bin");
+        Files.write(destination, Arrays.copyOf(ARTIFACT, 100000));
+
+        try (JobArtifactFetcher fetcher = fetcher()) {
+            assertEquals(sha256(ARTIFACT), fetcher.fetch(source, destination).get(30, TimeUnit.SECONDS).getSha256());
+            assertEquals(Arrays.asList("bytes=100000-"), ranges);
+
+            ranges.clear();
+            ignoreRange = true;
+            Files.write(destination, Arrays.copyOf(ARTIFACT, 5000));
+            assertEquals(sha256(ARTIFACT), fetcher.fetch(source, destination).get(30, TimeUnit.SECONDS).getSha256());
+            assertArrayEquals(ARTIFACT, Files.readAllBytes(destination));
+        }
+    }
+
+    @Test
+    public void testChecksumMismatchDeletesDestination() throws Exception {
+        Path destination = directory.resolve("firmware.bin");
+
+        try (JobArtifactFetcher fetcher = fetcher()) {
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> fetcher.fetch(source, destination, sha256(new byte[1]), null).get(30, TimeUnit.SECONDS));
+            assertFalse(Files.exists(destination), failure.getMessage());
+        }
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() throws Exception {
+        Path destination = directory.resolve("firmware.bin");
+        URI expired = URI.create(source.toString().replace("abc", "expired"));
+
+        try (JobArtifactFetcher fetcher = fetcher()) {
+            assertThrows(ExecutionException.class, () -> fetcher.fetch(expired, destination).get(30, TimeUnit.SECONDS));
+        }
+        assertEquals(1, ranges.size());
+    }
+}
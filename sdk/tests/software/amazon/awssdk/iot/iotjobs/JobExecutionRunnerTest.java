@@ -0,0 +1,461 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.awaitCondition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.GetPendingJobExecutionsRequest;
+import software.amazon.awssdk.iot.iotjobs.model.GetPendingJobExecutionsResponse;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionData;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionState;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionSummary;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.NextJobExecutionChangedEvent;
+import software.amazon.awssdk.iot.iotjobs.model.NextJobExecutionChangedSubscriptionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.RejectedErrorCode;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponse;
+import software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponseException;
+
+public class JobExecutionRunnerTest {
+
+    private static final String THING = "thing";
+
+    /**
+     * An in-memory jobs service.  Executions stay pending until they reach a terminal status.
+     */
+    private static class FakeJobs implements JobExecutionRunner.JobsTransport {
+        final Map<String, JobExecutionData> executions = Collections.synchronizedMap(new HashMap<>());
+        final List<UpdateJobExecutionRequest> updates = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger listings = new AtomicInteger();
+        V2ClientStreamOptions<NextJobExecutionChangedEvent> wakeUp;
+        boolean streamClosed;
+
+        void add(String jobId, JobStatus status) {
+            JobExecutionData execution = new JobExecutionData();
+            execution.jobId = jobId;
+            execution.thingName = THING;
+            execution.status = status;
+            execution.versionNumber = 1;
+            execution.executionNumber = 1L;
+            execution.jobDocument = new HashMap<>();
+            executions.put(jobId, execution);
+        }
+
+        JobStatus status(String jobId) {
+            return executions.get(jobId).status;
+        }
+
+        @Override
+        public CompletableFuture<GetPendingJobExecutionsResponse> getPendingJobExecutions(GetPendingJobExecutionsRequest request) {
+            listings.incrementAndGet();
+            GetPendingJobExecutionsResponse response = new GetPendingJobExecutionsResponse();
+            response.inProgressJobs = new ArrayList<>();
+            response.queuedJobs = new ArrayList<>();
+            synchronized (executions) {
+                List<String> ids = new ArrayList<>(executions.keySet());
+                Collections.sort(ids);
+                for (String id : ids) {
+                    JobExecutionData execution = executions.get(id);
+                    JobExecutionSummary summary = new JobExecutionSummary();
+                    summary.jobId = id;
+                    summary.executionNumber = execution.executionNumber;
+                    summary.versionNumber = execution.versionNumber;
+                    if (execution.status == JobStatus.IN_PROGRESS) {
+                        response.inProgressJobs.add(summary);
+                    } else if (execution.status == JobStatus.QUEUED) {
+                        response.queuedJobs.add(summary);
+                    }
+                }
+            }
+            return CompletableFuture.completedFuture(response);
+        }
+
+        @Override
+        public CompletableFuture<DescribeJobExecutionResponse> describeJobExecution(DescribeJobExecutionRequest request) {
+            DescribeJobExecutionResponse response = new DescribeJobExecutionResponse();
+            synchronized (executions) {
+                JobExecutionData stored = executions.get(request.jobId);
+                JobExecutionData copy = new JobExecutionData();
+                copy.jobId = stored.jobId;
+                copy.thingName = stored.thingName;
+                copy.status = stored.status;
+                copy.versionNumber = stored.versionNumber;
+                copy.executionNumber = stored.executionNumber;
+                copy.jobDocument = request.includeJobDocument ? stored.jobDocument : null;
+                response.execution = copy;
+            }
+            return CompletableFuture.completedFuture(response);
+        }
+
+        @Override
+        public CompletableFuture<UpdateJobExecutionResponse> updateJobExecution(UpdateJobExecutionRequest request) {
+            updates.add(request);
+            CompletableFuture<UpdateJobExecutionResponse> result = new CompletableFuture<>();
+            synchronized (executions) {
+                JobExecutionData stored = executions.get(request.jobId);
+                if (request.expectedVersion != null && !request.expectedVersion.equals(stored.versionNumber)) {
+                    result.completeExceptionally(versionMismatch(stored.status, stored.versionNumber));
+                    return result;
+                }
+                stored.status = request.status;
+                stored.versionNumber = stored.versionNumber + 1;
+                UpdateJobExecutionResponse response = new UpdateJobExecutionResponse();
+                response.executionState = new JobExecutionState();
+                response.executionState.status = stored.status;
+                response.executionState.versionNumber = stored.versionNumber;
+                result.complete(response);
+            }
+            return result;
+        }
+
+        @Override
+        public AutoCloseable openNextJobExecutionChangedStream(NextJobExecutionChangedSubscriptionRequest request, V2ClientStreamOptions<NextJobExecutionChangedEvent> options) {
+            wakeUp = options;
+            return () -> streamClosed = true;
+        }
+
+        List<UpdateJobExecutionRequest> updatesFor(String jobId) {
+            List<UpdateJobExecutionRequest> result = new ArrayList<>();
+            synchronized (updates) {
+                for (UpdateJobExecutionRequest update : updates) {
+                    if (update.jobId.equals(jobId)) {
+                        result.add(update);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private static V2ErrorResponseException versionMismatch(JobStatus status, Integer version) {
+        V2ErrorResponse error = new V2ErrorResponse();
+        error.code = RejectedErrorCode.VERSION_MISMATCH;
+        error.executionState = new JobExecutionState();
+        error.executionState.status = status;
+        error.executionState.versionNumber = version;
+        return new V2ErrorResponseException("VersionMismatch", error);
+    }
+
+    @Test
+    public void testRunsPendingExecutionsWithinConcurrencyLimit() throws Exception {
+        FakeJobs jobs = new FakeJobs();
+        for (String id : Arrays.asList("job-1", "job-2", "job-3", "job-4", "job-5")) {
+            jobs.add(id, JobStatus.QUEUED);
+        }
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await();
+            running.decrementAndGet();
+            return JobExecutionOutcome.succeeded(null);
+        }).withMaxConcurrency(2).build();
+
+        runner.start();
+        awaitCondition(() -> running.get() == 2);
+        assertEquals(2, runner.activeCount());
+
+        release.countDown();
+        awaitCondition(() -> {
+            synchronized (jobs.executions) {
+                return jobs.executions.values().stream().allMatch(e -> e.status == JobStatus.SUCCEEDED);
+            }
+        });
+        assertEquals(2, maxRunning.get());
+        runner.close();
+        assertTrue(jobs.streamClosed);
+    }
+
+    @Test
+    public void testUpdatesCarryExpectedVersionInOrder() throws Exception {
+        FakeJobs jobs = new FakeJobs();
+        jobs.add("job-1", JobStatus.QUEUED);
+
+        JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> {
+            Map<String, String> progress = new HashMap<>();
+            progress.put("step", "1");
+            context.reportProgress(progress);
+            progress.put("step", "2");
+            context.reportProgress(progress).get();
+            return JobExecutionOutcome.succeeded(null);
+        }).build();
+
+        runner.start();
+        awaitCondition(() -> jobs.status("job-1") == JobStatus.SUCCEEDED);
+        runner.close();
+
+        List<UpdateJobExecutionRequest> updates = jobs.updatesFor("job-1");
+        assertEquals(4, updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            assertEquals(Integer.valueOf(i + 1), updates.get(i).expectedVersion);
+            assertEquals(THING, updates.get(i).thingName);
+        }
+        assertEquals(JobStatus.IN_PROGRESS, updates.get(0).status);
+        assertNull(updates.get(0).statusDetails);
+        assertEquals("1", updates.get(1).statusDetails.get("step"));
+        assertEquals("2", updates.get(2).statusDetails.get("step"));
+        assertEquals(JobStatus.SUCCEEDED, updates.get(3).status);
+    }
+
+    @Test
+    public void testWakesUpOnNextJobExecutionChanged() throws Exception {
+        FakeJobs jobs = new FakeJobs();
+        JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> JobExecutionOutcome.succeeded(null)).build();
+
+        runner.start();
+        assertEquals(1, jobs.listings.get());
+
+        jobs.add("job-1", JobStatus.QUEUED);
+        Thread.sleep(50);
+        assertEquals(JobStatus.QUEUED, jobs.status("job-1"));
+
+        jobs.wakeUp.streamEventHandler().accept(new NextJobExecutionChangedEvent());
+        awaitCondition(() -> jobs.status("job-1") == JobStatus.SUCCEEDED);
+        runner.close();
+    }
+
+    @Test
+    public void testHandlerExceptionReportsFailed() throws Exception {
+        FakeJobs jobs = new FakeJobs();
+        jobs.add("job-1", JobStatus.IN_PROGRESS);
+
+        JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> {
+            throw new IllegalStateException("disk full");
+        }).build();
+
+        runner.start();
+        awaitCondition(() -> jobs.status("job-1") == JobStatus.FAILED);
+        runner.close();
+
+        List<UpdateJobExecutionRequest> updates = jobs.updatesFor("job-1");
+        UpdateJobExecutionRequest last = updates.get(updates.size() - 1);
+        assertEquals("disk full", last.statusDetails.get("reason"));
+    }
+
+    @Test
+    public void testHandlerErrorReleasesSlotAndHeartbeat() throws Exception {
+        FakeJobs jobs = new FakeJobs();
+        jobs.add("job-1", JobStatus.QUEUED);
+        AtomicInteger handled = new AtomicInteger();
+
+        try (JobHeartbeatScheduler heartbeats = JobHeartbeatScheduler.builder(jobs, THING).withIntervalMillis(3600000).build()) {
+            JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> {
+                handled.incrementAndGet();
+                throw new AssertionError("handler bug");
+            }).withHeartbeatScheduler(heartbeats).withExecutor(command -> {
+                try {
+                    command.run();
+                } catch (AssertionError expected) {
+                    // The executor's thread dies; the runner must already have cleaned up
+                }
+            }).build();
+
+            runner.start();
+            assertEquals(1, handled.get());
+            assertEquals(0, runner.activeCount());
+            assertEquals(0, heartbeats.size());
+            assertEquals(JobStatus.IN_PROGRESS, jobs.status("job-1"));
+            runner.close();
+        }
+    }
+
+    @Test
+    public void testHeartbeatDetailsCarriedToTerminalUpdate() throws Exception {
+        FakeJobs jobs = new FakeJobs();
+        jobs.add("job-1", JobStatus.QUEUED);
+
+        try (JobHeartbeatScheduler heartbeats = JobHeartbeatScheduler.builder(jobs, THING).withIntervalMillis(3600000).build()) {
+            JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> {
+                context.getHeartbeat().putStatusDetail("progress", "50");
+                heartbeats.tick();
+                context.getHeartbeat().putStatusDetail("progress", "100");
+                return JobExecutionOutcome.succeeded(null);
+            }).withHeartbeatScheduler(heartbeats).build();
+
+            runner.start();
+            awaitCondition(() -> jobs.status("job-1") == JobStatus.SUCCEEDED);
+            runner.close();
+            assertEquals(0, heartbeats.size());
+        }
+
+        List<UpdateJobExecutionRequest> updates = jobs.updatesFor("job-1");
+        assertEquals(3, updates.size());
+        assertEquals("50", updates.get(1).statusDetails.get("progress"));
+        assertEquals(Integer.valueOf(2), updates.get(1).expectedVersion);
+        assertEquals("100", updates.get(2).statusDetails.get("progress"));
+        assertEquals(Integer.valueOf(3), updates.get(2).expectedVersion);
+    }
+
+    @Test
+    public void testVersionConflictSkipsExecution() throws Exception {
+        CompletableFuture<UpdateJobExecutionResponse> claim = new CompletableFuture<>();
+        FakeJobs jobs = new FakeJobs() {
+            @Override
+            public CompletableFuture<UpdateJobExecutionResponse> updateJobExecution(UpdateJobExecutionRequest request) {
+                if (updates.isEmpty()) {
+                    updates.add(request);
+                    return claim;
+                }
+                return super.updateJobExecution(request);
+            }
+        };
+        jobs.add("job-1", JobStatus.QUEUED);
+        AtomicInteger handled = new AtomicInteger();
+
+        // Runs the handler inline, so a claim that went on to succeed would have run it before complete returns
+        JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> {
+            handled.incrementAndGet();
+            return JobExecutionOutcome.succeeded(null);
+        }).withExecutor(Runnable::run).build();
+
+        runner.start();
+        assertEquals(1, runner.activeCount());
+
+        // Another device moved the execution on; a resync and retry would now be accepted
+        synchronized (jobs.executions) {
+            jobs.executions.get("job-1").versionNumber = 2;
+        }
+        claim.completeExceptionally(versionMismatch(JobStatus.QUEUED, 2));
+
+        assertEquals(0, handled.get());
+        assertEquals(1, jobs.updates.size());
+        assertEquals(0, runner.activeCount());
+        assertEquals(JobStatus.QUEUED, jobs.status("job-1"));
+        runner.close();
+    }
+
+    @Test
+    public void testVersionMismatchResyncsAndRetriesOnce() throws Exception {
+        FakeJobs jobs = new FakeJobs();
+        jobs.add("job-1", JobStatus.QUEUED);
+
+        JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> {
+            // Another writer moves the execution on behind the context's back
+            synchronized (jobs.executions) {
+                jobs.executions.get("job-1").versionNumber += 3;
+            }
+            context.reportProgress(Collections.singletonMap("step", "1")).get();
+            return JobExecutionOutcome.succeeded(null);
+        }).build();
+
+        runner.start();
+        awaitCondition(() -> jobs.status("job-1") == JobStatus.SUCCEEDED);
+        runner.close();
+
+        List<UpdateJobExecutionRequest> updates = jobs.updatesFor("job-1");
+        assertEquals(4, updates.size());
+        assertEquals(Integer.valueOf(2), updates.get(1).expectedVersion);
+        assertEquals(Integer.valueOf(5), updates.get(2).expectedVersion);
+        assertEquals(Integer.valueOf(6), updates.get(3).expectedVersion);
+    }
+
+    @Test
+    public void testVersionMismatchWithoutStateResyncsFromDescribe() throws Exception {
+        FakeJobs jobs = new FakeJobs() {
+            @Override
+            public CompletableFuture<UpdateJobExecutionResponse> updateJobExecution(UpdateJobExecutionRequest request) {
+                CompletableFuture<UpdateJobExecutionResponse> result = super.updateJobExecution(request);
+                if (!result.isCompletedExceptionally()) {
+                    return result;
+                }
+                CompletableFuture<UpdateJobExecutionResponse> bare = new CompletableFuture<>();
+                V2ErrorResponse error = new V2ErrorResponse();
+                error.code = RejectedErrorCode.VERSION_MISMATCH;
+                bare.completeExceptionally(new V2ErrorResponseException("VersionMismatch", error));
+                return bare;
+            }
+        };
+        jobs.add("job-1", JobStatus.IN_PROGRESS);
+        JobExecutionData stale = jobs.describeJobExecution(describe("job-1")).get().execution;
+        jobs.executions.get("job-1").versionNumber = 7;
+
+        JobExecutionContext context = new JobExecutionContext(jobs, THING, stale);
+        context.update(JobStatus.SUCCEEDED, null, null).get();
+
+        assertEquals(JobStatus.SUCCEEDED, jobs.status("job-1"));
+        assertEquals(Integer.valueOf(8), context.getExpectedVersion());
+    }
+
+    @Test
+    public void testTransientClaimFailureIsRetried() throws Exception {
+        FakeJobs jobs = new FakeJobs() {
+            final AtomicInteger describes = new AtomicInteger();
+
+            @Override
+            public CompletableFuture<DescribeJobExecutionResponse> describeJobExecution(DescribeJobExecutionRequest request) {
+                if (describes.incrementAndGet() == 1) {
+                    CompletableFuture<DescribeJobExecutionResponse> timedOut = new CompletableFuture<>();
+                    timedOut.completeExceptionally(new TimeoutException("no response"));
+                    return timedOut;
+                }
+                return super.describeJobExecution(request);
+            }
+        };
+        jobs.add("job-1", JobStatus.QUEUED);
+
+        JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> JobExecutionOutcome.succeeded(null))
+            .withRetryDelayMillis(10)
+            .build();
+
+        // No wake-up event is delivered, so only the runner's own retry can pick the execution up again
+        runner.start();
+        awaitCondition(() -> jobs.status("job-1") == JobStatus.SUCCEEDED);
+        runner.close();
+    }
+
+    @Test
+    public void testClaimedExecutionIsFailedWhenHandlerCannotRun() throws Exception {
+        FakeJobs jobs = new FakeJobs();
+        jobs.add("job-1", JobStatus.QUEUED);
+        AtomicInteger handled = new AtomicInteger();
+
+        JobExecutionRunner runner = JobExecutionRunner.builder(jobs, THING, context -> {
+            handled.incrementAndGet();
+            return JobExecutionOutcome.succeeded(null);
+        }).withExecutor(command -> {
+            throw new RejectedExecutionException("executor shut down");
+        }).build();
+
+        runner.start();
+        awaitCondition(() -> jobs.status("job-1") == JobStatus.FAILED);
+        awaitCondition(() -> runner.activeCount() == 0);
+        runner.close();
+
+        assertEquals(0, handled.get());
+        List<UpdateJobExecutionRequest> updates = jobs.updatesFor("job-1");
+        assertTrue(updates.get(updates.size() - 1).statusDetails.get("reason").contains("executor shut down"));
+    }
+
+    private static DescribeJobExecutionRequest describe(String jobId) {
+        DescribeJobExecutionRequest request = new DescribeJobExecutionRequest();
+        request.jobId = jobId;
+        request.includeJobDocument = false;
+        return request;
+    }
+}
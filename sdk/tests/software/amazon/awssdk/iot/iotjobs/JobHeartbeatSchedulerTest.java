@@ -0,0 +1,226 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionData;
+import software.amazon.awssdk.iot.iotjobs.model.JobExecutionState;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.RejectedErrorCode;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponse;
+import software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponseException;
+
+public class JobHeartbeatSchedulerTest {
+
+    private static class FakeUpdates implements JobExecutionContext.UpdateTransport {
+        final List<UpdateJobExecutionRequest> requests = new ArrayList<>();
+        final List<CompletableFuture<UpdateJobExecutionResponse>> responses = new ArrayList<>();
+        Integer describedVersion;
+
+        @Override
+        public CompletableFuture<UpdateJobExecutionResponse> updateJobExecution(UpdateJobExecutionRequest request) {
+            CompletableFuture<UpdateJobExecutionResponse> response = new CompletableFuture<>();
+            requests.add(request);
+            responses.add(response);
+            return response;
+        }
+
+        @Override
+        public CompletableFuture<DescribeJobExecutionResponse> describeJobExecution(DescribeJobExecutionRequest request) {
+            DescribeJobExecutionResponse response = new DescribeJobExecutionResponse();
+            response.execution = execution(request.jobId, describedVersion);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        void accept(int index) {
+            UpdateJobExecutionResponse response = new UpdateJobExecutionResponse();
+            response.executionState = new JobExecutionState();
+            response.executionState.versionNumber = requests.get(index).expectedVersion + 1;
+            responses.get(index).complete(response);
+        }
+
+        void rejectVersion(int index, Integer currentVersion) {
+            V2ErrorResponse error = new V2ErrorResponse();
+            error.code = RejectedErrorCode.VERSION_MISMATCH;
+            if (currentVersion != null) {
+                error.executionState = new JobExecutionState();
+                error.executionState.status = JobStatus.IN_PROGRESS;
+                error.executionState.versionNumber = currentVersion;
+            }
+            responses.get(index).completeExceptionally(new V2ErrorResponseException("VersionMismatch", error));
+        }
+    }
+
+    private static JobExecutionData execution(String jobId, Integer version) {
+        JobExecutionData execution = new JobExecutionData();
+        execution.jobId = jobId;
+        execution.executionNumber = 1L;
+        execution.versionNumber = version;
+        return execution;
+    }
+
+    private static JobHeartbeatScheduler.JobHeartbeatSchedulerBuilder manual(FakeUpdates updates) {
+        // Ticks are driven by the test
+        return JobHeartbeatScheduler.builder(updates, "thing").withIntervalMillis(3600000);
+    }
+
+    @Test
+    public void testDetailsBetweenTicksAreCoalesced() {
+        FakeUpdates updates = new FakeUpdates();
+        try (JobHeartbeatScheduler scheduler = manual(updates).build()) {
+            JobHeartbeatScheduler.Heartbeat heartbeat = scheduler.register(execution("job-1", 3));
+
+            scheduler.tick();
+            assertTrue(updates.requests.isEmpty());
+
+            heartbeat.putStatusDetail("progress", "10");
+            heartbeat.putStatusDetail("progress", "20");
+            heartbeat.putStatusDetail("phase", "download");
+            scheduler.tick();
+
+            assertEquals(1, updates.requests.size());
+            UpdateJobExecutionRequest request = updates.requests.get(0);
+            assertEquals("thing", request.thingName);
+            assertEquals(JobStatus.IN_PROGRESS, request.status);
+            assertEquals(Integer.valueOf(3), request.expectedVersion);
+            assertEquals("20", request.statusDetails.get("progress"));
+            assertEquals("download", request.statusDetails.get("phase"));
+            assertNull(request.stepTimeoutInMinutes);
+        }
+    }
+
+    @Test
+    public void testAtMostOneUpdateInFlightAndVersionTracked() {
+        FakeUpdates updates = new FakeUpdates();
+        try (JobHeartbeatScheduler scheduler = manual(updates).build()) {
+            JobHeartbeatScheduler.Heartbeat heartbeat = scheduler.register(execution("job-1", 3));
+
+            heartbeat.putStatusDetail("progress", "10");
+            scheduler.tick();
+            heartbeat.putStatusDetail("progress", "20");
+            scheduler.tick();
+            assertEquals(1, updates.requests.size());
+
+            updates.accept(0);
+            assertEquals(Integer.valueOf(4), heartbeat.getExpectedVersion());
+
+            scheduler.tick();
+            assertEquals(2, updates.requests.size());
+            assertEquals(Integer.valueOf(4), updates.requests.get(1).expectedVersion);
+            assertEquals("20", updates.requests.get(1).statusDetails.get("progress"));
+        }
+    }
+
+    @Test
+    public void testStepTimeoutExtendedEveryTick() {
+        FakeUpdates updates = new FakeUpdates();
+        try (JobHeartbeatScheduler scheduler = manual(updates).withStepTimeoutInMinutes(10L).build()) {
+            scheduler.register(execution("job-1", 1));
+            scheduler.register(execution("job-2", 1));
+
+            scheduler.tick();
+            assertEquals(2, updates.requests.size());
+            assertEquals(Long.valueOf(10), updates.requests.get(0).stepTimeoutInMinutes);
+            assertNull(updates.requests.get(0).statusDetails);
+
+            updates.accept(0);
+            updates.accept(1);
+            scheduler.tick();
+            assertEquals(4, updates.requests.size());
+            assertEquals(Integer.valueOf(2), updates.requests.get(2).expectedVersion);
+        }
+    }
+
+    @Test
+    public void testFailedUpdateIsRetriedOnNextTick() {
+        FakeUpdates updates = new FakeUpdates();
+        try (JobHeartbeatScheduler scheduler = manual(updates).build()) {
+            JobHeartbeatScheduler.Heartbeat heartbeat = scheduler.register(execution("job-1", 1));
+
+            heartbeat.putStatusDetail("progress", "10");
+            scheduler.tick();
+            updates.responses.get(0).completeExceptionally(new IllegalStateException("timeout"));
+
+            scheduler.tick();
+            assertEquals(2, updates.requests.size());
+            assertEquals(Integer.valueOf(1), updates.requests.get(1).expectedVersion);
+        }
+    }
+
+    @Test
+    public void testVersionConflictResyncsFromRejection() {
+        FakeUpdates updates = new FakeUpdates();
+        try (JobHeartbeatScheduler scheduler = manual(updates).build()) {
+            JobHeartbeatScheduler.Heartbeat heartbeat = scheduler.register(execution("job-1", 3));
+
+            heartbeat.putStatusDetail("progress", "10");
+            scheduler.tick();
+            updates.rejectVersion(0, 6);
+
+            // The update is resent at once with the execution's current version rather than on the next tick
+            assertEquals(2, updates.requests.size());
+            assertEquals(Integer.valueOf(6), updates.requests.get(1).expectedVersion);
+            assertEquals("10", updates.requests.get(1).statusDetails.get("progress"));
+            updates.accept(1);
+            assertEquals(Integer.valueOf(7), heartbeat.getExpectedVersion());
+
+            heartbeat.putStatusDetail("progress", "20");
+            scheduler.tick();
+            assertEquals(3, updates.requests.size());
+            assertEquals(Integer.valueOf(7), updates.requests.get(2).expectedVersion);
+        }
+    }
+
+    @Test
+    public void testVersionConflictWithoutStateResyncsFromDescribe() {
+        FakeUpdates updates = new FakeUpdates();
+        updates.describedVersion = 9;
+        try (JobHeartbeatScheduler scheduler = manual(updates).withStepTimeoutInMinutes(10L).build()) {
+            JobHeartbeatScheduler.Heartbeat heartbeat = scheduler.register(execution("job-1", 3));
+
+            scheduler.tick();
+            updates.rejectVersion(0, null);
+
+            assertEquals(2, updates.requests.size());
+            assertEquals(Integer.valueOf(9), updates.requests.get(1).expectedVersion);
+            assertEquals(Integer.valueOf(9), heartbeat.getExpectedVersion());
+        }
+    }
+
+    @Test
+    public void testCompleteStopsHeartbeatAndSendsTerminalStatus() {
+        FakeUpdates updates = new FakeUpdates();
+        try (JobHeartbeatScheduler scheduler = manual(updates).withStepTimeoutInMinutes(10L).build()) {
+            JobHeartbeatScheduler.Heartbeat heartbeat = scheduler.register(execution("job-1", 1));
+            heartbeat.putStatusDetail("progress", "100");
+
+            CompletableFuture<UpdateJobExecutionResponse> done = heartbeat.complete(JobExecutionOutcome.succeeded(null));
+            assertEquals(0, scheduler.size());
+            assertEquals(1, updates.requests.size());
+            assertEquals(JobStatus.SUCCEEDED, updates.requests.get(0).status);
+            assertEquals("100", updates.requests.get(0).statusDetails.get("progress"));
+
+            updates.accept(0);
+            assertTrue(done.isDone());
+            scheduler.tick();
+            assertEquals(1, updates.requests.size());
+            assertFalse(done.isCompletedExceptionally());
+        }
+    }
+}
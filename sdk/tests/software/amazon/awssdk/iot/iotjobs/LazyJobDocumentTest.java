@@ -0,0 +1,175 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import software.amazon.awssdk.iot.EnumSerializer;
+import software.amazon.awssdk.iot.JsonPayloadDecoder;
+import software.amazon.awssdk.iot.Timestamp;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.NextJobExecutionChangedEvent;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+
+public class LazyJobDocumentTest {
+
+    private static final String DOCUMENT = "{\"operation\":\"install\",\"steps\":[{\"url\":\"https://example.com/a?x=1&y=2\",\"size\":1048576}],"
+        + "\"retries\":3,\"ratio\":0.25,\"enabled\":true,\"note\":null,\"unicode\":\"caf\\u00e9\"}";
+
+    private static final String EXECUTION = "{\"clientToken\":\"token\",\"execution\":{\"jobId\":\"job-1\",\"thingName\":\"thing\","
+        + "\"status\":\"IN_PROGRESS\",\"versionNumber\":2,\"executionNumber\":1,\"queuedAt\":1700000000,"
+        + "\"jobDocument\":" + DOCUMENT + "},\"timestamp\":1700000001}";
+
+    public static class InstallDocument {
+        public String operation;
+        public List<Step> steps;
+        public int retries;
+    }
+
+    public static class Step {
+        public String url;
+        public long size;
+    }
+
+    private static Gson gson(boolean lazy) {
+        GsonBuilder gson = new GsonBuilder();
+        gson.disableHtmlEscaping();
+        gson.registerTypeAdapter(Timestamp.class, new Timestamp.Serializer());
+        gson.registerTypeAdapter(Timestamp.class, new Timestamp.Deserializer());
+        gson.registerTypeAdapter(JobStatus.class, new EnumSerializer<JobStatus>());
+        if (lazy) {
+            gson.registerTypeAdapterFactory(new LazyJobDocumentFactory());
+        }
+        return gson.create();
+    }
+
+    private static DescribeJobExecutionResponse describe(boolean lazy) {
+        byte[] payload = EXECUTION.getBytes(StandardCharsets.UTF_8);
+        if (lazy) {
+            return LazyJobDocumentFactory.fromJson(gson(true), payload, DescribeJobExecutionResponse.class);
+        }
+        return JsonPayloadDecoder.fromJson(gson(false), payload, DescribeJobExecutionResponse.class);
+    }
+
+    @Test
+    public void testDocumentParsedOnFirstAccessMatchesEagerParse() {
+        DescribeJobExecutionResponse lazy = describe(true);
+        DescribeJobExecutionResponse eager = describe(false);
+
+        assertEquals("job-1", lazy.execution.jobId);
+        assertEquals(JobStatus.IN_PROGRESS, lazy.execution.status);
+        assertEquals(Integer.valueOf(2), lazy.execution.versionNumber);
+        assertEquals(eager.execution.queuedAt.getTime(), lazy.execution.queuedAt.getTime());
+
+        LazyJobDocument document = (LazyJobDocument) lazy.execution.jobDocument;
+        assertFalse(document.isParsed());
+
+        assertEquals("install", document.get("operation"));
+        assertTrue(document.isParsed());
+        assertEquals(eager.execution.jobDocument, document);
+        assertTrue(document.containsKey("note"));
+        assertEquals("café", document.get("unicode"));
+    }
+
+    @Test
+    public void testAsParsesIntoCallerType() {
+        LazyJobDocument document = (LazyJobDocument) describe(true).execution.jobDocument;
+
+        InstallDocument install = document.as(InstallDocument.class);
+        assertFalse(document.isParsed());
+        assertEquals("install", install.operation);
+        assertEquals(3, install.retries);
+        assertEquals("https://example.com/a?x=1&y=2", install.steps.get(0).url);
+        assertEquals(1048576L, install.steps.get(0).size);
+
+        document.put("retries", 5);
+        assertEquals(5, document.as(InstallDocument.class).retries);
+    }
+
+    @Test
+    public void testSerializesLikeAPlainMap() throws Exception {
+        DescribeJobExecutionResponse response = describe(true);
+
+        assertEquals(gson(false).toJson(describe(false)), gson(true).toJson(response));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(response.execution.jobDocument);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Object restored = in.readObject();
+            assertSame(HashMap.class, restored.getClass());
+            assertEquals(response.execution.jobDocument, restored);
+        }
+    }
+
+    @Test
+    public void testOtherCarriersAndMissingDocument() {
+        Gson gson = gson(true);
+
+        UpdateJobExecutionResponse update = LazyJobDocumentFactory.fromJson(gson,
+            ("{\"jobDocument\":" + DOCUMENT + ",\"executionState\":{\"status\":\"SUCCEEDED\",\"versionNumber\":3}}").getBytes(StandardCharsets.UTF_8),
+            UpdateJobExecutionResponse.class);
+        assertTrue(update.jobDocument instanceof LazyJobDocument);
+        assertEquals(Integer.valueOf(3), update.executionState.versionNumber);
+
+        NextJobExecutionChangedEvent event = LazyJobDocumentFactory.fromJson(gson,
+            "{\"execution\":{\"jobId\":\"job-2\",\"status\":\"QUEUED\"},\"timestamp\":1700000001}".getBytes(StandardCharsets.UTF_8),
+            NextJobExecutionChangedEvent.class);
+        assertEquals("job-2", event.execution.jobId);
+        assertNull(event.execution.jobDocument);
+
+        NextJobExecutionChangedEvent empty = LazyJobDocumentFactory.fromJson(gson,
+            "{\"execution\":null}".getBytes(StandardCharsets.UTF_8), NextJobExecutionChangedEvent.class);
+        assertNull(empty.execution);
+    }
+
+    @Test
+    public void testDocumentIsSlicedFromThePayload() {
+        // Braces and quotes inside strings, and a jobDocument key inside the document, must not confuse the scan
+        String document = "{\"note\":\"{not \\\"a\\\" brace}\",\"jobDocument\":{\"nested\":[1,{\"x\":\"]\"}]}}";
+        String payload = "{\"execution\":{\"jobId\":\"job-3\",\"jobDocument\" : " + document + ",\"versionNumber\":4},"
+            + "\"jobDocument\":\"ignored\"}";
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+
+        int[] documents = LazyJobDocumentFactory.findDocuments(bytes);
+        assertEquals(2, documents.length);
+        assertEquals(document, payload.substring(documents[0], documents[1]));
+
+        DescribeJobExecutionResponse response = LazyJobDocumentFactory.fromJson(gson(true), bytes, DescribeJobExecutionResponse.class);
+        assertEquals(Integer.valueOf(4), response.execution.versionNumber);
+        LazyJobDocument lazy = (LazyJobDocument) response.execution.jobDocument;
+        assertEquals(document, new String(lazy.toJsonBytes(), StandardCharsets.UTF_8));
+        assertEquals(JsonPayloadDecoder.fromJson(gson(false), bytes, DescribeJobExecutionResponse.class).execution.jobDocument, lazy);
+    }
+
+    @Test
+    public void testOtherDecodesKeepTheEagerDocument() {
+        DescribeJobExecutionResponse response = JsonPayloadDecoder.fromJson(gson(true), EXECUTION.getBytes(StandardCharsets.UTF_8),
+            DescribeJobExecutionResponse.class);
+        assertSame(HashMap.class, response.execution.jobDocument.getClass());
+        assertEquals(describe(false).execution.jobDocument, response.execution.jobDocument);
+
+        assertEquals(0, LazyJobDocumentFactory.findDocuments("{\"jobDocument\":{\"unterminated\":".getBytes(StandardCharsets.UTF_8)).length);
+    }
+}
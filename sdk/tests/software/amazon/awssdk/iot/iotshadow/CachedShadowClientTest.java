@@ -0,0 +1,294 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotshadow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.delta;
+import static software.amazon.awssdk.iot.TestUtils.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import software.amazon.awssdk.crt.iot.SubscriptionStatusEventType;
+
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotshadow.model.GetNamedShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowResponse;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowDeltaUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowStateWithDelta;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedSnapshot;
+
+public class CachedShadowClientTest {
+
+    /**
+     * Reports each subscription as established as soon as it is opened, unless told not to.
+     */
+    private static class FakeSource implements CachedShadowClient.ShadowSource {
+        final List<CompletableFuture<GetShadowResponse>> gets = new ArrayList<>();
+        final Map<String, V2ClientStreamOptions<ShadowUpdatedEvent>> updatedStreams = new HashMap<>();
+        final Map<String, V2ClientStreamOptions<ShadowDeltaUpdatedEvent>> deltaStreams = new HashMap<>();
+        final Map<String, Consumer<SubscriptionStatusEventType>> updatedStatus = new HashMap<>();
+        final Map<String, Consumer<SubscriptionStatusEventType>> deltaStatus = new HashMap<>();
+        boolean establishOnOpen = true;
+        int openStreams;
+
+        @Override
+        public CompletableFuture<GetShadowResponse> getShadow(String thingName, String shadowName) {
+            CompletableFuture<GetShadowResponse> future = new CompletableFuture<>();
+            gets.add(future);
+            return future;
+        }
+
+        @Override
+        public AutoCloseable openUpdatedStream(String thingName, String shadowName, V2ClientStreamOptions<ShadowUpdatedEvent> options,
+                                               Consumer<SubscriptionStatusEventType> statusHandler) {
+            updatedStreams.put(thingName, options);
+            updatedStatus.put(thingName, statusHandler);
+            openStreams++;
+            if (establishOnOpen) {
+                statusHandler.accept(SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED);
+            }
+            return () -> openStreams--;
+        }
+
+        @Override
+        public AutoCloseable openDeltaStream(String thingName, String shadowName, V2ClientStreamOptions<ShadowDeltaUpdatedEvent> options,
+                                             Consumer<SubscriptionStatusEventType> statusHandler) {
+            deltaStreams.put(thingName, options);
+            deltaStatus.put(thingName, statusHandler);
+            openStreams++;
+            if (establishOnOpen) {
+                statusHandler.accept(SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED);
+            }
+            return () -> openStreams--;
+        }
+    }
+
+    private static GetShadowRequest request(String thingName) {
+        GetShadowRequest request = new GetShadowRequest();
+        request.thingName = thingName;
+        return request;
+    }
+
+    private static GetShadowResponse document(int version, Map<String, Object> desired, Map<String, Object> reported) {
+        GetShadowResponse response = new GetShadowResponse();
+        response.version = version;
+        response.state = new ShadowStateWithDelta();
+        response.state.desired = new HashMap<>(desired);
+        response.state.reported = new HashMap<>(reported);
+        return response;
+    }
+
+    private static ShadowUpdatedEvent updated(int version, Map<String, Object> desired, Map<String, Object> reported) {
+        ShadowUpdatedEvent event = new ShadowUpdatedEvent();
+        event.current = new ShadowUpdatedSnapshot();
+        event.current.version = version;
+        event.current.state = new ShadowState();
+        event.current.state.desired = new HashMap<>(desired);
+        event.current.state.reported = new HashMap<>(reported);
+        return event;
+    }
+
+    @Test
+    public void testReadsAreServedFromMemoryAfterFirstFetch() throws Exception {
+        FakeSource source = new FakeSource();
+        try (CachedShadowClient cache = CachedShadowClient.builder(source).build()) {
+            CompletableFuture<GetShadowResponse> first = cache.getShadow(request("thing"));
+            CompletableFuture<GetShadowResponse> concurrent = cache.getShadow(request("thing"));
+            assertEquals(1, source.gets.size());
+            assertEquals(2, source.openStreams);
+
+            GetShadowResponse fetched = document(3, map("a", 1), map("a", 1));
+            source.gets.get(0).complete(fetched);
+            assertSame(fetched, first.get());
+            assertSame(fetched, concurrent.get());
+
+            assertSame(fetched, cache.getShadow(request("thing")).get());
+            assertEquals(1, source.gets.size());
+
+            cache.getShadow(request("thing"), true);
+            assertEquals(2, source.gets.size());
+        }
+        assertEquals(0, source.openStreams);
+    }
+
+    @Test
+    public void testUpdatedEventsReplaceDocumentAndStaleEventsAreDiscarded() throws Exception {
+        FakeSource source = new FakeSource();
+        try (CachedShadowClient cache = CachedShadowClient.builder(source).build()) {
+            cache.getShadow(request("thing"));
+            source.gets.get(0).complete(document(5, map("a", 1), map("a", 1)));
+
+            source.updatedStreams.get("thing").streamEventHandler().accept(updated(4, map("a", 0), map("a", 0)));
+            assertEquals(5, cache.getShadow(request("thing")).get().version);
+
+            source.updatedStreams.get("thing").streamEventHandler().accept(updated(6, map("a", 2, "b", map("c", 1)), map("a", 1, "b", map("c", 2))));
+            GetShadowResponse current = cache.getShadow(request("thing")).get();
+            assertEquals(6, current.version);
+            assertEquals(map("a", 2, "b", map("c", 1)), current.state.desired);
+            assertEquals(map("a", 2, "b", map("c", 1)), current.state.delta);
+            assertEquals(1, source.gets.size());
+        }
+    }
+
+    @Test
+    public void testDeltaEventsApplyWhenNewer() throws Exception {
+        FakeSource source = new FakeSource();
+        try (CachedShadowClient cache = CachedShadowClient.builder(source).build()) {
+            cache.getShadow(request("thing"));
+            source.gets.get(0).complete(document(1, map("a", 1, "b", 1), map("a", 1, "b", 1)));
+
+            source.deltaStreams.get("thing").streamEventHandler().accept(delta(2, map("a", 2)));
+            GetShadowResponse current = cache.getShadow(request("thing")).get();
+            assertEquals(2, current.version);
+            assertEquals(map("a", 2, "b", 1), current.state.desired);
+            assertEquals(map("a", 2), current.state.delta);
+
+            // The complete document for the same version supersedes the one built from the delta
+            source.updatedStreams.get("thing").streamEventHandler().accept(updated(2, map("a", 2, "b", 1), map("a", 1, "b", 1)));
+            assertFalse(current == cache.getShadow(request("thing")).get());
+
+            // Skipped versions, such as those of reported-only updates, do not force a refresh
+            source.deltaStreams.get("thing").streamEventHandler().accept(delta(4, map("a", 3)));
+            current = cache.getShadow(request("thing")).get();
+            assertEquals(4, current.version);
+            assertEquals(map("a", 3, "b", 1), current.state.desired);
+            assertEquals(1, source.gets.size());
+
+            // Duplicate and out of order deltas are ignored
+            source.deltaStreams.get("thing").streamEventHandler().accept(delta(3, map("a", 9)));
+            assertEquals(map("a", 3, "b", 1), cache.getShadow(request("thing")).get().state.desired);
+            assertEquals(1, source.gets.size());
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyReadEntryIsEvictedAndExpiredEntriesRefetched() throws Exception {
+        FakeSource source = new FakeSource();
+        AtomicLong now = new AtomicLong();
+        try (CachedShadowClient cache = CachedShadowClient.builder(source).withMaxEntries(2).withTimeToLiveMillis(1000).withClock(now::get).build()) {
+            cache.getShadow(request("a"));
+            cache.getShadow(request("b"));
+            source.gets.get(0).complete(document(1, map(), map()));
+            source.gets.get(1).complete(document(1, map(), map()));
+
+            cache.getShadow(request("a"));
+            cache.getShadow(request("c"));
+            assertEquals(2, cache.size());
+            assertEquals(4, source.openStreams);
+            source.gets.get(2).complete(document(1, map(), map()));
+
+            cache.getShadow(request("a"));
+            assertEquals(3, source.gets.size());
+
+            now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+            cache.getShadow(request("a"));
+            assertEquals(4, source.gets.size());
+        }
+    }
+
+    @Test
+    public void testBackgroundCompletionsDoNotReorderEntries() throws Exception {
+        FakeSource source = new FakeSource();
+        try (CachedShadowClient cache = CachedShadowClient.builder(source).withMaxEntries(2).build()) {
+            cache.getShadow(request("a"));
+            cache.invalidate("a", null);
+            cache.getShadow(request("a"));
+            cache.getShadow(request("b"));
+            source.gets.get(1).complete(document(1, map(), map()));
+            source.gets.get(2).complete(document(1, map(), map()));
+
+            // The invalidated entry's fetch fails after a new entry took its key; "a" is still the eldest
+            source.gets.get(0).completeExceptionally(new RuntimeException("timed out"));
+            cache.getShadow(request("c"));
+
+            cache.getShadow(request("b"));
+            assertEquals(4, source.gets.size());
+            cache.getShadow(request("a"));
+            assertEquals(5, source.gets.size());
+        }
+    }
+
+    @Test
+    public void testFailedFetchIsNotCached() {
+        FakeSource source = new FakeSource();
+        try (CachedShadowClient cache = CachedShadowClient.builder(source).build()) {
+            CompletableFuture<GetShadowResponse> read = cache.getShadow(request("thing"));
+            source.gets.get(0).completeExceptionally(new RuntimeException("not found"));
+            assertThrows(ExecutionException.class, read::get);
+            assertEquals(0, cache.size());
+            assertEquals(0, source.openStreams);
+
+            GetNamedShadowRequest named = new GetNamedShadowRequest();
+            named.thingName = "thing";
+            assertTrue(cache.getNamedShadow(named).isCompletedExceptionally());
+            assertNull(source.updatedStreams.get("other"));
+        }
+    }
+
+    @Test
+    public void testFetchWaitsForBothSubscriptions() throws Exception {
+        FakeSource source = new FakeSource();
+        source.establishOnOpen = false;
+        try (CachedShadowClient cache = CachedShadowClient.builder(source).build()) {
+            CompletableFuture<GetShadowResponse> read = cache.getShadow(request("thing"));
+            source.updatedStatus.get("thing").accept(SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED);
+            assertEquals(0, source.gets.size());
+
+            source.deltaStatus.get("thing").accept(SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED);
+            assertEquals(1, source.gets.size());
+            GetShadowResponse fetched = document(1, map("a", 1), map("a", 1));
+            source.gets.get(0).complete(fetched);
+            assertSame(fetched, read.get());
+
+            // A lost subscription forces a refetch, but only once it is back
+            source.deltaStatus.get("thing").accept(SubscriptionStatusEventType.SUBSCRIPTION_LOST);
+            CompletableFuture<GetShadowResponse> refresh = cache.getShadow(request("thing"));
+            assertEquals(1, source.gets.size());
+            source.deltaStatus.get("thing").accept(SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED);
+            assertEquals(2, source.gets.size());
+            source.gets.get(1).complete(document(2, map("a", 2), map("a", 1)));
+            assertEquals(2, refresh.get().version);
+        }
+    }
+
+    @Test
+    public void testHaltedSubscriptionFailsWaitingRead() {
+        FakeSource source = new FakeSource();
+        source.establishOnOpen = false;
+        try (CachedShadowClient cache = CachedShadowClient.builder(source).build()) {
+            CompletableFuture<GetShadowResponse> read = cache.getShadow(request("thing"));
+            source.updatedStatus.get("thing").accept(SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED);
+            source.deltaStatus.get("thing").accept(SubscriptionStatusEventType.SUBSCRIPTION_HALTED);
+
+            assertThrows(ExecutionException.class, read::get);
+            assertEquals(0, source.gets.size());
+            assertEquals(0, cache.size());
+            assertEquals(0, source.openStreams);
+
+            // An entry dropped while waiting for its subscriptions fails its read instead of leaving it pending
+            CompletableFuture<GetShadowResponse> pending = cache.getShadow(request("other"));
+            cache.invalidate("other", null);
+            assertThrows(ExecutionException.class, pending::get);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotshadow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.delta;
+import static software.amazon.awssdk.iot.TestUtils.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+
+public class ShadowDeltaMergerTest {
+
+    private static ShadowState held(Map<String, Object> desired, Map<String, Object> reported) {
+        ShadowState state = new ShadowState();
+        state.desired = new HashMap<>(desired);
+        state.reported = new HashMap<>(reported);
+        return state;
+    }
+
+    @Test
+    public void testNestedMergeReportsChangedLeafPaths() {
+        Map<String, Object> config = map("sampleRate", 10, "mode", "eco");
+        ShadowState held = held(map("config", config, "light", "on", "untouched", map("x", 1)), map("light", "off"));
+
+        ShadowDeltaMerger.MergeResult result = ShadowDeltaMerger.apply(held, 4,
+            delta(5, map("config", map("sampleRate", 20, "mode", "eco"), "light", "off", "new", map("a", 1, "b", 2))));
+
+        assertEquals(ShadowDeltaMerger.Outcome.APPLIED, result.getOutcome());
+        assertEquals(5, result.getVersion());
+        assertEquals(new HashSet<>(Arrays.asList("desired.config.sampleRate", "desired.light", "desired.new.a", "desired.new.b")),
+            new HashSet<>(result.getChangedPaths()));
+        assertEquals(map("config", map("sampleRate", 20, "mode", "eco"), "light", "off", "new", map("a", 1, "b", 2), "untouched", map("x", 1)),
+            result.getState().desired);
+
+        // Held state is untouched and unchanged subtrees are shared
+        assertEquals(10, config.get("sampleRate"));
+        assertSame(held.desired.get("untouched"), result.getState().desired.get("untouched"));
+        assertSame(held.reported, result.getState().reported);
+    }
+
+    @Test
+    public void testNullDeletesAndReplacementReportsRemovedLeaves() {
+        ShadowState held = held(map("config", map("sampleRate", 10, "mode", "eco"), "light", "on"), map());
+
+        ShadowDeltaMerger.MergeResult deleted = ShadowDeltaMerger.apply(held, 1, delta(2, map("light", null, "missing", null)));
+        assertEquals(Collections.singletonList("desired.light"), deleted.getChangedPaths());
+        assertEquals(map("config", map("sampleRate", 10, "mode", "eco")), deleted.getState().desired);
+
+        ShadowDeltaMerger.MergeResult replaced = ShadowDeltaMerger.apply(held, 1, delta(2, map("config", "off")));
+        assertEquals(new HashSet<>(Arrays.asList("desired.config.sampleRate", "desired.config.mode", "desired.config")),
+            new HashSet<>(replaced.getChangedPaths()));
+
+        ShadowDeltaMerger.MergeResult noop = ShadowDeltaMerger.apply(held, 1, delta(2, map("light", "on")));
+        assertTrue(noop.getChangedPaths().isEmpty());
+        assertSame(held.desired, noop.getState().desired);
+    }
+
+    @Test
+    public void testVersionOrderIsChecked() {
+        ShadowState held = held(map("a", 1), map());
+
+        ShadowDeltaMerger.MergeResult stale = ShadowDeltaMerger.apply(held, 3, delta(3, map("a", 2)));
+        assertEquals(ShadowDeltaMerger.Outcome.STALE, stale.getOutcome());
+        assertSame(held, stale.getState());
+
+        // Reported-only updates advance the version without a delta, so skipped versions are expected
+        ShadowDeltaMerger.MergeResult skipped = ShadowDeltaMerger.apply(held, 3, delta(5, map("a", 2)));
+        assertEquals(ShadowDeltaMerger.Outcome.APPLIED, skipped.getOutcome());
+        assertEquals(5, skipped.getVersion());
+        assertEquals(map("a", 2), skipped.getState().desired);
+
+        ShadowDeltaMerger.MergeResult unknown = ShadowDeltaMerger.apply(null, null, delta(9, map("a", 2)));
+        assertEquals(ShadowDeltaMerger.Outcome.APPLIED, unknown.getOutcome());
+        assertEquals(map("a", 2), unknown.getState().desired);
+    }
+}
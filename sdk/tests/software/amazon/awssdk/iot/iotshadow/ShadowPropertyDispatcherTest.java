@@ -0,0 +1,128 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotshadow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.delta;
+import static software.amazon.awssdk.iot.TestUtils.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedEvent;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowUpdatedSnapshot;
+
+public class ShadowPropertyDispatcherTest {
+
+    private static ShadowUpdatedSnapshot snapshot(Map<String, Object> desired, Map<String, Object> reported) {
+        ShadowUpdatedSnapshot snapshot = new ShadowUpdatedSnapshot();
+        snapshot.state = new ShadowState();
+        snapshot.state.desired = new HashMap<>(desired);
+        snapshot.state.reported = new HashMap<>(reported);
+        return snapshot;
+    }
+
+    @Test
+    public void testOnlyAffectedListenersRun() {
+        ShadowPropertyDispatcher dispatcher = new ShadowPropertyDispatcher();
+        List<ShadowPropertyChangedEvent> sampleRate = new ArrayList<>();
+        List<ShadowPropertyChangedEvent> config = new ArrayList<>();
+        List<ShadowPropertyChangedEvent> light = new ArrayList<>();
+        dispatcher.addListener("desired.config.sampleRate", sampleRate::add);
+        dispatcher.addListener("desired.config", config::add);
+        dispatcher.addListener("desired.light", light::add);
+
+        dispatcher.deltaUpdatedHandler().accept(delta(3, map("config", map("sampleRate", 20), "other", 1)));
+
+        assertEquals(1, sampleRate.size());
+        assertEquals("desired.config.sampleRate", sampleRate.get(0).getPath());
+        assertEquals(20, sampleRate.get(0).getValue());
+        assertEquals(3, sampleRate.get(0).getVersion());
+        assertEquals(1, config.size());
+        assertEquals(map("sampleRate", 20), config.get(0).getValue());
+        assertTrue(light.isEmpty());
+    }
+
+    @Test
+    public void testDeletedOrReplacedAncestorNotifiesWithNull() {
+        ShadowPropertyDispatcher dispatcher = new ShadowPropertyDispatcher();
+        List<ShadowPropertyChangedEvent> events = new ArrayList<>();
+        dispatcher.addListener("desired.config.sampleRate", events::add);
+
+        dispatcher.dispatch(delta(3, map("config", null)));
+        dispatcher.dispatch(delta(3, map("config", "off")));
+
+        assertEquals(2, events.size());
+        assertNull(events.get(0).getValue());
+        assertNull(events.get(1).getValue());
+    }
+
+    @Test
+    public void testUpdatedEventsDispatchDifferences() {
+        ShadowPropertyDispatcher dispatcher = new ShadowPropertyDispatcher();
+        List<ShadowPropertyChangedEvent> desired = new ArrayList<>();
+        List<ShadowPropertyChangedEvent> reported = new ArrayList<>();
+        List<ShadowPropertyChangedEvent> unchanged = new ArrayList<>();
+        dispatcher.addListener("desired.config.sampleRate", desired::add);
+        dispatcher.addListener("reported.temp", reported::add);
+        dispatcher.addListener("reported.humidity", unchanged::add);
+
+        ShadowUpdatedEvent event = new ShadowUpdatedEvent();
+        event.previous = snapshot(map("config", map("sampleRate", 10)), map("temp", 20, "humidity", 40));
+        event.current = snapshot(map("config", map("sampleRate", 20)), map("humidity", 40));
+        event.current.version = 8;
+        dispatcher.updatedHandler().accept(event);
+
+        assertEquals(1, desired.size());
+        assertEquals(20, desired.get(0).getValue());
+        assertEquals(8, desired.get(0).getVersion());
+        assertEquals(1, reported.size());
+        assertNull(reported.get(0).getValue());
+        assertTrue(unchanged.isEmpty());
+    }
+
+    @Test
+    public void testRemoveListenerAndFailureIsolation() {
+        List<String> failures = new ArrayList<>();
+        ShadowPropertyDispatcher dispatcher = new ShadowPropertyDispatcher((event, error) -> failures.add(event.getPath() + ": " + error.getMessage()));
+        List<ShadowPropertyChangedEvent> events = new ArrayList<>();
+        Consumer<ShadowPropertyChangedEvent> failing = event -> {
+            throw new IllegalStateException("listener failure");
+        };
+        Consumer<ShadowPropertyChangedEvent> recording = events::add;
+        dispatcher.addListener("desired.a", failing);
+        dispatcher.addListener("desired.a", recording);
+
+        // The failure goes to the error handler, not back to the stream that delivered the event
+        dispatcher.deltaUpdatedHandler().accept(delta(3, map("a", 1)));
+        assertEquals(1, events.size());
+        assertEquals(Collections.singletonList("desired.a: listener failure"), failures);
+
+        // Without an error handler the failure is logged
+        ShadowPropertyDispatcher logging = new ShadowPropertyDispatcher();
+        logging.addListener("desired.a", failing);
+        logging.dispatch(delta(3, map("a", 1)));
+
+        assertTrue(dispatcher.removeListener("desired.a", failing));
+        assertFalse(dispatcher.removeListener("desired.a", failing));
+        assertFalse(dispatcher.removeListener("desired.b", recording));
+        dispatcher.dispatch(delta(3, map("a", 2)));
+        assertEquals(2, events.size());
+
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.addListener("state.a", recording));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.addListener("desired..a", recording));
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotshadow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static software.amazon.awssdk.iot.TestUtils.awaitCondition;
+import static software.amazon.awssdk.iot.TestUtils.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateNamedShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowResponse;
+
+public class ShadowUpdateBatcherTest {
+
+    private static class RecordingTransport implements ShadowUpdateBatcher.UpdateTransport {
+        final List<Object> requests = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<UpdateShadowResponse>> responses = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public CompletableFuture<UpdateShadowResponse> updateShadow(UpdateShadowRequest request) {
+            return record(request);
+        }
+
+        @Override
+        public CompletableFuture<UpdateShadowResponse> updateNamedShadow(UpdateNamedShadowRequest request) {
+            return record(request);
+        }
+
+        private CompletableFuture<UpdateShadowResponse> record(Object request) {
+            CompletableFuture<UpdateShadowResponse> response = new CompletableFuture<>();
+            requests.add(request);
+            responses.add(response);
+            return response;
+        }
+    }
+
+    private static UpdateShadowRequest reported(String thingName, Map<String, Object> reported) {
+        UpdateShadowRequest request = new UpdateShadowRequest();
+        request.thingName = thingName;
+        request.state = new ShadowState();
+        request.state.reported = new HashMap<>(reported);
+        return request;
+    }
+
+    @Test
+    public void testUpdatesAreMergedAndResponseFansOut() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        try (ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(transport).withWindowMillis(60000).build()) {
+            CompletableFuture<UpdateShadowResponse> first = batcher.updateShadow(reported("thing", map("temp", 20, "config", map("rate", 1, "mode", "a"))));
+            CompletableFuture<UpdateShadowResponse> second = batcher.updateShadow(reported("thing", map("humidity", 40, "config", map("rate", 2))));
+            assertTrue(transport.requests.isEmpty());
+
+            batcher.flush();
+            assertEquals(1, transport.requests.size());
+
+            UpdateShadowRequest sent = (UpdateShadowRequest) transport.requests.get(0);
+            assertEquals("thing", sent.thingName);
+            assertNull(sent.version);
+            assertEquals(map("temp", 20, "humidity", 40, "config", map("rate", 2, "mode", "a")), sent.state.reported);
+            assertNull(sent.state.desired);
+
+            UpdateShadowResponse response = new UpdateShadowResponse();
+            transport.responses.get(0).complete(response);
+            assertSame(response, first.get());
+            assertSame(response, second.get());
+        }
+    }
+
+    @Test
+    public void testShadowsAreBatchedSeparately() {
+        RecordingTransport transport = new RecordingTransport();
+        try (ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(transport).withWindowMillis(60000).build()) {
+            batcher.updateShadow(reported("thing", map("a", 1)));
+            batcher.updateShadow(reported("other", map("a", 1)));
+
+            UpdateNamedShadowRequest named = new UpdateNamedShadowRequest();
+            named.thingName = "thing";
+            named.shadowName = "config";
+            named.state = new ShadowState();
+            named.state.desired = new HashMap<>(map("b", 2));
+            batcher.updateNamedShadow(named);
+
+            batcher.flush();
+            assertEquals(3, transport.requests.size());
+        }
+    }
+
+    @Test
+    public void testSizeThresholdAndWindowTriggerSend() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        try (ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(transport).withWindowMillis(60000).withMaxUpdatesPerBatch(2).build()) {
+            batcher.updateShadow(reported("thing", map("a", 1)));
+            assertTrue(transport.requests.isEmpty());
+            batcher.updateShadow(reported("thing", map("b", 1)));
+            assertEquals(1, transport.requests.size());
+        }
+
+        RecordingTransport windowed = new RecordingTransport();
+        try (ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(windowed).withWindowMillis(10).build()) {
+            batcher.updateShadow(reported("thing", map("a", 1)));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (windowed.requests.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, windowed.requests.size());
+        }
+    }
+
+    @Test
+    public void testConflictingUpdatesStartNewBatch() {
+        RecordingTransport transport = new RecordingTransport();
+        try (ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(transport).withWindowMillis(60000).build()) {
+            batcher.updateShadow(reported("thing", map("config", null)));
+            batcher.updateShadow(reported("thing", map("config", map("rate", 1))));
+            assertEquals(1, transport.requests.size());
+            assertEquals(map("config", null), ((UpdateShadowRequest) transport.requests.get(0)).state.reported);
+
+            batcher.flush();
+            assertEquals(2, transport.requests.size());
+            assertEquals(map("config", map("rate", 1)), ((UpdateShadowRequest) transport.requests.get(1)).state.reported);
+        }
+    }
+
+    @Test
+    public void testSectionClearOverridesEarlierUpdates() {
+        RecordingTransport transport = new RecordingTransport();
+        try (ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(transport).withWindowMillis(60000).build()) {
+            batcher.updateShadow(reported("thing", map("a", 1)));
+
+            UpdateShadowRequest clear = new UpdateShadowRequest();
+            clear.thingName = "thing";
+            clear.state = new ShadowState();
+            clear.state.reportedIsNullable = true;
+            batcher.updateShadow(clear);
+
+            batcher.flush();
+            UpdateShadowRequest sent = (UpdateShadowRequest) transport.requests.get(0);
+            assertNull(sent.state.reported);
+            assertTrue(sent.state.reportedIsNullable);
+        }
+    }
+
+    @Test
+    public void testVersionedUpdatesAreSentAlone() {
+        RecordingTransport transport = new RecordingTransport();
+        try (ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(transport).withWindowMillis(60000).build()) {
+            batcher.updateShadow(reported("thing", map("a", 1)));
+
+            UpdateShadowRequest versioned = reported("thing", map("b", 2));
+            versioned.version = 7;
+            batcher.updateShadow(versioned);
+
+            assertEquals(2, transport.requests.size());
+            assertEquals(map("a", 1), ((UpdateShadowRequest) transport.requests.get(0)).state.reported);
+            assertSame(versioned, transport.requests.get(1));
+        }
+    }
+
+    @Test
+    public void testConcurrentVersionedUpdateCannotOvertakeFlush() throws Exception {
+        CountDownLatch flushEntered = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        RecordingTransport transport = new RecordingTransport() {
+            @Override
+            public CompletableFuture<UpdateShadowResponse> updateShadow(UpdateShadowRequest request) {
+                if (request.version == null) {
+                    // Hold the batched document on its way to the transport
+                    flushEntered.countDown();
+                    try {
+                        releaseFlush.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.updateShadow(request);
+            }
+        };
+
+        try (ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(transport).withWindowMillis(60000).build()) {
+            batcher.updateShadow(reported("thing", map("a", 1)));
+            Thread flusher = new Thread(batcher::flush);
+            flusher.start();
+            assertTrue(flushEntered.await(5, TimeUnit.SECONDS));
+
+            UpdateShadowRequest versioned = reported("thing", map("b", 2));
+            versioned.version = 7;
+            Thread writer = new Thread(() -> batcher.updateShadow(versioned));
+            writer.start();
+            awaitCondition(() -> writer.getState() == Thread.State.BLOCKED || !transport.requests.isEmpty());
+
+            releaseFlush.countDown();
+            flusher.join(5000);
+            writer.join(5000);
+
+            assertEquals(2, transport.requests.size());
+            assertEquals(map("a", 1), ((UpdateShadowRequest) transport.requests.get(0)).state.reported);
+            assertSame(versioned, transport.requests.get(1));
+        }
+    }
+
+    @Test
+    public void testFailureFansOutAndClosedBatcherRejects() {
+        RecordingTransport transport = new RecordingTransport();
+        ShadowUpdateBatcher batcher = ShadowUpdateBatcher.builder(transport).withWindowMillis(60000).build();
+        CompletableFuture<UpdateShadowResponse> first = batcher.updateShadow(reported("thing", map("a", 1)));
+        CompletableFuture<UpdateShadowResponse> second = batcher.updateShadow(reported("thing", map("b", 1)));
+        batcher.close();
+
+        transport.responses.get(0).completeExceptionally(new RuntimeException("rejected"));
+        assertThrows(ExecutionException.class, first::get);
+        assertThrows(ExecutionException.class, second::get);
+
+        CompletableFuture<UpdateShadowResponse> late = batcher.updateShadow(reported("thing", map("c", 1)));
+        assertTrue(late.isCompletedExceptionally());
+        assertFalse(transport.requests.size() > 1);
+    }
+}
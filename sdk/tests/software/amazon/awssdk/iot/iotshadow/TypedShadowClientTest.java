@@ -0,0 +1,140 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.iotshadow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import software.amazon.awssdk.iot.JsonPayloadDecoder;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+
+public class TypedShadowClientTest {
+
+    public static class Config {
+        public int sampleRate;
+        public String mode;
+    }
+
+    public static class Desired {
+        public Config config;
+        public Boolean light;
+    }
+
+    public static class Reported {
+        public double temperature;
+        public Config config;
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testDocumentsBindToApplicationClasses() {
+        TypedShadowClient<Desired, Reported> typed = TypedShadowClient.builder(null, Desired.class, Reported.class).build();
+
+        TypedShadowDocument<Desired, Reported> document = JsonPayloadDecoder.fromJson(typed.gson(), bytes(
+            "{\"state\":{\"desired\":{\"config\":{\"sampleRate\":20,\"mode\":\"eco\"},\"light\":true},"
+            + "\"reported\":{\"temperature\":21.5,\"config\":{\"sampleRate\":10}},\"delta\":{\"config\":{\"sampleRate\":20}}},"
+            + "\"metadata\":{\"desired\":{\"light\":{\"timestamp\":1700000000}}},\"version\":12,\"timestamp\":1700000001,\"clientToken\":\"abc\"}"),
+            typed.documentType());
+
+        assertEquals(20, document.state.desired.config.sampleRate);
+        assertEquals("eco", document.state.desired.config.mode);
+        assertTrue(document.state.desired.light);
+        assertEquals(21.5, document.state.reported.temperature);
+        assertEquals(20, document.state.delta.config.sampleRate);
+        assertNull(document.state.delta.light);
+        assertNotNull(document.metadata.desired);
+        assertEquals(12, document.version);
+        assertEquals("abc", document.clientToken);
+    }
+
+    @Test
+    public void testEventsBindToApplicationClasses() {
+        TypedShadowClient<Desired, Reported> typed = TypedShadowClient.builder(null, Desired.class, Reported.class).build();
+
+        TypedShadowDeltaUpdatedEvent<Desired> delta = JsonPayloadDecoder.fromJson(typed.gson(),
+            bytes("{\"state\":{\"light\":false},\"metadata\":{\"light\":{\"timestamp\":1}},\"version\":4,\"timestamp\":5}"),
+            typed.deltaEventType());
+        assertFalse(delta.state.light);
+        assertEquals(4, delta.version);
+
+        TypedShadowUpdatedEvent<Desired, Reported> updated = JsonPayloadDecoder.fromJson(typed.gson(),
+            bytes("{\"previous\":{\"state\":{\"reported\":{\"temperature\":1}},\"version\":1},"
+                + "\"current\":{\"state\":{\"reported\":{\"temperature\":2}},\"version\":2},\"timestamp\":5}"),
+            typed.updatedEventType());
+        assertEquals(1.0, updated.previous.state.reported.temperature);
+        assertEquals(2.0, updated.current.state.reported.temperature);
+        assertEquals(2, updated.current.version);
+    }
+
+    @Test
+    public void testMetadataCanBeSkipped() {
+        TypedShadowClient<Desired, Reported> typed = TypedShadowClient.builder(null, Desired.class, Reported.class).withMetadata(false).build();
+
+        TypedShadowDocument<Desired, Reported> document = JsonPayloadDecoder.fromJson(typed.gson(),
+            bytes("{\"state\":{\"desired\":{\"light\":true}},\"metadata\":{\"desired\":{\"light\":{\"timestamp\":1}}},\"version\":3}"),
+            typed.documentType());
+        assertTrue(document.state.desired.light);
+        assertNull(document.metadata);
+        assertEquals(3, document.version);
+    }
+
+    @Test
+    public void testUpdatesOmitUnsetFieldsAndKeepIntegerValues() {
+        TypedShadowClient<Desired, Reported> typed = TypedShadowClient.builder(null, Desired.class, Reported.class).build();
+
+        Desired desired = new Desired();
+        desired.config = new Config();
+        desired.config.sampleRate = 30;
+        ShadowState state = typed.toShadowState(desired, null);
+
+        assertNull(state.reported);
+        assertFalse(state.desired.containsKey("light"));
+        JsonObject encoded = JsonParser.parseString(typed.gson().toJson(state.desired)).getAsJsonObject();
+        assertEquals("30", encoded.getAsJsonObject("config").get("sampleRate").toString());
+    }
+
+    @Test
+    public void testUpdatesUseRegisteredTypeAdapters() {
+        TypedShadowClient<Desired, Reported> typed = TypedShadowClient.builder(null, Desired.class, Reported.class)
+            .withTypeAdapter(Config.class, new TypeAdapter<Config>() {
+                @Override
+                public void write(JsonWriter out, Config value) throws IOException {
+                    out.beginArray().value(value.sampleRate).value(value.mode).nullValue().endArray();
+                }
+
+                @Override
+                public Config read(JsonReader in) throws IOException {
+                    throw new UnsupportedOperationException();
+                }
+            })
+            .build();
+
+        Reported reported = new Reported();
+        reported.temperature = 21.5;
+        reported.config = new Config();
+        reported.config.sampleRate = 10;
+        reported.config.mode = "eco";
+        ShadowState state = typed.toShadowState(null, reported);
+
+        assertEquals(JsonParser.parseString("{\"temperature\":21.5,\"config\":[10,\"eco\",null]}"),
+            JsonParser.parseString(typed.gson().toJson(state.reported)));
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.testing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import software.amazon.awssdk.crt.iot.MqttRequestResponseClientOptions;
+import software.amazon.awssdk.crt.iot.StreamingOperation;
+import software.amazon.awssdk.crt.iot.SubscriptionStatusEventType;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5Client;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5ClientOptions;
+import software.amazon.awssdk.crt.mqtt5.OnAttemptingConnectReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionFailureReturn;
+import software.amazon.awssdk.crt.mqtt5.OnConnectionSuccessReturn;
+import software.amazon.awssdk.crt.mqtt5.OnDisconnectionReturn;
+import software.amazon.awssdk.crt.mqtt5.OnStoppedReturn;
+import software.amazon.awssdk.crt.mqtt5.packets.ConnectPacket;
+import software.amazon.awssdk.iot.V2ClientStreamOptions;
+import software.amazon.awssdk.iot.iotcommands.IotCommandsV2Client;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionEvent;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionStatus;
+import software.amazon.awssdk.iot.iotcommands.model.CommandExecutionsSubscriptionRequest;
+import software.amazon.awssdk.iot.iotcommands.model.DeviceType;
+import software.amazon.awssdk.iot.iotcommands.model.RejectedErrorCode;
+import software.amazon.awssdk.iot.iotcommands.model.UpdateCommandExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.IotJobsV2Client;
+import software.amazon.awssdk.iot.iotjobs.model.DescribeJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.JobStatus;
+import software.amazon.awssdk.iot.iotjobs.model.StartNextJobExecutionResponse;
+import software.amazon.awssdk.iot.iotjobs.model.StartNextPendingJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionRequest;
+import software.amazon.awssdk.iot.iotjobs.model.UpdateJobExecutionResponse;
+import software.amazon.awssdk.iot.iotshadow.IotShadowV2Client;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.GetShadowResponse;
+import software.amazon.awssdk.iot.iotshadow.model.ShadowState;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowRequest;
+import software.amazon.awssdk.iot.iotshadow.model.UpdateShadowResponse;
+
+public class AwsServiceEmulatorTest {
+
+    private static final String THING_NAME = "emulated-thing";
+
+    private LocalMqttBroker broker;
+    private AwsServiceEmulator emulator;
+    private Mqtt5Client mqttClient;
+
+    private void start(AwsServiceEmulator.AwsServiceEmulatorBuilder emulatorBuilder) throws Exception {
+        broker = LocalMqttBroker.builder().build();
+        emulator = emulatorBuilder.build();
+        emulator.attach(broker);
+
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        mqttClient = new Mqtt5Client(new Mqtt5ClientOptions.Mqtt5ClientOptionsBuilder(broker.getHost(), (long) broker.getPort())
+                .withConnectOptions(new ConnectPacket.ConnectPacketBuilder().withClientId(THING_NAME).build())
+                .withLifecycleEvents(new Mqtt5ClientOptions.LifecycleEvents() {
+                    @Override
+                    public void onAttemptingConnect(Mqtt5Client client, OnAttemptingConnectReturn onAttemptingConnectReturn) {}
+
+                    @Override
+                    public void onConnectionSuccess(Mqtt5Client client, OnConnectionSuccessReturn onConnectionSuccessReturn) {
+                        connected.complete(null);
+                    }
+
+                    @Override
+                    public void onConnectionFailure(Mqtt5Client client, OnConnectionFailureReturn onConnectionFailureReturn) {
+                        connected.completeExceptionally(new IllegalStateException("connection failed: " + onConnectionFailureReturn.getErrorCode()));
+                    }
+
+                    @Override
+                    public void onDisconnection(Mqtt5Client client, OnDisconnectionReturn onDisconnectionReturn) {}
+
+                    @Override
+                    public void onStopped(Mqtt5Client client, OnStoppedReturn onStoppedReturn) {}
+                })
+                .build());
+        mqttClient.start();
+        connected.get(10, TimeUnit.SECONDS);
+    }
+
+    private static MqttRequestResponseClientOptions clientOptions(int operationTimeoutSeconds) {
+        return MqttRequestResponseClientOptions.builder()
+                .withMaxRequestResponseSubscriptions(4)
+                .withMaxStreamingSubscriptions(2)
+                .withOperationTimeoutSeconds(operationTimeoutSeconds)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (mqttClient != null) {
+            mqttClient.stop(null);
+            mqttClient.close();
+        }
+        if (emulator != null) {
+            emulator.close();
+        }
+        if (broker != null) {
+            broker.close();
+        }
+    }
+
+    private static UpdateShadowRequest shadowUpdate(Integer version, String section, Object value) {
+        UpdateShadowRequest request = new UpdateShadowRequest();
+        request.thingName = THING_NAME;
+        request.version = version;
+        request.state = new ShadowState();
+        HashMap<String, Object> properties = new HashMap<>();
+        properties.put("color", value);
+        if ("desired".equals(section)) {
+            request.state.desired = properties;
+        } else {
+            request.state.reported = properties;
+        }
+        return request;
+    }
+
+    @Test
+    public void testShadowUpdateGetAndVersionConflict() throws Exception {
+        start(AwsServiceEmulator.builder());
+        try (IotShadowV2Client shadow = IotShadowV2Client.newFromMqtt5(mqttClient, clientOptions(10))) {
+            GetShadowRequest get = new GetShadowRequest();
+            get.thingName = THING_NAME;
+            ExecutionException missing = assertThrows(ExecutionException.class, () -> shadow.getShadow(get).get(10, TimeUnit.SECONDS));
+            assertEquals(404, ((software.amazon.awssdk.iot.iotshadow.model.V2ErrorResponseException) missing.getCause()).getModeledError().code);
+
+            UpdateShadowResponse reported = shadow.updateShadow(shadowUpdate(null, "reported", "red")).get(10, TimeUnit.SECONDS);
+            assertEquals(1, reported.version);
+            UpdateShadowResponse desired = shadow.updateShadow(shadowUpdate(1, "desired", "blue")).get(10, TimeUnit.SECONDS);
+            assertEquals(2, desired.version);
+
+            GetShadowResponse document = shadow.getShadow(get).get(10, TimeUnit.SECONDS);
+            assertEquals(2, document.version);
+            assertEquals("red", document.state.reported.get("color"));
+            assertEquals("blue", document.state.delta.get("color"));
+
+            ExecutionException conflict = assertThrows(ExecutionException.class,
+                    () -> shadow.updateShadow(shadowUpdate(1, "reported", "blue")).get(10, TimeUnit.SECONDS));
+            assertEquals(409, ((software.amazon.awssdk.iot.iotshadow.model.V2ErrorResponseException) conflict.getCause()).getModeledError().code);
+
+            assertTrue(emulator.getShadowDocument(THING_NAME, null).contains("\"version\":2"));
+            assertNull(emulator.getShadowDocument(THING_NAME, "named"));
+        }
+    }
+
+    @Test
+    public void testJobExecutionLifecycle() throws Exception {
+        start(AwsServiceEmulator.builder());
+        try (IotJobsV2Client jobs = IotJobsV2Client.newFromMqtt5(mqttClient, clientOptions(10))) {
+            emulator.addJob(THING_NAME, "job-1", "{\"operation\":\"reboot\"}");
+            assertEquals("QUEUED", emulator.getJobExecutionStatus(THING_NAME, "job-1"));
+
+            StartNextPendingJobExecutionRequest startNext = new StartNextPendingJobExecutionRequest();
+            startNext.thingName = THING_NAME;
+            StartNextJobExecutionResponse started = jobs.startNextPendingJobExecution(startNext).get(10, TimeUnit.SECONDS);
+            assertEquals("job-1", started.execution.jobId);
+            assertEquals(JobStatus.IN_PROGRESS, started.execution.status);
+            assertEquals("reboot", started.execution.jobDocument.get("operation"));
+
+            UpdateJobExecutionRequest update = new UpdateJobExecutionRequest();
+            update.thingName = THING_NAME;
+            update.jobId = "job-1";
+            update.status = JobStatus.SUCCEEDED;
+            update.expectedVersion = started.execution.versionNumber;
+            update.includeJobExecutionState = true;
+            UpdateJobExecutionResponse updated = jobs.updateJobExecution(update).get(10, TimeUnit.SECONDS);
+            assertEquals(JobStatus.SUCCEEDED, updated.executionState.status);
+            assertEquals("SUCCEEDED", emulator.getJobExecutionStatus(THING_NAME, "job-1"));
+
+            ExecutionException terminal = assertThrows(ExecutionException.class, () -> jobs.updateJobExecution(update).get(10, TimeUnit.SECONDS));
+            assertEquals(software.amazon.awssdk.iot.iotjobs.model.RejectedErrorCode.TERMINAL_STATE_REACHED,
+                    ((software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponseException) terminal.getCause()).getModeledError().code);
+
+            DescribeJobExecutionRequest describeNext = new DescribeJobExecutionRequest();
+            describeNext.thingName = THING_NAME;
+            describeNext.jobId = "$next";
+            ExecutionException none = assertThrows(ExecutionException.class, () -> jobs.describeJobExecution(describeNext).get(10, TimeUnit.SECONDS));
+            assertEquals(software.amazon.awssdk.iot.iotjobs.model.RejectedErrorCode.RESOURCE_NOT_FOUND,
+                    ((software.amazon.awssdk.iot.iotjobs.model.V2ErrorResponseException) none.getCause()).getModeledError().code);
+        }
+    }
+
+    @Test
+    public void testCommandExecution() throws Exception {
+        start(AwsServiceEmulator.builder());
+        try (IotCommandsV2Client commands = IotCommandsV2Client.newFromMqtt5(mqttClient, clientOptions(10))) {
+            CompletableFuture<Void> subscribed = new CompletableFuture<>();
+            CompletableFuture<CommandExecutionEvent> received = new CompletableFuture<>();
+            CommandExecutionsSubscriptionRequest subscription = new CommandExecutionsSubscriptionRequest();
+            subscription.deviceType = DeviceType.THING;
+            subscription.deviceId = THING_NAME;
+            V2ClientStreamOptions<CommandExecutionEvent> options = V2ClientStreamOptions.<CommandExecutionEvent>builder()
+                    .withStreamEventHandler(received::complete)
+                    .withSubscriptionEventHandler(event -> {
+                        if (event.getType() == SubscriptionStatusEventType.SUBSCRIPTION_ESTABLISHED) {
+                            subscribed.complete(null);
+                        }
+                    })
+                    .build();
+
+            try (StreamingOperation stream = commands.createCommandExecutionsJsonPayloadStream(subscription, options)) {
+                stream.open();
+                subscribed.get(10, TimeUnit.SECONDS);
+
+                String executionId = emulator.sendCommand(DeviceType.THING, THING_NAME, "{\"action\":\"lock\"}", 60);
+                CommandExecutionEvent event = received.get(10, TimeUnit.SECONDS);
+                assertEquals(executionId, event.executionId);
+                assertEquals("application/json", event.contentType);
+                assertNotNull(event.timeout);
+                assertEquals("CREATED", emulator.getCommandExecutionStatus(DeviceType.THING, THING_NAME, executionId));
+
+                UpdateCommandExecutionRequest update = new UpdateCommandExecutionRequest();
+                update.deviceType = DeviceType.THING;
+                update.deviceId = THING_NAME;
+                update.executionId = executionId;
+                update.status = CommandExecutionStatus.SUCCEEDED;
+                assertEquals(executionId, commands.updateCommandExecution(update).get(10, TimeUnit.SECONDS).executionId);
+                assertEquals("SUCCEEDED", emulator.getCommandExecutionStatus(DeviceType.THING, THING_NAME, executionId));
+
+                ExecutionException terminal = assertThrows(ExecutionException.class, () -> commands.updateCommandExecution(update).get(10, TimeUnit.SECONDS));
+                assertEquals(RejectedErrorCode.TERMINAL_STATE_REACHED,
+                        ((software.amazon.awssdk.iot.iotcommands.model.V2ErrorResponseException) terminal.getCause()).getModeledError().error);
+            }
+        }
+    }
+
+    @Test
+    public void testInjectedThrottling() throws Exception {
+        start(AwsServiceEmulator.builder().withRejectionProbability(1).withResponseLatency(5, 20));
+        try (IotShadowV2Client shadow = IotShadowV2Client.newFromMqtt5(mqttClient, clientOptions(10))) {
+            ExecutionException throttled = assertThrows(ExecutionException.class,
+                    () -> shadow.updateShadow(shadowUpdate(null, "reported", "red")).get(10, TimeUnit.SECONDS));
+            assertEquals(429, ((software.amazon.awssdk.iot.iotshadow.model.V2ErrorResponseException) throttled.getCause()).getModeledError().code);
+            assertEquals(1, emulator.getRejectedRequestCount());
+            assertNull(emulator.getShadowDocument(THING_NAME, null));
+        }
+    }
+
+    @Test
+    public void testDroppedRequestTimesOut() throws Exception {
+        start(AwsServiceEmulator.builder().withDropProbability(1));
+        try (IotShadowV2Client shadow = IotShadowV2Client.newFromMqtt5(mqttClient, clientOptions(1))) {
+            ExecutionException timedOut = assertThrows(ExecutionException.class,
+                    () -> shadow.updateShadow(shadowUpdate(null, "reported", "red")).get(10, TimeUnit.SECONDS));
+            assertInstanceOf(software.amazon.awssdk.iot.iotshadow.model.V2ErrorResponseException.class, timedOut.getCause());
+            assertEquals(1, emulator.getDroppedRequestCount());
+            assertEquals(1, emulator.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testAttachTwiceAndInvalidSettings() throws Exception {
+        start(AwsServiceEmulator.builder());
+        assertThrows(IllegalStateException.class, () -> emulator.attach(broker));
+        assertThrows(IllegalArgumentException.class, () -> AwsServiceEmulator.builder().withResponseLatency(10, 5).build());
+        assertThrows(IllegalArgumentException.class, () -> AwsServiceEmulator.builder().withDropProbability(1.5).build());
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.testing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.crt.io.TlsContext;
+import software.amazon.awssdk.crt.io.TlsContextOptions;
+import software.amazon.awssdk.crt.mqtt5.Mqtt5Client;
+import software.amazon.awssdk.iot.AwsIotMqtt5ClientBuilder;
+import software.amazon.awssdk.iot.V2OperationOutcome;
+
+public class FleetSimulatorTest {
+
+    // Raise with -DfleetSimulator.devices=10000 to load test; the default keeps the unit test run short
+    private static final int DEVICE_COUNT = Integer.getInteger("fleetSimulator.devices", 20);
+    private static final int ITERATIONS = Integer.getInteger("fleetSimulator.iterations", 3);
+
+    private static AwsIotMqtt5ClientBuilder newClientBuilder(LocalMqttBroker broker) {
+        return AwsIotMqtt5ClientBuilder.newMqttBuilder(broker.getHost())
+                .withPort((long) broker.getPort())
+                .withCertificateAuthority(TestCertificates.CA_CERTIFICATE_PEM);
+    }
+
+    @Test
+    public void testFleetRunsScriptedTrafficOverTls() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().withTls(TestCertificates.createServerContext()).build();
+             AwsServiceEmulator emulator = AwsServiceEmulator.builder().withResponseLatency(0, 5).build();
+             AwsIotMqtt5ClientBuilder clientBuilder = newClientBuilder(broker)) {
+            emulator.attach(broker);
+
+            FleetSimulator.Report report = FleetSimulator.builder(clientBuilder)
+                    .withEmulator(emulator)
+                    .withDeviceCount(DEVICE_COUNT)
+                    .withIterations(ITERATIONS)
+                    .withConnectRate(500)
+                    .withConnectJitterMillis(50)
+                    .withEventLoopThreads(2)
+                    .withThinkTimeMillis(0, 10)
+                    .build()
+                    .run();
+
+            assertEquals(DEVICE_COUNT, report.getConnectedCount(), report.toString());
+            assertEquals(DEVICE_COUNT, report.getConnectLatency().getCount());
+            assertEquals((long) DEVICE_COUNT * ITERATIONS * 4, report.getOperationCount(), report.toString());
+            assertEquals(0, report.getFailedOperationCount(), report.toString());
+            assertEquals((long) DEVICE_COUNT * ITERATIONS, report.getMetrics().getOutcomeCount("UpdateJobExecution", V2OperationOutcome.SUCCEEDED));
+            assertTrue(report.getThroughput() > 0);
+            assertTrue(report.getHeapBytesPerClient() >= 0);
+        }
+    }
+
+    @Test
+    public void testWithoutEmulatorJobsAreOnlyStarted() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().withTls(TestCertificates.createServerContext()).build();
+             AwsServiceEmulator emulator = AwsServiceEmulator.builder().build();
+             AwsIotMqtt5ClientBuilder clientBuilder = newClientBuilder(broker)) {
+            emulator.attach(broker);
+
+            FleetSimulator.Report report = FleetSimulator.builder(clientBuilder)
+                    .withDeviceCount(3)
+                    .withIterations(2)
+                    .withThinkTimeMillis(0, 0)
+                    .build()
+                    .run();
+
+            assertEquals(3, report.getConnectedCount());
+            assertEquals(3 * 2 * 3, report.getOperationCount());
+            assertEquals(0, report.getFailedOperationCount());
+        }
+    }
+
+    @Test
+    public void testBuilderSharesTlsContextAcrossClients() {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+             AwsIotMqtt5ClientBuilder clientBuilder = newClientBuilder(broker);
+             Mqtt5Client first = clientBuilder.withClientId("first").build();
+             Mqtt5Client second = clientBuilder.withClientId("second").build()) {
+            TlsContext shared = first.getClientOptions().getTlsContext();
+            assertNotNull(shared);
+            assertSame(shared, second.getClientOptions().getTlsContext());
+
+            // Changing a TLS option makes the next client use a new context
+            try (Mqtt5Client third = clientBuilder.withMinimumTlsVersion(TlsContextOptions.TlsVersions.TLSv1_2).build()) {
+                assertNotSame(shared, third.getClientOptions().getTlsContext());
+            }
+
+            try (TlsContextOptions options = TlsContextOptions.createDefaultClient();
+                 TlsContext provided = new TlsContext(options);
+                 Mqtt5Client fourth = clientBuilder.withTlsContext(provided).build()) {
+                assertSame(provided, fourth.getClientOptions().getTlsContext());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> FleetSimulator.builder(null).build());
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+             AwsIotMqtt5ClientBuilder clientBuilder = newClientBuilder(broker)) {
+            assertThrows(IllegalArgumentException.class, () -> FleetSimulator.builder(clientBuilder).withConnectRate(0).build());
+            assertThrows(IllegalArgumentException.class, () -> FleetSimulator.builder(clientBuilder).withThinkTimeMillis(10, 5).build());
+        }
+    }
+}
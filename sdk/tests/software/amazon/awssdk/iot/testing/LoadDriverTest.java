@@ -0,0 +1,66 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.testing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.iot.V2OperationOutcome;
+
+public class LoadDriverTest {
+
+    // Raise with -DloadDriver.devices=5000 to load test; the default keeps the unit test run short
+    private static final int DEVICE_COUNT = Integer.getInteger("loadDriver.devices", 20);
+    private static final int ITERATIONS = Integer.getInteger("loadDriver.iterations", 3);
+
+    @Test
+    public void testDevicesRunScriptedTraffic() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+             AwsServiceEmulator emulator = AwsServiceEmulator.builder().withResponseLatency(0, 5).build()) {
+            emulator.attach(broker);
+
+            LoadDriver.Report report = LoadDriver.builder(broker, emulator)
+                    .withDeviceCount(DEVICE_COUNT)
+                    .withIterations(ITERATIONS)
+                    .build()
+                    .run();
+
+            assertEquals(DEVICE_COUNT, report.getConnectedCount(), report.toString());
+            assertEquals((long) DEVICE_COUNT * ITERATIONS * 5, report.getOperationCount());
+            assertEquals(0, report.getFailedOperationCount(), report.toString());
+            assertEquals((long) DEVICE_COUNT * ITERATIONS, report.getCommandRoundTrips().getCount());
+            assertEquals((long) DEVICE_COUNT * ITERATIONS, report.getMetrics().getOutcomeCount("UpdateShadow", V2OperationOutcome.SUCCEEDED));
+            assertTrue(report.getThroughput() > 0);
+        }
+    }
+
+    @Test
+    public void testRejectedRequestsAreCountedAsFailures() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+             AwsServiceEmulator emulator = AwsServiceEmulator.builder().withRejectionProbability(0.5).withRandomSeed(7).build()) {
+            emulator.attach(broker);
+
+            LoadDriver.Report report = LoadDriver.builder(broker, emulator)
+                    .withDeviceCount(4)
+                    .withIterations(4)
+                    .build()
+                    .run();
+
+            assertEquals(4, report.getConnectedCount());
+            assertEquals(4 * 4 * 5, report.getOperationCount());
+            assertTrue(report.getFailedOperationCount() > 0);
+            assertTrue(report.getMetrics().getOutcomeCount("UpdateShadow", V2OperationOutcome.REJECTED) > 0
+                    || report.getMetrics().getOutcomeCount("GetShadow", V2OperationOutcome.REJECTED) > 0);
+        }
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> LoadDriver.builder(null, null).build());
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0.
+ */
+package software.amazon.awssdk.iot.testing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class LocalMqttBrokerTest {
+
+    /**
+     * A blocking MQTT 3.1.1 client, enough to drive the broker packet by packet
+     */
+    private static final class RawClient implements AutoCloseable {
+        private final Socket socket;
+        private final DataInputStream in;
+
+        RawClient(LocalMqttBroker broker, String clientId) throws IOException {
+            socket = new Socket(broker.getHost(), broker.getPort());
+            socket.setSoTimeout(5000);
+            in = new DataInputStream(socket.getInputStream());
+
+            MqttCodec.Writer connect = new MqttCodec.Writer(32);
+            connect.string("MQTT");
+            connect.u8(MqttCodec.PROTOCOL_LEVEL_311);
+            connect.u8(0x02);
+            connect.u16(60);
+            connect.string(clientId);
+            send(connect.toPacket(MqttCodec.CONNECT, 0));
+
+            byte[] connack = expect(MqttCodec.CONNACK);
+            assertEquals(0, connack[1]);
+        }
+
+        void send(ByteBuffer packet) throws IOException {
+            socket.getOutputStream().write(packet.array(), packet.position(), packet.remaining());
+        }
+
+        void subscribe(int packetId, String filter, int qos) throws IOException {
+            MqttCodec.Writer subscribe = new MqttCodec.Writer(32);
+            subscribe.u16(packetId);
+            subscribe.string(filter);
+            subscribe.u8(qos);
+            send(subscribe.toPacket(MqttCodec.SUBSCRIBE, 0x02));
+
+            byte[] suback = expect(MqttCodec.SUBACK);
+            assertEquals(packetId, ((suback[0] & 0xFF) << 8) | (suback[1] & 0xFF));
+            assertEquals(qos, suback[2]);
+        }
+
+        void publish(String topic, String payload) throws IOException {
+            send(MqttCodec.publish(MqttCodec.PROTOCOL_LEVEL_311, topic, payload.getBytes(StandardCharsets.UTF_8), 0, 0, new byte[0]));
+        }
+
+        /**
+         * @return the type in the high nibble and the flags in the low one, followed by the packet's body
+         */
+        byte[] readPacket() throws IOException {
+            int header = in.readUnsignedByte();
+            int length = 0;
+            int shift = 0;
+            int encoded;
+            do {
+                encoded = in.readUnsignedByte();
+                length |= (encoded & 0x7F) << shift;
+                shift += 7;
+            } while ((encoded & 0x80) != 0);
+
+            byte[] packet = new byte[length + 1];
+            packet[0] = (byte) header;
+            in.readFully(packet, 1, length);
+            return packet;
+        }
+
+        byte[] expect(int type) throws IOException {
+            byte[] packet = readPacket();
+            assertEquals(type, (packet[0] & 0xFF) >> 4);
+            return Arrays.copyOfRange(packet, 1, packet.length);
+        }
+
+        /**
+         * @return the topic and payload of the next message, which must be a QoS 0 publish
+         */
+        String[] expectPublish() throws IOException {
+            ByteBuffer body = ByteBuffer.wrap(expect(MqttCodec.PUBLISH));
+            String topic = MqttCodec.readString(body);
+            return new String[] { topic, new String(MqttCodec.readRemaining(body), StandardCharsets.UTF_8) };
+        }
+
+        boolean isClosedByBroker() throws IOException {
+            try {
+                return in.read() < 0;
+            } catch (SocketTimeoutException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testRoutesToWildcardSubscribers() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+             RawClient subscriber = new RawClient(broker, "subscriber");
+             RawClient publisher = new RawClient(broker, "publisher")) {
+            subscriber.subscribe(1, "sensors/+/temperature", 0);
+            subscriber.subscribe(2, "alarms/#", 0);
+
+            publisher.publish("sensors/kitchen/temperature", "21");
+            publisher.publish("sensors/kitchen/humidity", "40");
+            publisher.publish("alarms/kitchen/smoke", "on");
+
+            assertArrayEquals(new String[] { "sensors/kitchen/temperature", "21" }, subscriber.expectPublish());
+            assertArrayEquals(new String[] { "alarms/kitchen/smoke", "on" }, subscriber.expectPublish());
+            assertEquals(2, broker.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void testQos1PublishIsAcknowledged() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+             RawClient subscriber = new RawClient(broker, "subscriber");
+             RawClient publisher = new RawClient(broker, "publisher")) {
+            subscriber.subscribe(1, "a/b", 1);
+
+            publisher.send(MqttCodec.publish(MqttCodec.PROTOCOL_LEVEL_311, "a/b", new byte[] { 7 }, 1, 42, new byte[0]));
+            assertArrayEquals(new byte[] { 0, 42 }, publisher.expect(MqttCodec.PUBACK));
+
+            byte[] delivered = subscriber.readPacket();
+            assertEquals(MqttCodec.PUBLISH << 4 | 0x02, delivered[0] & 0xFF);
+        }
+    }
+
+    @Test
+    public void testPublishListenerAndBrokerPublish() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+             RawClient client = new RawClient(broker, "device-1")) {
+            CompletableFuture<String> heard = new CompletableFuture<>();
+            broker.addPublishListener((clientId, topic, payload) -> heard.complete(clientId + " " + topic + " " + new String(payload, StandardCharsets.UTF_8)));
+            client.subscribe(1, "down", 0);
+
+            client.publish("up", "hello");
+            assertEquals("device-1 up hello", heard.get(5, TimeUnit.SECONDS));
+
+            broker.publish("down", "world");
+            assertArrayEquals(new String[] { "down", "world" }, client.expectPublish());
+            assertTrue(broker.getPublishesReceived() >= 2);
+        }
+    }
+
+    @Test
+    public void testSameClientIdTakesOverSession() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().build();
+             RawClient first = new RawClient(broker, "device");
+             RawClient second = new RawClient(broker, "device")) {
+            assertTrue(first.isClosedByBroker());
+            second.subscribe(1, "still/connected", 0);
+            assertEquals(1, broker.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void testOversizedPacketClosesConnection() throws Exception {
+        try (LocalMqttBroker broker = LocalMqttBroker.builder().withMaxPacketSize(1024).build();
+             RawClient client = new RawClient(broker, "device")) {
+            client.publish("big", new String(new char[2048]).replace('\0', 'x'));
+            assertTrue(client.isClosedByBroker());
+        }
+    }
+
+    @Test
+    public void testInvalidBuilderSettings() {
+        assertThrows(IllegalArgumentException.class, () -> LocalMqttBroker.builder().withPort(70000).build());
+        assertThrows(IllegalArgumentException.class, () -> LocalMqttBroker.builder().withMaxPacketSize(0).build());
+    }
+
+    @Test
+    public void testSubscriptionTreeMatching() {
+        SubscriptionTree tree = new SubscriptionTree();
+        // The tree only keys on identity, so distinct placeholder connections are enough
+        MqttConnection exact = placeholder();
+        MqttConnection plus = placeholder();
+        MqttConnection hash = placeholder();
+        MqttConnection root = placeholder();
+        tree.subscribe("$aws/things/t1/shadow/update/accepted", exact, new SubscriptionTree.Subscription(1, false));
+        tree.subscribe("$aws/things/+/shadow/update/accepted", plus, new SubscriptionTree.Subscription(0, false));
+        tree.subscribe("$aws/things/t1/#", hash, new SubscriptionTree.Subscription(1, false));
+        tree.subscribe("#", root, new SubscriptionTree.Subscription(1, false));
+        tree.subscribe("$aws/things/t1/#", exact, new SubscriptionTree.Subscription(0, false));
+        assertEquals(5, tree.size());
+
+        Map<MqttConnection, SubscriptionTree.Subscription> matches = new IdentityHashMap<>();
+        tree.match("$aws/things/t1/shadow/update/accepted", matches);
+        assertEquals(3, matches.size());
+        assertEquals(1, matches.get(exact).qos);
+        assertEquals(0, matches.get(plus).qos);
+        assertTrue(matches.containsKey(hash));
+        // Filters starting with a wildcard do not match $ topics
+        assertNull(matches.get(root));
+
+        matches.clear();
+        tree.match("$aws/things/t1", matches);
+        assertTrue(matches.containsKey(hash));
+
+        assertTrue(tree.unsubscribe("$aws/things/t1/#", hash));
+        assertFalse(tree.unsubscribe("$aws/things/t1/#", hash));
+        matches.clear();
+        tree.match("plain/topic", matches);
+        assertEquals(1, matches.size());
+        assertTrue(matches.containsKey(root));
+    }
+
+    private static MqttConnection placeholder() {
+        return new MqttConnection(null, null, null);
+    }
+}